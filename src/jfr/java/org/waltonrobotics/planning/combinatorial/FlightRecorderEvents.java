@@ -0,0 +1,95 @@
+package org.waltonrobotics.planning.combinatorial;
+
+import jdk.jfr.EventType;
+
+/**
+ * Planner events recorded with Flight Recorder. Loaded reflectively by PlannerEvents when the runtime has jdk.jfr.
+ * Events are only allocated while Flight Recorder records their type, and their fields are only filled in if they are
+ * committed, so a disabled event costs nothing once the JIT has compiled the callers.
+ */
+class FlightRecorderEvents implements PlannerEvents {
+
+    private static final EventType SLICE_BUILD = EventType.getEventType(SliceBuildEvent.class);
+    private static final EventType VISIBILITY_GRAPH_BUILD = EventType.getEventType(VisibilityGraphBuildEvent.class);
+    private static final EventType PATH_QUERY = EventType.getEventType(PathQueryEvent.class);
+
+    @Override
+    public Object sliceBuildStarted() {
+        if (!SLICE_BUILD.isEnabled()) return null;
+
+        SliceBuildEvent event = new SliceBuildEvent();
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void sliceBuildFinished(Object span, int sliceIndex, double robotOrientationDegrees, int vertexCount, int edgeCount) {
+        if (!(span instanceof SliceBuildEvent)) return;
+
+        SliceBuildEvent event = (SliceBuildEvent) span;
+
+        if (event.shouldCommit()) {
+            event.sliceIndex = sliceIndex;
+            event.robotOrientationDegrees = robotOrientationDegrees;
+            event.vertexCount = vertexCount;
+            event.edgeCount = edgeCount;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object visibilityGraphBuildStarted() {
+        if (!VISIBILITY_GRAPH_BUILD.isEnabled()) return null;
+
+        VisibilityGraphBuildEvent event = new VisibilityGraphBuildEvent();
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void visibilityGraphBuildFinished(Object span, double robotOrientationDegrees, int vertexCount, int edgeCount, long intersectionTests) {
+        if (!(span instanceof VisibilityGraphBuildEvent)) return;
+
+        VisibilityGraphBuildEvent event = (VisibilityGraphBuildEvent) span;
+
+        if (event.shouldCommit()) {
+            event.robotOrientationDegrees = robotOrientationDegrees;
+            event.vertexCount = vertexCount;
+            event.edgeCount = edgeCount;
+            event.intersectionTests = intersectionTests;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object queryStarted() {
+        if (!PATH_QUERY.isEnabled()) return null;
+
+        PathQueryEvent event = new PathQueryEvent();
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void queryFinished(Object span, String search, int expandedNodes, int generatedNodes, int pathPoseCount, double pathCost) {
+        if (!(span instanceof PathQueryEvent)) return;
+
+        PathQueryEvent event = (PathQueryEvent) span;
+
+        if (event.shouldCommit()) {
+            event.search = search;
+            event.expandedNodes = expandedNodes;
+            event.generatedNodes = generatedNodes;
+            event.pathPoseCount = pathPoseCount;
+            event.pathCost = pathCost;
+            event.commit();
+        }
+    }
+
+}
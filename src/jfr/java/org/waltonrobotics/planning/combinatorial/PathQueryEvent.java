@@ -0,0 +1,35 @@
+package org.waltonrobotics.planning.combinatorial;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one path query of CombinatorialPlanner.
+ */
+@Name("org.waltonrobotics.PathQuery")
+@Label("Path Query")
+@Category("Path Planning")
+@Description("Path query of the combinatorial planner")
+class PathQueryEvent extends jdk.jfr.Event {
+
+    @Label("Search")
+    @Description("A*, bidirectional A* or ARA*")
+    String search;
+
+    @Label("Expanded Nodes")
+    int expandedNodes;
+
+    @Label("Generated Nodes")
+    int generatedNodes;
+
+    @Label("Path Poses")
+    @Description("Number of poses in the path, 0 if none was found")
+    int pathPoseCount;
+
+    @Label("Path Cost")
+    @Description("Cost of the path over the slice graph, infinite if none was found")
+    double pathCost;
+
+}
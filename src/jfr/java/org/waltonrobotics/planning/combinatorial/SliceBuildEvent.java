@@ -0,0 +1,31 @@
+package org.waltonrobotics.planning.combinatorial;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning the build of one configuration space slice, c-space obstacles included.
+ */
+@Name("org.waltonrobotics.SliceBuild")
+@Label("Slice Build")
+@Category("Path Planning")
+@Description("Build of one configuration space slice")
+@StackTrace(false)
+class SliceBuildEvent extends jdk.jfr.Event {
+
+    @Label("Slice Index")
+    int sliceIndex;
+
+    @Label("Robot Orientation (degrees)")
+    double robotOrientationDegrees;
+
+    @Label("Vertices")
+    int vertexCount;
+
+    @Label("Edges")
+    int edgeCount;
+
+}
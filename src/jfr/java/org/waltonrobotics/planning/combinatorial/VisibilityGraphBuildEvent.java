@@ -0,0 +1,31 @@
+package org.waltonrobotics.planning.combinatorial;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning the rotational sweeps that build a visibility graph.
+ */
+@Name("org.waltonrobotics.VisibilityGraphBuild")
+@Label("Visibility Graph Build")
+@Category("Path Planning")
+@Description("Rotational sweeps building the visibility graph of a slice")
+@StackTrace(false)
+class VisibilityGraphBuildEvent extends jdk.jfr.Event {
+
+    @Label("Robot Orientation (degrees)")
+    double robotOrientationDegrees;
+
+    @Label("Vertices")
+    int vertexCount;
+
+    @Label("Edges")
+    int edgeCount;
+
+    @Label("Intersection Tests")
+    long intersectionTests;
+
+}
@@ -0,0 +1,84 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.planning.AnytimePath;
+import org.waltonrobotics.planning.combinatorial.CombinatorialPlanner;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs the anytime planner on random Deep Space queries with a time budget and compares every result against the
+ * optimal path cost, checking that the reported suboptimality bound holds. Also reports how long the first path
+ * took.
+ * <p>
+ * Usage: AnytimeQueryBenchmark [angleResolutionDegrees] [queryCount] [timeBudgetMillis] [initialInflation]
+ */
+public class AnytimeQueryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        long timeBudgetMillis = args.length > 2 ? Long.parseLong(args[2]) : 2;
+        double initialInflation = args.length > 3 ? Double.parseDouble(args[3]) : 3;
+
+        ConfigurationSpace cSpace = new ConfigurationSpace(BenchmarkFields.squareRobot(), BenchmarkFields.deepSpaceObstacles(), angleResolutionDegrees);
+        CombinatorialPlanner planner = new CombinatorialPlanner(cSpace, 1);
+
+        Random random = new Random(42);
+        List<Pose[]> queries = new ArrayList<>(queryCount);
+
+        for (int i = 0; i < queryCount; i++) {
+            queries.add(new Pose[]{
+                    new Pose(random.nextDouble() * 22.54, random.nextDouble() * 9.14, random.nextDouble() * 360),
+                    new Pose(random.nextDouble() * 22.54, random.nextDouble() * 9.14, random.nextDouble() * 360)});
+        }
+
+        int found = 0;
+        int optimal = 0;
+        int boundViolations = 0;
+        double totalFirstPathMillis = 0;
+        double worstCostRatio = 1;
+        double totalBound = 0;
+
+        for (int pass = 0; pass < 2; pass++) {
+            // The first pass only warms up the JIT
+            boolean measure = pass == 1;
+
+            for (Pose[] query : queries) {
+                // An uninflated search run to completion is plain A*, so its cost is the optimal cost
+                double optimalCost = planner.findPathAnytime(query[0], query[1], Long.MAX_VALUE, 1, null).getCost();
+
+                long queryStart = System.nanoTime();
+                double[] firstPathMillis = {Double.NaN};
+
+                AnytimePath result = planner.findPathAnytime(query[0], query[1], queryStart + timeBudgetMillis * 1_000_000, initialInflation, path -> {
+                    if (Double.isNaN(firstPathMillis[0])) {
+                        firstPathMillis[0] = (System.nanoTime() - queryStart) / 1e6;
+                    }
+                });
+
+                if (!measure || result.getPath() == null) continue;
+
+                double costRatio = result.getCost() / optimalCost;
+
+                found++;
+                totalFirstPathMillis += firstPathMillis[0];
+                totalBound += result.getSuboptimalityBound();
+                worstCostRatio = Math.max(worstCostRatio, costRatio);
+
+                if (result.isOptimal()) optimal++;
+                if (costRatio > result.getSuboptimalityBound() + 1e-9) boundViolations++;
+            }
+        }
+
+        System.out.printf("%d queries at %.1f deg, %d ms budget, inflation %.1f: %d paths, %d proven optimal%n",
+                queryCount, angleResolutionDegrees, timeBudgetMillis, initialInflation, found, optimal);
+        System.out.printf("First path: mean %.3f ms. Bound: mean %.3f. Worst cost / optimal: %.3f. Bound violations: %d%n",
+                totalFirstPathMillis / found, totalBound / found, worstCostRatio, boundViolations);
+    }
+
+}
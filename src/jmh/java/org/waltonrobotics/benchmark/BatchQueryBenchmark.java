@@ -0,0 +1,77 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.planning.PathQuery;
+import org.waltonrobotics.planning.combinatorial.CombinatorialPlanner;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares planning random start/goal pairs on the Deep Space field one after another with planning them as a batch
+ * on a fork/join pool, and checks that both give the same paths.
+ * <p>
+ * Usage: BatchQueryBenchmark [angleResolutionDegrees] [queryCount] [parallelism]
+ */
+public class BatchQueryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        ConfigurationSpace cSpace = new ConfigurationSpace(BenchmarkFields.squareRobot(), BenchmarkFields.deepSpaceObstacles(), angleResolutionDegrees, parallelism);
+        CombinatorialPlanner planner = new CombinatorialPlanner(cSpace, 1);
+
+        Random random = new Random(42);
+        List<PathQuery> queries = new ArrayList<>(queryCount);
+
+        for (int i = 0; i < queryCount; i++) {
+            queries.add(new PathQuery(
+                    new Pose(random.nextDouble() * 22.54, random.nextDouble() * 9.14, random.nextDouble() * 360),
+                    new Pose(random.nextDouble() * 22.54, random.nextDouble() * 9.14, random.nextDouble() * 360)));
+        }
+
+        // Warm up the JIT on both code paths
+        for (PathQuery query : queries) {
+            planner.findPath(query.getStartingPose(), query.getEndingPose());
+        }
+
+        long sequentialStart = System.nanoTime();
+        List<List<Pose>> sequentialPaths = new ArrayList<>(queryCount);
+
+        for (PathQuery query : queries) {
+            sequentialPaths.add(planner.findPath(query.getStartingPose(), query.getEndingPose()));
+        }
+
+        double sequentialMillis = (System.nanoTime() - sequentialStart) / 1e6;
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            long batchStart = System.nanoTime();
+            List<CompletableFuture<List<Pose>>> futures = planner.findPaths(queries, pool);
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            double batchMillis = (System.nanoTime() - batchStart) / 1e6;
+
+            int mismatches = 0;
+
+            for (int i = 0; i < queryCount; i++) {
+                if (!String.valueOf(sequentialPaths.get(i)).equals(String.valueOf(futures.get(i).join()))) {
+                    mismatches++;
+                }
+            }
+
+            System.out.printf("%d queries at %.1f deg: sequential %.1f ms, batch (%d threads) %.1f ms, speedup %.2fx, %d mismatched paths%n",
+                    queryCount, angleResolutionDegrees, sequentialMillis, parallelism, batchMillis, sequentialMillis / batchMillis, mismatches);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.field.FieldGenerator;
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Vector2f;
+import org.waltonrobotics.geometry.Vector2i;
+
+import java.awt.*;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Shared fields and robots used by the benchmark programs.
+ */
+public class BenchmarkFields {
+
+    public static final String DEEP_SPACE_DRAWING_PATH = "res/fields/DeepSpaceFieldDrawingSimplified.png";
+
+    /**
+     * Generates the Deep Space field obstacles from the simplified field drawing, using the same parameters
+     * DeepSpaceField.field was generated with. The benchmarks regenerate the obstacles instead of loading the stored
+     * field file, so they also run on other drawings given through deepSpaceDrawingPath().
+     *
+     * @return Deep Space field obstacles
+     * @throws IOException: Unable to open the field drawing
+     */
+    public static List<ConvexHull> deepSpaceObstacles() throws IOException {
+        FieldGenerator fieldGenerator = new FieldGenerator(deepSpaceDrawingPath(),
+                new Color(120, 120, 120),
+                20, 40,
+                0.1,
+                new Vector2i(131, 143),
+                1584, 642,
+                22.54, 9.14);
+
+        return fieldGenerator.getObstacles();
+    }
+
+    /**
+     * @return Path of the Deep Space field drawing, relative to the project directory unless the
+     * benchmark.deepSpaceDrawing system property overrides it
+     */
+    public static String deepSpaceDrawingPath() {
+        return System.getProperty("benchmark.deepSpaceDrawing", DEEP_SPACE_DRAWING_PATH);
+    }
+
+    /**
+     * @return One unit by one unit square robot used by the planner demos
+     */
+    public static ConvexHull squareRobot() {
+        ConvexHull robot = new ConvexHull();
+
+        robot.begin();
+        robot.addPoint(new Vector2f(0.0, 0.0));
+        robot.addPoint(new Vector2f(1.0, 0.0));
+        robot.addPoint(new Vector2f(1.0, 1.0));
+        robot.addPoint(new Vector2f(0.0, 1.0));
+        robot.end();
+
+        return robot;
+    }
+
+}
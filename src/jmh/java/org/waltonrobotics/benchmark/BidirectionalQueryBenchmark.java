@@ -0,0 +1,96 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.planning.combinatorial.CombinatorialPlanner;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares node expansions and query time of A*, A* to the goal vertex and bidirectional A* on random Deep Space
+ * queries, both anywhere on the field and across it from one end to the other, and checks that bidirectional A* finds
+ * the optimal cost. A* to the goal vertex is the optimal reference, plain A* aims at the ending pose instead.
+ * <p>
+ * Usage: BidirectionalQueryBenchmark [angleResolutionDegrees] [queryCount]
+ */
+public class BidirectionalQueryBenchmark {
+
+    private static final double FIELD_WIDTH = 22.54;
+    private static final double FIELD_HEIGHT = 9.14;
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        ConfigurationSpace cSpace = new ConfigurationSpace(BenchmarkFields.squareRobot(), BenchmarkFields.deepSpaceObstacles(), angleResolutionDegrees);
+        CombinatorialPlanner planner = new CombinatorialPlanner(cSpace, 1);
+
+        // The first run only warms up the JIT
+        run(planner, "warmup", generateQueries(queryCount, 1), false);
+
+        run(planner, "Random", generateQueries(queryCount, 1), true);
+        run(planner, "Cross-field", generateQueries(queryCount, 0.25), true);
+    }
+
+    /**
+     * @param endFraction: Fraction of the field width at its left end the starts are in, the goals are in the same
+     *                     fraction at its right end
+     */
+    private static List<Pose[]> generateQueries(int queryCount, double endFraction) {
+        Random random = new Random(42);
+        List<Pose[]> queries = new ArrayList<>(queryCount);
+
+        for (int i = 0; i < queryCount; i++) {
+            double startX = random.nextDouble() * endFraction * FIELD_WIDTH;
+            double goalX = (1 - random.nextDouble() * endFraction) * FIELD_WIDTH;
+
+            queries.add(new Pose[]{
+                    new Pose(startX, random.nextDouble() * FIELD_HEIGHT, random.nextDouble() * 360),
+                    new Pose(goalX, random.nextDouble() * FIELD_HEIGHT, random.nextDouble() * 360)});
+        }
+
+        return queries;
+    }
+
+    private static void run(CombinatorialPlanner planner, String name, List<Pose[]> queries, boolean print) {
+        long[] expansions = new long[3];
+        double[] millis = new double[3];
+        int found = 0;
+        int costMismatches = 0;
+
+        for (Pose[] query : queries) {
+            long start = System.nanoTime();
+            planner.findPath(query[0], query[1]);
+            millis[0] += (System.nanoTime() - start) / 1e6;
+            expansions[0] += planner.getLastExpansionCount();
+
+            // An uninflated anytime search run to completion is A* to the goal vertex, so its cost is the optimal cost
+            start = System.nanoTime();
+            double optimalCost = planner.findPathAnytime(query[0], query[1], Long.MAX_VALUE, 1, null).getCost();
+            millis[1] += (System.nanoTime() - start) / 1e6;
+            expansions[1] += planner.getLastExpansionCount();
+
+            start = System.nanoTime();
+            List<Pose> path = planner.findPathBidirectional(query[0], query[1]);
+            millis[2] += (System.nanoTime() - start) / 1e6;
+            expansions[2] += planner.getLastExpansionCount();
+
+            if (path != null) found++;
+            if (Math.abs(planner.getLastPathCost() - optimalCost) > 1e-6 * Math.max(1, optimalCost)) costMismatches++;
+        }
+
+        if (!print) return;
+
+        int queryCount = queries.size();
+
+        System.out.printf("%s (%d queries, %d paths):%n", name, queryCount, found);
+        System.out.printf("  A*:                 %8.1f expansions, %.3f ms per query%n", (double) expansions[0] / queryCount, millis[0] / queryCount);
+        System.out.printf("  A* to goal vertex:  %8.1f expansions, %.3f ms per query%n", (double) expansions[1] / queryCount, millis[1] / queryCount);
+        System.out.printf("  Bidirectional A*:   %8.1f expansions, %.3f ms per query, %.0f%% of A* to goal vertex, %d cost mismatches%n",
+                (double) expansions[2] / queryCount, millis[2] / queryCount, 100.0 * expansions[2] / expansions[1], costMismatches);
+    }
+
+}
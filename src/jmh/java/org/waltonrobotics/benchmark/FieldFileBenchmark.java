@@ -0,0 +1,150 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.field.Field;
+import org.waltonrobotics.field.FieldGenerator;
+import org.waltonrobotics.field.FieldUnitConverter;
+import org.waltonrobotics.field.RandomFieldGenerator;
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Vector2i;
+
+import java.awt.*;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+/**
+ * Saves and loads the simplified and detailed Deep Space fields and a seeded RandomFieldGenerator scene, once with
+ * Java serialization like field files used to be written and once in the binary field format, and prints the file
+ * sizes and the mean save and load times of both.
+ * <p>
+ * Usage: FieldFileBenchmark [repetitions] [randomObstacleCount] [randomObstacleVertexCount]
+ */
+public class FieldFileBenchmark {
+
+    private static final String DETAILED_DEEP_SPACE_DRAWING_PATH = "res/fields/DeepSpaceFieldDrawing.png";
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int randomObstacleCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int randomObstacleVertexCount = args.length > 2 ? Integer.parseInt(args[2]) : 24;
+
+        File directory = File.createTempFile("fields", "");
+
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Unable to create directory " + directory + "!");
+        }
+
+        directory.deleteOnExit();
+
+        System.out.printf("%-19s %9s %6s %10s %10s %10s%n", "Field", "Obstacles", "Format", "Size", "Save", "Load");
+
+        run("Deep Space", generate(BenchmarkFields.deepSpaceDrawingPath()), directory, repetitions);
+        run("Detailed Deep Space", generate(DETAILED_DEEP_SPACE_DRAWING_PATH), directory, repetitions);
+
+        double fieldWidth = Math.max(6, Math.sqrt(16.0 * randomObstacleCount));
+
+        run("Random", new RandomFieldGenerator(42, randomObstacleCount, randomObstacleVertexCount, 0.3, 0.8, 0.3, fieldWidth, fieldWidth / 2),
+                directory, repetitions);
+    }
+
+    private static FieldGenerator generate(String path) throws IOException {
+        return new FieldGenerator(path,
+                new Color(120, 120, 120),
+                20, 40,
+                0.1,
+                new Vector2i(131, 143),
+                1584, 642,
+                22.54, 9.14);
+    }
+
+    private static void run(String name, FieldGenerator fieldGenerator, File directory, int repetitions) throws IOException, ClassNotFoundException {
+        run(name, fieldGenerator.getFieldWidthPixels(), fieldGenerator.getFieldHeightPixels(),
+                fieldGenerator.getFieldWidthActualUnits(), fieldGenerator.getFieldHeightActualUnits(),
+                fieldGenerator.getUnitConverter(), fieldGenerator.getObstacles(), directory, repetitions);
+    }
+
+    private static void run(String name, RandomFieldGenerator fieldGenerator, File directory, int repetitions) throws IOException, ClassNotFoundException {
+        run(name, fieldGenerator.getFieldWidthPixels(), fieldGenerator.getFieldHeightPixels(),
+                fieldGenerator.getFieldWidthActualUnits(), fieldGenerator.getFieldHeightActualUnits(),
+                fieldGenerator.getUnitConverter(), fieldGenerator.getObstacles(), directory, repetitions);
+    }
+
+    private static void run(String name,
+                            int fieldWidthPixels, int fieldHeightPixels,
+                            double fieldWidthActualUnits, double fieldHeightActualUnits,
+                            FieldUnitConverter unitConverter, List<ConvexHull> obstacles,
+                            File directory, int repetitions) throws IOException, ClassNotFoundException {
+        File legacyFile = new File(directory, "legacy.field");
+        File binaryFile = new File(directory, "binary.field");
+
+        legacyFile.deleteOnExit();
+        binaryFile.deleteOnExit();
+
+        long legacySaveNanos = 0;
+        long legacyLoadNanos = 0;
+        long binarySaveNanos = 0;
+        long binaryLoadNanos = 0;
+
+        // The first repetition warms up and isn't measured
+        for (int i = 0; i <= repetitions; i++) {
+            long start = System.nanoTime();
+
+            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(legacyFile))) {
+                oos.writeInt(fieldWidthPixels);
+                oos.writeInt(fieldHeightPixels);
+                oos.writeDouble(fieldWidthActualUnits);
+                oos.writeDouble(fieldHeightActualUnits);
+                oos.writeObject(obstacles);
+                oos.writeObject(unitConverter);
+            }
+
+            long legacySaved = System.nanoTime();
+
+            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(legacyFile))) {
+                ois.readInt();
+                ois.readInt();
+                ois.readDouble();
+                ois.readDouble();
+                ois.readObject();
+                ois.readObject();
+            }
+
+            long legacyLoaded = System.nanoTime();
+
+            Field.saveToFile(binaryFile.getPath(),
+                    fieldWidthPixels, fieldHeightPixels,
+                    fieldWidthActualUnits, fieldHeightActualUnits,
+                    unitConverter, obstacles);
+
+            long binarySaved = System.nanoTime();
+
+            new Field(binaryFile.getPath());
+
+            long binaryLoaded = System.nanoTime();
+
+            if (i == 0) continue;
+
+            legacySaveNanos += legacySaved - start;
+            legacyLoadNanos += legacyLoaded - legacySaved;
+            binarySaveNanos += binarySaved - legacyLoaded;
+            binaryLoadNanos += binaryLoaded - binarySaved;
+        }
+
+        print(name, obstacles.size(), "Legacy", legacyFile.length(), legacySaveNanos, legacyLoadNanos, repetitions);
+        print(name, obstacles.size(), "Binary", binaryFile.length(), binarySaveNanos, binaryLoadNanos, repetitions);
+        System.out.printf("%-19s %9s %6s %9.1fx %9.1fx %9.1fx%n", "", "", "Gain",
+                (double) legacyFile.length() / binaryFile.length(),
+                (double) legacySaveNanos / binarySaveNanos,
+                (double) legacyLoadNanos / binaryLoadNanos);
+    }
+
+    private static void print(String name, int obstacleCount, String format, long bytes, long saveNanos, long loadNanos, int repetitions) {
+        System.out.printf("%-19s %9d %6s %7.1f kB %7.2f ms %7.2f ms%n",
+                name, obstacleCount, format, bytes / 1e3, saveNanos / 1e6 / repetitions, loadNanos / 1e6 / repetitions);
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.field.FieldGenerator;
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Vector2i;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Generates the Deep Space field from its simplified drawing scaled up by whole factors, like a drawing scanned at a
+ * higher resolution, and from its detailed drawing, and prints the generation time, the bytes allocated, and how many
+ * points were added to the obstacle hulls.
+ * <p>
+ * Usage: FieldGenerationBenchmark [maxScale]
+ */
+public class FieldGenerationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final String DETAILED_DEEP_SPACE_DRAWING_PATH = "res/fields/DeepSpaceFieldDrawing.png";
+
+    public static void main(String[] args) throws IOException {
+        int maxScale = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+
+        BufferedImage drawing = ImageIO.read(new File(BenchmarkFields.deepSpaceDrawingPath()));
+
+        System.out.printf("%-10s %6s %12s %10s %12s %10s %12s%n", "Drawing", "Scale", "Pixels", "Obstacles", "Hull points", "Time", "Allocated");
+
+        for (int scale = 1; scale <= maxScale; scale *= 2) {
+            File scaledDrawing = File.createTempFile("field", ".png");
+
+            scaledDrawing.deleteOnExit();
+            ImageIO.write(scale(drawing, scale), "png", scaledDrawing);
+
+            // Warm up on the unscaled drawing's first run only, larger drawings take long enough on their own
+            if (scale == 1) generate(scaledDrawing.getPath(), scale);
+
+            run("Simplified", scaledDrawing.getPath(), scale, (long) drawing.getWidth() * drawing.getHeight() * scale * scale);
+        }
+
+        BufferedImage detailedDrawing = ImageIO.read(new File(DETAILED_DEEP_SPACE_DRAWING_PATH));
+
+        // Warmed up by the simplified drawing
+        run("Detailed", DETAILED_DEEP_SPACE_DRAWING_PATH, 1, (long) detailedDrawing.getWidth() * detailedDrawing.getHeight());
+    }
+
+    private static void run(String name, String path, int scale, long pixels) throws IOException {
+        long allocatedBefore = THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+
+        FieldGenerator fieldGenerator = generate(path, scale);
+
+        double millis = (System.nanoTime() - start) / 1e6;
+        long allocatedBytes = THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        long hullPoints = 0;
+
+        for (ConvexHull obstacle : fieldGenerator.getObstacles()) {
+            hullPoints += obstacle.getAllPoints().size();
+        }
+
+        System.out.printf("%-10s %6d %12d %10d %12d %7.0f ms %9.1f MB%n", name, scale, pixels,
+                fieldGenerator.getObstacles().size(), hullPoints, millis, allocatedBytes / 1e6);
+    }
+
+    /**
+     * Generates the field with the parameters of BenchmarkFields.deepSpaceObstacles, scaled to the drawing.
+     */
+    private static FieldGenerator generate(String path, int scale) throws IOException {
+        return new FieldGenerator(path,
+                new Color(120, 120, 120),
+                20, 40,
+                0.1,
+                new Vector2i(131 * scale, 143 * scale),
+                1584 * scale, 642 * scale,
+                22.54, 9.14);
+    }
+
+    /**
+     * @return Drawing scaled up by repeating every pixel, so blobs keep their exact colors
+     */
+    private static BufferedImage scale(BufferedImage drawing, int scale) {
+        BufferedImage scaled = new BufferedImage(drawing.getWidth() * scale, drawing.getHeight() * scale, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        graphics.drawImage(drawing, 0, 0, scaled.getWidth(), scaled.getHeight(), null);
+        graphics.dispose();
+
+        return scaled;
+    }
+
+}
@@ -0,0 +1,97 @@
+package org.waltonrobotics.benchmark;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.planning.combinatorial.CombinatorialPlanner;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Builds the Deep Space configuration space and plans random queries with Flight Recorder off and then recording the
+ * planner's events, writes the recording to a file that JDK Mission Control can open next to the GC events, and
+ * counts the planner events in it. The timings show what the events cost when recording is off and on.
+ * <p>
+ * Usage: FlightRecorderBenchmark [angleResolutionDegrees] [queryCount] [recordingPath]
+ */
+public class FlightRecorderBenchmark {
+
+    private static final String[] EVENT_NAMES = {
+            "org.waltonrobotics.SliceBuild", "org.waltonrobotics.VisibilityGraphBuild", "org.waltonrobotics.PathQuery"
+    };
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Path recordingPath = Paths.get(args.length > 2 ? args[2] : "planner.jfr");
+
+        Random random = new Random(42);
+        List<Pose[]> queries = new ArrayList<>(queryCount);
+
+        for (int i = 0; i < queryCount; i++) {
+            queries.add(new Pose[]{
+                    new Pose(random.nextDouble() * 22.54, random.nextDouble() * 9.14, random.nextDouble() * 360),
+                    new Pose(random.nextDouble() * 22.54, random.nextDouble() * 9.14, random.nextDouble() * 360)});
+        }
+
+        // Warm-up run, also the baseline with recording off
+        run(angleResolutionDegrees, queries);
+        double[] offMillis = run(angleResolutionDegrees, queries);
+        double[] onMillis;
+
+        try (Recording recording = new Recording()) {
+            for (String eventName : EVENT_NAMES) {
+                recording.enable(eventName);
+            }
+
+            recording.enable("jdk.GarbageCollection");
+            recording.start();
+
+            // Starting the first recording retransforms the event classes, so time a second run
+            run(angleResolutionDegrees, queries);
+            onMillis = run(angleResolutionDegrees, queries);
+
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+
+        Map<String, Integer> eventCounts = new TreeMap<>();
+
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingPath)) {
+            eventCounts.merge(event.getEventType().getName(), 1, Integer::sum);
+        }
+
+        System.out.printf("Recording off: build %.1f ms, %d queries %.1f ms%n", offMillis[0], queryCount, offMillis[1]);
+        System.out.printf("Recording on:  build %.1f ms, %d queries %.1f ms%n", onMillis[0], queryCount, onMillis[1]);
+        System.out.println("Wrote " + recordingPath + ": " + eventCounts);
+    }
+
+    /**
+     * @return Build time and time taken by all queries in milliseconds
+     */
+    private static double[] run(double angleResolutionDegrees, List<Pose[]> queries) throws IOException {
+        long buildStart = System.nanoTime();
+        ConfigurationSpace cSpace = new ConfigurationSpace(BenchmarkFields.squareRobot(), BenchmarkFields.deepSpaceObstacles(), angleResolutionDegrees);
+        double buildMillis = (System.nanoTime() - buildStart) / 1e6;
+
+        CombinatorialPlanner planner = new CombinatorialPlanner(cSpace, 1);
+
+        long queryStart = System.nanoTime();
+
+        for (Pose[] query : queries) {
+            planner.findPath(query[0], query[1]);
+        }
+
+        return new double[]{buildMillis, (System.nanoTime() - queryStart) / 1e6};
+    }
+
+}
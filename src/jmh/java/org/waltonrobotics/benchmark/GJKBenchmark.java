@@ -0,0 +1,135 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.GJKCollision;
+import org.waltonrobotics.geometry.GJKSolver;
+import org.waltonrobotics.geometry.Vector2f;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs GJKCollision.polygonsIntersect and the GJKSolver queries on the same random convex polygon pairs, and prints
+ * how often the intersection tests agree, the time per query and the bytes allocated per query.
+ * <p>
+ * Usage: GJKBenchmark [pairCount] [pointsPerPolygon]
+ */
+public class GJKBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final int ROUNDS = 20;
+    private static final GJKSolver SOLVER = new GJKSolver();
+
+    private static final String[] QUERY_NAMES = {
+            "GJKCollision.polygonsIntersect", "GJKSolver.intersects", "GJKSolver.distance", "GJKSolver.penetrationDepth"
+    };
+
+    private static List<List<Vector2f>> polygons1;
+    private static List<List<Vector2f>> polygons2;
+    private static double[][] packed1;
+    private static double[][] packed2;
+
+    public static void main(String[] args) {
+        int pairCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int pointsPerPolygon = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+        Random random = new Random(42);
+
+        polygons1 = new ArrayList<>(pairCount);
+        polygons2 = new ArrayList<>(pairCount);
+        packed1 = new double[pairCount][];
+        packed2 = new double[pairCount][];
+
+        for (int i = 0; i < pairCount; i++) {
+            polygons1.add(randomPolygon(random, 0, 0, pointsPerPolygon));
+            polygons2.add(randomPolygon(random, random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2, pointsPerPolygon));
+            packed1[i] = GJKSolver.pack(polygons1.get(i));
+            packed2[i] = GJKSolver.pack(polygons2.get(i));
+        }
+
+        int disagreements = 0;
+        int intersecting = 0;
+
+        for (int i = 0; i < pairCount; i++) {
+            boolean intersects = SOLVER.intersects(packed1[i], polygons1.get(i).size(), packed2[i], polygons2.get(i).size());
+
+            if (intersects) intersecting++;
+            if (intersects != GJKCollision.polygonsIntersect(polygons1.get(i), polygons2.get(i))) disagreements++;
+        }
+
+        System.out.printf("%d pairs, %d intersecting, polygonsIntersect disagrees on %d%n", pairCount, intersecting, disagreements);
+
+        for (int query = 0; query < 4; query++) {
+            // Warm up so the JIT and the EPA polytope arrays are settled before measuring
+            for (int round = 0; round < ROUNDS; round++) {
+                runQuery(query);
+            }
+
+            long allocatedBefore = THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+            long start = System.nanoTime();
+
+            for (int round = 0; round < ROUNDS; round++) {
+                runQuery(query);
+            }
+
+            double nanosPerQuery = (double) (System.nanoTime() - start) / ROUNDS / pairCount;
+            double bytesPerQuery = (double) (THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore) / ROUNDS / pairCount;
+
+            System.out.printf("%-32s %8.1f ns/query %8.1f bytes/query%n", QUERY_NAMES[query], nanosPerQuery, bytesPerQuery);
+        }
+    }
+
+    /**
+     * @return Sum of the query results, so the JIT can't drop the queries
+     */
+    private static double runQuery(int query) {
+        double sum = 0;
+
+        for (int i = 0; i < packed1.length; i++) {
+            int pointCount1 = polygons1.get(i).size();
+            int pointCount2 = polygons2.get(i).size();
+
+            switch (query) {
+                case 0:
+                    sum += GJKCollision.polygonsIntersect(polygons1.get(i), polygons2.get(i)) ? 1 : 0;
+                    break;
+                case 1:
+                    sum += SOLVER.intersects(packed1[i], pointCount1, packed2[i], pointCount2) ? 1 : 0;
+                    break;
+                case 2:
+                    sum += SOLVER.distance(packed1[i], pointCount1, packed2[i], pointCount2);
+                    break;
+                default:
+                    sum += SOLVER.penetrationDepth(packed1[i], pointCount1, packed2[i], pointCount2);
+                    break;
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * @return Convex hull of random points in a unit disk around the center
+     */
+    private static List<Vector2f> randomPolygon(Random random, double centerX, double centerY, int pointCount) {
+        ConvexHull hull = new ConvexHull();
+
+        hull.begin();
+
+        for (int i = 0; i < pointCount; i++) {
+            double radius = Math.sqrt(random.nextDouble());
+            double angle = 2 * Math.PI * random.nextDouble();
+
+            hull.addPoint(new Vector2f(centerX + radius * Math.cos(angle), centerY + radius * Math.sin(angle)));
+        }
+
+        hull.end();
+
+        return new ArrayList<>(hull.getConvexPoints());
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.planning.combinatorial.CompactGraph;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+import org.waltonrobotics.planning.combinatorial.VisibilityGraph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the retained heap of the compressed sparse row slice graphs against the same graphs held as
+ * HashMap&lt;Pose, List&lt;Pose&gt;&gt; adjacency lists with a Pose allocated per edge direction, the layout
+ * VisibilityGraph used before, for a 72-slice (5 degree) Deep Space configuration space.
+ * <p>
+ * Usage: GraphMemoryBenchmark [angleResolutionDegrees]
+ */
+public class GraphMemoryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+
+        ConfigurationSpace cSpace = new ConfigurationSpace(BenchmarkFields.squareRobot(), BenchmarkFields.deepSpaceObstacles(), angleResolutionDegrees);
+
+        long compactBytes = 0;
+        long directedEdges = 0;
+
+        for (VisibilityGraph slice : cSpace.getSlices()) {
+            compactBytes += slice.getGraph().getMemoryBytes();
+            directedEdges += slice.getGraph().getEdgeCount();
+        }
+
+        long before = usedHeap();
+
+        List<Map<Pose, List<Pose>>> adjacencyLists = new ArrayList<>();
+
+        for (VisibilityGraph slice : cSpace.getSlices()) {
+            adjacencyLists.add(toPoseAdjacencyList(slice));
+        }
+
+        long mapBytes = usedHeap() - before;
+
+        System.out.printf("%d slices, %d directed edges%n", cSpace.getSlices().size(), directedEdges);
+        System.out.printf("Compressed sparse row graphs: %d KB%n", compactBytes / 1024);
+        System.out.printf("HashMap<Pose, List<Pose>> graphs: %d KB (%.1fx)%n", mapBytes / 1024, mapBytes / (double) compactBytes);
+
+        // Keep the maps reachable until they have been measured
+        System.out.println(adjacencyLists.size() == cSpace.getSlices().size() ? "" : "?");
+    }
+
+    private static Map<Pose, List<Pose>> toPoseAdjacencyList(VisibilityGraph slice) {
+        CompactGraph graph = slice.getGraph();
+        Map<Pose, List<Pose>> adjacencyList = new HashMap<>();
+
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            List<Pose> adjacent = new ArrayList<>();
+
+            for (int i = graph.getOffsets()[v]; i < graph.getOffsets()[v + 1]; i++) {
+                int u = graph.getNeighbors()[i];
+
+                adjacent.add(new Pose(graph.getX(u), graph.getY(u), slice.getRobotOrientationDegrees()));
+            }
+
+            adjacencyList.put(new Pose(graph.getX(v), graph.getY(v), slice.getRobotOrientationDegrees()), adjacent);
+        }
+
+        return adjacencyList;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
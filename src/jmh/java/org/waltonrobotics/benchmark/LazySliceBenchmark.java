@@ -0,0 +1,74 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.planning.combinatorial.CombinatorialPlanner;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compares planning over an eagerly built configuration space with planning over a lazy one whose slices are built on
+ * demand under a memory budget, after warming up the slices around the starting heading.
+ * <p>
+ * Usage: LazySliceBenchmark [angleResolutionDegrees] [memoryBudgetKilobytes] [warmUpRadius]
+ */
+public class LazySliceBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+        long memoryBudgetBytes = (args.length > 1 ? Long.parseLong(args[1]) : 16 * 1024) * 1024;
+        int warmUpRadius = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        List<ConvexHull> obstacles = BenchmarkFields.deepSpaceObstacles();
+        ConvexHull robot = BenchmarkFields.squareRobot();
+
+        Pose start = new Pose(7.614804292929293, 6.618474759274993, 90);
+        Pose goal = new Pose(15, 7, 45);
+
+        long eagerStart = System.nanoTime();
+        ConfigurationSpace eagerSpace = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees);
+        double eagerBuildMillis = (System.nanoTime() - eagerStart) / 1e6;
+
+        long eagerQueryStart = System.nanoTime();
+        List<Pose> eagerPath = new CombinatorialPlanner(eagerSpace, 1).findPath(start, goal);
+        double eagerQueryMillis = (System.nanoTime() - eagerQueryStart) / 1e6;
+
+        long eagerBytes = 0;
+
+        for (int i = 0; i < eagerSpace.getSliceCount(); i++) {
+            eagerBytes += eagerSpace.getSlice(i).getMemoryBytes();
+        }
+
+        // Drop the eager space so the lazy run isn't measured against a full heap
+        eagerSpace = null;
+
+        ConfigurationSpace lazySpace = ConfigurationSpace.lazy(robot, obstacles, angleResolutionDegrees, memoryBudgetBytes);
+
+        long warmUpStart = System.nanoTime();
+        lazySpace.warmUp(start.getDegrees(), warmUpRadius).join();
+        double warmUpMillis = (System.nanoTime() - warmUpStart) / 1e6;
+
+        CombinatorialPlanner lazyPlanner = new CombinatorialPlanner(lazySpace, 1);
+
+        long firstQueryStart = System.nanoTime();
+        List<Pose> lazyPath = lazyPlanner.findPath(start, goal);
+        double firstQueryMillis = (System.nanoTime() - firstQueryStart) / 1e6;
+
+        long secondQueryStart = System.nanoTime();
+        lazyPlanner.findPath(start, goal);
+        double secondQueryMillis = (System.nanoTime() - secondQueryStart) / 1e6;
+
+        System.out.printf("Eager (%d slices): build %.1f ms, query %.1f ms, %d KB of slices%n",
+                lazySpace.getSliceCount(), eagerBuildMillis, eagerQueryMillis, eagerBytes / 1024);
+        System.out.printf("Lazy (%d KB budget): warm-up of %d slices %.1f ms, first query %.1f ms, second query %.1f ms%n",
+                memoryBudgetBytes / 1024, Math.min(2 * warmUpRadius + 1, lazySpace.getSliceCount()), warmUpMillis, firstQueryMillis, secondQueryMillis);
+        System.out.printf("Lazy cache: %d slices, %d KB, %d builds, %d evictions%n",
+                lazySpace.getCachedSliceCount(), lazySpace.getCachedSliceMemoryBytes() / 1024, lazySpace.getSliceMissCount(), lazySpace.getSliceEvictionCount());
+        System.out.println("Same path: " + String.valueOf(eagerPath).equals(String.valueOf(lazyPath)));
+
+        lazySpace.shutdown();
+    }
+
+}
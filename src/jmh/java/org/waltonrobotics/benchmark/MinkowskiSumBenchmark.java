@@ -0,0 +1,146 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.MinkowskiSum;
+import org.waltonrobotics.geometry.Vector2f;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Builds c-space obstacles of obstacles with more and more hull points against a square robot turned to every
+ * angle, once by hulling every obstacle point minus robot point pair and once by merging the edges with MinkowskiSum,
+ * and prints the time and bytes allocated per c-space obstacle. Also counts the angles where the two polygons differ,
+ * which happens only when edges of both are parallel: the merge joins the edges, while the hull can keep their
+ * shared point because rounding puts it a hair outside the line.
+ * <p>
+ * Usage: MinkowskiSumBenchmark [angleResolutionDegrees]
+ */
+public class MinkowskiSumBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final int[] HULL_POINT_COUNTS = {4, 16, 64, 256, 1024};
+
+    public static void main(String[] args) {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+        int sliceCount = (int) Math.round(360 / angleResolutionDegrees);
+
+        ConvexHull[] robots = new ConvexHull[sliceCount];
+
+        for (int i = 0; i < sliceCount; i++) {
+            robots[i] = turnedRobot(i * angleResolutionDegrees);
+        }
+
+        System.out.printf("%8s %22s %22s %10s%n", "Points", "Point pair hull", "Edge merge", "Differing");
+
+        for (int hullPointCount : HULL_POINT_COUNTS) {
+            ConvexHull obstacle = circleObstacle(hullPointCount);
+            double[] pairHull = new double[2];
+            double[] edgeMerge = new double[2];
+            int differing = 0;
+
+            // The first rounds warm up the JIT, the last one is printed
+            for (int round = 0; round < 5; round++) {
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+
+                for (ConvexHull robot : robots) {
+                    pairHull(obstacle, robot);
+                }
+
+                pairHull[0] = (System.nanoTime() - start) / 1e3 / sliceCount;
+                pairHull[1] = (double) (allocatedBytes() - allocatedBefore) / sliceCount;
+
+                allocatedBefore = allocatedBytes();
+                start = System.nanoTime();
+
+                for (ConvexHull robot : robots) {
+                    edgeMerge(obstacle, robot);
+                }
+
+                edgeMerge[0] = (System.nanoTime() - start) / 1e3 / sliceCount;
+                edgeMerge[1] = (double) (allocatedBytes() - allocatedBefore) / sliceCount;
+            }
+
+            for (ConvexHull robot : robots) {
+                if (!pairHull(obstacle, robot).getConvexPoints().equals(edgeMerge(obstacle, robot).getConvexPoints())) differing++;
+            }
+
+            System.out.printf("%8d %8.1f us %8.0f B %8.1f us %8.0f B %10d%n", obstacle.getConvexPoints().size(),
+                    pairHull[0], pairHull[1], edgeMerge[0], edgeMerge[1], differing);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * How ConfigurationSpace built c-space obstacles before MinkowskiSum.
+     */
+    private static ConvexHull pairHull(ConvexHull obstacle, ConvexHull robot) {
+        ConvexHull cSpaceObstacle = new ConvexHull();
+
+        cSpaceObstacle.begin();
+
+        for (Vector2f obstacleV : obstacle.getConvexPoints()) {
+            for (Vector2f robotV : robot.getConvexPoints()) {
+                cSpaceObstacle.addPoint(new Vector2f(obstacleV.getX() - robotV.getX(), obstacleV.getY() - robotV.getY(), 0));
+            }
+        }
+
+        cSpaceObstacle.end();
+
+        return cSpaceObstacle;
+    }
+
+    private static ConvexHull edgeMerge(ConvexHull obstacle, ConvexHull robot) {
+        ConvexHull cSpaceObstacle = new ConvexHull();
+        List<Vector2f> minkowskiDifference = MinkowskiSum.calculateDifference(obstacle.getConvexPoints(), robot.getConvexPoints(), 0);
+
+        cSpaceObstacle.setConvexPoints(minkowskiDifference);
+
+        return cSpaceObstacle;
+    }
+
+    /**
+     * @return Square robot like BenchmarkFields.squareRobot, turned about its origin
+     */
+    private static ConvexHull turnedRobot(double angleDegrees) {
+        double angleRadians = Math.toRadians(angleDegrees);
+        ConvexHull robot = new ConvexHull();
+
+        robot.begin();
+
+        for (Vector2f v : BenchmarkFields.squareRobot().getConvexPoints()) {
+            robot.addPoint(new Vector2f(v.getX() * Math.cos(angleRadians) - v.getY() * Math.sin(angleRadians),
+                    v.getX() * Math.sin(angleRadians) + v.getY() * Math.cos(angleRadians)));
+        }
+
+        robot.end();
+
+        return robot;
+    }
+
+    /**
+     * @return Hull of points on a circle of radius 1, so every point is a hull point
+     */
+    private static ConvexHull circleObstacle(int pointCount) {
+        ConvexHull hull = new ConvexHull();
+
+        hull.begin();
+
+        for (int i = 0; i < pointCount; i++) {
+            double angle = 2 * Math.PI * i / pointCount;
+
+            hull.addPoint(new Vector2f(5 + Math.cos(angle), 3 + Math.sin(angle)));
+        }
+
+        hull.end();
+
+        return hull;
+    }
+
+}
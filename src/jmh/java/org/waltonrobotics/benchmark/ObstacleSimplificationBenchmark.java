@@ -0,0 +1,138 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.field.FieldGenerator;
+import org.waltonrobotics.field.RandomFieldGenerator;
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.ConvexHullSimplifier;
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.geometry.Vector2i;
+import org.waltonrobotics.planning.combinatorial.CombinatorialPlanner;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+
+import java.awt.*;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plans on a seeded RandomFieldGenerator scene of round obstacles with many vertices, like hulls of pixel blobs, before
+ * and after simplifying the obstacles, and prints the vertices, the obstacle area, the configuration space build time,
+ * the path query time and the path length of both. Also prints how much the simplification removes from the detailed
+ * Deep Space drawing, which has too many obstacles to plan on in a benchmark.
+ * <p>
+ * Usage: ObstacleSimplificationBenchmark [obstacleCount] [obstacleVertexCount] [maxVertices] [tolerance]
+ * [angleResolutionDegrees] [queryCount]
+ */
+public class ObstacleSimplificationBenchmark {
+
+    private static final String DETAILED_DEEP_SPACE_DRAWING_PATH = "res/fields/DeepSpaceFieldDrawing.png";
+
+    public static void main(String[] args) throws IOException {
+        int obstacleCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int obstacleVertexCount = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+        int maxVertices = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        double tolerance = args.length > 3 ? Double.parseDouble(args[3]) : 0.01;
+        double angleResolutionDegrees = args.length > 4 ? Double.parseDouble(args[4]) : 15;
+        int queryCount = args.length > 5 ? Integer.parseInt(args[5]) : 50;
+
+        long seed = 42;
+        // About 8 square units per obstacle in a 2:1 field, like SceneScalingBenchmark
+        double fieldWidth = Math.max(6, Math.sqrt(16.0 * obstacleCount));
+        double fieldHeight = fieldWidth / 2;
+
+        List<ConvexHull> obstacles = new RandomFieldGenerator(seed, obstacleCount, obstacleVertexCount, 0.3, 0.8, 0.3, fieldWidth, fieldHeight).getObstacles();
+        List<ConvexHull> simplifiedObstacles = ConvexHullSimplifier.simplifyAll(obstacles, maxVertices, tolerance);
+        ConvexHull robot = RandomFieldGenerator.generateRobot(seed, 4, 0.4);
+
+        Random random = new Random(seed);
+        Pose[][] queries = new Pose[queryCount][];
+
+        for (int i = 0; i < queryCount; i++) {
+            queries[i] = new Pose[]{
+                    new Pose(random.nextDouble() * fieldWidth, random.nextDouble() * fieldHeight, random.nextDouble() * 360),
+                    new Pose(random.nextDouble() * fieldWidth, random.nextDouble() * fieldHeight, random.nextDouble() * 360)};
+        }
+
+        // Warm-up runs, so neither measured run pays for compiling the planner
+        run(robot, obstacles, angleResolutionDegrees, queries);
+        run(robot, simplifiedObstacles, angleResolutionDegrees, queries);
+
+        double[] original = run(robot, obstacles, angleResolutionDegrees, queries);
+        double[] simplified = run(robot, simplifiedObstacles, angleResolutionDegrees, queries);
+
+        System.out.printf("%-10s %8s %10s %10s %12s %7s %12s%n", "Obstacles", "Vertices", "Area", "Build", "Query mean", "Paths", "Path length");
+        print("Original", obstacles, original);
+        print("Simplified", simplifiedObstacles, simplified);
+        System.out.printf("Speedup: build %.2fx, query %.2fx%n", original[0] / simplified[0], original[1] / simplified[1]);
+
+        List<ConvexHull> deepSpaceObstacles = new FieldGenerator(DETAILED_DEEP_SPACE_DRAWING_PATH,
+                new Color(120, 120, 120),
+                20, 40,
+                0.1,
+                new Vector2i(131, 143),
+                1584, 642,
+                22.54, 9.14).getObstacles();
+        List<ConvexHull> simplifiedDeepSpaceObstacles = ConvexHullSimplifier.simplifyAll(deepSpaceObstacles, maxVertices, tolerance);
+
+        System.out.printf("Detailed Deep Space drawing, %d obstacles: %d vertices, area %.3f, simplified %d vertices, area %.3f%n",
+                deepSpaceObstacles.size(), vertexCount(deepSpaceObstacles), area(deepSpaceObstacles),
+                vertexCount(simplifiedDeepSpaceObstacles), area(simplifiedDeepSpaceObstacles));
+    }
+
+    /**
+     * @return Build time in milliseconds, mean query time in milliseconds, paths found and mean path length
+     */
+    private static double[] run(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees, Pose[][] queries) {
+        long buildStart = System.nanoTime();
+        ConfigurationSpace cSpace = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees);
+        double buildMillis = (System.nanoTime() - buildStart) / 1e6;
+
+        CombinatorialPlanner planner = new CombinatorialPlanner(cSpace, 1);
+        int pathsFound = 0;
+        double pathLength = 0;
+
+        long queryStart = System.nanoTime();
+
+        for (Pose[] query : queries) {
+            List<Pose> path = planner.findPath(query[0], query[1]);
+
+            if (path == null) continue;
+
+            pathsFound++;
+
+            for (int i = 1; i < path.size(); i++) {
+                pathLength += Math.hypot(path.get(i).getX() - path.get(i - 1).getX(), path.get(i).getY() - path.get(i - 1).getY());
+            }
+        }
+
+        double queryMillis = (System.nanoTime() - queryStart) / 1e6 / queries.length;
+
+        return new double[]{buildMillis, queryMillis, pathsFound, pathsFound == 0 ? 0 : pathLength / pathsFound};
+    }
+
+    private static void print(String name, List<ConvexHull> obstacles, double[] results) {
+        System.out.printf("%-10s %8d %10.3f %7.1f ms %9.2f ms %7d %12.3f%n",
+                name, vertexCount(obstacles), area(obstacles), results[0], results[1], (int) results[2], results[3]);
+    }
+
+    private static int vertexCount(List<ConvexHull> obstacles) {
+        int vertexCount = 0;
+
+        for (ConvexHull obstacle : obstacles) {
+            vertexCount += obstacle.getConvexPoints().size();
+        }
+
+        return vertexCount;
+    }
+
+    private static double area(List<ConvexHull> obstacles) {
+        double area = 0;
+
+        for (ConvexHull obstacle : obstacles) {
+            area += obstacle.getArea();
+        }
+
+        return area;
+    }
+
+}
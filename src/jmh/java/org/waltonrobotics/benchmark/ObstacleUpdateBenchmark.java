@@ -0,0 +1,212 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.field.RandomFieldGenerator;
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Vector2f;
+import org.waltonrobotics.planning.combinatorial.CompactGraph;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares updating a ConfigurationSpace in place against rebuilding it when one obstacle of the Deep Space field is
+ * added, moved and removed again.
+ * <p>
+ * Every update is first checked against a rebuild of the same obstacles: the slice graphs have to be identical and
+ * every rotation neighbour has to be as close as the rebuild's. The same check then runs on seeded random fields of
+ * non-overlapping obstacles. Both checks also run on a lazy space with every other slice cached before the first
+ * update, so that repaired and freshly built slices are compared alike. The timings are medians over the repetitions, after a discarded warm-up round.
+ * <p>
+ * Usage: ObstacleUpdateBenchmark [angleResolutionDegrees] [obstacleIndex] [repetitions] [randomFields]
+ */
+public class ObstacleUpdateBenchmark {
+
+    private static final int RANDOM_OBSTACLE_COUNT = 12;
+    private static final double ROBOT_RADIUS = 0.4;
+    // More than the robot's diameter, so the c-space obstacles don't overlap either
+    private static final double RANDOM_OBSTACLE_CLEARANCE = 1.0;
+    // Large enough that the lazy space never evicts, so what it caches is decided by the check alone
+    private static final long LAZY_MEMORY_BUDGET_BYTES = 1L << 40;
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+        int obstacleIndex = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int randomFields = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        List<ConvexHull> obstacles = BenchmarkFields.deepSpaceObstacles();
+        ConvexHull robot = BenchmarkFields.squareRobot();
+
+        ConvexHull obstacle = obstacles.get(obstacleIndex);
+        ConvexHull movedObstacle = translate(obstacle, 0.25, 0.1);
+
+        // Added obstacles are appended, so the rebuilds list them last too
+        List<ConvexHull> withoutObstacle = new ArrayList<>(obstacles);
+        withoutObstacle.remove(obstacleIndex);
+
+        List<ConvexHull> withMovedObstacle = new ArrayList<>(withoutObstacle);
+        withMovedObstacle.add(movedObstacle);
+
+        int mismatchedSlices = checkUpdates(robot, withoutObstacle, obstacle, movedObstacle, angleResolutionDegrees);
+
+        System.out.printf("Deep Space obstacle %d: %d mismatched slices after add, move and remove%n", obstacleIndex, mismatchedSlices);
+
+        int mismatchedRandomSlices = 0;
+
+        for (int seed = 0; seed < randomFields; seed++) {
+            // One obstacle more than the field starts with, added and then moved to where a removed one was
+            RandomFieldGenerator generator = new RandomFieldGenerator(seed, RANDOM_OBSTACLE_COUNT + 1, 6, 0.3, 0.6,
+                    RANDOM_OBSTACLE_CLEARANCE, 12, 8);
+            List<ConvexHull> randomObstacles = new ArrayList<>(generator.getObstacles());
+            ConvexHull addedObstacle = randomObstacles.remove(RANDOM_OBSTACLE_COUNT);
+            ConvexHull freedObstacle = randomObstacles.remove(0);
+
+            mismatchedRandomSlices += checkUpdates(RandomFieldGenerator.generateRobot(seed, 4, ROBOT_RADIUS), randomObstacles,
+                    addedObstacle, freedObstacle, angleResolutionDegrees);
+        }
+
+        System.out.printf("%d random fields: %d mismatched slices after add, move and remove%n", randomFields, mismatchedRandomSlices);
+
+        double[] rebuildMillis = new double[repetitions];
+        double[] addMillis = new double[repetitions];
+        double[] moveMillis = new double[repetitions];
+        double[] removeMillis = new double[repetitions];
+
+        ConfigurationSpace cSpace = new ConfigurationSpace(robot, withoutObstacle, angleResolutionDegrees);
+
+        // The first round is the warm-up and isn't counted
+        for (int i = -1; i < repetitions; i++) {
+            long rebuildStart = System.nanoTime();
+            new ConfigurationSpace(robot, withMovedObstacle, angleResolutionDegrees);
+            long addStart = System.nanoTime();
+            int addedIndex = cSpace.addObstacle(obstacle);
+            long moveStart = System.nanoTime();
+            cSpace.moveObstacle(addedIndex, movedObstacle);
+            long removeStart = System.nanoTime();
+            cSpace.removeObstacle(addedIndex);
+            long removeEnd = System.nanoTime();
+
+            if (i < 0) continue;
+
+            rebuildMillis[i] = (addStart - rebuildStart) / 1e6;
+            addMillis[i] = (moveStart - addStart) / 1e6;
+            moveMillis[i] = (removeStart - moveStart) / 1e6;
+            removeMillis[i] = (removeEnd - removeStart) / 1e6;
+        }
+
+        System.out.printf("Obstacle %d at %.1f deg, median of %d: rebuild %.1f ms, add %.1f ms, move %.1f ms, remove %.1f ms%n",
+                obstacleIndex, angleResolutionDegrees, repetitions, median(rebuildMillis), median(addMillis), median(moveMillis),
+                median(removeMillis));
+    }
+
+    /**
+     * Adds an obstacle, moves it and removes it again, comparing the configuration space to a rebuild after each update.
+     *
+     * @return Number of mismatched slices over the three updates
+     */
+    private static int checkUpdates(ConvexHull robot, List<ConvexHull> obstacles, ConvexHull addedObstacle,
+                                    ConvexHull movedObstacle, double angleResolutionDegrees) {
+        List<ConvexHull> withAdded = new ArrayList<>(obstacles);
+        withAdded.add(addedObstacle);
+
+        List<ConvexHull> withMoved = new ArrayList<>(obstacles);
+        withMoved.add(movedObstacle);
+
+        ConfigurationSpace rebuiltWithAdded = new ConfigurationSpace(robot, withAdded, angleResolutionDegrees);
+        ConfigurationSpace rebuiltWithMoved = new ConfigurationSpace(robot, withMoved, angleResolutionDegrees);
+        ConfigurationSpace rebuilt = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees);
+
+        ConfigurationSpace lazyCSpace = ConfigurationSpace.lazy(robot, obstacles, angleResolutionDegrees, LAZY_MEMORY_BUDGET_BYTES);
+
+        for (int i = 0; i < lazyCSpace.getSliceCount(); i += 2) {
+            lazyCSpace.getSlice(i);
+        }
+
+        int mismatchedSlices = 0;
+
+        for (ConfigurationSpace cSpace : Arrays.asList(new ConfigurationSpace(robot, obstacles, angleResolutionDegrees), lazyCSpace)) {
+            int addedIndex = cSpace.addObstacle(addedObstacle);
+            mismatchedSlices += countMismatchedSlices(cSpace, rebuiltWithAdded);
+
+            cSpace.moveObstacle(addedIndex, movedObstacle);
+            mismatchedSlices += countMismatchedSlices(cSpace, rebuiltWithMoved);
+
+            cSpace.removeObstacle(addedIndex);
+            mismatchedSlices += countMismatchedSlices(cSpace, rebuilt);
+        }
+
+        return mismatchedSlices;
+    }
+
+    /**
+     * Rotation neighbours are compared by distance, since the k-d trees can break exact ties differently.
+     *
+     * @return Number of slices whose graphs or rotation neighbours differ
+     */
+    private static int countMismatchedSlices(ConfigurationSpace updated, ConfigurationSpace rebuilt) {
+        int sliceCount = rebuilt.getSliceCount();
+        int mismatchedSlices = 0;
+
+        for (int i = 0; i < sliceCount; i++) {
+            CompactGraph updatedGraph = updated.getSlice(i).getGraph();
+            CompactGraph rebuiltGraph = rebuilt.getSlice(i).getGraph();
+
+            boolean identical = Arrays.equals(updatedGraph.getCoordinates(), rebuiltGraph.getCoordinates())
+                    && Arrays.equals(updatedGraph.getOffsets(), rebuiltGraph.getOffsets())
+                    && Arrays.equals(updatedGraph.getNeighbors(), rebuiltGraph.getNeighbors());
+
+            if (identical) {
+                CompactGraph below = rebuilt.getSlice(i == 0 ? sliceCount - 1 : i - 1).getGraph();
+                CompactGraph above = rebuilt.getSlice(i == sliceCount - 1 ? 0 : i + 1).getGraph();
+
+                identical = sameDistances(rebuiltGraph, updated.getBelowSliceNeighbors(i), rebuilt.getBelowSliceNeighbors(i), below)
+                        && sameDistances(rebuiltGraph, updated.getAboveSliceNeighbors(i), rebuilt.getAboveSliceNeighbors(i), above);
+            }
+
+            if (!identical) mismatchedSlices++;
+        }
+
+        return mismatchedSlices;
+    }
+
+    private static boolean sameDistances(CompactGraph graph, int[] neighbors, int[] expectedNeighbors, CompactGraph neighborGraph) {
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            if (neighbors[v] == expectedNeighbors[v]) continue;
+            if (neighbors[v] == -1 || expectedNeighbors[v] == -1) return false;
+
+            double x = graph.getX(v);
+            double y = graph.getY(v);
+
+            if (neighborGraph.squaredDistance(neighbors[v], x, y) != neighborGraph.squaredDistance(expectedNeighbors[v], x, y)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        return sorted.length == 0 ? Double.NaN : sorted[sorted.length / 2];
+    }
+
+    private static ConvexHull translate(ConvexHull hull, double dx, double dy) {
+        ConvexHull translated = new ConvexHull();
+
+        translated.begin();
+
+        for (Vector2f v : hull.getConvexPoints()) {
+            translated.addPoint(new Vector2f(v.getX() + dx, v.getY() + dy));
+        }
+
+        translated.end();
+
+        return translated;
+    }
+
+}
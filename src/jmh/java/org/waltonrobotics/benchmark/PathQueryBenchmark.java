@@ -0,0 +1,48 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.planning.combinatorial.CombinatorialPlanner;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Times CombinatorialPlanner.findPath on the Deep Space field.
+ * <p>
+ * Usage: PathQueryBenchmark [angleResolutionDegrees] [iterations]
+ */
+public class PathQueryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<ConvexHull> obstacles = BenchmarkFields.deepSpaceObstacles();
+        ConvexHull robot = BenchmarkFields.squareRobot();
+
+        long buildStart = System.nanoTime();
+        CombinatorialPlanner planner = new CombinatorialPlanner(robot, obstacles, angleResolutionDegrees, 1);
+        System.out.printf("Configuration space (%.1f deg): %.1f ms%n", angleResolutionDegrees, (System.nanoTime() - buildStart) / 1e6);
+
+        Pose start = new Pose(7.614804292929293, 6.618474759274993, 90);
+        Pose goal = new Pose(15, 7, 45);
+
+        double totalMillis = 0;
+        double bestMillis = Double.POSITIVE_INFINITY;
+        List<Pose> path = null;
+
+        for (int i = 0; i < iterations; i++) {
+            long queryStart = System.nanoTime();
+            path = planner.findPath(start, goal);
+            double millis = (System.nanoTime() - queryStart) / 1e6;
+
+            totalMillis += millis;
+            bestMillis = Math.min(bestMillis, millis);
+        }
+
+        System.out.printf("findPath: mean %.2f ms, best %.2f ms over %d iterations%n", totalMillis / iterations, bestMillis, iterations);
+        System.out.println("Path: " + path);
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.planning.combinatorial.CombinatorialPlanner;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+import org.waltonrobotics.planning.combinatorial.HistogramPlannerMetrics;
+import org.waltonrobotics.planning.combinatorial.PlannerMetrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the Deep Space configuration space and plans random queries with HistogramPlannerMetrics attached, moves
+ * an obstacle so the graph repairs are recorded too, and prints the metrics. Also times the same queries without
+ * metrics to show what recording costs.
+ * <p>
+ * Usage: PlannerMetricsBenchmark [angleResolutionDegrees] [queryCount]
+ */
+public class PlannerMetricsBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        List<ConvexHull> obstacles = BenchmarkFields.deepSpaceObstacles();
+        HistogramPlannerMetrics metrics = new HistogramPlannerMetrics();
+
+        ConfigurationSpace cSpace = new ConfigurationSpace(BenchmarkFields.squareRobot(), obstacles, angleResolutionDegrees, null, metrics);
+        CombinatorialPlanner planner = new CombinatorialPlanner(cSpace, 1);
+
+        cSpace.moveObstacle(9, obstacles.get(9));
+
+        Random random = new Random(42);
+        List<Pose[]> queries = new ArrayList<>(queryCount);
+
+        for (int i = 0; i < queryCount; i++) {
+            queries.add(new Pose[]{
+                    new Pose(random.nextDouble() * 22.54, random.nextDouble() * 9.14, random.nextDouble() * 360),
+                    new Pose(random.nextDouble() * 22.54, random.nextDouble() * 9.14, random.nextDouble() * 360)});
+        }
+
+        // Warm up the JIT for both configurations before timing either
+        runQueries(planner, queries, PlannerMetrics.NONE);
+        runQueries(planner, queries, metrics);
+
+        double withoutMetricsMillis = Double.POSITIVE_INFINITY;
+        double withMetricsMillis = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < 3; i++) {
+            withoutMetricsMillis = Math.min(withoutMetricsMillis, runQueries(planner, queries, PlannerMetrics.NONE));
+            withMetricsMillis = Math.min(withMetricsMillis, runQueries(planner, queries, metrics));
+        }
+
+        metrics.print(System.out);
+
+        System.out.printf("%d queries: %.1f ms without metrics, %.1f ms with metrics%n", queryCount, withoutMetricsMillis, withMetricsMillis);
+    }
+
+    /**
+     * @return Time taken by all queries in milliseconds
+     */
+    private static double runQueries(CombinatorialPlanner planner, List<Pose[]> queries, PlannerMetrics metrics) {
+        planner.setMetrics(metrics);
+
+        long start = System.nanoTime();
+
+        for (Pose[] query : queries) {
+            planner.findPath(query[0], query[1]);
+        }
+
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+}
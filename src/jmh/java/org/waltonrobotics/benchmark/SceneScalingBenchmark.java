@@ -0,0 +1,151 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.field.RandomFieldGenerator;
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.planning.combinatorial.CombinatorialPlanner;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+import org.waltonrobotics.planning.combinatorial.VisibilityGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sweeps synthetic scenes from RandomFieldGenerator over obstacle count, vertices per obstacle and angle resolution,
+ * one parameter at a time around a base scene, and writes configuration space build time, slice memory and path
+ * query latency of every scene to a CSV file. Scenes are seeded, so runs on different revisions are comparable
+ * curve by curve.
+ * <p>
+ * The field area grows with the obstacle count so the obstacle density stays the same across the sweep.
+ * <p>
+ * Usage: SceneScalingBenchmark [csvPath] [seed] [sceneDirectory]
+ */
+public class SceneScalingBenchmark {
+
+    private static final int BASE_OBSTACLE_COUNT = 20;
+    private static final int BASE_VERTEX_COUNT = 6;
+    private static final double BASE_ANGLE_RESOLUTION_DEGREES = 15;
+
+    private static final int[] OBSTACLE_COUNTS = {5, 10, 20, 40, 80};
+    private static final int[] VERTEX_COUNTS = {3, 6, 12, 24};
+    private static final double[] ANGLE_RESOLUTIONS_DEGREES = {45, 30, 15, 10, 5};
+
+    private static final int QUERY_COUNT = 20;
+
+    public static void main(String[] args) throws IOException {
+        String csvPath = args.length > 0 ? args[0] : "scene-scaling.csv";
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        File sceneDirectory = args.length > 2 ? new File(args[2]) : null;
+
+        if (sceneDirectory != null && !sceneDirectory.isDirectory() && !sceneDirectory.mkdirs()) {
+            throw new IOException("Unable to create scene directory " + sceneDirectory + "!");
+        }
+
+        try (PrintWriter csv = new PrintWriter(csvPath)) {
+            csv.println("sweep,obstacles,vertices_per_obstacle,angle_resolution_degrees,slices,graph_vertices,graph_edges,"
+                    + "build_ms,slice_kb,heap_kb,query_mean_ms,query_p95_ms,paths_found");
+
+            // Discarded run so the first rows aren't measured before the JIT has compiled the planner
+            run("warmup", seed, BASE_OBSTACLE_COUNT, BASE_VERTEX_COUNT, BASE_ANGLE_RESOLUTION_DEGREES, null);
+
+            for (int obstacleCount : OBSTACLE_COUNTS) {
+                write(csv, run("obstacles", seed, obstacleCount, BASE_VERTEX_COUNT, BASE_ANGLE_RESOLUTION_DEGREES, sceneDirectory));
+            }
+
+            for (int vertexCount : VERTEX_COUNTS) {
+                write(csv, run("vertices", seed, BASE_OBSTACLE_COUNT, vertexCount, BASE_ANGLE_RESOLUTION_DEGREES, sceneDirectory));
+            }
+
+            for (double angleResolutionDegrees : ANGLE_RESOLUTIONS_DEGREES) {
+                write(csv, run("resolution", seed, BASE_OBSTACLE_COUNT, BASE_VERTEX_COUNT, angleResolutionDegrees, sceneDirectory));
+            }
+        }
+
+        System.out.println("Wrote " + csvPath);
+    }
+
+    private static void write(PrintWriter csv, String row) {
+        csv.println(row);
+        csv.flush();
+        System.out.println(row);
+    }
+
+    /**
+     * @return CSV row of the scene
+     */
+    private static String run(String sweep, long seed, int obstacleCount, int vertexCount,
+                            double angleResolutionDegrees, File sceneDirectory) throws IOException {
+        // About 8 square units per obstacle in a 2:1 field
+        double fieldWidth = Math.max(6, Math.sqrt(16.0 * obstacleCount));
+        double fieldHeight = fieldWidth / 2;
+
+        RandomFieldGenerator generator = new RandomFieldGenerator(seed, obstacleCount, vertexCount, 0.3, 0.8, 0.3, fieldWidth, fieldHeight);
+        List<ConvexHull> obstacles = generator.getObstacles();
+        ConvexHull robot = RandomFieldGenerator.generateRobot(seed, 4, 0.4);
+
+        if (sceneDirectory != null) {
+            generator.saveFieldToFile(new File(sceneDirectory, "scene-" + obstacleCount + "x" + vertexCount + ".field").getPath());
+        }
+
+        long heapBefore = usedHeap();
+
+        long buildStart = System.nanoTime();
+        ConfigurationSpace cSpace = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees);
+        double buildMillis = (System.nanoTime() - buildStart) / 1e6;
+
+        long heapBytes = usedHeap() - heapBefore;
+
+        long sliceBytes = 0;
+        long graphVertices = 0;
+        long graphEdges = 0;
+
+        for (int i = 0; i < cSpace.getSliceCount(); i++) {
+            VisibilityGraph slice = cSpace.getSlice(i);
+
+            sliceBytes += slice.getMemoryBytes();
+            graphVertices += slice.getGraph().getVertexCount();
+            graphEdges += slice.getGraph().getEdgeCount() / 2;
+        }
+
+        CombinatorialPlanner planner = new CombinatorialPlanner(cSpace, 1);
+        Random random = new Random(seed);
+        double[] queryMillis = new double[QUERY_COUNT];
+        int pathsFound = 0;
+
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            Pose start = new Pose(random.nextDouble() * fieldWidth, random.nextDouble() * fieldHeight, random.nextDouble() * 360);
+            Pose goal = new Pose(random.nextDouble() * fieldWidth, random.nextDouble() * fieldHeight, random.nextDouble() * 360);
+
+            long queryStart = System.nanoTime();
+            List<Pose> path = planner.findPath(start, goal);
+            queryMillis[i] = (System.nanoTime() - queryStart) / 1e6;
+
+            if (path != null) pathsFound++;
+        }
+
+        double[] sortedMillis = queryMillis.clone();
+        Arrays.sort(sortedMillis);
+
+        double meanMillis = Arrays.stream(queryMillis).average().orElse(0);
+        double p95Millis = sortedMillis[(int) Math.ceil(0.95 * sortedMillis.length) - 1];
+
+        return String.format("%s,%d,%d,%.1f,%d,%d,%d,%.1f,%d,%d,%.3f,%.3f,%d",
+                sweep, obstacleCount, vertexCount, angleResolutionDegrees, cSpace.getSliceCount(), graphVertices, graphEdges,
+                buildMillis, sliceBytes / 1024, heapBytes / 1024, meanMillis, p95Millis, pathsFound);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,42 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compares sequential and parallel ConfigurationSpace construction on the Deep Space field and reports the
+ * build time of every slice.
+ * <p>
+ * Usage: SliceBuildBenchmark [angleResolutionDegrees] [parallelism]
+ */
+public class SliceBuildBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        List<ConvexHull> obstacles = BenchmarkFields.deepSpaceObstacles();
+        ConvexHull robot = BenchmarkFields.squareRobot();
+
+        long sequentialStart = System.nanoTime();
+        new ConfigurationSpace(robot, obstacles, angleResolutionDegrees);
+        double sequentialMillis = (System.nanoTime() - sequentialStart) / 1e6;
+
+        long parallelStart = System.nanoTime();
+        ConfigurationSpace parallel = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees, parallelism);
+        double parallelMillis = (System.nanoTime() - parallelStart) / 1e6;
+
+        double[] sliceBuildTimesMillis = parallel.getSliceBuildTimesMillis();
+
+        for (int i = 0; i < sliceBuildTimesMillis.length; i++) {
+            System.out.printf("Slice %6.1f deg: %8.1f ms%n", parallel.getSlices().get(i).getRobotOrientationDegrees(), sliceBuildTimesMillis[i]);
+        }
+
+        System.out.printf("Sequential: %.1f ms, parallel (%d threads): %.1f ms, speedup %.2fx%n",
+                sequentialMillis, parallelism, parallelMillis, sequentialMillis / parallelMillis);
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+import org.waltonrobotics.planning.combinatorial.VisibilityGraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares building the Deep Space configuration space from scratch against loading it from a slice cache file, and
+ * checks that truncated, corrupt and stale cache files are rebuilt and rewritten.
+ * <p>
+ * Usage: SliceCacheBenchmark [angleResolutionDegrees] [cacheFile]
+ */
+public class SliceCacheBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        double angleResolutionDegrees = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+        Path cacheFile = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("cspace").resolve("DeepSpace.cspace");
+
+        List<ConvexHull> obstacles = BenchmarkFields.deepSpaceObstacles();
+        ConvexHull robot = BenchmarkFields.squareRobot();
+
+        Files.deleteIfExists(cacheFile);
+
+        long coldStart = System.nanoTime();
+        ConfigurationSpace cold = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees, cacheFile);
+        double coldMillis = (System.nanoTime() - coldStart) / 1e6;
+
+        long warmStart = System.nanoTime();
+        ConfigurationSpace warm = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees, cacheFile);
+        double warmMillis = (System.nanoTime() - warmStart) / 1e6;
+
+        boolean identical = true;
+
+        for (int i = 0; i < cold.getSlices().size(); i++) {
+            identical &= cold.getSlices().get(i).getGraphAdjacencyList().equals(warm.getSlices().get(i).getGraphAdjacencyList());
+        }
+
+        System.out.printf("Build and save: %.1f ms (from cache: %b)%n", coldMillis, cold.isLoadedFromCache());
+        System.out.printf("Load: %.1f ms (from cache: %b, identical graphs: %b)%n", warmMillis, warm.isLoadedFromCache(), identical);
+        System.out.printf("Cache size: %d bytes%n", Files.size(cacheFile));
+
+        byte[] cache = Files.readAllBytes(cacheFile);
+
+        // A cache cut short, like one from a crash mid-write before writes went through a temporary file, is rebuilt
+        Files.write(cacheFile, Arrays.copyOf(cache, cache.length / 2));
+        ConfigurationSpace truncated = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees, cacheFile);
+        System.out.printf("Truncated cache loaded from cache: %b, rewritten: %b%n", truncated.isLoadedFromCache(),
+                Arrays.equals(cache, Files.readAllBytes(cacheFile)));
+
+        // So is a cache whose counts are corrupt: the first slice's last offset, right before its neighbors
+        VisibilityGraph firstSlice = cold.getSlices().get(0);
+        ByteBuffer corrupt = ByteBuffer.wrap(cache.clone());
+        corrupt.putInt(firstSliceLastOffsetPosition(firstSlice), -8);
+        Files.write(cacheFile, corrupt.array());
+        ConfigurationSpace corrupted = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees, cacheFile);
+        System.out.printf("Corrupt cache loaded from cache: %b, rewritten: %b%n", corrupted.isLoadedFromCache(),
+                Arrays.equals(cache, Files.readAllBytes(cacheFile)));
+
+        // A different resolution hashes to a different key, so the stale cache is rebuilt
+        ConfigurationSpace stale = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees * 2, cacheFile);
+        System.out.printf("Different resolution loaded from cache: %b, rewritten: %b%n", stale.isLoadedFromCache(),
+                !Arrays.equals(cache, Files.readAllBytes(cacheFile)));
+    }
+
+    /**
+     * @return Position in the cache file of the first slice's last graph offset, following the cache layout
+     */
+    private static int firstSliceLastOffsetPosition(VisibilityGraph slice) {
+        int position = 28 + 8 + 4;
+
+        for (ConvexHull obstacle : slice.getObstacles()) {
+            position += 4 + 16 * obstacle.getConvexPoints().size();
+        }
+
+        int vertexCount = slice.getGraph().getVertexCount();
+
+        return position + 4 + 16 * vertexCount + 4 * vertexCount;
+    }
+
+}
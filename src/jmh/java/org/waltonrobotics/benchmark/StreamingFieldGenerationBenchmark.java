@@ -0,0 +1,106 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.field.FieldGenerator;
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Vector2i;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Generates the Deep Space field from its simplified drawing scaled up like a drawing scanned at a higher resolution,
+ * once decoding the whole drawing and once streaming it a band of rows at a time, and prints the generation time and
+ * the peak heap use of both, and whether they found the same obstacles. Run with a small maximum heap, like -Xmx256m,
+ * to see the whole drawing no longer fit.
+ * <p>
+ * Usage: StreamingFieldGenerationBenchmark [scale] [decodeBandRows]
+ */
+public class StreamingFieldGenerationBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int scale = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int decodeBandRows = args.length > 1 ? Integer.parseInt(args[1]) : 512;
+
+        File scaledDrawing = File.createTempFile("field", ".png");
+
+        scaledDrawing.deleteOnExit();
+        ImageIO.write(scale(ImageIO.read(new File(BenchmarkFields.deepSpaceDrawingPath())), scale), "png", scaledDrawing);
+
+        List<ConvexHull> decodedObstacles = run("Decoded", scaledDrawing.getPath(), scale, 0);
+        List<ConvexHull> streamedObstacles = run("Streamed", scaledDrawing.getPath(), scale, decodeBandRows);
+
+        if (decodedObstacles == null || streamedObstacles == null) return;
+
+        boolean same = decodedObstacles.size() == streamedObstacles.size();
+
+        for (int i = 0; same && i < decodedObstacles.size(); i++) {
+            same = decodedObstacles.get(i).getConvexPoints().equals(streamedObstacles.get(i).getConvexPoints());
+        }
+
+        System.out.println(same ? "Same obstacles" : "Different obstacles");
+    }
+
+    /**
+     * @return Obstacles found, or null if generating ran out of memory
+     */
+    private static List<ConvexHull> run(String name, String path, int scale, int decodeBandRows) throws IOException {
+        System.gc();
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            FieldGenerator fieldGenerator = new FieldGenerator(path,
+                    new Color(120, 120, 120),
+                    20, 40,
+                    0.1,
+                    new Vector2i(131 * scale, 143 * scale),
+                    1584 * scale, 642 * scale,
+                    22.54, 9.14,
+                    ForkJoinPool.commonPool(), decodeBandRows);
+
+            double millis = (System.nanoTime() - start) / 1e6;
+            long peakHeapBytes = 0;
+
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peakHeapBytes += pool.getPeakUsage().getUsed();
+                }
+            }
+
+            System.out.printf("%-9s %4d obstacles %8.0f ms, peak heap %7.1f MB%n", name, fieldGenerator.getObstacles().size(), millis, peakHeapBytes / 1e6);
+
+            return fieldGenerator.getObstacles();
+        } catch (OutOfMemoryError e) {
+            System.out.printf("%-9s out of memory after %.0f ms%n", name, (System.nanoTime() - start) / 1e6);
+
+            return null;
+        }
+    }
+
+    /**
+     * @return Drawing scaled up by repeating every pixel, so blobs keep their exact colors
+     */
+    private static BufferedImage scale(BufferedImage drawing, int scale) {
+        BufferedImage scaled = new BufferedImage(drawing.getWidth() * scale, drawing.getHeight() * scale, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        graphics.drawImage(drawing, 0, 0, scaled.getWidth(), scaled.getHeight(), null);
+        graphics.dispose();
+
+        return scaled;
+    }
+
+}
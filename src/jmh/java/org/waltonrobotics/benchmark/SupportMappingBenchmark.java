@@ -0,0 +1,161 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.GJKSolver;
+import org.waltonrobotics.geometry.SupportMapping;
+import org.waltonrobotics.geometry.Vector2f;
+
+import java.util.Random;
+
+/**
+ * Compares support point lookups by scanning every point with SupportMapping on obstacles with many hull points, like
+ * the ones FieldGenerator makes from blobs of pixels. Prints the time per lookup for random directions, for slowly
+ * turning directions where the kept last answer helps, and the time per GJK query of a small robot against each
+ * obstacle as it drives past.
+ * <p>
+ * Usage: SupportMappingBenchmark [queryCount]
+ */
+public class SupportMappingBenchmark {
+
+    private static final int[] HULL_POINT_COUNTS = {16, 64, 256, 1024, 4096};
+
+    public static void main(String[] args) {
+        int queryCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        Random random = new Random(42);
+
+        double[] randomDirections = new double[2 * queryCount];
+        double[] turningDirections = new double[2 * queryCount];
+
+        for (int i = 0; i < queryCount; i++) {
+            double randomAngle = 2 * Math.PI * random.nextDouble();
+            double turningAngle = Math.toRadians(0.5 * i);
+
+            randomDirections[2 * i] = Math.cos(randomAngle);
+            randomDirections[2 * i + 1] = Math.sin(randomAngle);
+            turningDirections[2 * i] = Math.cos(turningAngle);
+            turningDirections[2 * i + 1] = Math.sin(turningAngle);
+        }
+
+        double[] robot = {-0.4, -0.4, 0.4, -0.4, 0.4, 0.4, -0.4, 0.4};
+        GJKSolver solver = new GJKSolver();
+
+        System.out.printf("%8s %14s %14s %14s %14s %14s%n", "Points", "Scan random", "Map random", "Map turning",
+                "GJK scan", "GJK map");
+
+        for (int hullPointCount : HULL_POINT_COUNTS) {
+            SupportMapping obstacle = circleObstacle(hullPointCount);
+            double[] coordinates = obstacle.getCoordinates();
+            int pointCount = obstacle.getPointCount();
+
+            double[] timings = new double[5];
+
+            // The first round warms up the JIT
+            for (int round = 0; round < 2; round++) {
+                long start = System.nanoTime();
+                long checksum = 0;
+
+                for (int i = 0; i < queryCount; i++) {
+                    checksum += scanSupportIndex(coordinates, pointCount, randomDirections[2 * i], randomDirections[2 * i + 1]);
+                }
+
+                timings[0] = (double) (System.nanoTime() - start) / queryCount;
+                start = System.nanoTime();
+
+                for (int i = 0; i < queryCount; i++) {
+                    checksum -= obstacle.getSupportIndex(randomDirections[2 * i], randomDirections[2 * i + 1]);
+                }
+
+                timings[1] = (double) (System.nanoTime() - start) / queryCount;
+                start = System.nanoTime();
+
+                for (int i = 0; i < queryCount; i++) {
+                    checksum += obstacle.getSupportIndex(turningDirections[2 * i], turningDirections[2 * i + 1]);
+                }
+
+                timings[2] = (double) (System.nanoTime() - start) / queryCount;
+
+                int gjkQueryCount = queryCount / 10;
+                double[] movingRobot = robot.clone();
+                SupportMapping robotMapping = new SupportMapping(movingRobot, 4);
+                int intersecting = 0;
+
+                start = System.nanoTime();
+
+                for (int i = 0; i < gjkQueryCount; i++) {
+                    moveRobot(robot, movingRobot, i, gjkQueryCount);
+
+                    if (solver.intersects(coordinates, pointCount, movingRobot, 4)) intersecting++;
+                }
+
+                timings[3] = (double) (System.nanoTime() - start) / gjkQueryCount;
+                start = System.nanoTime();
+
+                for (int i = 0; i < gjkQueryCount; i++) {
+                    moveRobot(robot, movingRobot, i, gjkQueryCount);
+
+                    if (solver.intersects(obstacle, robotMapping)) intersecting--;
+                }
+
+                timings[4] = (double) (System.nanoTime() - start) / gjkQueryCount;
+
+                if (checksum + intersecting == Long.MIN_VALUE) System.out.println();
+            }
+
+            System.out.printf("%8d %11.1f ns %11.1f ns %11.1f ns %11.1f ns %11.1f ns%n", pointCount, timings[0],
+                    timings[1], timings[2], timings[3], timings[4]);
+        }
+    }
+
+    /**
+     * @return Support mapping of the hull of points on a circle of radius 2, so every point is a hull point
+     */
+    private static SupportMapping circleObstacle(int pointCount) {
+        ConvexHull hull = new ConvexHull();
+
+        hull.begin();
+
+        for (int i = 0; i < pointCount; i++) {
+            double angle = 2 * Math.PI * i / pointCount;
+
+            hull.addPoint(new Vector2f(2 * Math.cos(angle), 2 * Math.sin(angle)));
+        }
+
+        hull.end();
+
+        return hull.getSupportMapping();
+    }
+
+    /**
+     * Moves the robot in place along a line through the obstacle, turning it as it goes.
+     */
+    private static void moveRobot(double[] robot, double[] movingRobot, int step, int stepCount) {
+        double x = -4 + 8.0 * step / stepCount;
+        double y = 1.5 * Math.sin(8 * Math.PI * step / stepCount);
+        double angle = 4 * Math.PI * step / stepCount;
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+
+        for (int i = 0; i < 4; i++) {
+            movingRobot[2 * i] = x + cos * robot[2 * i] - sin * robot[2 * i + 1];
+            movingRobot[2 * i + 1] = y + sin * robot[2 * i] + cos * robot[2 * i + 1];
+        }
+    }
+
+    private static int scanSupportIndex(double[] coordinates, int pointCount, double directionX, double directionY) {
+        int farthestIndex = 0;
+        double farthestDistance = coordinates[0] * directionX + coordinates[1] * directionY;
+
+        for (int i = 1; i < pointCount; i++) {
+            double distance = coordinates[2 * i] * directionX + coordinates[2 * i + 1] * directionY;
+
+            if (distance > farthestDistance) {
+                farthestDistance = distance;
+                farthestIndex = i;
+            }
+        }
+
+        return farthestIndex;
+    }
+
+}
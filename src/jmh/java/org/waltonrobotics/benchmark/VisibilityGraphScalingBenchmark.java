@@ -0,0 +1,88 @@
+package org.waltonrobotics.benchmark;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.LineSegment;
+import org.waltonrobotics.geometry.Vector2f;
+import org.waltonrobotics.planning.combinatorial.VisibilityGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Measures how VisibilityGraph construction scales with the number of obstacles. Obstacles are random convex
+ * polygons placed in separate grid cells so they never overlap.
+ * <p>
+ * Usage: VisibilityGraphScalingBenchmark [obstacleCounts...]
+ */
+public class VisibilityGraphScalingBenchmark {
+
+    public static void main(String[] args) {
+        int[] obstacleCounts = args.length > 0
+                ? java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{10, 20, 50, 100, 200, 500, 1000};
+
+        double previousMillis = 0;
+        int previousVertices = 0;
+
+        System.out.println("obstacles,vertices,edges,millis,exponent");
+
+        for (int obstacleCount : obstacleCounts) {
+            List<ConvexHull> obstacles = generateObstacles(obstacleCount, 42);
+
+            List<Vector2f> vertices = obstacles.stream().flatMap(x -> x.getConvexPoints().stream()).collect(Collectors.toList());
+            List<LineSegment> edges = obstacles.stream().flatMap(x -> x.getEdges().stream()).collect(Collectors.toList());
+
+            long startTime = System.nanoTime();
+            VisibilityGraph graph = new VisibilityGraph(vertices, edges, obstacles, 0);
+            double millis = (System.nanoTime() - startTime) / 1e6;
+
+            int visibilityEdges = graph.getGraph().getEdgeCount() / 2;
+
+            // Empirical exponent of the running time against the vertex count between consecutive runs
+            String exponent = previousVertices == 0 ? "" : String.format("%.2f", Math.log(millis / previousMillis) / Math.log(vertices.size() / (double) previousVertices));
+
+            System.out.printf("%d,%d,%d,%.1f,%s%n", obstacleCount, vertices.size(), visibilityEdges, millis, exponent);
+
+            previousMillis = millis;
+            previousVertices = vertices.size();
+        }
+    }
+
+    /**
+     * @param obstacleCount: Number of obstacles to generate
+     * @param seed:          Random seed
+     * @return Non-overlapping random convex obstacles, each tagged with its polygon ID
+     */
+    static List<ConvexHull> generateObstacles(int obstacleCount, long seed) {
+        Random random = new Random(seed);
+        int gridSize = (int) Math.ceil(Math.sqrt(obstacleCount));
+        double cellSize = 1.0;
+
+        List<ConvexHull> obstacles = new ArrayList<>();
+
+        for (int i = 0; i < obstacleCount; i++) {
+            double cellX = (i % gridSize) * cellSize;
+            double cellY = (i / gridSize) * cellSize;
+
+            ConvexHull obstacle = new ConvexHull();
+
+            obstacle.begin();
+
+            int pointCount = 3 + random.nextInt(6);
+
+            for (int j = 0; j < pointCount; j++) {
+                obstacle.addPoint(new Vector2f(cellX + 0.1 + random.nextDouble() * 0.8 * cellSize,
+                        cellY + 0.1 + random.nextDouble() * 0.8 * cellSize, i));
+            }
+
+            obstacle.end();
+
+            obstacles.add(obstacle);
+        }
+
+        return obstacles;
+    }
+
+}
@@ -0,0 +1,21 @@
+package org.waltonrobotics.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.waltonrobotics.benchmark.BenchmarkFields;
+import org.waltonrobotics.geometry.ConvexHull;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * FieldGenerator blob detection on the simplified Deep Space field drawing. FieldGenerator reads the image in its
+ * constructor, so decoding the PNG is part of the measurement.
+ */
+public class FieldGenerationBenchmark {
+
+    @Benchmark
+    public List<ConvexHull> deepSpaceObstacles() throws IOException {
+        return BenchmarkFields.deepSpaceObstacles();
+    }
+
+}
@@ -0,0 +1,147 @@
+package org.waltonrobotics.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.GJKCollision;
+import org.waltonrobotics.geometry.GJKSolver;
+import org.waltonrobotics.geometry.SupportMapping;
+import org.waltonrobotics.geometry.Vector2f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Convex hull construction and GJK intersection, distance and penetration depth queries on polygons of increasing
+ * size.
+ */
+@State(Scope.Thread)
+public class GeometryBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int pointCount;
+
+    private List<Vector2f> points;
+    private ConvexHull hull;
+
+    private List<Vector2f> polygon;
+    private List<Vector2f> overlappingPolygon;
+    private List<Vector2f> separatedPolygon;
+
+    private final GJKSolver solver = new GJKSolver();
+    private double[] packedPolygon;
+    private double[] packedOverlappingPolygon;
+    private double[] packedSeparatedPolygon;
+    private SupportMapping polygonMapping;
+    private SupportMapping overlappingPolygonMapping;
+    private SupportMapping separatedPolygonMapping;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+
+        // Uniform points in a disk, so the hull keeps only a fraction of them
+        points = new ArrayList<>(pointCount);
+
+        for (int i = 0; i < pointCount; i++) {
+            double radius = Math.sqrt(random.nextDouble());
+            double angle = 2 * Math.PI * random.nextDouble();
+
+            points.add(new Vector2f(radius * Math.cos(angle), radius * Math.sin(angle)));
+        }
+
+        hull = new ConvexHull();
+
+        // Every vertex of these is on the hull, so GJK's support function sees all of them
+        polygon = regularPolygon(pointCount, 0, 0);
+        overlappingPolygon = regularPolygon(pointCount, 1.5, 0.5);
+        separatedPolygon = regularPolygon(pointCount, 3, 0.5);
+
+        packedPolygon = GJKSolver.pack(polygon);
+        packedOverlappingPolygon = GJKSolver.pack(overlappingPolygon);
+        packedSeparatedPolygon = GJKSolver.pack(separatedPolygon);
+
+        polygonMapping = new SupportMapping(polygon);
+        overlappingPolygonMapping = new SupportMapping(overlappingPolygon);
+        separatedPolygonMapping = new SupportMapping(separatedPolygon);
+    }
+
+    private static List<Vector2f> regularPolygon(int vertexCount, double centerX, double centerY) {
+        List<Vector2f> vertices = new ArrayList<>(vertexCount);
+
+        for (int i = 0; i < vertexCount; i++) {
+            double angle = 2 * Math.PI * i / vertexCount;
+
+            vertices.add(new Vector2f(centerX + Math.cos(angle), centerY + Math.sin(angle)));
+        }
+
+        return vertices;
+    }
+
+    /**
+     * ConvexHull.end on a freshly filled hull. Filling the hull is part of the measurement because end can only run
+     * once per begin.
+     */
+    @Benchmark
+    public ConvexHull convexHullEnd() {
+        hull.begin();
+
+        for (Vector2f point : points) {
+            hull.addPoint(point);
+        }
+
+        hull.end();
+
+        return hull;
+    }
+
+    @Benchmark
+    public boolean polygonsIntersectOverlapping() {
+        return GJKCollision.polygonsIntersect(polygon, overlappingPolygon);
+    }
+
+    @Benchmark
+    public boolean polygonsIntersectSeparated() {
+        return GJKCollision.polygonsIntersect(polygon, separatedPolygon);
+    }
+
+    @Benchmark
+    public boolean solverIntersectsOverlapping() {
+        return solver.intersects(packedPolygon, pointCount, packedOverlappingPolygon, pointCount);
+    }
+
+    @Benchmark
+    public boolean solverIntersectsSeparated() {
+        return solver.intersects(packedPolygon, pointCount, packedSeparatedPolygon, pointCount);
+    }
+
+    @Benchmark
+    public double solverDistanceSeparated() {
+        return solver.distance(packedPolygon, pointCount, packedSeparatedPolygon, pointCount);
+    }
+
+    @Benchmark
+    public double solverPenetrationDepthOverlapping() {
+        return solver.penetrationDepth(packedPolygon, pointCount, packedOverlappingPolygon, pointCount);
+    }
+
+    @Benchmark
+    public boolean supportMappingIntersectsOverlapping() {
+        return solver.intersects(polygonMapping, overlappingPolygonMapping);
+    }
+
+    @Benchmark
+    public boolean supportMappingIntersectsSeparated() {
+        return solver.intersects(polygonMapping, separatedPolygonMapping);
+    }
+
+    @Benchmark
+    public double supportMappingPenetrationDepthOverlapping() {
+        return solver.penetrationDepth(polygonMapping, overlappingPolygonMapping);
+    }
+
+}
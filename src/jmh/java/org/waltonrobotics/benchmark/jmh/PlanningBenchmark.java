@@ -0,0 +1,75 @@
+package org.waltonrobotics.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.waltonrobotics.benchmark.BenchmarkFields;
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.planning.combinatorial.CombinatorialPlanner;
+import org.waltonrobotics.planning.combinatorial.ConfigurationSpace;
+import org.waltonrobotics.planning.combinatorial.VisibilityGraph;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Visibility graph construction, configuration space construction and path queries on the Deep Space field with the
+ * square robot.
+ */
+@State(Scope.Benchmark)
+public class PlanningBenchmark {
+
+    private static final Pose START = new Pose(7.614804292929293, 6.618474759274993, 90);
+    private static final Pose GOAL = new Pose(15, 7, 45);
+
+    private VisibilityGraph slice;
+
+    @Setup
+    public void setUp() throws IOException {
+        slice = new ConfigurationSpace(BenchmarkFields.squareRobot(), BenchmarkFields.deepSpaceObstacles(), 90).getSlice(0);
+    }
+
+    /**
+     * Configuration space inputs at several angle resolutions, with a prebuilt space to plan over.
+     */
+    @State(Scope.Benchmark)
+    public static class Space {
+
+        @Param({"45", "15", "5"})
+        public double angleResolutionDegrees;
+
+        private ConvexHull robot;
+        private List<ConvexHull> obstacles;
+        private CombinatorialPlanner planner;
+
+        @Setup
+        public void setUp() throws IOException {
+            robot = BenchmarkFields.squareRobot();
+            obstacles = BenchmarkFields.deepSpaceObstacles();
+            planner = new CombinatorialPlanner(new ConfigurationSpace(robot, obstacles, angleResolutionDegrees), 1);
+        }
+
+    }
+
+    /**
+     * Builds the visibility graph of the 0 degree slice from its c-space obstacles.
+     */
+    @Benchmark
+    public VisibilityGraph visibilityGraph() {
+        return new VisibilityGraph(slice.getVertices(), slice.getEdges(), slice.getObstacles(), slice.getRobotOrientationDegrees());
+    }
+
+    @Benchmark
+    public ConfigurationSpace configurationSpace(Space space) {
+        return new ConfigurationSpace(space.robot, space.obstacles, space.angleResolutionDegrees);
+    }
+
+    @Benchmark
+    public List<Pose> findPath(Space space) {
+        return space.planner.findPath(START, GOAL);
+    }
+
+}
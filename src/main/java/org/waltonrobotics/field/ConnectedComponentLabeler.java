@@ -0,0 +1,1223 @@
+package org.waltonrobotics.field;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadUpdateListener;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Finds the blobs of a field image with two-pass union-find connected-component labeling. A blob grows from its first
+ * pixel, row by row, over the neighboring pixels that aren't close to the free space color and whose colors are close
+ * to the first pixel's color.
+ * <p>
+ * Two pixels of a blob can differ by up to twice the tolerance, so the image is first labeled into components of
+ * neighbors that close to each other, in bands of rows in parallel with the labels then joined across the band seams.
+ * Every blob lies within one component, and most components are a single blob: all their pixels are close to their
+ * first pixel. Only the rest, like antialiased edges, are split into blobs by growing them from their first pixels.
+ * <p>
+ * Images are labeled a band of rows at a time, reusing the same label buffers, and the components are joined from band
+ * to band. Images too large to decode at once can be streamed from an ImageReader in bands of rows too, so memory is
+ * bounded by the band size, apart from the pixels of the components that need splitting.
+ * <p>
+ * Algorithm described in detail here: https://en.wikipedia.org/wiki/Connected-component_labeling#Two-pass
+ */
+class ConnectedComponentLabeler {
+
+    // Rows per band, enough that joining the seams is cheap next to labeling the bands
+    private static final int BAND_ROWS = 64;
+
+    // Rows of a decoded image labeled at a time, enough bands to keep the executor busy
+    private static final int IMAGE_BAND_ROWS = 16 * BAND_ROWS;
+
+    private static final int FREE_SPACE = -1;
+
+    // Whether every value of a color channel is close to the free space color's channel
+    private final boolean[] freeSpaceRed = new boolean[256];
+    private final boolean[] freeSpaceGreen = new boolean[256];
+    private final boolean[] freeSpaceBlue = new boolean[256];
+    private final int blobColorChannelTolerance;
+
+    // Labels and converted pixels of the band being labeled, reused from band to band
+    private int[] parentsBuffer = new int[0];
+    private int[] pixelsBuffer = new int[0];
+
+    /**
+     * A connected group of pixels, with the leftmost and rightmost pixel of every row it covers.
+     */
+    static class Blob {
+
+        // Image coordinates and color of the blob's first pixel, row by row
+        private int firstX;
+        private int firstY;
+        private int firstColor;
+
+        // Range of every color channel over the blob's pixels
+        private int minRed;
+        private int maxRed;
+        private int minGreen;
+        private int maxGreen;
+        private int minBlue;
+        private int maxBlue;
+
+        private int pixelCount;
+        private int[] rowExtents = new int[6];
+        private int rowExtentCount;
+
+        // Row being added to
+        private int row = -1;
+        private int rowMinX;
+        private int rowMaxX;
+
+        Blob(int firstX, int firstY, int firstColor) {
+            this.firstX = firstX;
+            this.firstY = firstY;
+            this.firstColor = firstColor;
+
+            minRed = maxRed = (firstColor >> 16) & 0xFF;
+            minGreen = maxGreen = (firstColor >> 8) & 0xFF;
+            minBlue = maxBlue = firstColor & 0xFF;
+        }
+
+        /**
+         * Adds a pixel, which must not be in an earlier row than the pixels added before it.
+         */
+        void addPixel(int x, int y, int color) {
+            pixelCount++;
+
+            minRed = Math.min(minRed, (color >> 16) & 0xFF);
+            maxRed = Math.max(maxRed, (color >> 16) & 0xFF);
+            minGreen = Math.min(minGreen, (color >> 8) & 0xFF);
+            maxGreen = Math.max(maxGreen, (color >> 8) & 0xFF);
+            minBlue = Math.min(minBlue, color & 0xFF);
+            maxBlue = Math.max(maxBlue, color & 0xFF);
+
+            if (y != row) {
+                finishRow();
+
+                row = y;
+                rowMinX = x;
+                rowMaxX = x;
+            } else {
+                rowMinX = Math.min(rowMinX, x);
+                rowMaxX = Math.max(rowMaxX, x);
+            }
+        }
+
+        /**
+         * Stores the extent of the row being added to.
+         */
+        void finishRow() {
+            if (row == -1) return;
+
+            if (3 * rowExtentCount + 3 > rowExtents.length) {
+                rowExtents = Arrays.copyOf(rowExtents, 2 * rowExtents.length);
+            }
+
+            rowExtents[3 * rowExtentCount] = row;
+            rowExtents[3 * rowExtentCount + 1] = rowMinX;
+            rowExtents[3 * rowExtentCount + 2] = rowMaxX;
+            rowExtentCount++;
+            row = -1;
+        }
+
+        /**
+         * Adds the pixels of another blob. Both blobs must have their rows finished.
+         */
+        void merge(Blob other) {
+            if (other.isBefore(this)) {
+                firstX = other.firstX;
+                firstY = other.firstY;
+                firstColor = other.firstColor;
+            }
+
+            pixelCount += other.pixelCount;
+
+            minRed = Math.min(minRed, other.minRed);
+            maxRed = Math.max(maxRed, other.maxRed);
+            minGreen = Math.min(minGreen, other.minGreen);
+            maxGreen = Math.max(maxGreen, other.maxGreen);
+            minBlue = Math.min(minBlue, other.minBlue);
+            maxBlue = Math.max(maxBlue, other.maxBlue);
+
+            // Merge the row extents by row, widening the rows both blobs cover
+            int[] merged = new int[3 * (rowExtentCount + other.rowExtentCount)];
+            int mergedCount = 0;
+            int i = 0;
+            int j = 0;
+
+            while (i < rowExtentCount || j < other.rowExtentCount) {
+                int rowY = i == rowExtentCount ? Integer.MAX_VALUE : rowExtents[3 * i];
+                int otherRowY = j == other.rowExtentCount ? Integer.MAX_VALUE : other.rowExtents[3 * j];
+
+                if (rowY < otherRowY) {
+                    System.arraycopy(rowExtents, 3 * i++, merged, 3 * mergedCount, 3);
+                } else if (otherRowY < rowY) {
+                    System.arraycopy(other.rowExtents, 3 * j++, merged, 3 * mergedCount, 3);
+                } else {
+                    merged[3 * mergedCount] = rowY;
+                    merged[3 * mergedCount + 1] = Math.min(rowExtents[3 * i + 1], other.rowExtents[3 * j + 1]);
+                    merged[3 * mergedCount + 2] = Math.max(rowExtents[3 * i + 2], other.rowExtents[3 * j + 2]);
+                    i++;
+                    j++;
+                }
+
+                mergedCount++;
+            }
+
+            rowExtents = merged;
+            rowExtentCount = mergedCount;
+        }
+
+        /**
+         * @return Whether the blob's first pixel comes before the other blob's, row by row
+         */
+        boolean isBefore(Blob other) {
+            return firstY < other.firstY || (firstY == other.firstY && firstX < other.firstX);
+        }
+
+        /**
+         * @return Whether every pixel is within the tolerance of the first pixel's color on every channel
+         */
+        boolean isCloseToFirstColor(int channelTolerance) {
+            int red = (firstColor >> 16) & 0xFF;
+            int green = (firstColor >> 8) & 0xFF;
+            int blue = firstColor & 0xFF;
+
+            return maxRed - red <= channelTolerance && red - minRed <= channelTolerance
+                    && maxGreen - green <= channelTolerance && green - minGreen <= channelTolerance
+                    && maxBlue - blue <= channelTolerance && blue - minBlue <= channelTolerance;
+        }
+
+        int getPixelCount() {
+            return pixelCount;
+        }
+
+        /**
+         * @return Number of rows the blob covers
+         */
+        int getRowCount() {
+            return rowExtentCount;
+        }
+
+        /**
+         * @return Image row of the blob's nth row, from the top
+         */
+        int getRowY(int index) {
+            return rowExtents[3 * index];
+        }
+
+        int getRowMinX(int index) {
+            return rowExtents[3 * index + 1];
+        }
+
+        int getRowMaxX(int index) {
+            return rowExtents[3 * index + 2];
+        }
+
+    }
+
+    /**
+     * Labels of a rectangle of an image: its pixels as packed RGB, and the union-find parent of every pixel.
+     */
+    private static class LabeledPixels {
+
+        // Image coordinates of the rectangle's top-left pixel
+        private final int minX;
+        private final int minY;
+        private final int width;
+        private final int height;
+
+        private final int[] pixels;
+        private final int pixelOffset;
+        private final int scanlineStride;
+
+        // Pixel index within the rectangle of every pixel's parent, or FREE_SPACE. Roots are the first pixel of their
+        // component. Once the components are collected, roots hold the component number instead.
+        private final int[] parents;
+
+        /**
+         * @param parents: Array to store the labels in, at least as large as the rectangle
+         */
+        LabeledPixels(int minX, int minY, int width, int height, int[] pixels, int pixelOffset, int scanlineStride, int[] parents) {
+            this.minX = minX;
+            this.minY = minY;
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+            this.pixelOffset = pixelOffset;
+            this.scanlineStride = scanlineStride;
+            this.parents = parents;
+        }
+
+        /**
+         * @param x: Column within the rectangle
+         * @param y: Row within the rectangle
+         */
+        int getColor(int x, int y) {
+            return pixels[pixelOffset + y * scanlineStride + x];
+        }
+
+        /**
+         * @return Number of the component a pixel is in once the components are collected, -1 for free space
+         */
+        int getComponent(int pixel) {
+            int parent = parents[pixel];
+
+            if (parent == FREE_SPACE) return -1;
+
+            return parent < 0 ? -parent - 2 : -parents[parent] - 2;
+        }
+
+    }
+
+    /**
+     * Pixels of a component that needs splitting, in row order.
+     */
+    private static class ComponentPixels {
+
+        // Image coordinates of every pixel, packed as (y << 32) | x so they sort in row order
+        private final long[] keys;
+        private final int[] colors;
+        private int count;
+
+        ComponentPixels(int pixelCount) {
+            keys = new long[pixelCount];
+            colors = new int[pixelCount];
+        }
+
+        void add(int x, int y, int color) {
+            keys[count] = key(x, y);
+            colors[count] = color;
+            count++;
+        }
+
+        /**
+         * @return Index of the pixel at the image coordinates, or -1 if it isn't in the component
+         */
+        int indexOf(int x, int y) {
+            if (x < 0) return -1;
+
+            int index = Arrays.binarySearch(keys, 0, count, key(x, y));
+
+            return index < 0 ? -1 : index;
+        }
+
+        static long key(int x, int y) {
+            return ((long) y << 32) | x;
+        }
+
+    }
+
+    /**
+     * Components of the bands of an image labeled a band at a time, joined across the seams between bands with
+     * union-find. Only roots keep their component, and a root is always the component created first, which has the
+     * first pixel. Once every band is added, the bands with components that need splitting are labeled again to gather
+     * their pixels.
+     */
+    private class BandComponents {
+
+        private final int minY;
+        private final int bandRows;
+
+        private final List<Blob> components = new ArrayList<>();
+        private int[] componentParents = new int[16];
+
+        // Number of the first component of every band. Labeling a band again numbers its components the same way.
+        private final int[] bandFirstComponents;
+
+        // Component and color of every pixel in the last row of the band before
+        private final int[] previousRowComponents;
+        private final int[] previousRowColors;
+
+        // Pixels of every component that needs splitting, by root, and the bands they cover
+        private ComponentPixels[] splitPixels;
+        private int splitMinBand;
+        private int splitMaxBand = -1;
+
+        /**
+         * @param minY:     Top row of the rectangle, where band 0 starts
+         * @param bandRows: Rows of every band but the last
+         */
+        BandComponents(int minY, int bandRows, int width, int bandCount) {
+            this.minY = minY;
+            this.bandRows = bandRows;
+
+            bandFirstComponents = new int[bandCount];
+            previousRowComponents = new int[width];
+            previousRowColors = new int[width];
+        }
+
+        /**
+         * Adds the components of the next band and joins them to the ones of the band above.
+         */
+        void addBand(int band, LabeledPixels labeledPixels) {
+            int width = labeledPixels.width;
+            int bandHeight = labeledPixels.height;
+            int firstComponent = components.size();
+
+            bandFirstComponents[band] = firstComponent;
+
+            components.addAll(collectComponents(labeledPixels));
+
+            if (components.size() > componentParents.length) {
+                componentParents = Arrays.copyOf(componentParents, Math.max(components.size(), 2 * componentParents.length));
+            }
+
+            for (int component = firstComponent; component < components.size(); component++) {
+                componentParents[component] = component;
+            }
+
+            if (band > 0) {
+                for (int x = 0; x < width; x++) {
+                    int component = labeledPixels.getComponent(x);
+
+                    if (component != -1 && previousRowComponents[x] != -1
+                            && canShareBlob(labeledPixels.getColor(x, 0), previousRowColors[x])) {
+                        unionComponents(components, componentParents, previousRowComponents[x], firstComponent + component);
+                    }
+                }
+            }
+
+            for (int x = 0; x < width; x++) {
+                int component = labeledPixels.getComponent((bandHeight - 1) * width + x);
+
+                previousRowComponents[x] = component == -1 ? -1 : firstComponent + component;
+                previousRowColors[x] = labeledPixels.getColor(x, bandHeight - 1);
+            }
+        }
+
+        /**
+         * Finds the components that need splitting once every band is added.
+         *
+         * @return Blobs of the components that don't need splitting
+         */
+        List<Blob> collectBlobs() {
+            List<Blob> blobs = new ArrayList<>();
+
+            splitPixels = new ComponentPixels[components.size()];
+            splitMinBand = bandFirstComponents.length;
+
+            for (int i = 0; i < components.size(); i++) {
+                if (componentParents[i] != i) continue;
+
+                Blob component = components.get(i);
+
+                if (component.isCloseToFirstColor(blobColorChannelTolerance)) {
+                    blobs.add(component);
+                } else {
+                    splitPixels[i] = new ComponentPixels(component.getPixelCount());
+                    splitMinBand = Math.min(splitMinBand, (component.getRowY(0) - minY) / bandRows);
+                    splitMaxBand = Math.max(splitMaxBand, (component.getRowY(component.getRowCount() - 1) - minY) / bandRows);
+                }
+            }
+
+            return blobs;
+        }
+
+        /**
+         * Gathers the pixels of the components that need splitting from a band labeled again, with its components
+         * numbered. Bands must be added top to bottom.
+         */
+        void addSplitPixels(int band, LabeledPixels labeledPixels) {
+            int width = labeledPixels.width;
+
+            for (int y = 0; y < labeledPixels.height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int component = labeledPixels.getComponent(y * width + x);
+
+                    if (component == -1) continue;
+
+                    int root = find(componentParents, bandFirstComponents[band] + component);
+
+                    if (splitPixels[root] != null) {
+                        splitPixels[root].add(labeledPixels.minX + x, labeledPixels.minY + y, labeledPixels.getColor(x, y));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Splits the components that need splitting into blobs once their pixels are gathered.
+         */
+        void splitComponents(List<Blob> blobs) {
+            for (ComponentPixels componentPixels : splitPixels) {
+                if (componentPixels != null) {
+                    splitComponent(componentPixels, blobs);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Receives the bands of a streamed image as they are decoded.
+     */
+    private interface DecodedBandTask {
+
+        /**
+         * @param band:       Index of the band within the rectangle
+         * @param image:      Image whose top rows hold the band
+         * @param bandHeight: Number of rows of the band
+         */
+        void run(int band, BufferedImage image, int bandHeight);
+
+    }
+
+    /**
+     * Follows the rows an ImageReader decodes into a destination that only has room for one band, handing every band
+     * to the task once its last row is decoded. Gives up, and asks the reader to stop, as soon as a row arrives out of
+     * order or only in part, since it may already have overwritten rows of a band that wasn't handed on yet.
+     */
+    private static class SequentialBandListener implements IIOReadUpdateListener {
+
+        private final BufferedImage bandImage;
+        private final int firstBand;
+        private final int decodeBandRows;
+        private final int width;
+        private final int height;
+        private final DecodedBandTask task;
+
+        private int nextRow;
+        private int completedBands;
+        private boolean outOfOrder;
+
+        /**
+         * @param bandImage: Image the destination stores its rows in, one band tall
+         * @param firstBand: Index of the first band decoded
+         * @param width:     Width of the decoded rectangle
+         * @param height:    Height of the decoded rectangle
+         */
+        SequentialBandListener(BufferedImage bandImage, int firstBand, int decodeBandRows, int width, int height, DecodedBandTask task) {
+            this.bandImage = bandImage;
+            this.firstBand = firstBand;
+            this.decodeBandRows = decodeBandRows;
+            this.width = width;
+            this.height = height;
+            this.task = task;
+        }
+
+        @Override
+        public void imageUpdate(ImageReader source, BufferedImage theImage, int minX, int minY, int width, int height,
+                                int periodX, int periodY, int[] bands) {
+            if (outOfOrder) return;
+
+            int bandEnd = Math.min(this.height, (completedBands + 1) * decodeBandRows);
+
+            if (minY != nextRow || minY + height > bandEnd || minX != 0 || width != this.width || periodX != 1 || periodY != 1) {
+                outOfOrder = true;
+                source.abort();
+                return;
+            }
+
+            nextRow = minY + height;
+
+            if (nextRow == bandEnd) {
+                task.run(firstBand + completedBands, bandImage, bandEnd - completedBands * decodeBandRows);
+                completedBands++;
+            }
+        }
+
+        @Override
+        public void passStarted(ImageReader source, BufferedImage theImage, int pass, int minPass, int maxPass, int minX, int minY,
+                                int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void passComplete(ImageReader source, BufferedImage theImage) {
+        }
+
+        @Override
+        public void thumbnailPassStarted(ImageReader source, BufferedImage theThumbnail, int pass, int minPass, int maxPass, int minX,
+                                         int minY, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailUpdate(ImageReader source, BufferedImage theThumbnail, int minX, int minY, int width, int height,
+                                    int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailPassComplete(ImageReader source, BufferedImage theThumbnail) {
+        }
+
+    }
+
+    /**
+     * Data buffer of a whole image that stores it in the buffer of an image one band tall: the buffer offsets of a row
+     * wrap around to the band's, so row y lands in row y modulo the band height.
+     */
+    private static class BandRingDataBuffer extends DataBuffer {
+
+        private final DataBuffer bandBuffer;
+
+        BandRingDataBuffer(DataBuffer bandBuffer, int size) {
+            super(bandBuffer.getDataType(), size);
+            this.bandBuffer = bandBuffer;
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            return bandBuffer.getElem(bank, i % bandBuffer.getSize());
+        }
+
+        @Override
+        public void setElem(int bank, int i, int val) {
+            bandBuffer.setElem(bank, i % bandBuffer.getSize(), val);
+        }
+
+    }
+
+    /**
+     * Raster over a BandRingDataBuffer. It has to be the generic raster, since the JDK's own rasters only take the JDK's
+     * own data buffers. Image readers write their rows a pixel at a time, or in bulk to the JDK's rasters, so pixels, and
+     * rectangles of rows that don't wrap around, go straight to the band's raster. Anything else goes one sample at a
+     * time through the data buffer.
+     */
+    private static class BandRingRaster extends WritableRaster {
+
+        private final WritableRaster bandRaster;
+
+        BandRingRaster(SampleModel sampleModel, DataBuffer dataBuffer, WritableRaster bandRaster) {
+            super(sampleModel, dataBuffer, new Point(0, 0));
+            this.bandRaster = bandRaster;
+        }
+
+        @Override
+        public void setRect(int dx, int dy, Raster srcRaster) {
+            int bandRows = bandRaster.getHeight();
+            int firstRow = srcRaster.getMinY() + dy;
+            int lastRow = firstRow + srcRaster.getHeight() - 1;
+
+            if (firstRow >= 0 && lastRow < getHeight() && firstRow / bandRows == lastRow / bandRows) {
+                bandRaster.setRect(dx, dy - firstRow / bandRows * bandRows, srcRaster);
+            } else {
+                super.setRect(dx, dy, srcRaster);
+            }
+        }
+
+        @Override
+        public void setPixel(int x, int y, int[] iArray) {
+            if (y >= 0 && y < getHeight()) {
+                bandRaster.setPixel(x, y % bandRaster.getHeight(), iArray);
+            } else {
+                super.setPixel(x, y, iArray);
+            }
+        }
+
+    }
+
+    /**
+     * @param freeSpaceColor:            The color within the field image where there are no obstacles (ground color)
+     * @param freeSpaceChannelTolerance: How much deviation is allowed from free space color for non obstacles
+     * @param blobColorChannelTolerance: How much blob pixels may deviate from the blob's first pixel on every channel
+     */
+    ConnectedComponentLabeler(Color freeSpaceColor, int freeSpaceChannelTolerance, int blobColorChannelTolerance) {
+        this.blobColorChannelTolerance = blobColorChannelTolerance;
+
+        for (int value = 0; value < 256; value++) {
+            freeSpaceRed[value] = Math.abs(value - freeSpaceColor.getRed()) <= freeSpaceChannelTolerance;
+            freeSpaceGreen[value] = Math.abs(value - freeSpaceColor.getGreen()) <= freeSpaceChannelTolerance;
+            freeSpaceBlue[value] = Math.abs(value - freeSpaceColor.getBlue()) <= freeSpaceChannelTolerance;
+        }
+    }
+
+    /**
+     * Finds the blobs within a rectangle of the image. The rectangle is labeled a band of rows at a time in the same
+     * buffers, so the labels only take memory for one band instead of the whole image. Bands with components that need
+     * splitting are labeled again to gather their pixels, unless they are still labeled.
+     *
+     * @param image:    Field image
+     * @param minX:     Leftmost column of the rectangle
+     * @param minY:     Top row of the rectangle
+     * @param maxX:     Rightmost column of the rectangle, inclusive
+     * @param maxY:     Bottom row of the rectangle, inclusive
+     * @param executor: Executor to label the bands on, or null to label them on the calling thread
+     * @return Blobs in the order of their first pixel, row by row
+     */
+    List<Blob> label(BufferedImage image, int minX, int minY, int maxX, int maxY, Executor executor) {
+        int width = maxX - minX + 1;
+        int height = maxY - minY + 1;
+
+        if (width <= 0 || height <= 0) return new ArrayList<>();
+
+        int bandCount = (height - 1) / IMAGE_BAND_ROWS + 1;
+        BandComponents bandComponents = new BandComponents(minY, IMAGE_BAND_ROWS, width, bandCount);
+        LabeledPixels labeledPixels = null;
+
+        for (int band = 0; band < bandCount; band++) {
+            int bandMinY = minY + band * IMAGE_BAND_ROWS;
+
+            labeledPixels = labelPixels(image, minX, bandMinY, minX, bandMinY, width, Math.min(IMAGE_BAND_ROWS, maxY - bandMinY + 1), executor);
+            bandComponents.addBand(band, labeledPixels);
+        }
+
+        List<Blob> blobs = bandComponents.collectBlobs();
+
+        for (int band = bandComponents.splitMinBand; band <= bandComponents.splitMaxBand; band++) {
+            // The last band is still labeled unless another band was labeled again before it
+            boolean stillLabeled = band == bandCount - 1 && band == bandComponents.splitMinBand;
+
+            if (!stillLabeled) {
+                int bandMinY = minY + band * IMAGE_BAND_ROWS;
+
+                labeledPixels = labelPixels(image, minX, bandMinY, minX, bandMinY, width, Math.min(IMAGE_BAND_ROWS, maxY - bandMinY + 1), executor);
+                numberComponents(labeledPixels);
+            }
+
+            bandComponents.addSplitPixels(band, labeledPixels);
+        }
+
+        bandComponents.splitComponents(blobs);
+        sortBlobs(blobs);
+
+        return blobs;
+    }
+
+    /**
+     * Finds the blobs within a rectangle of an image decoded a band of rows at a time, so the whole image is never in
+     * memory. Components are carried from band to band and joined across the seams between bands. Once every band is
+     * labeled, the bands with components that need splitting are decoded and labeled again to gather their pixels.
+     * <p>
+     * The rectangle is decoded in one pass, labeling every band as soon as its last row is decoded, so the band height
+     * only trades memory for the overhead per band. Readers that don't decode the rows top to bottom in one pass, like
+     * those of interlaced PNGs, decode every band on its own instead. Readers that can't decode part of an image on its
+     * own, like the PNG reader, then decode the image up to the end of every band, which makes streaming quadratic in
+     * the number of bands.
+     *
+     * @param reader:         Reader with the field image as its first image
+     * @param minX:           Leftmost column of the rectangle
+     * @param minY:           Top row of the rectangle
+     * @param maxX:           Rightmost column of the rectangle, inclusive
+     * @param maxY:           Bottom row of the rectangle, inclusive
+     * @param decodeBandRows: Rows of the image to decode at a time
+     * @param executor:       Executor to label the bands on, or null to label them on the calling thread
+     * @return Blobs in the order of their first pixel, row by row
+     * @throws IOException: Unable to decode the image
+     */
+    List<Blob> label(ImageReader reader, int minX, int minY, int maxX, int maxY, int decodeBandRows, Executor executor) throws IOException {
+        if (decodeBandRows <= 0) {
+            throw new IllegalArgumentException("Decode bands must have at least one row!");
+        }
+
+        int width = maxX - minX + 1;
+
+        if (width <= 0 || maxY < minY) return new ArrayList<>();
+
+        int bandCount = (maxY - minY) / decodeBandRows + 1;
+        BandComponents bandComponents = new BandComponents(minY, decodeBandRows, width, bandCount);
+
+        decodeBands(reader, minX, minY, width, maxY, 0, bandCount - 1, decodeBandRows, (band, image, bandHeight) ->
+                bandComponents.addBand(band, labelPixels(image, 0, 0, minX, minY + band * decodeBandRows, width, bandHeight, executor)));
+
+        List<Blob> blobs = bandComponents.collectBlobs();
+
+        if (bandComponents.splitMaxBand >= 0) {
+            decodeBands(reader, minX, minY, width, maxY, bandComponents.splitMinBand, bandComponents.splitMaxBand, decodeBandRows,
+                    (band, image, bandHeight) -> {
+                        LabeledPixels labeledPixels = labelPixels(image, 0, 0, minX, minY + band * decodeBandRows, width, bandHeight, executor);
+
+                        numberComponents(labeledPixels);
+                        bandComponents.addSplitPixels(band, labeledPixels);
+                    });
+        }
+
+        bandComponents.splitComponents(blobs);
+        sortBlobs(blobs);
+
+        return blobs;
+    }
+
+    /**
+     * Decodes a range of bands of a rectangle of the image in one pass, running the task on every band as soon as its
+     * last row is decoded. The reader decodes into a destination as tall as the bands whose data buffer only holds one
+     * band, so memory stays bounded by the band size. Bands the reader doesn't decode in order are decoded one at a
+     * time afterwards.
+     *
+     * @param minY:      Top row of the rectangle, where band 0 starts
+     * @param maxY:      Bottom row of the rectangle, inclusive
+     * @param firstBand: First band to decode
+     * @param lastBand:  Last band to decode, inclusive
+     */
+    private static void decodeBands(ImageReader reader, int minX, int minY, int width, int maxY, int firstBand, int lastBand,
+                                    int decodeBandRows, DecodedBandTask task) throws IOException {
+        int regionMinY = minY + firstBand * decodeBandRows;
+        int regionHeight = Math.min(maxY, minY + (lastBand + 1) * decodeBandRows - 1) - regionMinY + 1;
+        int completedBands = 0;
+
+        BufferedImage bandImage = reader.getImageTypes(0).next().createBufferedImage(width, Math.min(decodeBandRows, regionHeight));
+        BufferedImage destination = createBandRingImage(bandImage, regionHeight);
+
+        if (destination != null) {
+            SequentialBandListener listener = new SequentialBandListener(bandImage, firstBand, decodeBandRows, width, regionHeight, task);
+            ImageReadParam param = reader.getDefaultReadParam();
+
+            param.setSourceRegion(new Rectangle(minX, regionMinY, width, regionHeight));
+            param.setDestination(destination);
+
+            reader.addIIOReadUpdateListener(listener);
+
+            try {
+                reader.read(0, param);
+            } finally {
+                reader.removeIIOReadUpdateListener(listener);
+            }
+
+            completedBands = listener.completedBands;
+        }
+
+        for (int band = firstBand + completedBands; band <= lastBand; band++) {
+            int bandMinY = minY + band * decodeBandRows;
+            int bandHeight = Math.min(decodeBandRows, maxY - bandMinY + 1);
+
+            task.run(band, readRegion(reader, new Rectangle(minX, bandMinY, width, bandHeight)), bandHeight);
+        }
+    }
+
+    /**
+     * @return Image as tall as the height given that stores its rows in the band image, wrapping around, or null if the
+     * band image's rows aren't laid out one after another in a single bank
+     */
+    private static BufferedImage createBandRingImage(BufferedImage bandImage, int height) {
+        SampleModel bandSampleModel = bandImage.getSampleModel();
+        DataBuffer bandBuffer = bandImage.getRaster().getDataBuffer();
+        int bandRows = bandImage.getHeight();
+        int scanlineStride;
+
+        if (bandSampleModel instanceof ComponentSampleModel) {
+            scanlineStride = ((ComponentSampleModel) bandSampleModel).getScanlineStride();
+        } else if (bandSampleModel instanceof MultiPixelPackedSampleModel) {
+            scanlineStride = ((MultiPixelPackedSampleModel) bandSampleModel).getScanlineStride();
+        } else if (bandSampleModel instanceof SinglePixelPackedSampleModel) {
+            scanlineStride = ((SinglePixelPackedSampleModel) bandSampleModel).getScanlineStride();
+        } else {
+            return null;
+        }
+
+        if (bandBuffer.getNumBanks() != 1 || bandBuffer.getOffset() != 0 || bandBuffer.getSize() != scanlineStride * bandRows) {
+            return null;
+        }
+
+        SampleModel sampleModel = bandSampleModel.createCompatibleSampleModel(bandImage.getWidth(), height);
+        DataBuffer dataBuffer = new BandRingDataBuffer(bandBuffer, (int) Math.min(Integer.MAX_VALUE, (long) scanlineStride * height));
+
+        WritableRaster raster = new BandRingRaster(sampleModel, dataBuffer, bandImage.getRaster());
+
+        return new BufferedImage(bandImage.getColorModel(), raster, bandImage.isAlphaPremultiplied(), null);
+    }
+
+    private static BufferedImage readRegion(ImageReader reader, Rectangle region) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+
+        param.setSourceRegion(region);
+
+        return reader.read(0, param);
+    }
+
+    /**
+     * Joins two components of a streamed image, keeping the one created first as the root.
+     */
+    private static void unionComponents(List<Blob> components, int[] componentParents, int component1, int component2) {
+        int root1 = find(componentParents, component1);
+        int root2 = find(componentParents, component2);
+
+        if (root1 == root2) return;
+
+        int root = Math.min(root1, root2);
+        int child = Math.max(root1, root2);
+
+        componentParents[child] = root;
+        components.get(root).merge(components.get(child));
+        components.set(child, null);
+    }
+
+    private static void sortBlobs(List<Blob> blobs) {
+        blobs.sort((blob1, blob2) -> blob1.isBefore(blob2) ? -1 : blob2.isBefore(blob1) ? 1 : 0);
+    }
+
+    /**
+     * Labels the components of a rectangle of an image. The labels, and the pixels of images that aren't packed RGB,
+     * are stored in the labeler's buffers, so they only last until the next rectangle is labeled.
+     *
+     * @param sourceX: Column of the rectangle within the image
+     * @param sourceY: Row of the rectangle within the image
+     * @param minX:    Column of the rectangle within the whole field image, which the image may be a region of
+     * @param minY:    Row of the rectangle within the whole field image
+     */
+    private LabeledPixels labelPixels(BufferedImage image, int sourceX, int sourceY, int minX, int minY, int width, int height, Executor executor) {
+        LabeledPixels labeledPixels;
+        boolean convertPixels;
+
+        if ((image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)
+                && image.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel
+                && image.getRaster().getDataBuffer() instanceof DataBufferInt) {
+            // Packed RGB straight from the image's own buffer
+            DataBufferInt dataBuffer = (DataBufferInt) image.getRaster().getDataBuffer();
+            int scanlineStride = ((SinglePixelPackedSampleModel) image.getRaster().getSampleModel()).getScanlineStride();
+
+            labeledPixels = new LabeledPixels(minX, minY, width, height,
+                    dataBuffer.getData(), dataBuffer.getOffset() + sourceY * scanlineStride + sourceX, scanlineStride, parentsBuffer(width * height));
+            convertPixels = false;
+        } else {
+            // Other image types are converted to packed RGB a band at a time as the bands are labeled
+            if (pixelsBuffer.length < width * height) {
+                pixelsBuffer = new int[width * height];
+            }
+
+            labeledPixels = new LabeledPixels(minX, minY, width, height, pixelsBuffer, 0, width, parentsBuffer(width * height));
+            convertPixels = true;
+        }
+
+        int[] pixels = labeledPixels.pixels;
+        int[] parents = labeledPixels.parents;
+        int bandCount = (height + BAND_ROWS - 1) / BAND_ROWS;
+
+        runBands(bandCount, executor, band -> {
+            int bandMinY = band * BAND_ROWS;
+            int bandMaxY = Math.min(height, bandMinY + BAND_ROWS) - 1;
+
+            if (convertPixels) {
+                convertRows(image, sourceX, sourceY + bandMinY, width, bandMaxY - bandMinY + 1, pixels, bandMinY * width);
+            }
+
+            labelBand(labeledPixels, bandMinY, bandMaxY);
+        });
+
+        // Join the labels across the seams between bands
+        for (int band = 1; band < bandCount; band++) {
+            int y = band * BAND_ROWS;
+
+            for (int x = 0; x < width; x++) {
+                int pixel = y * width + x;
+
+                if (parents[pixel] != FREE_SPACE && parents[pixel - width] != FREE_SPACE
+                        && canShareBlob(labeledPixels.getColor(x, y), labeledPixels.getColor(x, y - 1))) {
+                    union(parents, pixel, pixel - width);
+                }
+            }
+        }
+
+        // Point every pixel straight at its root
+        runBands(bandCount, executor, band -> {
+            int start = band * BAND_ROWS * width;
+            int end = Math.min(height, (band + 1) * BAND_ROWS) * width;
+
+            for (int pixel = start; pixel < end; pixel++) {
+                if (parents[pixel] != FREE_SPACE) {
+                    parents[pixel] = find(parents, pixel);
+                }
+            }
+        });
+
+        return labeledPixels;
+    }
+
+    /**
+     * Converts rows of an image to packed RGB. Images of 8-bit samples in one byte array, which is how ImageIO decodes
+     * most field drawings, are read straight from the array, since getRGB converts them a pixel at a time through their
+     * color model.
+     *
+     * @param offset: Index in the pixels of the first row's first pixel
+     */
+    private static void convertRows(BufferedImage image, int sourceX, int sourceY, int width, int height, int[] pixels, int offset) {
+        WritableRaster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        ColorModel colorModel = image.getColorModel();
+
+        boolean byteSamples = sampleModel instanceof ComponentSampleModel && raster.getDataBuffer() instanceof DataBufferByte
+                && raster.getDataBuffer().getNumBanks() == 1;
+
+        for (int sampleSize : sampleModel.getSampleSize()) {
+            byteSamples &= sampleSize == 8;
+        }
+
+        if (!byteSamples) {
+            image.getRGB(sourceX, sourceY, width, height, pixels, offset, width);
+            return;
+        }
+
+        int[] palette = null;
+
+        if (colorModel instanceof IndexColorModel && raster.getNumBands() == 1) {
+            palette = new int[256];
+            ((IndexColorModel) colorModel).getRGBs(palette);
+        } else if (!(colorModel instanceof ComponentColorModel) || !colorModel.getColorSpace().isCS_sRGB()
+                || colorModel.isAlphaPremultiplied() || colorModel.getNumColorComponents() != 3) {
+            image.getRGB(sourceX, sourceY, width, height, pixels, offset, width);
+            return;
+        }
+
+        ComponentSampleModel componentSampleModel = (ComponentSampleModel) sampleModel;
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int pixelStride = componentSampleModel.getPixelStride();
+        int scanlineStride = componentSampleModel.getScanlineStride();
+        int[] bandOffsets = componentSampleModel.getBandOffsets();
+        int firstSample = raster.getDataBuffer().getOffset() + (sourceY - raster.getSampleModelTranslateY()) * scanlineStride
+                + (sourceX - raster.getSampleModelTranslateX()) * pixelStride;
+
+        for (int y = 0; y < height; y++) {
+            int sample = firstSample + y * scanlineStride;
+            int rowOffset = offset + y * width;
+
+            if (palette != null) {
+                for (int x = 0; x < width; x++, sample += pixelStride) {
+                    pixels[rowOffset + x] = palette[data[sample + bandOffsets[0]] & 0xFF];
+                }
+            } else {
+                for (int x = 0; x < width; x++, sample += pixelStride) {
+                    pixels[rowOffset + x] = (data[sample + bandOffsets[0]] & 0xFF) << 16
+                            | (data[sample + bandOffsets[1]] & 0xFF) << 8 | data[sample + bandOffsets[2]] & 0xFF;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Buffer for the labels of a rectangle with the pixel count given
+     */
+    private int[] parentsBuffer(int pixelCount) {
+        if (parentsBuffer.length < pixelCount) {
+            parentsBuffer = new int[pixelCount];
+        }
+
+        return parentsBuffer;
+    }
+
+    private interface BandTask {
+
+        void run(int band);
+
+    }
+
+    private static void runBands(int bandCount, Executor executor, BandTask task) {
+        if (executor == null) {
+            for (int band = 0; band < bandCount; band++) {
+                task.run(band);
+            }
+
+            return;
+        }
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[bandCount];
+
+        for (int band = 0; band < bandCount; band++) {
+            int bandIndex = band;
+
+            futures[band] = CompletableFuture.runAsync(() -> task.run(bandIndex), executor);
+        }
+
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * First pass over a band: marks free space and joins every blob pixel with its left and upper neighbors in the band.
+     */
+    private void labelBand(LabeledPixels labeledPixels, int bandMinY, int bandMaxY) {
+        int[] pixels = labeledPixels.pixels;
+        int[] parents = labeledPixels.parents;
+        int width = labeledPixels.width;
+        int scanlineStride = labeledPixels.scanlineStride;
+
+        for (int y = bandMinY; y <= bandMaxY; y++) {
+            int rowOffset = labeledPixels.pixelOffset + y * scanlineStride;
+
+            for (int x = 0; x < width; x++) {
+                int pixel = y * width + x;
+                int color = pixels[rowOffset + x];
+
+                if (isFreeSpace(color)) {
+                    parents[pixel] = FREE_SPACE;
+                    continue;
+                }
+
+                parents[pixel] = pixel;
+
+                if (x > 0 && parents[pixel - 1] != FREE_SPACE && canShareBlob(color, pixels[rowOffset + x - 1])) {
+                    union(parents, pixel, pixel - 1);
+                }
+
+                if (y > bandMinY && parents[pixel - width] != FREE_SPACE && canShareBlob(color, pixels[rowOffset + x - scanlineStride])) {
+                    union(parents, pixel, pixel - width);
+                }
+            }
+        }
+    }
+
+    /**
+     * Second pass: numbers the components by their roots in row order and gathers their pixel counts, colors and row
+     * extents. Roots are replaced by the component number, stored as -(number + 2) to stay apart from free space.
+     */
+    private static List<Blob> collectComponents(LabeledPixels labeledPixels) {
+        int[] parents = labeledPixels.parents;
+        int width = labeledPixels.width;
+        List<Blob> components = new ArrayList<>();
+
+        for (int y = 0; y < labeledPixels.height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = y * width + x;
+                int parent = parents[pixel];
+
+                if (parent == FREE_SPACE) continue;
+
+                int color = labeledPixels.getColor(x, y);
+                Blob component;
+
+                if (parent == pixel) {
+                    parents[pixel] = -(components.size() + 2);
+                    component = new Blob(labeledPixels.minX + x, labeledPixels.minY + y, color);
+                    components.add(component);
+                } else {
+                    component = components.get(-parents[parent] - 2);
+                }
+
+                component.addPixel(labeledPixels.minX + x, labeledPixels.minY + y, color);
+            }
+        }
+
+        for (Blob component : components) {
+            component.finishRow();
+        }
+
+        return components;
+    }
+
+    /**
+     * Numbers the components by their roots in row order like collectComponents, without gathering them, for a
+     * rectangle labeled again.
+     */
+    private static void numberComponents(LabeledPixels labeledPixels) {
+        int[] parents = labeledPixels.parents;
+        int pixelCount = labeledPixels.width * labeledPixels.height;
+        int componentCount = 0;
+
+        for (int pixel = 0; pixel < pixelCount; pixel++) {
+            if (parents[pixel] == pixel) {
+                parents[pixel] = -(componentCount++ + 2);
+            }
+        }
+    }
+
+    /**
+     * Splits a component into blobs by growing a blob from every pixel of it, in row order, that isn't in a blob yet.
+     */
+    private void splitComponent(ComponentPixels componentPixels, List<Blob> blobs) {
+        long[] keys = componentPixels.keys;
+        int[] colors = componentPixels.colors;
+        int count = componentPixels.count;
+
+        // Pixels already in a blob
+        BitSet inBlob = new BitSet(count);
+
+        // Pixels of the blob being grown, which are also the queue of pixels to grow it from
+        int[] blobPixels = new int[count];
+
+        for (int seed = inBlob.nextClearBit(0); seed < count; seed = inBlob.nextClearBit(seed + 1)) {
+            int seedColor = colors[seed];
+            int blobPixelCount = 1;
+
+            blobPixels[0] = seed;
+            inBlob.set(seed);
+
+            for (int head = 0; head < blobPixelCount; head++) {
+                int pixel = blobPixels[head];
+                int x = (int) keys[pixel];
+                int y = (int) (keys[pixel] >> 32);
+
+                for (int direction = 0; direction < 4; direction++) {
+                    int neighbor;
+
+                    // Neighbors in the same row are next to the pixel in row order
+                    if (direction == 0) {
+                        neighbor = pixel + 1 < count && keys[pixel + 1] == ComponentPixels.key(x + 1, y) ? pixel + 1 : -1;
+                    } else if (direction == 1) {
+                        neighbor = pixel > 0 && keys[pixel - 1] == ComponentPixels.key(x - 1, y) ? pixel - 1 : -1;
+                    } else {
+                        neighbor = componentPixels.indexOf(x, direction == 2 ? y + 1 : y - 1);
+                    }
+
+                    if (neighbor != -1 && !inBlob.get(neighbor) && areColorsClose(seedColor, colors[neighbor])) {
+                        blobPixels[blobPixelCount++] = neighbor;
+                        inBlob.set(neighbor);
+                    }
+                }
+            }
+
+            // Every pixel of the component before the seed is already in a blob, so the seed comes first
+            Arrays.sort(blobPixels, 0, blobPixelCount);
+
+            Blob blob = new Blob((int) keys[seed], (int) (keys[seed] >> 32), seedColor);
+
+            for (int i = 0; i < blobPixelCount; i++) {
+                long key = keys[blobPixels[i]];
+
+                blob.addPixel((int) key, (int) (key >> 32), colors[blobPixels[i]]);
+            }
+
+            blob.finishRow();
+            blobs.add(blob);
+        }
+    }
+
+    /**
+     * Joins the sets of two pixels, keeping the smaller root so every root is the first pixel of its blob.
+     */
+    private static void union(int[] parents, int pixel1, int pixel2) {
+        int root1 = find(parents, pixel1);
+        int root2 = find(parents, pixel2);
+
+        if (root1 < root2) {
+            parents[root2] = root1;
+        } else if (root2 < root1) {
+            parents[root1] = root2;
+        }
+    }
+
+    private static int find(int[] parents, int pixel) {
+        while (parents[pixel] != pixel) {
+            // Path halving
+            parents[pixel] = parents[parents[pixel]];
+            pixel = parents[pixel];
+        }
+
+        return pixel;
+    }
+
+    private boolean isFreeSpace(int color) {
+        return freeSpaceRed[(color >> 16) & 0xFF] && freeSpaceGreen[(color >> 8) & 0xFF] && freeSpaceBlue[color & 0xFF];
+    }
+
+    /**
+     * @return Whether two pixels are close enough in color to both be close to some blob's first pixel
+     */
+    private boolean canShareBlob(int color1, int color2) {
+        return Math.abs(((color1 >> 16) & 0xFF) - ((color2 >> 16) & 0xFF)) <= 2 * blobColorChannelTolerance
+                && Math.abs(((color1 >> 8) & 0xFF) - ((color2 >> 8) & 0xFF)) <= 2 * blobColorChannelTolerance
+                && Math.abs((color1 & 0xFF) - (color2 & 0xFF)) <= 2 * blobColorChannelTolerance;
+    }
+
+    private boolean areColorsClose(int color1, int color2) {
+        return Math.abs(((color1 >> 16) & 0xFF) - ((color2 >> 16) & 0xFF)) <= blobColorChannelTolerance
+                && Math.abs(((color1 >> 8) & 0xFF) - ((color2 >> 8) & 0xFF)) <= blobColorChannelTolerance
+                && Math.abs((color1 & 0xFF) - (color2 & 0xFF)) <= blobColorChannelTolerance;
+    }
+
+}
@@ -1,15 +1,50 @@
 package org.waltonrobotics.field;
 
 import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.ConvexHullSimplifier;
+import org.waltonrobotics.geometry.Vector2f;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Obstacles and dimensions of a field, loaded from a field file.
+ * <p>
+ * Field files are little-endian binary, laid out so the vertices can be read in bulk:
+ * <pre>
+ * int    magic "WRFD"
+ * int    format version
+ * int    field width in pixels
+ * int    field height in pixels
+ * double field width in real-world units
+ * double field height in real-world units
+ * double pixels to real-world units conversion factor
+ * int    obstacle count
+ * int    total vertex count
+ * for every obstacle:
+ *   int  vertex count
+ *   int  polygon ID of the vertices
+ * for every obstacle, for every vertex, counter-clockwise from the vertex with the smallest x, then the smallest y:
+ *   double x, double y
+ * </pre>
+ * Field files written with Java serialization before can be converted with LegacyFieldConverter.
+ */
 public class Field {
 
+    // "WRFD" read as a little-endian int
+    private static final int MAGIC = 'W' | 'R' << 8 | 'F' << 16 | 'D' << 24;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 48;
+    // First two bytes of Java serialization streams, which field files used to be
+    private static final short SERIALIZATION_MAGIC = (short) 0xACED;
+
     private int fieldWidthPixels;
     private int fieldHeightPixels;
     private double fieldWidthActualUnits;
@@ -17,7 +52,14 @@ public class Field {
     private ArrayList<ConvexHull> obstacles;
     private FieldUnitConverter unitConverter;
 
-    public Field(String path) throws IOException, ClassNotFoundException {
+    /**
+     * Loads a field from a field file. Field files used to be deserialized, so this constructor also threw
+     * ClassNotFoundException. It no longer does, and callers catching it have to drop it from their catch clauses.
+     *
+     * @param path: Path to a field file
+     * @throws IOException: Unable to read the file, or it isn't a field file of a supported version
+     */
+    public Field(String path) throws IOException {
         this.obstacles = new ArrayList<>();
 
         loadFromFile(path);
@@ -47,27 +89,178 @@ public class Field {
         return unitConverter;
     }
 
-    public void loadFromFile(String path) throws IOException, ClassNotFoundException {
-        FileInputStream fis = new FileInputStream(path);
-        ObjectInputStream ois = new ObjectInputStream(fis);
+    /**
+     * Replaces every obstacle with a simplified convex polygon enclosing it, to plan faster around fewer vertices.
+     *
+     * @param maxVertices: Most vertices to keep of every obstacle, at least 3
+     * @param tolerance:   How far, in real-world units, an obstacle's boundary may move out to remove vertices beyond
+     *                     the vertex budget
+     */
+    public void simplifyObstacles(int maxVertices, double tolerance) {
+        obstacles = new ArrayList<>(ConvexHullSimplifier.simplifyAll(obstacles, maxVertices, tolerance));
+    }
+
+    /**
+     * Loads the field from a field file.
+     *
+     * @param path: Path to a field file
+     * @throws IOException: Unable to read the file, or it isn't a field file of a supported version
+     */
+    public void loadFromFile(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Field file " + path + " is too short!");
+            }
+
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Field file " + path + " is too large!");
+            }
+
+            // Field files are small, so reading them whole is as fast as mapping them and doesn't keep them locked on
+            // Windows until the mapping is garbage collected
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Field file " + path + " is truncated or corrupt!");
+                }
+            }
+
+            buffer.flip();
+
+            if (buffer.getShort(0) == SERIALIZATION_MAGIC) {
+                throw new IOException("Field file " + path + " is in the old serialized format, convert it with LegacyFieldConverter!");
+            }
+
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(path + " isn't a field file!");
+            }
+
+            int version = buffer.getInt();
+
+            if (version != VERSION) {
+                throw new IOException("Field file " + path + " has unsupported version " + version + "!");
+            }
+
+            int widthPixels = buffer.getInt();
+            int heightPixels = buffer.getInt();
+            double widthActualUnits = buffer.getDouble();
+            double heightActualUnits = buffer.getDouble();
+            double pixelsToActualUnits = buffer.getDouble();
+            int obstacleCount = buffer.getInt();
+            int vertexCount = buffer.getInt();
+
+            if (obstacleCount < 0 || vertexCount < 0
+                    || channel.size() != HEADER_BYTES + 8L * obstacleCount + 16L * vertexCount) {
+                throw new IOException("Field file " + path + " is truncated or corrupt!");
+            }
+
+            int[] obstacleTable = new int[2 * obstacleCount];
+            double[] coordinates = new double[2 * vertexCount];
+
+            buffer.asIntBuffer().get(obstacleTable);
+            buffer.position(HEADER_BYTES + 8 * obstacleCount);
+
+            DoubleBuffer coordinateBuffer = buffer.asDoubleBuffer();
+
+            coordinateBuffer.get(coordinates);
+
+            ArrayList<ConvexHull> loadedObstacles = new ArrayList<>(obstacleCount);
+            int coordinate = 0;
+
+            for (int i = 0; i < obstacleCount; i++) {
+                int obstacleVertexCount = obstacleTable[2 * i];
+                int polygonID = obstacleTable[2 * i + 1];
+
+                if (obstacleVertexCount < 0 || coordinate + 2 * obstacleVertexCount > coordinates.length) {
+                    throw new IOException("Field file " + path + " is truncated or corrupt!");
+                }
+
+                List<Vector2f> points = new ArrayList<>(obstacleVertexCount);
+
+                for (int j = 0; j < obstacleVertexCount; j++) {
+                    points.add(new Vector2f(coordinates[coordinate], coordinates[coordinate + 1], polygonID));
+                    coordinate += 2;
+                }
+
+                ConvexHull obstacle = new ConvexHull();
+
+                obstacle.setConvexPoints(points);
+                loadedObstacles.add(obstacle);
+            }
+
+            if (coordinate != coordinates.length) {
+                throw new IOException("Field file " + path + " has " + vertexCount + " vertices in its header but " + coordinate / 2 + " in its obstacles!");
+            }
+
+            fieldWidthPixels = widthPixels;
+            fieldHeightPixels = heightPixels;
+            fieldWidthActualUnits = widthActualUnits;
+            fieldHeightActualUnits = heightActualUnits;
+            unitConverter = new FieldUnitConverter(pixelsToActualUnits);
+            obstacles = loadedObstacles;
+        }
+    }
+
+    /**
+     * Saves a field to a field file. Only the convex points of the obstacles are saved.
+     *
+     * @param path:                   Path to non-existing or already-existing field file
+     * @param fieldWidthPixels:       The width of the field in pixels
+     * @param fieldHeightPixels:      The height of the field in pixels
+     * @param fieldWidthActualUnits:  The width of the actual field in real-world units (ex. meters)
+     * @param fieldHeightActualUnits: The height of the actual field in real-world units (ex. meters)
+     * @param unitConverter:          Unit converter for converting between pixel and real-world units
+     * @param obstacles:              Obstacles of the field
+     * @throws IOException: Unable to open file for writing
+     */
+    public static void saveToFile(String path,
+                                  int fieldWidthPixels, int fieldHeightPixels,
+                                  double fieldWidthActualUnits, double fieldHeightActualUnits,
+                                  FieldUnitConverter unitConverter,
+                                  List<ConvexHull> obstacles) throws IOException {
+        int vertexCount = 0;
+
+        for (ConvexHull obstacle : obstacles) {
+            vertexCount += obstacle.getConvexPoints().size();
+        }
 
-        fieldWidthPixels = ois.readInt();
-        fieldHeightPixels = ois.readInt();
-        fieldWidthActualUnits = ois.readDouble();
-        fieldHeightActualUnits = ois.readDouble();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 8 * obstacles.size() + 16 * vertexCount).order(ByteOrder.LITTLE_ENDIAN);
 
-        obstacles.clear();
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(fieldWidthPixels);
+        buffer.putInt(fieldHeightPixels);
+        buffer.putDouble(fieldWidthActualUnits);
+        buffer.putDouble(fieldHeightActualUnits);
+        buffer.putDouble(unitConverter.getPixelsToActualUnits());
+        buffer.putInt(obstacles.size());
+        buffer.putInt(vertexCount);
 
-        List<?> supposedObstacleList = (List<?>) ois.readObject();
-        for (Object object : supposedObstacleList) {
-            if (object instanceof ConvexHull) {
-                obstacles.add((ConvexHull) object);
+        for (ConvexHull obstacle : obstacles) {
+            List<Vector2f> points = obstacle.getConvexPoints();
+
+            buffer.putInt(points.size());
+            buffer.putInt(points.isEmpty() ? -1 : points.get(0).getPolygonID());
+        }
+
+        for (ConvexHull obstacle : obstacles) {
+            for (Vector2f point : obstacle.getConvexPoints()) {
+                buffer.putDouble(point.getX());
+                buffer.putDouble(point.getY());
             }
         }
 
-        unitConverter = (FieldUnitConverter) ois.readObject();
+        buffer.flip();
 
-        ois.close();
+        try (FileChannel channel = FileChannel.open(Paths.get(path),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
     }
 
 }
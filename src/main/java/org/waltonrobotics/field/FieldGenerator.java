@@ -1,20 +1,22 @@
 package org.waltonrobotics.field;
 
 import org.waltonrobotics.geometry.ConvexHull;
-import org.waltonrobotics.geometry.Vector2f;
+import org.waltonrobotics.geometry.ConvexHullSimplifier;
 import org.waltonrobotics.geometry.Vector2i;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Used to detect obstacles within a field image using blob detection and write them to a field file or display them.
@@ -38,10 +40,15 @@ public class FieldGenerator {
     private double fieldHeightActualUnits;
 
     private BufferedImage fieldDrawing;
+    private int fieldDrawingWidth;
+    private int fieldDrawingHeight;
 
     private ArrayList<ConvexHull> obstacles;
     private FieldUnitConverter unitConverter;
 
+    private Executor executor;
+    private int decodeBandRows;
+
     /**
      * Creates a new field generator. The generated field can be displayed or saved to a field file.
      *
@@ -72,6 +79,7 @@ public class FieldGenerator {
         this.fieldWidthActualUnits = fieldWidthActualUnits;
         this.fieldHeightActualUnits = fieldHeightActualUnits;
         this.obstacles = new ArrayList<>();
+        this.executor = ForkJoinPool.commonPool();
 
         loadFieldFromFile();
     }
@@ -100,6 +108,74 @@ public class FieldGenerator {
                           Vector2i translatedOrigin,
                           int fieldWidthPixels, int fieldHeightPixels,
                           double fieldWidthActualUnits, double fieldHeightActualUnits) throws IllegalArgumentException, IOException {
+        this(path, freeSpaceColor, freeSpaceChannelTolerance, blobColorChannelTolerance, borderDetectionFactor, translatedOrigin,
+                fieldWidthPixels, fieldHeightPixels, fieldWidthActualUnits, fieldHeightActualUnits, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new field generator that runs blob detection on the given executor. The generated field can be
+     * displayed or saved to a field file.
+     *
+     * @param path:                      File path to a field image
+     * @param freeSpaceColor:            The color within the field image where there are no obstacles (ground color)
+     * @param freeSpaceChannelTolerance: How much deviation is allowed from free space color for non obstacles
+     * @param blobColorChannelTolerance: How much deviation is allowed for obstacle blob detection
+     * @param borderDetectionFactor      How many times more an obstacle's area compared to its border
+     *                                   area needs to be for it to be considered a border
+     * @param translatedOrigin:          The pixel coordinate of where the field's top-left corner is (in respect to the top-left of the field image)
+     * @param fieldWidthPixels:          The width of the field in pixels from the translated origin
+     * @param fieldHeightPixels          The height of the field in pixels from the translated origin
+     * @param fieldWidthActualUnits:     The width of the actual field in real-world units (ex. meters)
+     * @param fieldHeightActualUnits:    The height of the actual field in real-world units (ex. meters)
+     * @param executor:                  Executor to label bands of the image on, or null to label them on the calling thread
+     * @throws IllegalArgumentException: User-provided arguments are invalid
+     * @throws IOException:              Unable to open image file from given path
+     */
+    public FieldGenerator(String path,
+                          Color freeSpaceColor,
+                          int freeSpaceChannelTolerance, int blobColorChannelTolerance,
+                          double borderDetectionFactor,
+                          Vector2i translatedOrigin,
+                          int fieldWidthPixels, int fieldHeightPixels,
+                          double fieldWidthActualUnits, double fieldHeightActualUnits,
+                          Executor executor) throws IllegalArgumentException, IOException {
+        this(path, freeSpaceColor, freeSpaceChannelTolerance, blobColorChannelTolerance, borderDetectionFactor, translatedOrigin,
+                fieldWidthPixels, fieldHeightPixels, fieldWidthActualUnits, fieldHeightActualUnits, executor, 0);
+    }
+
+    /**
+     * Creates a new field generator that can stream the field image, decoding it a band of rows at a time instead of
+     * all at once, for field images too large to fit in memory. The generated field can be displayed or saved to a
+     * field file.
+     * <p>
+     * A streamed image is decoded in one pass, plus a second pass over the bands with blobs of mixed colors, like
+     * antialiased edges. Interlaced images can't be decoded in order, so every band is decoded on its own, and a PNG
+     * band costs decoding the image up to its end: time grows with the square of the band count, so keep bands tall.
+     *
+     * @param path:                      File path to a field image
+     * @param freeSpaceColor:            The color within the field image where there are no obstacles (ground color)
+     * @param freeSpaceChannelTolerance: How much deviation is allowed from free space color for non obstacles
+     * @param blobColorChannelTolerance: How much deviation is allowed for obstacle blob detection
+     * @param borderDetectionFactor      How many times more an obstacle's area compared to its border
+     *                                   area needs to be for it to be considered a border
+     * @param translatedOrigin:          The pixel coordinate of where the field's top-left corner is (in respect to the top-left of the field image)
+     * @param fieldWidthPixels:          The width of the field in pixels from the translated origin
+     * @param fieldHeightPixels          The height of the field in pixels from the translated origin
+     * @param fieldWidthActualUnits:     The width of the actual field in real-world units (ex. meters)
+     * @param fieldHeightActualUnits:    The height of the actual field in real-world units (ex. meters)
+     * @param executor:                  Executor to label bands of the image on, or null to label them on the calling thread
+     * @param decodeBandRows:            Rows of the field image to decode at a time, or 0 to decode it all at once
+     * @throws IllegalArgumentException: User-provided arguments are invalid
+     * @throws IOException:              Unable to open image file from given path
+     */
+    public FieldGenerator(String path,
+                          Color freeSpaceColor,
+                          int freeSpaceChannelTolerance, int blobColorChannelTolerance,
+                          double borderDetectionFactor,
+                          Vector2i translatedOrigin,
+                          int fieldWidthPixels, int fieldHeightPixels,
+                          double fieldWidthActualUnits, double fieldHeightActualUnits,
+                          Executor executor, int decodeBandRows) throws IllegalArgumentException, IOException {
         this.fieldDrawingPath = path;
         this.freeSpaceColor = freeSpaceColor;
         this.freeSpaceChannelTolerance = freeSpaceChannelTolerance;
@@ -111,6 +187,8 @@ public class FieldGenerator {
         this.fieldWidthActualUnits = fieldWidthActualUnits;
         this.fieldHeightActualUnits = fieldHeightActualUnits;
         this.obstacles = new ArrayList<>();
+        this.executor = executor;
+        this.decodeBandRows = decodeBandRows;
 
         loadFieldFromFile();
     }
@@ -138,6 +216,60 @@ public class FieldGenerator {
         }
     }
 
+    /**
+     * @return Obstacles detected within the field image
+     */
+    public ArrayList<ConvexHull> getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * @return Unit converter for converting between pixel and real-world units
+     */
+    public FieldUnitConverter getUnitConverter() {
+        return unitConverter;
+    }
+
+    /**
+     * @return Width of the field in pixels
+     */
+    public int getFieldWidthPixels() {
+        return fieldWidthPixels;
+    }
+
+    /**
+     * @return Height of the field in pixels
+     */
+    public int getFieldHeightPixels() {
+        return fieldHeightPixels;
+    }
+
+    /**
+     * @return Width of the field in real-world units
+     */
+    public double getFieldWidthActualUnits() {
+        return fieldWidthActualUnits;
+    }
+
+    /**
+     * @return Height of the field in real-world units
+     */
+    public double getFieldHeightActualUnits() {
+        return fieldHeightActualUnits;
+    }
+
+    /**
+     * Replaces every obstacle with a simplified convex polygon enclosing it, so fields saved afterwards plan faster
+     * around fewer vertices.
+     *
+     * @param maxVertices: Most vertices to keep of every obstacle, at least 3
+     * @param tolerance:   How far, in real-world units, an obstacle's boundary may move out to remove vertices beyond
+     *                     the vertex budget
+     */
+    public void simplifyObstacles(int maxVertices, double tolerance) {
+        obstacles = new ArrayList<>(ConvexHullSimplifier.simplifyAll(obstacles, maxVertices, tolerance));
+    }
+
     /**
      * Displays the generated field in a new window.
      */
@@ -163,15 +295,7 @@ public class FieldGenerator {
      * @throws IOException: Unable to open file for writing
      */
     public void saveFieldToFile(String path) throws IOException {
-        FileOutputStream fos = new FileOutputStream(path);
-        ObjectOutputStream oos = new ObjectOutputStream(fos);
-        oos.writeInt(fieldWidthPixels);
-        oos.writeInt(fieldHeightPixels);
-        oos.writeDouble(fieldWidthActualUnits);
-        oos.writeDouble(fieldHeightActualUnits);
-        oos.writeObject(obstacles);
-        oos.writeObject(unitConverter);
-        oos.close();
+        Field.saveToFile(path, fieldWidthPixels, fieldHeightPixels, fieldWidthActualUnits, fieldHeightActualUnits, unitConverter, obstacles);
     }
 
     /**
@@ -191,134 +315,119 @@ public class FieldGenerator {
             throw new IllegalArgumentException("Border detection factor must be greater than 0!");
         }
 
-        // Read in the image file
-        fieldDrawing = ImageIO.read(new File(fieldDrawingPath));
-
-        if (fieldWidthPixels + translatedOrigin.getX() > fieldDrawing.getWidth()) {
-            throw new IllegalArgumentException("Specified field width in pixels is larger than the width of the field image in pixels!");
+        if (decodeBandRows < 0) {
+            throw new IllegalArgumentException("Decode band rows must not be negative!");
         }
 
-        if (fieldHeightPixels + translatedOrigin.getY() > fieldDrawing.getHeight()) {
-            throw new IllegalArgumentException("Specified field height in pixels is larger than the height of the field image in pixels!");
-        }
+        ImageInputStream fieldDrawingStream = null;
+        ImageReader fieldDrawingReader = null;
 
-        if (fieldWidthPixels < 0) {
-            fieldWidthPixels = fieldDrawing.getWidth();
-        }
+        try {
+            if (decodeBandRows > 0) {
+                // Only read the image's size, the image is decoded a band at a time during blob detection
+                fieldDrawingStream = ImageIO.createImageInputStream(new File(fieldDrawingPath));
 
-        if (fieldHeightPixels < 0) {
-            fieldHeightPixels = fieldDrawing.getHeight();
-        }
+                Iterator<ImageReader> readers = fieldDrawingStream == null ? null : ImageIO.getImageReaders(fieldDrawingStream);
 
-        // Determine our conversion factors for pixels to real-world units for the x and y axes
-        double conversionFactorWidth = fieldWidthActualUnits / fieldWidthPixels;
-        double conversionFactorHeight = fieldHeightActualUnits / fieldHeightPixels;
+                if (readers == null || !readers.hasNext()) {
+                    throw new IOException("Unable to find a reader for the field image!");
+                }
 
-        // The conversion factor from pixels to real-world units is the average between conversion factors for x and y axes
-        unitConverter = new FieldUnitConverter((conversionFactorWidth + conversionFactorHeight) / 2);
+                fieldDrawingReader = readers.next();
+                fieldDrawingReader.setInput(fieldDrawingStream);
 
-        // Run blob detection and fill our convex hull obstacle list
-        generateObstaclesFromImage();
-    }
+                fieldDrawingWidth = fieldDrawingReader.getWidth(0);
+                fieldDrawingHeight = fieldDrawingReader.getHeight(0);
+            } else {
+                // Read in the image file
+                fieldDrawing = ImageIO.read(new File(fieldDrawingPath));
 
-    /**
-     * Checks if two colors are similar using a given channel tolerance that is used on the red, green, and blue channels.
-     *
-     * @param a:                First color
-     * @param b:                Second color
-     * @param channelTolerance: Maximum deviance allowed for red, green, and blue channels for two colors to be determined as similar
-     * @return Whether two colors are similar
-     */
-    private boolean areColorsClose(Color a, Color b, int channelTolerance) {
-        // Find our deviations on each color channel
-        int redDeviation = Math.abs(b.getRed() - a.getRed());
-        int greenDeviation = Math.abs(b.getGreen() - a.getGreen());
-        int blueDeviation = Math.abs(b.getBlue() - a.getBlue());
-
-        // Return true if colors are similar, false otherwise
-        return (redDeviation <= channelTolerance
-                && greenDeviation <= channelTolerance
-                && blueDeviation <= channelTolerance);
+                fieldDrawingWidth = fieldDrawing.getWidth();
+                fieldDrawingHeight = fieldDrawing.getHeight();
+            }
+
+            if (fieldWidthPixels + translatedOrigin.getX() > fieldDrawingWidth) {
+                throw new IllegalArgumentException("Specified field width in pixels is larger than the width of the field image in pixels!");
+            }
+
+            if (fieldHeightPixels + translatedOrigin.getY() > fieldDrawingHeight) {
+                throw new IllegalArgumentException("Specified field height in pixels is larger than the height of the field image in pixels!");
+            }
+
+            if (fieldWidthPixels < 0) {
+                fieldWidthPixels = fieldDrawingWidth;
+            }
+
+            if (fieldHeightPixels < 0) {
+                fieldHeightPixels = fieldDrawingHeight;
+            }
+
+            // Determine our conversion factors for pixels to real-world units for the x and y axes
+            double conversionFactorWidth = fieldWidthActualUnits / fieldWidthPixels;
+            double conversionFactorHeight = fieldHeightActualUnits / fieldHeightPixels;
+
+            // The conversion factor from pixels to real-world units is the average between conversion factors for x and y axes
+            unitConverter = new FieldUnitConverter((conversionFactorWidth + conversionFactorHeight) / 2);
+
+            // Run blob detection and fill our convex hull obstacle list
+            generateObstaclesFromImage(fieldDrawingReader);
+        } finally {
+            if (fieldDrawingReader != null) {
+                fieldDrawingReader.dispose();
+            }
+
+            if (fieldDrawingStream != null) {
+                fieldDrawingStream.close();
+            }
+        }
     }
 
     /**
      * Uses blob detection to find obstacles within the field image and populates convex hull array with the obstacles.
+     *
+     * @param fieldDrawingReader: Reader to stream the field image from, or null if the field image is already decoded
+     * @throws IOException: Unable to decode the field image
      */
-    private void generateObstaclesFromImage() {
-        // Pixels we have visited
-        boolean[][] painted = new boolean[fieldDrawing.getHeight()][fieldDrawing.getWidth()];
-
-        for (int i = 0; i < fieldDrawing.getHeight(); i++) {
-            for (int j = 0; j < fieldDrawing.getWidth(); j++) {
-
-                // Our current pixel's color
-                Color originalBlobColor = new Color(fieldDrawing.getRGB(j, i));
-
-                // If we haven't visited this pixel yet
-                if (!painted[i][j]) {
-
-                    // Create a new convex hull for a possible obstacle
-                    ConvexHull newObstacleArea = new ConvexHull();
-
-                    // Holds pixel points of the blob
-                    Queue<Point> queue = new LinkedList<>();
-                    queue.add(new Point(j, i));
-
-                    // Begin constructing our convex hull
-                    newObstacleArea.begin();
-
-                    // How many pixels are in the blob
-                    int pixelCount = 0;
-
-                    while (!queue.isEmpty()) {
-                        Point p = queue.remove();
-
-                        // If we are within the field range
-                        if ((p.x >= translatedOrigin.getX())
-                                && (p.x <= translatedOrigin.getX() + fieldWidthPixels)
-                                && (p.y >= translatedOrigin.getY())
-                                && (p.y <= translatedOrigin.getY() + fieldHeightPixels)) {
-
-                            // We are performing a paint fill
-                            Color searchColor = new Color(fieldDrawing.getRGB(p.x, p.y));
-
-                            // If the current color is not part of the free space and is close to the blob color
-                            if (!painted[p.y][p.x]
-                                    && areColorsClose(searchColor, originalBlobColor, blobColorChannelTolerance)
-                                    && !areColorsClose(searchColor, freeSpaceColor, freeSpaceChannelTolerance)) {
-                                painted[p.y][p.x] = true;
-
-                                // Convert the pixel coordinate to a normal cartesian plane coordinate in real-world units in which (0, 0) is in the bottom-left corner
-                                Vector2f actualPoint = unitConverter.convertPixelPointToActualPoint(new Vector2i(p.x, p.y), translatedOrigin, fieldHeightPixels);
-
-                                // Add the real-world coordinate to our convex hull
-                                newObstacleArea.addPoint(actualPoint);
-
-                                // Increment pixel count
-                                pixelCount++;
-
-                                queue.add(new Point(p.x + 1, p.y));
-                                queue.add(new Point(p.x - 1, p.y));
-                                queue.add(new Point(p.x, p.y + 1));
-                                queue.add(new Point(p.x, p.y - 1));
-                            }
-                        }
-                    }
-
-                    // If we have more than three points in our blob, start calculation of convex hull
-                    if (pixelCount >= 3) {
-                        // Calculate convex hull
-                        newObstacleArea.end();
-
-                        // Border check: If the inner area of the obstacle is much greater than the pixels in the blob (if the obstacle is a border),
-                        // ignore it.
-                        if (unitConverter.convertActualUnitsToPixels(newObstacleArea.getArea()) < (pixelCount * borderDetectionFactor)) {
-                            obstacles.add(newObstacleArea);
-                        }
-                    }
+    private void generateObstaclesFromImage(ImageReader fieldDrawingReader) throws IOException {
+        ConnectedComponentLabeler labeler = new ConnectedComponentLabeler(freeSpaceColor, freeSpaceChannelTolerance, blobColorChannelTolerance);
+
+        // Field range within the image
+        int minX = translatedOrigin.getX();
+        int minY = translatedOrigin.getY();
+        int maxX = Math.min(translatedOrigin.getX() + fieldWidthPixels, fieldDrawingWidth - 1);
+        int maxY = Math.min(translatedOrigin.getY() + fieldHeightPixels, fieldDrawingHeight - 1);
+
+        List<ConnectedComponentLabeler.Blob> blobs = fieldDrawingReader != null
+                ? labeler.label(fieldDrawingReader, minX, minY, maxX, maxY, decodeBandRows, executor)
+                : labeler.label(fieldDrawing, minX, minY, maxX, maxY, executor);
+
+        for (ConnectedComponentLabeler.Blob blob : blobs) {
+            // If we have more than three points in our blob, start calculation of convex hull
+            if (blob.getPixelCount() >= 3) {
+                ConvexHull newObstacleArea = new ConvexHull();
+
+                newObstacleArea.begin();
+
+                // Only the ends of every row can be on the convex hull, so a blob costs memory by its height instead of its area
+                for (int row = 0; row < blob.getRowCount(); row++) {
+                    int y = blob.getRowY(row);
+
+                    // Convert the row ends to normal cartesian plane coordinates in real-world units in which (0, 0) is in the bottom-left corner
+                    // and add them to our convex hull
+                    newObstacleArea.addPoint(unitConverter.convertPixelPointToActualPoint(new Vector2i(blob.getRowMinX(row), y), translatedOrigin, fieldHeightPixels));
+                    newObstacleArea.addPoint(unitConverter.convertPixelPointToActualPoint(new Vector2i(blob.getRowMaxX(row), y), translatedOrigin, fieldHeightPixels));
+                }
+
+                // Calculate convex hull
+                newObstacleArea.end();
+
+                // Border check: If the inner area of the obstacle is much greater than the pixels in the blob (if the obstacle is a border),
+                // ignore it.
+                if (unitConverter.convertActualUnitsToPixels(newObstacleArea.getArea()) < (blob.getPixelCount() * borderDetectionFactor)) {
+                    obstacles.add(newObstacleArea);
                 }
             }
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+package org.waltonrobotics.field;
+
+import org.waltonrobotics.geometry.ConvexHull;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.WriteAbortedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Converts field files written with Java serialization, as FieldGenerator and RandomFieldGenerator used to save them,
+ * to the binary format Field loads. Only the classes a field file is made of are deserialized, and the geometry classes
+ * are read even if their serialVersionUID changed since the file was written, as long as their fields didn't.
+ * <p>
+ * Usage: LegacyFieldConverter legacyFieldPath fieldPath
+ */
+public class LegacyFieldConverter {
+
+    private static final Set<String> FIELD_FILE_CLASSES = new HashSet<>(Arrays.asList(
+            "java.util.ArrayList",
+            "java.util.LinkedList",
+            "java.util.HashSet",
+            "java.util.LinkedHashSet",
+            "java.util.Vector",
+            "java.util.Stack",
+            "java.util.Collections$UnmodifiableCollection",
+            "java.util.Collections$UnmodifiableList",
+            "java.util.Collections$UnmodifiableRandomAccessList",
+            "java.lang.Number",
+            "java.lang.Integer",
+            "java.lang.Double",
+            "[Ljava.lang.Object;",
+            "org.waltonrobotics.field.FieldUnitConverter",
+            "org.waltonrobotics.geometry.ConvexHull",
+            "org.waltonrobotics.geometry.LineSegment",
+            "org.waltonrobotics.geometry.Rectangle",
+            "org.waltonrobotics.geometry.Vector2f"));
+
+    // Streams whose writing failed hold the exception it failed with, which is read before WriteAbortedException is
+    // thrown. Its superclasses are listed because the stream describes every serializable class up to Throwable.
+    private static final Set<String> ABORTED_WRITE_CLASSES = new HashSet<>(Arrays.asList(
+            "java.io.WriteAbortedException",
+            "java.io.NotSerializableException",
+            "java.io.ObjectStreamException",
+            "java.io.IOException",
+            "java.lang.Exception",
+            "java.lang.Throwable",
+            "java.lang.StackTraceElement",
+            "[Ljava.lang.StackTraceElement;"));
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: LegacyFieldConverter legacyFieldPath fieldPath");
+            return;
+        }
+
+        try {
+            convert(args[0], args[1]);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param legacyPath: Path to a field file written with Java serialization
+     * @param path:       Path to non-existing or already-existing field file to write in the binary format
+     * @throws IOException: Unable to read the legacy field file, or it holds something other than a field
+     */
+    public static void convert(String legacyPath, String path) throws IOException {
+        int fieldWidthPixels;
+        int fieldHeightPixels;
+        double fieldWidthActualUnits;
+        double fieldHeightActualUnits;
+        Object obstacles;
+        Object unitConverter;
+
+        try (ObjectInputStream ois = new FieldObjectInputStream(new FileInputStream(legacyPath))) {
+            fieldWidthPixels = ois.readInt();
+            fieldHeightPixels = ois.readInt();
+            fieldWidthActualUnits = ois.readDouble();
+            fieldHeightActualUnits = ois.readDouble();
+            obstacles = ois.readObject();
+            unitConverter = ois.readObject();
+        } catch (WriteAbortedException e) {
+            throw new IOException("Writing legacy field file " + legacyPath + " failed partway, regenerate the field with FieldGenerator instead!", e);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Legacy field file " + legacyPath + " holds an unknown class!", e);
+        }
+
+        if (!(obstacles instanceof List) || !(unitConverter instanceof FieldUnitConverter)) {
+            throw new IOException(legacyPath + " isn't a legacy field file!");
+        }
+
+        List<ConvexHull> convexHulls = new ArrayList<>();
+
+        for (Object obstacle : (List<?>) obstacles) {
+            if (!(obstacle instanceof ConvexHull)) {
+                throw new IOException(legacyPath + " isn't a legacy field file!");
+            }
+
+            convexHulls.add((ConvexHull) obstacle);
+        }
+
+        Field.saveToFile(path,
+                fieldWidthPixels, fieldHeightPixels,
+                fieldWidthActualUnits, fieldHeightActualUnits,
+                (FieldUnitConverter) unitConverter,
+                convexHulls);
+    }
+
+    /**
+     * Deserializes only the classes field files are made of, reading geometry classes by their local description when
+     * only their serialVersionUID differs from the one they were written with.
+     */
+    private static class FieldObjectInputStream extends ObjectInputStream {
+
+        FieldObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!FIELD_FILE_CLASSES.contains(desc.getName()) && !ABORTED_WRITE_CLASSES.contains(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "Not part of a field file!");
+            }
+
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass streamDescriptor = super.readClassDescriptor();
+
+            if (!streamDescriptor.getName().startsWith("org.waltonrobotics.")
+                    || !FIELD_FILE_CLASSES.contains(streamDescriptor.getName())) {
+                return streamDescriptor;
+            }
+
+            ObjectStreamClass localDescriptor = ObjectStreamClass.lookup(Class.forName(streamDescriptor.getName(), false, getClass().getClassLoader()));
+
+            if (localDescriptor == null || !sameFields(streamDescriptor, localDescriptor)) {
+                return streamDescriptor;
+            }
+
+            return localDescriptor;
+        }
+
+        private static boolean sameFields(ObjectStreamClass first, ObjectStreamClass second) {
+            ObjectStreamField[] firstFields = first.getFields();
+            ObjectStreamField[] secondFields = second.getFields();
+
+            if (firstFields.length != secondFields.length) return false;
+
+            for (int i = 0; i < firstFields.length; i++) {
+                if (!firstFields[i].getName().equals(secondFields[i].getName())
+                        || firstFields[i].getTypeCode() != secondFields[i].getTypeCode()
+                        || !Objects.equals(firstFields[i].getTypeString(), secondFields[i].getTypeString())) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+    }
+
+}
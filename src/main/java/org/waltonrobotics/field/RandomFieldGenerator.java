@@ -0,0 +1,221 @@
+package org.waltonrobotics.field;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.Vector2f;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic fields of random, non-overlapping convex obstacles together with a random convex robot. The
+ * same seed and parameters always produce the same field, so generated fields can be used to compare runs.
+ * <p>
+ * Every obstacle is a polygon inscribed in a circle, and obstacles are placed so that their circles are at least the
+ * clearance apart, which keeps them from overlapping.
+ */
+public class RandomFieldGenerator {
+
+    // Synthetic fields have no image, the pixel size only matters to the saved field file
+    private static final double PIXELS_PER_UNIT = 100;
+    private static final int PLACEMENT_ATTEMPTS_PER_OBSTACLE = 1000;
+
+    private long seed;
+
+    private int obstacleCount;
+    private int obstacleVertexCount;
+    private double minObstacleRadius;
+    private double maxObstacleRadius;
+    private double obstacleClearance;
+
+    private double fieldWidthActualUnits;
+    private double fieldHeightActualUnits;
+
+    private ArrayList<ConvexHull> obstacles;
+    private FieldUnitConverter unitConverter;
+
+    /**
+     * Creates a new random field generator and generates its obstacles.
+     *
+     * @param seed:                   Random seed
+     * @param obstacleCount:          Number of obstacles
+     * @param obstacleVertexCount:    Number of vertices of every obstacle, at least 3
+     * @param minObstacleRadius:      Smallest circumradius of an obstacle
+     * @param maxObstacleRadius:      Largest circumradius of an obstacle
+     * @param obstacleClearance:      Smallest gap between the circumcircles of two obstacles
+     * @param fieldWidthActualUnits:  The width of the field in real-world units (ex. meters)
+     * @param fieldHeightActualUnits: The height of the field in real-world units (ex. meters)
+     * @throws IllegalArgumentException: Parameters are invalid or the obstacles don't fit in the field
+     */
+    public RandomFieldGenerator(long seed,
+                                int obstacleCount, int obstacleVertexCount,
+                                double minObstacleRadius, double maxObstacleRadius,
+                                double obstacleClearance,
+                                double fieldWidthActualUnits, double fieldHeightActualUnits) throws IllegalArgumentException {
+        this.seed = seed;
+        this.obstacleCount = obstacleCount;
+        this.obstacleVertexCount = obstacleVertexCount;
+        this.minObstacleRadius = minObstacleRadius;
+        this.maxObstacleRadius = maxObstacleRadius;
+        this.obstacleClearance = obstacleClearance;
+        this.fieldWidthActualUnits = fieldWidthActualUnits;
+        this.fieldHeightActualUnits = fieldHeightActualUnits;
+        this.obstacles = new ArrayList<>();
+        this.unitConverter = new FieldUnitConverter(1 / PIXELS_PER_UNIT);
+
+        generateObstacles();
+    }
+
+    /**
+     * Generates a random convex robot around the origin, the point the configuration space places at each vertex.
+     *
+     * @param seed:        Random seed
+     * @param vertexCount: Number of vertices, at least 3
+     * @param radius:      Circumradius of the robot
+     * @return Robot hull
+     */
+    public static ConvexHull generateRobot(long seed, int vertexCount, double radius) {
+        if (vertexCount < 3) {
+            throw new IllegalArgumentException("A robot needs at least 3 vertices!");
+        }
+
+        if (radius <= 0) {
+            throw new IllegalArgumentException("Robot radius must be greater than 0!");
+        }
+
+        return generatePolygon(new Random(seed), 0, 0, radius, vertexCount, -1);
+    }
+
+    /**
+     * @return Convex polygon with the given number of vertices on a circle, at random angles
+     */
+    private static ConvexHull generatePolygon(Random random, double centerX, double centerY, double radius, int vertexCount, int polygonID) {
+        double[] angles = new double[vertexCount];
+
+        // Spread the angles over the circle with jitter, so no polygon degenerates into a sliver
+        for (int i = 0; i < vertexCount; i++) {
+            angles[i] = 2 * Math.PI * (i + 0.8 * random.nextDouble()) / vertexCount;
+        }
+
+        Arrays.sort(angles);
+
+        ConvexHull polygon = new ConvexHull();
+
+        polygon.begin();
+
+        for (double angle : angles) {
+            polygon.addPoint(new Vector2f(centerX + radius * Math.cos(angle), centerY + radius * Math.sin(angle), polygonID));
+        }
+
+        polygon.end();
+
+        return polygon;
+    }
+
+    private void generateObstacles() {
+        if (obstacleCount < 0) {
+            throw new IllegalArgumentException("Obstacle count must not be negative!");
+        }
+
+        if (obstacleVertexCount < 3) {
+            throw new IllegalArgumentException("An obstacle needs at least 3 vertices!");
+        }
+
+        if (minObstacleRadius <= 0 || maxObstacleRadius < minObstacleRadius) {
+            throw new IllegalArgumentException("Obstacle radii must be greater than 0 and the minimum must not exceed the maximum!");
+        }
+
+        if (obstacleClearance < 0) {
+            throw new IllegalArgumentException("Obstacle clearance must not be negative!");
+        }
+
+        if (2 * maxObstacleRadius > fieldWidthActualUnits || 2 * maxObstacleRadius > fieldHeightActualUnits) {
+            throw new IllegalArgumentException("Obstacles must fit inside the field!");
+        }
+
+        Random random = new Random(seed);
+
+        // x, y and radius of every placed obstacle's circumcircle
+        double[] circles = new double[3 * obstacleCount];
+
+        for (int polygonID = 0; polygonID < obstacleCount; polygonID++) {
+            double radius = minObstacleRadius + random.nextDouble() * (maxObstacleRadius - minObstacleRadius);
+            double x = 0;
+            double y = 0;
+            boolean placed = false;
+
+            for (int attempt = 0; attempt < PLACEMENT_ATTEMPTS_PER_OBSTACLE && !placed; attempt++) {
+                x = radius + random.nextDouble() * (fieldWidthActualUnits - 2 * radius);
+                y = radius + random.nextDouble() * (fieldHeightActualUnits - 2 * radius);
+                placed = true;
+
+                for (int other = 0; other < polygonID && placed; other++) {
+                    double dx = x - circles[3 * other];
+                    double dy = y - circles[3 * other + 1];
+                    double minDistance = radius + circles[3 * other + 2] + obstacleClearance;
+
+                    placed = dx * dx + dy * dy >= minDistance * minDistance;
+                }
+            }
+
+            if (!placed) {
+                throw new IllegalArgumentException("Unable to place " + obstacleCount + " obstacles without overlap, the field is too crowded!");
+            }
+
+            circles[3 * polygonID] = x;
+            circles[3 * polygonID + 1] = y;
+            circles[3 * polygonID + 2] = radius;
+
+            obstacles.add(generatePolygon(random, x, y, radius, obstacleVertexCount, polygonID));
+        }
+    }
+
+    /**
+     * Saves the generated field to a file to be used for a Field object.
+     *
+     * @param path: Path to non-existing or already-existing field file
+     * @throws IOException: Unable to open file for writing
+     */
+    public void saveFieldToFile(String path) throws IOException {
+        Field.saveToFile(path, getFieldWidthPixels(), getFieldHeightPixels(), fieldWidthActualUnits, fieldHeightActualUnits, unitConverter, obstacles);
+    }
+
+    /**
+     * @return Generated obstacles, the points of obstacle i carry polygon ID i
+     */
+    public ArrayList<ConvexHull> getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * @return Unit converter of the saved field file
+     */
+    public FieldUnitConverter getUnitConverter() {
+        return unitConverter;
+    }
+
+    /**
+     * @return Width of the field in pixels in the saved field file
+     */
+    public int getFieldWidthPixels() {
+        return unitConverter.convertActualUnitsToPixels(fieldWidthActualUnits);
+    }
+
+    /**
+     * @return Height of the field in pixels in the saved field file
+     */
+    public int getFieldHeightPixels() {
+        return unitConverter.convertActualUnitsToPixels(fieldHeightActualUnits);
+    }
+
+    public double getFieldWidthActualUnits() {
+        return fieldWidthActualUnits;
+    }
+
+    public double getFieldHeightActualUnits() {
+        return fieldHeightActualUnits;
+    }
+
+}
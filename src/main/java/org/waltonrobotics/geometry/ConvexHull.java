@@ -22,6 +22,7 @@ public class ConvexHull implements Serializable {
     private List<Vector2f> convexPoints;
     private List<LineSegment> edges;
     private Rectangle boundingBox;
+    private transient SupportMapping supportMapping;
 
     /**
      * Constructs a new convex hull.
@@ -80,14 +81,8 @@ public class ConvexHull implements Serializable {
 
         // Minimum x value within all points
         double minX = sortedPoints.get(bottomLeftIndex).getX();
-        // Minimum y value within all points
-        double minY = sortedPoints.get(bottomLeftIndex).getY();
         // Maximum x value within all points
-        double maxX = sortedPoints.get(bottomRightIndex).getX();
-        // Maximum y value within all points
-        double maxY = sortedPoints.get(topRightIndex).getY();
-
-        boundingBox = new Rectangle(minX, maxX, minY, maxY);
+        double maxX = sortedPoints.get(topRightIndex).getX();
 
         // Find our top-left index
         int i = 0;
@@ -206,6 +201,33 @@ public class ConvexHull implements Serializable {
     }
 
 
+    /**
+     * @return Axis-aligned bounding box of the convex hull points
+     */
+    public Rectangle getBoundingBox() {
+        return boundingBox;
+    }
+
+    /**
+     * The mapping is cached per hull and shared by every thread planning around it. Its queries write the index of
+     * their answer, unsynchronized, as the starting point of the next query. That race is benign: any index a thread
+     * sees, stale or not, is a valid point of the same polygon, and the query climbs or searches from it to the exact
+     * farthest point, so only the query's speed depends on it. Two threads may also both build the mapping on first
+     * use, and every field the queries rely on is final, so either mapping is safe to use.
+     *
+     * @return Support mapping of the convex hull points for fast farthest point queries, built on first use
+     */
+    public SupportMapping getSupportMapping() {
+        SupportMapping mapping = supportMapping;
+
+        if (mapping == null) {
+            mapping = new SupportMapping(convexPoints);
+            supportMapping = mapping;
+        }
+
+        return mapping;
+    }
+
     /**
      * @return Edges of convex hull
      */
@@ -220,6 +242,7 @@ public class ConvexHull implements Serializable {
         allPoints.clear();
         convexPoints.clear();
         edges.clear();
+        supportMapping = null;
     }
 
     /**
@@ -254,6 +277,48 @@ public class ConvexHull implements Serializable {
         }
 
         convexPoints.remove(convexPoints.size() - 1);
+        supportMapping = null;
+
+        calculateBoundingBox();
+    }
+
+    /**
+     * Makes the hull out of points that are already a convex polygon, like a Minkowski sum, without computing the hull
+     * again. The points replace every point added before.
+     *
+     * @param points: Points in counter-clockwise order from the point with the smallest x, then the smallest y, with no
+     *                three consecutive points collinear, the order end leaves convex hull points in
+     */
+    public void setConvexPoints(List<Vector2f> points) {
+        begin();
+
+        allPoints.addAll(points);
+        convexPoints = new ArrayList<>(points);
+
+        for (int i = 0; i < convexPoints.size(); i++) {
+            Vector2f currentPoint = convexPoints.get(i);
+            Vector2f nextPoint = convexPoints.get(i + 1 == convexPoints.size() ? 0 : i + 1);
+
+            edges.add(new LineSegment(currentPoint, nextPoint));
+        }
+
+        calculateBoundingBox();
+    }
+
+    private void calculateBoundingBox() {
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (Vector2f v : convexPoints) {
+            minX = Math.min(minX, v.getX());
+            maxX = Math.max(maxX, v.getX());
+            minY = Math.min(minY, v.getY());
+            maxY = Math.max(maxY, v.getY());
+        }
+
+        boundingBox = new Rectangle(minX, maxX, minY, maxY);
     }
 
     /**
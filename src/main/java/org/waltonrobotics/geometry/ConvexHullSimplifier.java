@@ -0,0 +1,207 @@
+package org.waltonrobotics.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simplifies convex polygons without ever shrinking them, so a simplified obstacle still covers the whole obstacle.
+ * An edge is removed by extending the edges before and after it until they meet, which adds the triangle between the
+ * removed edge and the new point to the polygon. Edges are removed greedily, the one whose removal moves the boundary
+ * out the least first.
+ * <p>
+ * Every vertex of an obstacle multiplies into the Minkowski sums of the configuration space and the visibility graph
+ * built over them, so pixel-derived hulls with many nearly collinear vertices are worth simplifying before planning.
+ */
+public class ConvexHullSimplifier {
+
+    /**
+     * @param hull:        Convex hull to simplify
+     * @param maxVertices: Most vertices to keep, at least 3. Polygons can't always be brought down to it, like
+     *                     rectangles to 3, or round polygons to 3 without pushing the boundary out further than their
+     *                     own size, and then keep the fewest vertices they can.
+     * @param tolerance:   How far the boundary may move out to remove vertices beyond the vertex budget
+     * @return Simplified hull enclosing the hull, or the hull itself if no vertex could be removed
+     */
+    public static ConvexHull simplify(ConvexHull hull, int maxVertices, double tolerance) {
+        List<Vector2f> points = simplifyPolygon(hull.getConvexPoints(), maxVertices, tolerance);
+
+        if (points.size() == hull.getConvexPoints().size()) return hull;
+
+        ConvexHull simplified = new ConvexHull();
+
+        simplified.setConvexPoints(points);
+
+        return simplified;
+    }
+
+    /**
+     * @param hulls:       Convex hulls to simplify
+     * @param maxVertices: Most vertices to keep of every hull, at least 3
+     * @param tolerance:   How far the boundary of every hull may move out to remove vertices beyond the vertex budget
+     * @return Simplified hulls, in the same order
+     */
+    public static List<ConvexHull> simplifyAll(List<ConvexHull> hulls, int maxVertices, double tolerance) {
+        List<ConvexHull> simplified = new ArrayList<>(hulls.size());
+
+        for (ConvexHull hull : hulls) {
+            simplified.add(simplify(hull, maxVertices, tolerance));
+        }
+
+        return simplified;
+    }
+
+    /**
+     * @param points:      Points of a convex polygon in counter-clockwise order with no three consecutive points
+     *                     collinear, like the convex points of a ConvexHull
+     * @param maxVertices: Most vertices to keep, at least 3
+     * @param tolerance:   How far the boundary may move out to remove vertices beyond the vertex budget
+     * @return Points of the simplified polygon, counter-clockwise from the point with the smallest x, then the smallest
+     * y, or the points themselves if no vertex could be removed
+     */
+    public static List<Vector2f> simplifyPolygon(List<Vector2f> points, int maxVertices, double tolerance) {
+        if (maxVertices < 3) {
+            throw new IllegalArgumentException("Simplified polygons need at least 3 vertices!");
+        }
+
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("Tolerance must not be negative!");
+        }
+
+        int n = points.size();
+
+        if (n <= 3) return points;
+
+        double[] x = new double[n];
+        double[] y = new double[n];
+        // Vertices still in the polygon are linked in counter-clockwise order
+        int[] next = new int[n];
+        int[] previous = new int[n];
+        // How far removing the edge from each vertex to the next moves the boundary out, infinite if it can't be removed
+        double[] costs = new double[n];
+
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < n; i++) {
+            x[i] = points.get(i).getX();
+            y[i] = points.get(i).getY();
+            next[i] = i + 1 == n ? 0 : i + 1;
+            previous[i] = i == 0 ? n - 1 : i - 1;
+
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+
+        // Nearly parallel edges meet far away, so removals moving the boundary out further than the polygon is wide
+        // aren't made even to meet the vertex budget
+        double maxCost = Math.hypot(maxX - minX, maxY - minY);
+
+        for (int i = 0; i < n; i++) {
+            costs[i] = removalCost(x, y, next, previous, i, maxCost);
+        }
+
+        int vertexCount = n;
+        int first = 0;
+
+        while (vertexCount > 3) {
+            int cheapest = -1;
+
+            for (int i = first, visited = 0; visited < vertexCount; i = next[i], visited++) {
+                if (cheapest == -1 || costs[i] < costs[cheapest]) {
+                    cheapest = i;
+                }
+            }
+
+            if (costs[cheapest] == Double.POSITIVE_INFINITY) break;
+            if (vertexCount <= maxVertices && costs[cheapest] > tolerance) break;
+
+            // Move the edge's first vertex to where the edges around it meet and drop its second vertex
+            int removed = next[cheapest];
+            double[] meetingPoint = meetingPoint(x, y, next, previous, cheapest);
+
+            x[cheapest] = meetingPoint[0];
+            y[cheapest] = meetingPoint[1];
+
+            next[cheapest] = next[removed];
+            previous[next[removed]] = cheapest;
+            vertexCount--;
+
+            if (first == removed) first = cheapest;
+
+            costs[previous[cheapest]] = removalCost(x, y, next, previous, previous[cheapest], maxCost);
+            costs[cheapest] = removalCost(x, y, next, previous, cheapest, maxCost);
+        }
+
+        if (vertexCount == n) return points;
+
+        // Start from the point with the smallest x, then the smallest y, like ConvexHull does
+        int start = first;
+
+        for (int i = next[first]; i != first; i = next[i]) {
+            if (x[i] < x[start] || (x[i] == x[start] && y[i] < y[start])) {
+                start = i;
+            }
+        }
+
+        int polygonID = points.get(0).getPolygonID();
+        List<Vector2f> simplified = new ArrayList<>(vertexCount);
+        int i = start;
+
+        do {
+            simplified.add(new Vector2f(x[i], y[i], polygonID));
+            i = next[i];
+        } while (i != start);
+
+        return simplified;
+    }
+
+    /**
+     * @return Distance from the edge starting at the vertex to where the edges before and after it meet, infinite if
+     * they don't meet outside the polygon or meet further out than the largest cost
+     */
+    private static double removalCost(double[] x, double[] y, int[] next, int[] previous, int vertex, double maxCost) {
+        double[] meetingPoint = meetingPoint(x, y, next, previous, vertex);
+
+        if (meetingPoint == null) return Double.POSITIVE_INFINITY;
+
+        int end = next[vertex];
+        double edgeX = x[end] - x[vertex];
+        double edgeY = y[end] - y[vertex];
+
+        // The polygon is counter-clockwise, so the meeting point is to the right of the edge
+        double cross = edgeX * (meetingPoint[1] - y[vertex]) - edgeY * (meetingPoint[0] - x[vertex]);
+
+        double cost = -cross / Math.hypot(edgeX, edgeY);
+
+        return cost > maxCost ? Double.POSITIVE_INFINITY : cost;
+    }
+
+    /**
+     * @return Point where the edge before the edge starting at the vertex and the edge after it meet, null if they
+     * are parallel or diverge
+     */
+    private static double[] meetingPoint(double[] x, double[] y, int[] next, int[] previous, int vertex) {
+        int before = previous[vertex];
+        int end = next[vertex];
+        int after = next[end];
+
+        double beforeX = x[vertex] - x[before];
+        double beforeY = y[vertex] - y[before];
+        double afterX = x[after] - x[end];
+        double afterY = y[after] - y[end];
+
+        // The edges only meet past the removed edge if the edge after turns less than half a turn from the edge before
+        double denominator = beforeX * afterY - beforeY * afterX;
+
+        if (denominator <= 0) return null;
+
+        double t = ((x[end] - x[vertex]) * afterY - (y[end] - y[vertex]) * afterX) / denominator;
+
+        return new double[]{x[vertex] + t * beforeX, y[vertex] + t * beforeY};
+    }
+
+}
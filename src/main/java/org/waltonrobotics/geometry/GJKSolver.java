@@ -0,0 +1,639 @@
+package org.waltonrobotics.geometry;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Allocation-free GJK over convex polygons stored as packed coordinate arrays, x0, y0, x1, y1, ..., answering
+ * intersection, separating distance with closest points, and penetration depth through EPA. The simplex has a fixed
+ * size of three and the EPA polytope reuses its arrays between queries, so once the polytope arrays have grown to
+ * the largest polytope seen, queries allocate nothing and can run every control loop iteration. Polygons with many
+ * points should be passed as SupportMappings, which find support points in O(log n) instead of scanning.
+ * <p>
+ * Algorithms described in detail here: https://en.wikipedia.org/wiki/Gilbert–Johnson–Keerthi_distance_algorithm and in
+ * C. Ericson, "Real-Time Collision Detection", 2005, sections 5.1.5 and 9.5. A solver keeps the results of its last
+ * query, so every thread needs its own.
+ */
+public class GJKSolver {
+
+    // Distances below this count as touching, in field units
+    private static final double EPSILON = 1e-9;
+    private static final double RELATIVE_EPSILON = 1e-12;
+    private static final int MAX_EPA_ITERATIONS = 128;
+
+    // Polygons of the current query, with their support mappings if they have them
+    private double[] shape1;
+    private int pointCount1;
+    private SupportMapping mapping1;
+    private double[] shape2;
+    private int pointCount2;
+    private SupportMapping mapping2;
+
+    // Simplex in the Minkowski difference shape1 - shape2, with the vertex indices of both shapes behind each point
+    private final double[] simplexX = new double[3];
+    private final double[] simplexY = new double[3];
+    private final int[] simplexIndices1 = new int[3];
+    private final int[] simplexIndices2 = new int[3];
+    private final double[] weights = new double[3];
+    private int simplexCount;
+
+    // Closest point of the simplex to the origin
+    private double closestX;
+    private double closestY;
+
+    // EPA polytope, counter-clockwise
+    private double[] polytopeX = new double[16];
+    private double[] polytopeY = new double[16];
+    private int[] polytopeIndices1 = new int[16];
+    private int[] polytopeIndices2 = new int[16];
+    private int polytopeCount;
+
+    private double closestPoint1X;
+    private double closestPoint1Y;
+    private double closestPoint2X;
+    private double closestPoint2Y;
+    private double normalX;
+    private double normalY;
+
+    /**
+     * @param points: Polygon points
+     * @return Packed coordinates of the points, for the queries of this class
+     */
+    public static double[] pack(List<Vector2f> points) {
+        double[] coordinates = new double[2 * points.size()];
+
+        for (int i = 0; i < points.size(); i++) {
+            coordinates[2 * i] = points.get(i).getX();
+            coordinates[2 * i + 1] = points.get(i).getY();
+        }
+
+        return coordinates;
+    }
+
+    /**
+     * @param shape1:      Packed coordinates of the first polygon's points
+     * @param pointCount1: Number of points of the first polygon, at least 1
+     * @param shape2:      Packed coordinates of the second polygon's points
+     * @param pointCount2: Number of points of the second polygon, at least 1
+     * @return True if the polygons overlap or touch
+     */
+    public boolean intersects(double[] shape1, int pointCount1, double[] shape2, int pointCount2) {
+        checkPointCounts(pointCount1, pointCount2);
+        setShapes(shape1, pointCount1, null, shape2, pointCount2, null);
+
+        return runGJK(true);
+    }
+
+    /**
+     * Finds the separating distance of two polygons and their closest points, available from the getters afterwards.
+     *
+     * @param shape1:      Packed coordinates of the first polygon's points
+     * @param pointCount1: Number of points of the first polygon, at least 1
+     * @param shape2:      Packed coordinates of the second polygon's points
+     * @param pointCount2: Number of points of the second polygon, at least 1
+     * @return Distance between the polygons, 0 if they overlap or touch
+     */
+    public double distance(double[] shape1, int pointCount1, double[] shape2, int pointCount2) {
+        checkPointCounts(pointCount1, pointCount2);
+        setShapes(shape1, pointCount1, null, shape2, pointCount2, null);
+
+        return distance();
+    }
+
+    /**
+     * Finds how deep two polygons overlap with EPA: the shortest distance the second polygon has to move to only touch
+     * the first, and the direction to move it in, available from getNormalX and getNormalY afterwards.
+     *
+     * @param shape1:      Packed coordinates of the first polygon's points
+     * @param pointCount1: Number of points of the first polygon, at least 1
+     * @param shape2:      Packed coordinates of the second polygon's points
+     * @param pointCount2: Number of points of the second polygon, at least 1
+     * @return Penetration depth, 0 if the polygons are separate or only touch
+     */
+    public double penetrationDepth(double[] shape1, int pointCount1, double[] shape2, int pointCount2) {
+        checkPointCounts(pointCount1, pointCount2);
+        setShapes(shape1, pointCount1, null, shape2, pointCount2, null);
+
+        return penetrationDepth();
+    }
+
+    /**
+     * @param mapping1: Support mapping of the first polygon
+     * @param mapping2: Support mapping of the second polygon
+     * @return True if the polygons overlap or touch
+     */
+    public boolean intersects(SupportMapping mapping1, SupportMapping mapping2) {
+        setShapes(mapping1.getCoordinates(), mapping1.getPointCount(), mapping1, mapping2.getCoordinates(), mapping2.getPointCount(), mapping2);
+
+        return runGJK(true);
+    }
+
+    /**
+     * Finds the separating distance of two polygons and their closest points, available from the getters afterwards.
+     *
+     * @param mapping1: Support mapping of the first polygon
+     * @param mapping2: Support mapping of the second polygon
+     * @return Distance between the polygons, 0 if they overlap or touch
+     */
+    public double distance(SupportMapping mapping1, SupportMapping mapping2) {
+        setShapes(mapping1.getCoordinates(), mapping1.getPointCount(), mapping1, mapping2.getCoordinates(), mapping2.getPointCount(), mapping2);
+
+        return distance();
+    }
+
+    /**
+     * Finds how deep two polygons overlap with EPA, see penetrationDepth on packed coordinates.
+     *
+     * @param mapping1: Support mapping of the first polygon
+     * @param mapping2: Support mapping of the second polygon
+     * @return Penetration depth, 0 if the polygons are separate or only touch
+     */
+    public double penetrationDepth(SupportMapping mapping1, SupportMapping mapping2) {
+        setShapes(mapping1.getCoordinates(), mapping1.getPointCount(), mapping1, mapping2.getCoordinates(), mapping2.getPointCount(), mapping2);
+
+        return penetrationDepth();
+    }
+
+    /**
+     * @return X coordinate of the point of the first polygon closest to the second, after distance
+     */
+    public double getClosestPoint1X() {
+        return closestPoint1X;
+    }
+
+    /**
+     * @return Y coordinate of the point of the first polygon closest to the second, after distance
+     */
+    public double getClosestPoint1Y() {
+        return closestPoint1Y;
+    }
+
+    /**
+     * @return X coordinate of the point of the second polygon closest to the first, after distance
+     */
+    public double getClosestPoint2X() {
+        return closestPoint2X;
+    }
+
+    /**
+     * @return Y coordinate of the point of the second polygon closest to the first, after distance
+     */
+    public double getClosestPoint2Y() {
+        return closestPoint2Y;
+    }
+
+    /**
+     * @return X component of the unit direction from the first polygon to the second after distance, or of the
+     * direction to move the second polygon out of the first after penetrationDepth. 0 if there is none.
+     */
+    public double getNormalX() {
+        return normalX;
+    }
+
+    /**
+     * @return Y component of the unit direction from the first polygon to the second after distance, or of the
+     * direction to move the second polygon out of the first after penetrationDepth. 0 if there is none.
+     */
+    public double getNormalY() {
+        return normalY;
+    }
+
+    private void setShapes(double[] shape1, int pointCount1, SupportMapping mapping1, double[] shape2, int pointCount2, SupportMapping mapping2) {
+        this.shape1 = shape1;
+        this.pointCount1 = pointCount1;
+        this.mapping1 = mapping1;
+        this.shape2 = shape2;
+        this.pointCount2 = pointCount2;
+        this.mapping2 = mapping2;
+    }
+
+    private double distance() {
+        boolean intersecting = runGJK(false);
+
+        calculateClosestPoints();
+
+        if (intersecting) return 0;
+
+        double distance = Math.sqrt(closestX * closestX + closestY * closestY);
+
+        // From the first polygon towards the second
+        normalX = -closestX / distance;
+        normalY = -closestY / distance;
+
+        return distance;
+    }
+
+    private double penetrationDepth() {
+        normalX = 0;
+        normalY = 0;
+
+        if (!runGJK(false)) return 0;
+
+        if (!calculateInitialPolytope()) return 0;
+
+        for (int iteration = 0; iteration < MAX_EPA_ITERATIONS; iteration++) {
+            // Find the polytope edge closest to the origin
+            int closestEdge = -1;
+            double closestDistance = Double.POSITIVE_INFINITY;
+            double edgeNormalX = 0;
+            double edgeNormalY = 0;
+
+            for (int i = 0; i < polytopeCount; i++) {
+                int j = i + 1 == polytopeCount ? 0 : i + 1;
+                double edgeX = polytopeX[j] - polytopeX[i];
+                double edgeY = polytopeY[j] - polytopeY[i];
+                double length = Math.sqrt(edgeX * edgeX + edgeY * edgeY);
+
+                if (length < EPSILON) continue;
+
+                // Outward normal of a counter-clockwise edge
+                double nx = edgeY / length;
+                double ny = -edgeX / length;
+                double distance = nx * polytopeX[i] + ny * polytopeY[i];
+
+                if (distance < closestDistance) {
+                    closestDistance = distance;
+                    closestEdge = i;
+                    edgeNormalX = nx;
+                    edgeNormalY = ny;
+                }
+            }
+
+            if (closestEdge == -1) return 0;
+
+            int index1 = support1(edgeNormalX, edgeNormalY);
+            int index2 = support2(-edgeNormalX, -edgeNormalY);
+            double supportX = shape1[2 * index1] - shape2[2 * index2];
+            double supportY = shape1[2 * index1 + 1] - shape2[2 * index2 + 1];
+            double supportDistance = edgeNormalX * supportX + edgeNormalY * supportY;
+
+            // The Minkowski difference doesn't reach past this edge, so it's on its boundary
+            if (supportDistance - closestDistance < EPSILON || iteration == MAX_EPA_ITERATIONS - 1) {
+                normalX = edgeNormalX;
+                normalY = edgeNormalY;
+
+                return Math.max(0, closestDistance);
+            }
+
+            insertPolytopePoint(closestEdge + 1, supportX, supportY, index1, index2);
+        }
+
+        return 0;
+    }
+
+    private static void checkPointCounts(int pointCount1, int pointCount2) {
+        if (pointCount1 < 1 || pointCount2 < 1) {
+            throw new IllegalArgumentException("Both polygons need at least one point!");
+        }
+    }
+
+    /**
+     * @return Index of the point of the first polygon farthest in the direction
+     */
+    private int support1(double directionX, double directionY) {
+        return mapping1 != null ? mapping1.getSupportIndex(directionX, directionY) : support(shape1, pointCount1, directionX, directionY);
+    }
+
+    /**
+     * @return Index of the point of the second polygon farthest in the direction
+     */
+    private int support2(double directionX, double directionY) {
+        return mapping2 != null ? mapping2.getSupportIndex(directionX, directionY) : support(shape2, pointCount2, directionX, directionY);
+    }
+
+    /**
+     * @return Index of the point of the polygon farthest in the direction, scanning every point
+     */
+    private static int support(double[] shape, int pointCount, double directionX, double directionY) {
+        int farthestIndex = 0;
+        double farthestDistance = shape[0] * directionX + shape[1] * directionY;
+
+        for (int i = 1; i < pointCount; i++) {
+            double distance = shape[2 * i] * directionX + shape[2 * i + 1] * directionY;
+
+            if (distance > farthestDistance) {
+                farthestDistance = distance;
+                farthestIndex = i;
+            }
+        }
+
+        return farthestIndex;
+    }
+
+    /**
+     * Runs GJK until the simplex encloses the origin, the closest point of the Minkowski difference to the origin is
+     * found, or, if stopWhenSeparated is set, a direction separating the polygons is found.
+     *
+     * @return True if the polygons overlap or touch
+     */
+    private boolean runGJK(boolean stopWhenSeparated) {
+        simplexCount = 0;
+
+        // Any point of the Minkowski difference starts the search
+        closestX = shape1[0] - shape2[0];
+        closestY = shape1[1] - shape2[1];
+
+        if (closestX == 0 && closestY == 0) {
+            closestX = 1;
+        }
+
+        // Every iteration either terminates or gets strictly closer to the origin, over finitely many simplices
+        int maxIterations = 2 * (pointCount1 + pointCount2) + 8;
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            int index1 = support1(-closestX, -closestY);
+            int index2 = support2(closestX, closestY);
+            double supportX = shape1[2 * index1] - shape2[2 * index2];
+            double supportY = shape1[2 * index1 + 1] - shape2[2 * index2 + 1];
+
+            double closestLengthSquared = closestX * closestX + closestY * closestY;
+            double supportDot = closestX * supportX + closestY * supportY;
+
+            // Nothing in the Minkowski difference lies past the origin in the search direction
+            if (stopWhenSeparated && supportDot > 0) return false;
+
+            if (simplexCount > 0) {
+                // No support point gets meaningfully closer, so the current closest point is the closest
+                if (closestLengthSquared - supportDot <= RELATIVE_EPSILON * closestLengthSquared) return false;
+
+                for (int i = 0; i < simplexCount; i++) {
+                    if (simplexIndices1[i] == index1 && simplexIndices2[i] == index2) return false;
+                }
+            }
+
+            simplexX[simplexCount] = supportX;
+            simplexY[simplexCount] = supportY;
+            simplexIndices1[simplexCount] = index1;
+            simplexIndices2[simplexCount] = index2;
+            simplexCount++;
+
+            reduceSimplex();
+
+            if (simplexCount == 3) return true;
+
+            if (closestX * closestX + closestY * closestY <= EPSILON * EPSILON) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds the point of the simplex closest to the origin and its barycentric weights, and drops the simplex points
+     * it doesn't depend on. A triangle is only kept if it encloses the origin.
+     */
+    private void reduceSimplex() {
+        if (simplexCount == 1) {
+            weights[0] = 1;
+            closestX = simplexX[0];
+            closestY = simplexY[0];
+        } else if (simplexCount == 2) {
+            reduceSegment(0, 1);
+        } else {
+            reduceTriangle();
+        }
+    }
+
+    /**
+     * Reduces the simplex to the closest point of the segment between two of its points.
+     */
+    private void reduceSegment(int a, int b) {
+        double ax = simplexX[a];
+        double ay = simplexY[a];
+        double abX = simplexX[b] - ax;
+        double abY = simplexY[b] - ay;
+        double lengthSquared = abX * abX + abY * abY;
+        double t = lengthSquared == 0 ? 0 : -(ax * abX + ay * abY) / lengthSquared;
+
+        if (t <= 0) {
+            keepSimplexPoint(a);
+        } else if (t >= 1) {
+            keepSimplexPoint(b);
+        } else {
+            keepSimplexPoints(a, b, 1 - t, t);
+        }
+    }
+
+    /**
+     * Ericson's closest point on a triangle to a point, here the origin, by Voronoi regions.
+     */
+    private void reduceTriangle() {
+        double ax = simplexX[0], ay = simplexY[0];
+        double bx = simplexX[1], by = simplexY[1];
+        double cx = simplexX[2], cy = simplexY[2];
+
+        double abX = bx - ax, abY = by - ay;
+        double acX = cx - ax, acY = cy - ay;
+
+        double d1 = -(abX * ax + abY * ay);
+        double d2 = -(acX * ax + acY * ay);
+
+        if (d1 <= 0 && d2 <= 0) {
+            keepSimplexPoint(0);
+            return;
+        }
+
+        double d3 = -(abX * bx + abY * by);
+        double d4 = -(acX * bx + acY * by);
+
+        if (d3 >= 0 && d4 <= d3) {
+            keepSimplexPoint(1);
+            return;
+        }
+
+        double vc = d1 * d4 - d3 * d2;
+
+        if (vc <= 0 && d1 >= 0 && d3 <= 0) {
+            double v = d1 / (d1 - d3);
+            keepSimplexPoints(0, 1, 1 - v, v);
+            return;
+        }
+
+        double d5 = -(abX * cx + abY * cy);
+        double d6 = -(acX * cx + acY * cy);
+
+        if (d6 >= 0 && d5 <= d6) {
+            keepSimplexPoint(2);
+            return;
+        }
+
+        double vb = d5 * d2 - d1 * d6;
+
+        if (vb <= 0 && d2 >= 0 && d6 <= 0) {
+            double w = d2 / (d2 - d6);
+            keepSimplexPoints(0, 2, 1 - w, w);
+            return;
+        }
+
+        double va = d3 * d6 - d5 * d4;
+
+        if (va <= 0 && d4 - d3 >= 0 && d5 - d6 >= 0) {
+            double w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            keepSimplexPoints(1, 2, 1 - w, w);
+            return;
+        }
+
+        double area = va + vb + vc;
+
+        if (area <= 0) {
+            // Degenerate triangle, its points are collinear, so the closest point is on the outer segment
+            reduceSegment(0, 2);
+            return;
+        }
+
+        weights[0] = va / area;
+        weights[1] = vb / area;
+        weights[2] = vc / area;
+        closestX = 0;
+        closestY = 0;
+    }
+
+    private void keepSimplexPoint(int a) {
+        moveSimplexPoint(a, 0);
+        simplexCount = 1;
+        weights[0] = 1;
+        closestX = simplexX[0];
+        closestY = simplexY[0];
+    }
+
+    private void keepSimplexPoints(int a, int b, double weightA, double weightB) {
+        moveSimplexPoint(a, 0);
+        moveSimplexPoint(b, 1);
+        simplexCount = 2;
+        weights[0] = weightA;
+        weights[1] = weightB;
+        closestX = weightA * simplexX[0] + weightB * simplexX[1];
+        closestY = weightA * simplexY[0] + weightB * simplexY[1];
+    }
+
+    private void moveSimplexPoint(int from, int to) {
+        simplexX[to] = simplexX[from];
+        simplexY[to] = simplexY[from];
+        simplexIndices1[to] = simplexIndices1[from];
+        simplexIndices2[to] = simplexIndices2[from];
+    }
+
+    /**
+     * The closest point of the Minkowski difference is the weighted sum of simplex points, so the same weights over
+     * the polygon points behind them give the closest points of both polygons.
+     */
+    private void calculateClosestPoints() {
+        closestPoint1X = 0;
+        closestPoint1Y = 0;
+        closestPoint2X = 0;
+        closestPoint2Y = 0;
+
+        for (int i = 0; i < simplexCount; i++) {
+            closestPoint1X += weights[i] * shape1[2 * simplexIndices1[i]];
+            closestPoint1Y += weights[i] * shape1[2 * simplexIndices1[i] + 1];
+            closestPoint2X += weights[i] * shape2[2 * simplexIndices2[i]];
+            closestPoint2Y += weights[i] * shape2[2 * simplexIndices2[i] + 1];
+        }
+    }
+
+    /**
+     * Grows the GJK simplex into a counter-clockwise triangle with some area for EPA to start from. GJK stops with
+     * fewer than three points when the origin is on the boundary of the Minkowski difference.
+     *
+     * @return False if the Minkowski difference has no area, then the polygons can only touch
+     */
+    private boolean calculateInitialPolytope() {
+        polytopeCount = 0;
+
+        for (int i = 0; i < simplexCount; i++) {
+            insertPolytopePoint(i, simplexX[i], simplexY[i], simplexIndices1[i], simplexIndices2[i]);
+        }
+
+        // Search along the axes, then perpendicular to the segment, for points that span some area
+        for (int direction = 0; polytopeCount < 3 && direction < 6; direction++) {
+            double dx;
+            double dy;
+
+            if (direction < 4) {
+                dx = direction == 0 ? 1 : direction == 1 ? -1 : 0;
+                dy = direction == 2 ? 1 : direction == 3 ? -1 : 0;
+            } else if (polytopeCount == 2) {
+                dx = polytopeY[0] - polytopeY[1];
+                dy = polytopeX[1] - polytopeX[0];
+
+                if (direction == 5) {
+                    dx = -dx;
+                    dy = -dy;
+                }
+            } else {
+                break;
+            }
+
+            int index1 = support1(dx, dy);
+            int index2 = support2(-dx, -dy);
+            double x = shape1[2 * index1] - shape2[2 * index2];
+            double y = shape1[2 * index1 + 1] - shape2[2 * index2 + 1];
+
+            if (polytopeCount == 1) {
+                double ex = x - polytopeX[0];
+                double ey = y - polytopeY[0];
+
+                if (ex * ex + ey * ey > EPSILON * EPSILON) {
+                    insertPolytopePoint(1, x, y, index1, index2);
+                }
+            } else if (polytopeCount == 2 && Math.abs(cross(0, 1, x, y)) > EPSILON * EPSILON) {
+                insertPolytopePoint(2, x, y, index1, index2);
+            }
+        }
+
+        if (polytopeCount < 3 || Math.abs(cross(0, 1, polytopeX[2], polytopeY[2])) <= EPSILON * EPSILON) return false;
+
+        if (cross(0, 1, polytopeX[2], polytopeY[2]) < 0) {
+            swapPolytopePoints(1, 2);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Cross product of the polytope edge from point a to point b and the vector from point a to (x, y)
+     */
+    private double cross(int a, int b, double x, double y) {
+        return (polytopeX[b] - polytopeX[a]) * (y - polytopeY[a]) - (polytopeY[b] - polytopeY[a]) * (x - polytopeX[a]);
+    }
+
+    private void swapPolytopePoints(int a, int b) {
+        double x = polytopeX[a];
+        double y = polytopeY[a];
+        int index1 = polytopeIndices1[a];
+        int index2 = polytopeIndices2[a];
+
+        polytopeX[a] = polytopeX[b];
+        polytopeY[a] = polytopeY[b];
+        polytopeIndices1[a] = polytopeIndices1[b];
+        polytopeIndices2[a] = polytopeIndices2[b];
+        polytopeX[b] = x;
+        polytopeY[b] = y;
+        polytopeIndices1[b] = index1;
+        polytopeIndices2[b] = index2;
+    }
+
+    private void insertPolytopePoint(int position, double x, double y, int index1, int index2) {
+        if (polytopeCount == polytopeX.length) {
+            int capacity = 2 * polytopeCount;
+
+            polytopeX = Arrays.copyOf(polytopeX, capacity);
+            polytopeY = Arrays.copyOf(polytopeY, capacity);
+            polytopeIndices1 = Arrays.copyOf(polytopeIndices1, capacity);
+            polytopeIndices2 = Arrays.copyOf(polytopeIndices2, capacity);
+        }
+
+        int moved = polytopeCount - position;
+
+        System.arraycopy(polytopeX, position, polytopeX, position + 1, moved);
+        System.arraycopy(polytopeY, position, polytopeY, position + 1, moved);
+        System.arraycopy(polytopeIndices1, position, polytopeIndices1, position + 1, moved);
+        System.arraycopy(polytopeIndices2, position, polytopeIndices2, position + 1, moved);
+
+        polytopeX[position] = x;
+        polytopeY[position] = y;
+        polytopeIndices1[position] = index1;
+        polytopeIndices2[position] = index2;
+        polytopeCount++;
+    }
+
+}
@@ -0,0 +1,134 @@
+package org.waltonrobotics.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minkowski sums of convex polygons in O(n + m). Walking both polygons counter-clockwise from their bottom-left points,
+ * the edges of the sum are the edges of both polygons merged by angle, so no point pairs need to be hulled.
+ * Algorithm described in detail here: https://cp-algorithms.com/geometry/minkowski.html
+ * <p>
+ * The sum comes out like ConvexHull makes hulls: counter-clockwise from the point with the smallest x, then the
+ * smallest y, with no three consecutive points collinear.
+ */
+public class MinkowskiSum {
+
+    /**
+     * @param first:  Points of the first polygon in counter-clockwise order, like the convex points of a ConvexHull
+     * @param second: Points of the second polygon in counter-clockwise order
+     * @return Points of the Minkowski sum of both polygons, or null if either has fewer than 3 points
+     */
+    public static List<Vector2f> calculate(List<Vector2f> first, List<Vector2f> second) {
+        return merge(first, second, 1, -1);
+    }
+
+    /**
+     * The Minkowski sum of the first polygon and the second mirrored through the origin, which is the set of
+     * positions of the second polygon's origin where it touches the first polygon.
+     *
+     * @param first:     Points of the first polygon in counter-clockwise order, like the convex points of a ConvexHull
+     * @param second:    Points of the second polygon in counter-clockwise order
+     * @param polygonID: Polygon ID of the result points
+     * @return Points of the Minkowski difference of both polygons, or null if either has fewer than 3 points
+     */
+    public static List<Vector2f> calculateDifference(List<Vector2f> first, List<Vector2f> second, int polygonID) {
+        return merge(first, second, -1, polygonID);
+    }
+
+    /**
+     * @param secondSign: 1 to add the second polygon's points, -1 to subtract them
+     */
+    private static List<Vector2f> merge(List<Vector2f> first, List<Vector2f> second, double secondSign, int polygonID) {
+        int n = first.size();
+        int m = second.size();
+
+        if (n < 3 || m < 3) return null;
+
+        // Mirroring a polygon keeps it counter-clockwise, but its bottom-left point is then the top-right one
+        int firstStart = bottomLeftIndex(first, 1);
+        int secondStart = bottomLeftIndex(second, secondSign);
+
+        List<Vector2f> sum = new ArrayList<>(n + m);
+
+        int i = 0;
+        int j = 0;
+
+        while (i < n || j < m) {
+            Vector2f p = first.get((firstStart + i) % n);
+            Vector2f q = second.get((secondStart + j) % m);
+            Vector2f nextP = first.get((firstStart + i + 1) % n);
+            Vector2f nextQ = second.get((secondStart + j + 1) % m);
+
+            addPoint(sum, new Vector2f(p.getX() + secondSign * q.getX(), p.getY() + secondSign * q.getY(), polygonID));
+
+            if (i == n) {
+                j++;
+            } else if (j == m) {
+                i++;
+            } else {
+                double firstEdgeX = nextP.getX() - p.getX();
+                double firstEdgeY = nextP.getY() - p.getY();
+                double secondEdgeX = secondSign * (nextQ.getX() - q.getX());
+                double secondEdgeY = secondSign * (nextQ.getY() - q.getY());
+
+                // Take the edge that turns less, or both if they're parallel. Both edges are less than half a turn
+                // past the last edge taken, so the cross product orders them.
+                double cross = firstEdgeX * secondEdgeY - firstEdgeY * secondEdgeX;
+
+                if (cross >= 0) i++;
+                if (cross <= 0) j++;
+            }
+        }
+
+        // The closing point can still be collinear with the first edge
+        while (sum.size() >= 3 && turn(sum.get(sum.size() - 2), sum.get(sum.size() - 1), sum.get(0)) <= 0) {
+            sum.remove(sum.size() - 1);
+        }
+
+        while (sum.size() >= 3 && turn(sum.get(sum.size() - 1), sum.get(0), sum.get(1)) <= 0) {
+            sum.remove(0);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Adds a point to the sum, dropping points before it that no longer make a counter-clockwise turn.
+     */
+    private static void addPoint(List<Vector2f> sum, Vector2f point) {
+        while (sum.size() >= 2 && turn(sum.get(sum.size() - 2), sum.get(sum.size() - 1), point) <= 0) {
+            sum.remove(sum.size() - 1);
+        }
+
+        sum.add(point);
+    }
+
+    /**
+     * @return Index of the point with the smallest x, then the smallest y, of the polygon with its points multiplied
+     * by the sign
+     */
+    private static int bottomLeftIndex(List<Vector2f> polygon, double sign) {
+        int bottomLeftIndex = 0;
+
+        for (int i = 1; i < polygon.size(); i++) {
+            double x = sign * polygon.get(i).getX();
+            double y = sign * polygon.get(i).getY();
+            double bottomLeftX = sign * polygon.get(bottomLeftIndex).getX();
+            double bottomLeftY = sign * polygon.get(bottomLeftIndex).getY();
+
+            if (x < bottomLeftX || (x == bottomLeftX && y < bottomLeftY)) {
+                bottomLeftIndex = i;
+            }
+        }
+
+        return bottomLeftIndex;
+    }
+
+    /**
+     * @return > 0 if p0 -> p1 -> p2 turns counter-clockwise, 0 if collinear, < 0 if clockwise
+     */
+    private static double turn(Vector2f p0, Vector2f p1, Vector2f p2) {
+        return (p1.getX() - p0.getX()) * (p2.getY() - p0.getY()) - (p2.getX() - p0.getX()) * (p1.getY() - p0.getY());
+    }
+
+}
@@ -1,6 +1,8 @@
 package org.waltonrobotics.geometry;
 
-public class Rectangle {
+import java.io.Serializable;
+
+public class Rectangle implements Serializable {
 
     private double minX;
     private double maxX;
@@ -42,7 +44,7 @@ public class Rectangle {
     }
 
     public void setBounds(double minX, double maxX, double minY, double maxY) {
-        if (minX < maxX && minY < maxY) {
+        if (minX <= maxX && minY <= maxY) {
             this.minX = minX;
             this.maxX = maxX;
             this.minY = minY;
@@ -96,7 +98,112 @@ public class Rectangle {
 
     public boolean intersects(Rectangle other) {
         if (isNull() || other.isNull()) return false;
-        return other.minX <= maxX && other.maxX >= minX && other.minY <= other.maxY && other.maxY >= other.minY;
+        return other.minX <= maxX && other.maxX >= minX && other.minY <= maxY && other.maxY >= minY;
+    }
+
+    /**
+     * @return True if the point lies inside or on the border of the rectangle
+     */
+    public boolean contains(double x, double y) {
+        return !isNull() && x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Clips the segment against the rectangle (Liang-Barsky), so touching the border counts as intersecting.
+     *
+     * @param segment: Segment to test
+     * @return True if any part of the segment lies inside or on the border of the rectangle
+     */
+    public boolean intersects(LineSegment segment) {
+        return intersects(segment.getPoint1().getX(), segment.getPoint1().getY(), segment.getPoint2().getX(), segment.getPoint2().getY());
+    }
+
+    /**
+     * Segment version of {@link #intersects(LineSegment)} that doesn't need a LineSegment.
+     */
+    public boolean intersects(double x1, double y1, double x2, double y2) {
+        if (isNull()) return false;
+
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+
+        double tEnter = 0;
+        double tExit = 1;
+
+        for (int side = 0; side < 4; side++) {
+            double p;
+            double q;
+
+            switch (side) {
+                case 0:
+                    p = -dx;
+                    q = x1 - minX;
+                    break;
+                case 1:
+                    p = dx;
+                    q = maxX - x1;
+                    break;
+                case 2:
+                    p = -dy;
+                    q = y1 - minY;
+                    break;
+                default:
+                    p = dy;
+                    q = maxY - y1;
+                    break;
+            }
+
+            if (p == 0) {
+                // Parallel to this side, so it has to start on the inner side of it
+                if (q < 0) return false;
+            } else {
+                double t = q / p;
+
+                if (p < 0) {
+                    if (t > tExit) return false;
+                    if (t > tEnter) tEnter = t;
+                } else {
+                    if (t < tEnter) return false;
+                    if (t < tExit) tExit = t;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Tests the rectangle against the cone of rays from an apex between two directions, at most a half plane apart.
+     * The cone is the part of the plane counter-clockwise of the first ray's line and clockwise of the last ray's line,
+     * so the rectangle misses it if all of its corners lie outside either line. This can pass rectangles that only come
+     * close to the apex, but never fails one that overlaps the cone.
+     *
+     * @param fromX: X direction of the first ray
+     * @param fromY: Y direction of the first ray
+     * @param toX:   X direction of the last ray
+     * @param toY:   Y direction of the last ray
+     * @return False if the rectangle lies entirely outside the cone, borders included
+     */
+    public boolean intersectsCone(double x, double y, double fromX, double fromY, double toX, double toY) {
+        if (isNull()) return false;
+
+        // The corners furthest counter-clockwise of the first ray and furthest clockwise of the last ray
+        double fromCross = fromX * ((fromX >= 0 ? maxY : minY) - y) - fromY * ((fromY >= 0 ? minX : maxX) - x);
+        double toCross = toX * ((toX >= 0 ? minY : maxY) - y) - toY * ((toY >= 0 ? maxX : minX) - x);
+
+        return fromCross >= 0 && toCross <= 0;
+    }
+
+    /**
+     * @return Squared distance from a point to the closest point of the rectangle, 0 if the point is inside
+     */
+    public double squaredDistance(double x, double y) {
+        if (isNull()) return Double.POSITIVE_INFINITY;
+
+        double dx = x < minX ? minX - x : x > maxX ? x - maxX : 0;
+        double dy = y < minY ? minY - y : y > maxY ? y - maxY : 0;
+
+        return dx * dx + dy * dy;
     }
 
     @Override
@@ -0,0 +1,200 @@
+package org.waltonrobotics.geometry;
+
+import java.util.List;
+
+/**
+ * Support mapping of a convex polygon: finds the polygon point farthest in a direction in O(log n) instead of
+ * scanning every point. The points are in counter-clockwise order, so the directions of the edges turn steadily and
+ * the farthest point is where the edges start heading against the direction, which a binary search over the edge
+ * angles finds. The last answer is kept, and a query first climbs a few points from it, so the slowly turning
+ * directions of GJK iterations and of a moving robot usually cost a couple of dot products.
+ * <p>
+ * The kept answer is only a starting point, so a mapping can be shared between threads.
+ */
+public class SupportMapping {
+
+    private final double[] coordinates;
+    private final int pointCount;
+    // Pseudo-angle of every edge counter-clockwise from the first edge, increasing
+    private final double[] edgeAngles;
+    private final double firstEdgeAngle;
+    // Points to climb from the last answer before searching instead, about log2 of the point count
+    private final int climbLimit;
+
+    // Deliberately not volatile, see ConvexHull.getSupportMapping(). Any index of the polygon gives the exact answer.
+    private int lastSupportIndex;
+
+    /**
+     * @param coordinates: Packed coordinates of the polygon points in counter-clockwise order, x0, y0, x1, y1, ..., with
+     *                     no three consecutive points collinear
+     * @param pointCount:  Number of polygon points, at least 1
+     */
+    public SupportMapping(double[] coordinates, int pointCount) {
+        if (pointCount < 1) {
+            throw new IllegalArgumentException("The polygon needs at least one point!");
+        }
+
+        this.coordinates = coordinates;
+        this.pointCount = pointCount;
+        this.edgeAngles = new double[pointCount];
+        this.climbLimit = 32 - Integer.numberOfLeadingZeros(pointCount);
+
+        double angle = 0;
+        double firstAngle = Double.NaN;
+
+        for (int i = 0; i < pointCount; i++) {
+            int next = i + 1 == pointCount ? 0 : i + 1;
+            double edgeX = coordinates[2 * next] - coordinates[2 * i];
+            double edgeY = coordinates[2 * next + 1] - coordinates[2 * i + 1];
+
+            // Repeated points have no edge direction, so they keep the angle of the edge before
+            if (edgeX != 0 || edgeY != 0) {
+                double pseudoAngle = pseudoAngle(edgeX, edgeY);
+
+                if (Double.isNaN(firstAngle)) firstAngle = pseudoAngle;
+
+                angle = wrap(pseudoAngle - firstAngle);
+            }
+
+            edgeAngles[i] = angle;
+        }
+
+        this.firstEdgeAngle = Double.isNaN(firstAngle) ? 0 : firstAngle;
+    }
+
+    /**
+     * @param points: Polygon points in counter-clockwise order with no three consecutive points collinear, like the
+     *                convex points of a ConvexHull
+     */
+    public SupportMapping(List<Vector2f> points) {
+        this(GJKSolver.pack(points), points.size());
+    }
+
+    /**
+     * Orders directions by angle like atan2 does, but without trigonometry.
+     *
+     * @return Value from 0 inclusive to 4 exclusive, increasing counter-clockwise from the positive x axis
+     */
+    private static double pseudoAngle(double x, double y) {
+        double ratio = y / (Math.abs(x) + Math.abs(y));
+
+        if (x < 0) return 2 - ratio;
+        if (y < 0) return 4 + ratio;
+
+        return ratio;
+    }
+
+    /**
+     * @return Pseudo-angle difference wrapped into 0 inclusive to 4 exclusive
+     */
+    private static double wrap(double pseudoAngle) {
+        return pseudoAngle < 0 ? pseudoAngle + 4 : pseudoAngle;
+    }
+
+    /**
+     * @param directionX: X component of the direction, which doesn't have to be normalized
+     * @param directionY: Y component of the direction
+     * @return Index of the polygon point farthest in the direction
+     */
+    public int getSupportIndex(double directionX, double directionY) {
+        if (pointCount < 3 || (directionX == 0 && directionY == 0)) return linearSupportIndex(directionX, directionY);
+
+        int index = climb(lastSupportIndex, directionX, directionY, climbLimit);
+
+        if (index == -1) {
+            // The farthest point is the start of the first edge heading at or past the direction turned 90 degrees
+            double target = wrap(pseudoAngle(-directionY, directionX) - firstEdgeAngle);
+
+            int low = 0;
+            int high = pointCount;
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+
+                if (edgeAngles[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            // Rounding of nearly parallel edges can land the search a point off, which the climb fixes
+            index = climb(low == pointCount ? 0 : low, directionX, directionY, pointCount);
+        }
+
+        lastSupportIndex = index;
+
+        return index;
+    }
+
+    /**
+     * Walks from a point towards the farthest point in the direction while the points get farther. On a convex
+     * polygon the distance in a direction has a single peak along the points, so the walk ends at the farthest point.
+     *
+     * @return Index of the farthest point, -1 if it wasn't reached within the step limit
+     */
+    private int climb(int start, double directionX, double directionY, int stepLimit) {
+        int index = start;
+        double distance = dot(index, directionX, directionY);
+
+        int next = index + 1 == pointCount ? 0 : index + 1;
+        int step = 1;
+        double nextDistance = dot(next, directionX, directionY);
+
+        if (nextDistance <= distance) {
+            next = index == 0 ? pointCount - 1 : index - 1;
+            step = -1;
+            nextDistance = dot(next, directionX, directionY);
+
+            if (nextDistance <= distance) return index;
+        }
+
+        for (int steps = 0; steps < stepLimit; steps++) {
+            index = next;
+            distance = nextDistance;
+
+            next = index + step;
+
+            if (next == pointCount) next = 0;
+            else if (next == -1) next = pointCount - 1;
+
+            nextDistance = dot(next, directionX, directionY);
+
+            if (nextDistance <= distance) return index;
+        }
+
+        return -1;
+    }
+
+    private int linearSupportIndex(double directionX, double directionY) {
+        int farthestIndex = 0;
+        double farthestDistance = dot(0, directionX, directionY);
+
+        for (int i = 1; i < pointCount; i++) {
+            double distance = dot(i, directionX, directionY);
+
+            if (distance > farthestDistance) {
+                farthestDistance = distance;
+                farthestIndex = i;
+            }
+        }
+
+        return farthestIndex;
+    }
+
+    private double dot(int index, double directionX, double directionY) {
+        return coordinates[2 * index] * directionX + coordinates[2 * index + 1] * directionY;
+    }
+
+    /**
+     * @return Packed coordinates of the polygon points, x0, y0, x1, y1, ...
+     */
+    public double[] getCoordinates() {
+        return coordinates;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.waltonrobotics.planning;
+
+import org.waltonrobotics.geometry.Pose;
+
+import java.util.List;
+
+/**
+ * Path found by an anytime search together with how far from optimal it can be.
+ */
+public class AnytimePath {
+
+    private final List<Pose> path;
+    private final double cost;
+    private final double suboptimalityBound;
+
+    /**
+     * @param path:               Path, or null if none was found
+     * @param cost:               Cost of the path through the planning graph
+     * @param suboptimalityBound: Factor the cost is at most above the cost of the optimal path
+     */
+    public AnytimePath(List<Pose> path, double cost, double suboptimalityBound) {
+        this.path = path;
+        this.cost = cost;
+        this.suboptimalityBound = suboptimalityBound;
+    }
+
+    /**
+     * @return Path, or null if none was found
+     */
+    public List<Pose> getPath() {
+        return path;
+    }
+
+    /**
+     * @return Cost of the path through the planning graph, infinite if no path was found
+     */
+    public double getCost() {
+        return cost;
+    }
+
+    /**
+     * @return Factor the cost is at most above the cost of the optimal path, infinite if no path was found
+     */
+    public double getSuboptimalityBound() {
+        return suboptimalityBound;
+    }
+
+    /**
+     * @return True if the path is known to be optimal
+     */
+    public boolean isOptimal() {
+        return suboptimalityBound <= 1;
+    }
+
+    @Override
+    public String toString() {
+        return "AnytimePath{cost=" + cost + ", suboptimalityBound=" + suboptimalityBound + ", path=" + path + "}";
+    }
+
+}
@@ -2,10 +2,45 @@ package org.waltonrobotics.planning;
 
 import org.waltonrobotics.geometry.Pose;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public interface PathPlanner {
 
     List<Pose> findPath(Pose startingPose, Pose endingPose);
 
+    /**
+     * Runs many queries concurrently on the common fork/join pool.
+     *
+     * @param queries: Queries to plan
+     * @return Future path of every query, in the iteration order of the queries. A future completes with null if no
+     * path was found.
+     */
+    default List<CompletableFuture<List<Pose>>> findPaths(Collection<PathQuery> queries) {
+        return findPaths(queries, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs many queries concurrently on the given executor. Only planners whose findPath is safe to call from several
+     * threads at once should be used this way.
+     *
+     * @param queries:  Queries to plan
+     * @param executor: Executor to plan the queries on
+     * @return Future path of every query, in the iteration order of the queries. A future completes with null if no
+     * path was found.
+     */
+    default List<CompletableFuture<List<Pose>>> findPaths(Collection<PathQuery> queries, Executor executor) {
+        List<CompletableFuture<List<Pose>>> paths = new ArrayList<>(queries.size());
+
+        for (PathQuery query : queries) {
+            paths.add(CompletableFuture.supplyAsync(() -> findPath(query.getStartingPose(), query.getEndingPose()), executor));
+        }
+
+        return paths;
+    }
+
 }
@@ -0,0 +1,31 @@
+package org.waltonrobotics.planning;
+
+import org.waltonrobotics.geometry.Pose;
+
+/**
+ * Starting and ending pose of one path planning query.
+ */
+public class PathQuery {
+
+    private final Pose startingPose;
+    private final Pose endingPose;
+
+    public PathQuery(Pose startingPose, Pose endingPose) {
+        this.startingPose = startingPose;
+        this.endingPose = endingPose;
+    }
+
+    public Pose getStartingPose() {
+        return startingPose;
+    }
+
+    public Pose getEndingPose() {
+        return endingPose;
+    }
+
+    @Override
+    public String toString() {
+        return "PathQuery{" + startingPose + " -> " + endingPose + "}";
+    }
+
+}
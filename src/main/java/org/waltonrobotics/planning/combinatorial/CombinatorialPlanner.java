@@ -4,37 +4,46 @@ import org.waltonrobotics.field.Field;
 import org.waltonrobotics.geometry.ConvexHull;
 import org.waltonrobotics.geometry.Pose;
 import org.waltonrobotics.geometry.Vector2f;
+import org.waltonrobotics.planning.AnytimePath;
 import org.waltonrobotics.planning.PathPlanner;
 
 import javax.swing.*;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
 
 public class CombinatorialPlanner implements PathPlanner {
 
-    private static Comparator<Node> nodeComparator = (n1, n2) -> {
-        if (n2.fCost < n1.fCost) return 1;
-        if (n2.fCost > n1.fCost) return -1;
-        return 0;
-    };
+    private static final double DEFAULT_INITIAL_INFLATION = 3;
+
     private ConfigurationSpace configurationSpace;
     private double rotationWeightTerm;
 
+    // Every thread reuses its own search state, so concurrent queries neither contend nor allocate it per query
+    private final ThreadLocal<SearchNodes> searchNodes = ThreadLocal.withInitial(SearchNodes::new);
+
+    private volatile PlannerMetrics metrics = PlannerMetrics.NONE;
+
     public CombinatorialPlanner(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees, double rotationWeightTerm) {
         this.configurationSpace = new ConfigurationSpace(robot, obstacles, angleResolutionDegrees);
         this.rotationWeightTerm = rotationWeightTerm;
     }
 
+    /**
+     * Plans over an already-built configuration space, for example one built in parallel.
+     */
+    public CombinatorialPlanner(ConfigurationSpace configurationSpace, double rotationWeightTerm) {
+        this.configurationSpace = configurationSpace;
+        this.rotationWeightTerm = rotationWeightTerm;
+    }
+
     public static void main(String[] args) throws FileNotFoundException, IOException {
         Field field = null;
 
         try {
             field = new Field("C:\\Users\\User\\Documents\\GitHub\\Path-Planning\\res\\fields\\DeepSpaceField.field");
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         }
 
@@ -72,146 +81,912 @@ public class CombinatorialPlanner implements PathPlanner {
         return (angleDegrees %= 360) < 0 ? angleDegrees + 360 : angleDegrees;
     }
 
-    private Pose getClosestPoseInSlice(VisibilityGraph slice, Pose pose) {
-        double currentClosestDistance = Double.POSITIVE_INFINITY;
-        Pose closestPose = null;
+    /**
+     * A* over the vertex ids of the slices the search reaches. Node n of the search is vertex n - offset of the slice
+     * whose block of node ids starts at offset, so all search state lives in flat arrays, and a lazy configuration
+     * space only builds the slices the search actually expands into.
+     * <p>
+     * Safe to call from several threads at once, as long as the configuration space's obstacles aren't updated while
+     * queries are running.
+     */
+    @Override
+    public List<Pose> findPath(Pose startingPose, Pose endingPose) {
+        long startTime = System.nanoTime();
+        Object event = PlannerEvents.INSTANCE.queryStarted();
+        SearchNodes nodes = searchNodes.get();
+
+        nodes.reset();
+
+        try {
+            List<Pose> path = findPath(startingPose, endingPose, nodes);
+
+            reportQuery(nodes, startTime, event, "A*", path);
+
+            return path;
+        } finally {
+            // Don't keep slices reachable between queries, a lazy configuration space may want to evict them
+            nodes.release();
+        }
+    }
 
-        for (Pose p : slice.getGraphAdjacencyList().keySet()) {
-            double currentDistance = p.distance(pose);
+    private List<Pose> findPath(Pose startingPose, Pose endingPose, SearchNodes nodes) {
+        if (!startSearch(startingPose, endingPose, nodes, 1, false)) return null;
 
-            if (currentDistance < currentClosestDistance) {
-                closestPose = p;
-                currentClosestDistance = currentDistance;
+        SearchFrontier forward = nodes.forward;
+
+        while (!forward.openSet.isEmpty()) {
+            int current = forward.openSet.poll();
+
+            if (current == nodes.goal) {
+                nodes.pathCost = forward.gCosts[current];
+                return reconstructPath(nodes, startingPose, endingPose);
             }
+
+            forward.closed[current] = true;
+            nodes.expansionCount++;
+
+            expand(nodes, forward, current);
         }
 
-        return closestPose;
+        return null;
     }
 
-    @Override
-    public List<Pose> findPath(Pose startingPose, Pose endingPose) {
-        double startingAngle = getPositiveCoterminalAngle(startingPose.getDegrees());
-        double endingAngle = getPositiveCoterminalAngle(endingPose.getDegrees());
+    /**
+     * Bidirectional A*: one search runs forward from the start vertex and another backward from the goal vertex, and
+     * the side with the smaller open set is expanded next. Every node reached from both sides is a candidate meeting
+     * node. The two heuristics are balanced so that the search can stop as soon as the lowest keys of both open sets
+     * add up to the cost of the cheapest path through a meeting node, rather than only when one of them alone reaches
+     * it, which lets the two searches meet in the middle instead of overlapping. Nodes the other side already closed,
+     * and nodes that even the frontier's full heuristic puts past the cheapest meeting cost, are not expanded.
+     * <p>
+     * This is not a faster findPath. The balanced heuristics are only half as strong as A*'s, and on the Deep Space
+     * field the Euclidean heuristic already keeps A* close to the optimal path. Bidirectional search expands about
+     * 75-95% as many nodes as A* to the goal vertex on random queries, but as many or more on queries across the
+     * field (98% at 5 degree slices, 115% at 45 degrees), and takes longer per expansion. Prefer findPath unless
+     * the queries are known to benefit.
+     * <p>
+     * The heuristics measure to the goal and start vertices rather than to the poses, so the path is optimal over the
+     * slice graph. Safe to call from several threads at once, like findPath.
+     *
+     * @return Path from the starting pose to the ending pose, or null if there is none
+     */
+    public List<Pose> findPathBidirectional(Pose startingPose, Pose endingPose) {
+        long startTime = System.nanoTime();
+        Object event = PlannerEvents.INSTANCE.queryStarted();
+        SearchNodes nodes = searchNodes.get();
+
+        nodes.reset();
 
-        int startingSliceIndex = (int) Math.round(startingAngle / configurationSpace.getAngleResolutionDegrees());
-        int endingSliceIndex = (int) Math.round(endingAngle / configurationSpace.getAngleResolutionDegrees());
+        try {
+            List<Pose> path = findPathBidirectional(startingPose, endingPose, nodes);
 
-        int lowestSliceIndex = 0;
-        int highestSliceIndex = (int) (360.0 / configurationSpace.getAngleResolutionDegrees()) - 1;
+            reportQuery(nodes, startTime, event, "Bidirectional A*", path);
 
-        VisibilityGraph startingSlice = configurationSpace.getSlices().get(startingSliceIndex);
-        VisibilityGraph endingSlice = configurationSpace.getSlices().get(endingSliceIndex);
+            return path;
+        } finally {
+            nodes.release();
+        }
+    }
 
-        Pose closestStartingPose = getClosestPoseInSlice(startingSlice, startingPose);
-        Pose closestEndingPose = getClosestPoseInSlice(endingSlice, endingPose);
+    private List<Pose> findPathBidirectional(Pose startingPose, Pose endingPose, SearchNodes nodes) {
+        if (!startSearch(startingPose, endingPose, nodes, 1, true)) return null;
 
-        List<Node> openList = new ArrayList<>();
-        List<Node> closedList = new ArrayList<>();
+        SearchFrontier forward = nodes.forward;
+        SearchFrontier backward = nodes.backward;
 
-        Node current = new Node(closestStartingPose, null, 0, heuristic(startingPose, endingPose));
-        openList.add(current);
+        nodes.bidirectional = true;
 
-        while (!openList.isEmpty()) {
-            openList.sort(nodeComparator);
+        backward.targetX = getX(nodes, nodes.start);
+        backward.targetY = getY(nodes, nodes.start);
+        backward.targetDegrees = nodes.getSlice(nodes.getSliceOfNode(nodes.start)).getRobotOrientationDegrees();
 
-            current = openList.get(0);
+        // The start was keyed before the search knew it is bidirectional
+        forward.openSet.clear();
+        forward.openSet.insert(nodes.start, key(nodes, forward, nodes.start));
 
-            if (current.pose.equals(closestEndingPose)) {
-                List<Pose> path = new ArrayList<>();
+        backward.gCosts[nodes.goal] = 0;
+        backward.parents[nodes.goal] = -1;
+        backward.openSet.insert(nodes.goal, key(nodes, backward, nodes.goal));
 
-                path.add(endingPose);
+        nodes.meet(nodes.goal);
 
-                while (current.parent != null) {
-                    path.add(current.pose);
-                    current = current.parent;
-                }
+        while (!forward.openSet.isEmpty() && !backward.openSet.isEmpty()) {
+            double forwardKey = forward.openSet.getPriority(forward.openSet.peek());
+            double backwardKey = backward.openSet.getPriority(backward.openSet.peek());
+
+            if (forwardKey + backwardKey >= nodes.meetingCost) break;
+
+            SearchFrontier frontier = forward.openSet.size() <= backward.openSet.size() ? forward : backward;
+            SearchFrontier other = frontier == forward ? backward : forward;
+            int current = frontier.openSet.poll();
+
+            frontier.closed[current] = true;
 
-                path.add(startingPose);
+            // Both sides have the exact cost of a node the other side closed, and the meeting cost already counts
+            // every path through it, so expanding it again can't find a cheaper path (Kwa's BS*)
+            if (other.closed[current]) continue;
 
-                Collections.reverse(path);
+            // The balanced heuristic is only half as strong as the frontier's own, which still bounds every path
+            // through the node from below
+            int sliceIndex = nodes.getSliceOfNode(current);
+            VisibilityGraph slice = nodes.getSlice(sliceIndex);
+            double h = heuristic(slice, current - nodes.getOffset(sliceIndex), frontier.targetX, frontier.targetY, frontier.targetDegrees);
 
-                return path;
+            if (frontier.gCosts[current] + h >= nodes.meetingCost) continue;
+
+            nodes.expansionCount++;
+
+            expand(nodes, frontier, current);
+        }
+
+        if (nodes.meetingNode == -1) return null;
+
+        nodes.pathCost = nodes.meetingCost;
+
+        List<Pose> path = new ArrayList<>();
+
+        path.add(startingPose);
+
+        int pathStart = path.size();
+
+        // Like reconstructPath, the start vertex is left out and the goal vertex kept
+        for (int current = nodes.meetingNode; forward.parents[current] != -1; current = forward.parents[current]) {
+            path.add(getPose(nodes, current));
+        }
+
+        Collections.reverse(path.subList(pathStart, path.size()));
+
+        for (int current = backward.parents[nodes.meetingNode]; current != -1; current = backward.parents[current]) {
+            path.add(getPose(nodes, current));
+        }
+
+        path.add(endingPose);
+
+        return path;
+    }
+
+    /**
+     * Anytime search with a time budget, see {@link #findPathAnytime(Pose, Pose, long, double, Consumer)}.
+     *
+     * @param timeBudgetMillis: Time the search may take
+     * @return Best path found within the budget
+     */
+    public AnytimePath findPathAnytime(Pose startingPose, Pose endingPose, long timeBudgetMillis) {
+        return findPathAnytime(startingPose, endingPose, System.nanoTime() + timeBudgetMillis * 1_000_000, DEFAULT_INITIAL_INFLATION, null);
+    }
+
+    /**
+     * Anytime Repairing A* (Likhachev, Gordon and Thrun, "ARA*: Anytime A* with Provable Bounds on Sub-Optimality",
+     * NIPS 2003). The first path is found quickly with the heuristic inflated by initialInflation, then the inflation
+     * is lowered step by step and the path repaired, reusing the previous search, until the path is optimal, the
+     * deadline passes or the calling thread is interrupted. The interrupt flag is left set.
+     *
+     * @param deadlineNanoTime:    System.nanoTime() value after which the search stops
+     * @param initialInflation:    Heuristic inflation of the first search, at least 1
+     * @param improvementListener: Called with every improved path as soon as it is found, may be null
+     * @return Best path found with its cost and suboptimality bound. The path is null if the deadline passed before
+     * any path was found or no path exists.
+     */
+    public AnytimePath findPathAnytime(Pose startingPose, Pose endingPose, long deadlineNanoTime, double initialInflation,
+                                       Consumer<AnytimePath> improvementListener) {
+        if (initialInflation < 1) {
+            throw new IllegalArgumentException("The heuristic inflation must be at least 1!");
+        }
+
+        long startTime = System.nanoTime();
+        Object event = PlannerEvents.INSTANCE.queryStarted();
+        SearchNodes nodes = searchNodes.get();
+
+        nodes.reset();
+
+        try {
+            AnytimePath path = findPathAnytime(startingPose, endingPose, deadlineNanoTime, initialInflation, improvementListener, nodes);
+
+            reportQuery(nodes, startTime, event, "ARA*", path.getPath());
+
+            return path;
+        } finally {
+            nodes.release();
+        }
+    }
+
+    private AnytimePath findPathAnytime(Pose startingPose, Pose endingPose, long deadlineNanoTime, double initialInflation,
+                                        Consumer<AnytimePath> improvementListener, SearchNodes nodes) {
+        AnytimePath best = new AnytimePath(null, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+        if (!startSearch(startingPose, endingPose, nodes, initialInflation, true)) return best;
+
+        SearchFrontier forward = nodes.forward;
+
+        nodes.anytime = true;
+
+        while (true) {
+            boolean finished = improvePath(nodes, deadlineNanoTime);
+            boolean goalReached = forward.gCosts[nodes.goal] < Double.POSITIVE_INFINITY;
+
+            // The open set was exhausted without reaching the goal, so there is no path at all
+            if (finished && !goalReached) return best;
+
+            double bound = calculateSuboptimalityBound(nodes, finished);
+
+            if (goalReached && forward.gCosts[nodes.goal] <= best.getCost()) {
+                // A cheaper path is at least as close to optimal as the previous one
+                bound = Math.min(bound, best.getSuboptimalityBound());
             }
 
-            openList.remove(current);
-            closedList.add(current);
+            if (goalReached && (forward.gCosts[nodes.goal] < best.getCost() || bound < best.getSuboptimalityBound())) {
+                best = new AnytimePath(reconstructPath(nodes, startingPose, endingPose), forward.gCosts[nodes.goal], bound);
+                nodes.pathCost = best.getCost();
+
+                if (improvementListener != null) {
+                    improvementListener.accept(best);
+                }
+            }
 
-            int currentSliceIndex = (int) Math.round(current.pose.getDegrees() / configurationSpace.getAngleResolutionDegrees());
-            int belowSliceIndex = (currentSliceIndex - 1) < lowestSliceIndex ? highestSliceIndex : (currentSliceIndex - 1);
-            int aboveSliceIndex = (currentSliceIndex + 1) > highestSliceIndex ? lowestSliceIndex : (currentSliceIndex + 1);
+            if (!finished || bound <= 1 || isExpired(deadlineNanoTime)) return best;
 
-            VisibilityGraph currentSlice = configurationSpace.getSlices().get(currentSliceIndex);
-            VisibilityGraph belowSlice = configurationSpace.getSlices().get(belowSliceIndex);
-            VisibilityGraph aboveSlice = configurationSpace.getSlices().get(aboveSliceIndex);
+            // Halve the distance to 1, dropping to 1 once the remaining step is too small to matter
+            nodes.inflation = Math.min(bound, 1 + (nodes.inflation - 1) / 2);
 
-            for (Pose p : currentSlice.getGraphAdjacencyList().get(current.pose)) {
-                exploreNode(openList, closedList, current, p, endingPose);
+            if (nodes.inflation < 1.05) {
+                nodes.inflation = 1;
             }
 
-            exploreNode(openList, closedList, current, getClosestPoseInSlice(belowSlice, current.pose), endingPose);
-            exploreNode(openList, closedList, current, getClosestPoseInSlice(aboveSlice, current.pose), endingPose);
+            reopenInconsistentNodes(nodes);
         }
+    }
 
-        return null;
+    /**
+     * Expands nodes until the goal's inflated cost is no greater than any open node's, the open set is exhausted or
+     * the deadline passes.
+     *
+     * @return False if the search was stopped by the deadline or an interrupt
+     */
+    private boolean improvePath(SearchNodes nodes, long deadlineNanoTime) {
+        SearchFrontier forward = nodes.forward;
+        IndexedBinaryHeap openSet = forward.openSet;
+        double goalKey = key(nodes, forward, nodes.goal);
+        int expansions = 0;
+
+        while (!openSet.isEmpty() && goalKey > openSet.getPriority(openSet.peek())) {
+            // Reading the clock on every expansion would cost more than the expansion itself
+            if ((++expansions & 63) == 0 && isExpired(deadlineNanoTime)) return false;
+
+            int current = openSet.poll();
+
+            forward.closed[current] = true;
+            nodes.expansionCount++;
+
+            expand(nodes, forward, current);
+
+            goalKey = key(nodes, forward, nodes.goal);
+        }
+
+        return true;
+    }
+
+    /**
+     * Reports a finished query to the metrics and to the planner events, which only record it if Flight Recorder is
+     * available and recording path queries.
+     */
+    private void reportQuery(SearchNodes nodes, long startTime, Object event, String search, List<Pose> path) {
+        metrics.queryCompleted(System.nanoTime() - startTime, nodes.snapNanos, nodes.expansionCount, nodes.generatedCount,
+                nodes.peakOpenSetSize, path != null);
+
+        PlannerEvents.INSTANCE.queryFinished(event, search, nodes.expansionCount, nodes.generatedCount,
+                path == null ? 0 : path.size(), nodes.pathCost);
+    }
+
+    private static boolean isExpired(long deadlineNanoTime) {
+        return System.nanoTime() - deadlineNanoTime >= 0 || Thread.currentThread().isInterrupted();
     }
 
-    private void exploreNode(List<Node> openList, List<Node> closedList, Node current, Pose next, Pose endingPose) {
-        double gCost = current.gCost + heuristic(current.pose, next);
-        double hCost = heuristic(next, endingPose);
-        Node node = new Node(next, current, gCost, hCost);
-        if (poseInList(closedList, next) && gCost >= current.gCost) return;
-        if (!poseInList(closedList, next) || gCost < current.gCost) openList.add(node);
+    /**
+     * The nodes in the open and inconsistent sets always include one on an optimal path with its optimal cost, so
+     * their lowest uninflated f-cost is a lower bound on the optimal cost, even while a search is unfinished.
+     *
+     * @param finished: True if the last search ran to completion, which also bounds the path by the inflation
+     * @return ARA* bound on how much more the current path to the goal costs than the optimal path
+     */
+    private double calculateSuboptimalityBound(SearchNodes nodes, boolean finished) {
+        SearchFrontier forward = nodes.forward;
+        IndexedBinaryHeap openSet = forward.openSet;
+        double minCost = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < openSet.size(); i++) {
+            int node = openSet.get(i);
+            minCost = Math.min(minCost, forward.gCosts[node] + heuristic(nodes, forward, node));
+        }
+
+        for (int i = 0; i < nodes.inconsistentCount; i++) {
+            int node = nodes.inconsistentNodes[i];
+            minCost = Math.min(minCost, forward.gCosts[node] + heuristic(nodes, forward, node));
+        }
+
+        // Also covers a goal that is the start vertex, whose 0 / 0 bound would never drop to 1
+        if (minCost == Double.POSITIVE_INFINITY || forward.gCosts[nodes.goal] <= minCost) return 1;
+
+        double bound = forward.gCosts[nodes.goal] / minCost;
+
+        return Math.max(1, finished ? Math.min(nodes.inflation, bound) : bound);
     }
 
-    private boolean poseInList(List<Node> list, Pose pose) {
-        for (Node n : list) {
-            if (n.pose.equals(pose)) return true;
+    /**
+     * Moves the nodes whose cost dropped after they were expanded back into the open set, rekeys the open set with
+     * the current inflation and reopens every closed node.
+     */
+    private void reopenInconsistentNodes(SearchNodes nodes) {
+        SearchFrontier forward = nodes.forward;
+        IndexedBinaryHeap openSet = forward.openSet;
+        int openCount = openSet.size();
+
+        nodes.ensureScratchCapacity(openCount + nodes.inconsistentCount);
+
+        for (int i = 0; i < openCount; i++) {
+            nodes.scratch[i] = openSet.get(i);
+        }
+
+        for (int i = 0; i < nodes.inconsistentCount; i++) {
+            int node = nodes.inconsistentNodes[i];
+
+            nodes.inconsistent[node] = false;
+            nodes.scratch[openCount + i] = node;
         }
-        return false;
+
+        int reopenedCount = openCount + nodes.inconsistentCount;
+
+        nodes.inconsistentCount = 0;
+        openSet.clear();
+
+        for (int i = 0; i < reopenedCount; i++) {
+            openSet.insert(nodes.scratch[i], key(nodes, forward, nodes.scratch[i]));
+        }
+
+        Arrays.fill(forward.closed, 0, nodes.nodeCount, false);
+    }
+
+    /**
+     * Resolves the start and goal vertices and puts the start in the forward open set.
+     *
+     * @param heuristicToGoalVertex: Measure the heuristic to the goal vertex rather than to the ending pose. Only then
+     *                               is it admissible, which the ARA* suboptimality bound and the bidirectional
+     *                               termination condition rely on.
+     * @return False if the start or goal slice has no vertices
+     */
+    private boolean startSearch(Pose startingPose, Pose endingPose, SearchNodes nodes, double inflation, boolean heuristicToGoalVertex) {
+        long startTime = System.nanoTime();
+        int startingSliceIndex = configurationSpace.getSliceIndex(startingPose.getDegrees());
+        int endingSliceIndex = configurationSpace.getSliceIndex(endingPose.getDegrees());
+
+        int closestStartingVertex = nodes.getSlice(startingSliceIndex).getClosestVertex(startingPose.getX(), startingPose.getY());
+        int closestEndingVertex = nodes.getSlice(endingSliceIndex).getClosestVertex(endingPose.getX(), endingPose.getY());
+
+        nodes.snapNanos = System.nanoTime() - startTime;
+
+        if (closestStartingVertex == -1 || closestEndingVertex == -1) return false;
+
+        VisibilityGraph endingSlice = nodes.getSlice(endingSliceIndex);
+        SearchFrontier forward = nodes.forward;
+
+        forward.targetX = heuristicToGoalVertex ? endingSlice.getGraph().getX(closestEndingVertex) : endingPose.getX();
+        forward.targetY = heuristicToGoalVertex ? endingSlice.getGraph().getY(closestEndingVertex) : endingPose.getY();
+        forward.targetDegrees = heuristicToGoalVertex ? endingSlice.getRobotOrientationDegrees() : endingPose.getDegrees();
+        nodes.inflation = inflation;
+
+        nodes.start = nodes.getOffset(startingSliceIndex) + closestStartingVertex;
+        nodes.goal = nodes.getOffset(endingSliceIndex) + closestEndingVertex;
+        forward.gCosts[nodes.start] = 0;
+        forward.parents[nodes.start] = -1;
+        forward.openSet.insert(nodes.start, key(nodes, forward, nodes.start));
+
+        return true;
     }
 
-    private double heuristic(Pose a, Pose b) {
-        double aAngle = getPositiveCoterminalAngle(a.getDegrees());
-        double bAngle = getPositiveCoterminalAngle(b.getDegrees());
+    /**
+     * Relaxes the graph edges of a node within its slice and the rotation edges to or from the slices below and
+     * above. Rotation edges go to the closest vertex of the adjacent slice, which doesn't make them symmetric, so the
+     * backward search follows them in reverse.
+     */
+    private void expand(SearchNodes nodes, SearchFrontier frontier, int current) {
+        int sliceCount = configurationSpace.getSliceCount();
+        int currentSliceIndex = nodes.getSliceOfNode(current);
+        int belowSliceIndex = currentSliceIndex == 0 ? sliceCount - 1 : currentSliceIndex - 1;
+        int aboveSliceIndex = currentSliceIndex == sliceCount - 1 ? 0 : currentSliceIndex + 1;
+
+        VisibilityGraph currentSlice = nodes.getSlice(currentSliceIndex);
+        CompactGraph currentGraph = currentSlice.getGraph();
+        int currentOffset = nodes.getOffset(currentSliceIndex);
+        int vertex = current - currentOffset;
+        double x = currentGraph.getX(vertex);
+        double y = currentGraph.getY(vertex);
+        double gCost = frontier.gCosts[current];
+
+        int[] offsets = currentGraph.getOffsets();
+        int[] neighbors = currentGraph.getNeighbors();
+        float[] weights = currentGraph.getWeights();
+
+        for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+            relax(nodes, frontier, current, currentOffset + neighbors[i], gCost + weights[i], currentSlice, neighbors[i]);
+        }
 
-        return Math.sqrt(Math.pow(a.getX() - b.getX(), 2) +
-                Math.pow(a.getY() - b.getY(), 2) +
-                rotationWeightTerm * Math.pow(aAngle - bAngle, 2));
+        for (int j = 0; j < 2; j++) {
+            int adjacentSliceIndex = j == 0 ? belowSliceIndex : aboveSliceIndex;
+            VisibilityGraph adjacentSlice = nodes.getSlice(adjacentSliceIndex);
+            CompactGraph adjacentGraph = adjacentSlice.getGraph();
+            int adjacentOffset = -1;
+
+            if (frontier == nodes.forward) {
+                // Rotation edges go to the precomputed closest vertex in the slices below and above
+                int[] rotationNeighbors = j == 0
+                        ? nodes.getBelowSliceNeighbors(currentSliceIndex)
+                        : nodes.getAboveSliceNeighbors(currentSliceIndex);
+                int adjacentVertex = rotationNeighbors[vertex];
+
+                if (adjacentVertex == -1) continue;
+
+                double rotationCost = heuristic(x, y, currentSlice.getRobotOrientationDegrees(),
+                        adjacentGraph.getX(adjacentVertex), adjacentGraph.getY(adjacentVertex), adjacentSlice.getRobotOrientationDegrees());
+
+                relax(nodes, frontier, current, nodes.getOffset(adjacentSliceIndex) + adjacentVertex, gCost + rotationCost,
+                        adjacentSlice, adjacentVertex);
+            } else {
+                // The vertices of the adjacent slice whose closest vertex in this slice is the current one
+                RotationPredecessors predecessors = j == 0
+                        ? nodes.getPredecessorsFromBelow(currentSliceIndex)
+                        : nodes.getPredecessorsFromAbove(currentSliceIndex);
+
+                for (int i = predecessors.offsets[vertex]; i < predecessors.offsets[vertex + 1]; i++) {
+                    int adjacentVertex = predecessors.vertices[i];
+
+                    if (adjacentOffset == -1) {
+                        adjacentOffset = nodes.getOffset(adjacentSliceIndex);
+                    }
+
+                    // The rotation cost is a distance, so it's the same in both directions
+                    double rotationCost = heuristic(x, y, currentSlice.getRobotOrientationDegrees(),
+                            adjacentGraph.getX(adjacentVertex), adjacentGraph.getY(adjacentVertex), adjacentSlice.getRobotOrientationDegrees());
+
+                    relax(nodes, frontier, current, adjacentOffset + adjacentVertex, gCost + rotationCost,
+                            adjacentSlice, adjacentVertex);
+                }
+            }
+        }
     }
 
-    private static class ClosestPoseComparator implements Comparator<Pose> {
+    private void relax(SearchNodes nodes, SearchFrontier frontier, int current, int next, double gCost,
+                       VisibilityGraph nextSlice, int nextVertex) {
+        if (gCost >= frontier.gCosts[next]) return;
+
+        if (frontier.closed[next]) {
+            // The heuristic is a distance metric and therefore consistent, so A* never improves a closed node. With
+            // an inflated heuristic it can, and ARA* queues the node for the next, less inflated search instead.
+            if (!nodes.anytime) return;
+
+            frontier.gCosts[next] = gCost;
+            frontier.parents[next] = current;
+            nodes.markInconsistent(next);
+            return;
+        }
+
+        frontier.gCosts[next] = gCost;
+        frontier.parents[next] = current;
+        frontier.openSet.insertOrDecrease(next, gCost + nodes.inflation * heuristic(nodes, frontier, nextSlice, nextVertex));
 
-        private Pose originalPose;
+        nodes.generatedCount++;
+        nodes.peakOpenSetSize = Math.max(nodes.peakOpenSetSize, nodes.forward.openSet.size() + nodes.backward.openSet.size());
 
-        public ClosestPoseComparator(Pose originalPose) {
-            this.originalPose = originalPose;
+        if (nodes.bidirectional) {
+            nodes.meet(next);
         }
+    }
 
-        @Override
-        public int compare(Pose p1, Pose p2) {
-            double p1DistanceToOriginalPose = p1.distance(originalPose);
-            double p2DistanceToOriginalPose = p2.distance(originalPose);
+    private List<Pose> reconstructPath(SearchNodes nodes, Pose startingPose, Pose endingPose) {
+        List<Pose> path = new ArrayList<>();
+        int current = nodes.goal;
 
-            if (p1DistanceToOriginalPose < p2DistanceToOriginalPose) return -1;
-            else if (p1DistanceToOriginalPose > p2DistanceToOriginalPose) return 1;
+        path.add(endingPose);
 
-            return 0;
+        while (nodes.forward.parents[current] != -1) {
+            path.add(getPose(nodes, current));
+            current = nodes.forward.parents[current];
         }
 
+        path.add(startingPose);
+
+        Collections.reverse(path);
+
+        return path;
     }
 
-    private class Node {
+    private Pose getPose(SearchNodes nodes, int node) {
+        VisibilityGraph slice = nodes.getSlice(nodes.getSliceOfNode(node));
+
+        return new Pose(getX(nodes, node), getY(nodes, node), slice.getRobotOrientationDegrees());
+    }
 
-        public Pose pose;
-        public Node parent;
-        public double fCost, gCost, hCost;
+    private double getX(SearchNodes nodes, int node) {
+        int sliceIndex = nodes.getSliceOfNode(node);
+
+        return nodes.getSlice(sliceIndex).getGraph().getX(node - nodes.getOffset(sliceIndex));
+    }
+
+    private double getY(SearchNodes nodes, int node) {
+        int sliceIndex = nodes.getSliceOfNode(node);
+
+        return nodes.getSlice(sliceIndex).getGraph().getY(node - nodes.getOffset(sliceIndex));
+    }
+
+    /**
+     * Reports every query, and the slice builds and obstacle updates of the configuration space from now on, to the
+     * metrics.
+     *
+     * @param metrics: Metrics to report to
+     */
+    public void setMetrics(PlannerMetrics metrics) {
+        this.metrics = metrics;
+
+        configurationSpace.setMetrics(metrics);
+    }
+
+    public PlannerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return Number of nodes the last query on the calling thread expanded, over every pass of an anytime query
+     */
+    public int getLastExpansionCount() {
+        return searchNodes.get().expansionCount;
+    }
+
+    /**
+     * @return Cost over the slice graph of the path the last query on the calling thread returned, from the start
+     * vertex to the goal vertex, or infinity if it found none
+     */
+    public double getLastPathCost() {
+        return searchNodes.get().pathCost;
+    }
+
+    /**
+     * @return Open set priority of a node, its cost plus the inflated heuristic
+     */
+    private double key(SearchNodes nodes, SearchFrontier frontier, int node) {
+        return frontier.gCosts[node] + nodes.inflation * heuristic(nodes, frontier, node);
+    }
+
+    private double heuristic(SearchNodes nodes, SearchFrontier frontier, int node) {
+        int sliceIndex = nodes.getSliceOfNode(node);
+
+        return heuristic(nodes, frontier, nodes.getSlice(sliceIndex), node - nodes.getOffset(sliceIndex));
+    }
+
+    /**
+     * A bidirectional search uses the average of the distance to the frontier's target and the negated distance to the
+     * other frontier's target. The heuristics of both directions then add up to zero at every node, so both searches
+     * see the same reduced edge costs and the search may stop as soon as the lowest keys of both open sets add up to
+     * the cost of the best path through a meeting node (Goldberg and Harrelson, "Computing the Shortest Path: A*
+     * Search Meets Graph Theory", SODA 2005). Half the difference of two consistent heuristics is still consistent.
+     */
+    private double heuristic(SearchNodes nodes, SearchFrontier frontier, VisibilityGraph slice, int vertex) {
+        double h = heuristic(slice, vertex, frontier.targetX, frontier.targetY, frontier.targetDegrees);
+
+        if (!nodes.bidirectional) return h;
+
+        SearchFrontier other = frontier == nodes.forward ? nodes.backward : nodes.forward;
+
+        return (h - heuristic(slice, vertex, other.targetX, other.targetY, other.targetDegrees)) / 2;
+    }
+
+    private double heuristic(VisibilityGraph slice, int vertex, double x, double y, double degrees) {
+        return heuristic(slice.getGraph().getX(vertex), slice.getGraph().getY(vertex), slice.getRobotOrientationDegrees(), x, y, degrees);
+    }
+
+    private double heuristic(double x1, double y1, double degrees1, double x2, double y2, double degrees2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        double dAngle = getPositiveCoterminalAngle(degrees1) - getPositiveCoterminalAngle(degrees2);
+
+        return Math.sqrt(dx * dx + dy * dy + rotationWeightTerm * dAngle * dAngle);
+    }
+
+    /**
+     * Costs, parents, closed flags and open set of one search direction, over the node ids of SearchNodes.
+     */
+    private static class SearchFrontier {
+
+        private double[] gCosts = new double[0];
+        private int[] parents = new int[0];
+        private boolean[] closed = new boolean[0];
+        private final IndexedBinaryHeap openSet = new IndexedBinaryHeap(0);
+
+        // Vertex the heuristic measures to, or the ending pose for plain A*
+        private double targetX;
+        private double targetY;
+        private double targetDegrees;
+
+        void ensureCapacity(int nodeCount) {
+            if (nodeCount <= gCosts.length) return;
+
+            int capacity = Math.max(nodeCount, 2 * gCosts.length);
+
+            gCosts = Arrays.copyOf(gCosts, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            closed = Arrays.copyOf(closed, capacity);
+        }
+
+        void reset(int fromNode, int toNode) {
+            Arrays.fill(gCosts, fromNode, toNode, Double.POSITIVE_INFINITY);
+            Arrays.fill(closed, fromNode, toNode, false);
+        }
+
+    }
+
+    /**
+     * Rotation edges into the vertices of a slice from one adjacent slice, in compressed sparse row form: the
+     * predecessors of vertex v are vertices[offsets[v]] to vertices[offsets[v + 1] - 1] of the adjacent slice.
+     */
+    private static class RotationPredecessors {
+
+        private final int[] offsets;
+        private final int[] vertices;
+
+        /**
+         * @param rotationNeighbors: Closest vertex in this slice of every vertex of the adjacent slice, or -1
+         * @param vertexCount:       Number of vertices of this slice
+         */
+        RotationPredecessors(int[] rotationNeighbors, int vertexCount) {
+            offsets = new int[vertexCount + 1];
+
+            for (int neighbor : rotationNeighbors) {
+                if (neighbor != -1) offsets[neighbor + 1]++;
+            }
+
+            for (int v = 0; v < vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+
+            vertices = new int[offsets[vertexCount]];
+
+            int[] next = Arrays.copyOf(offsets, vertexCount);
+
+            for (int u = 0; u < rotationNeighbors.length; u++) {
+                if (rotationNeighbors[u] != -1) {
+                    vertices[next[rotationNeighbors[u]]++] = u;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Search state of one query, reused by the next query on the same thread. A slice gets a block of node ids the
+     * first time the search reaches it, and the slice and its rotation neighbours are held until the query ends, so a
+     * lazy configuration space can evict them from its cache without the search seeing them change.
+     */
+    private class SearchNodes {
+
+        private final VisibilityGraph[] slices;
+        private final int[][] belowSliceNeighbors;
+        private final int[][] aboveSliceNeighbors;
+        private final RotationPredecessors[] predecessorsFromBelow;
+        private final RotationPredecessors[] predecessorsFromAbove;
+        // Slice index -> first node id, -1 until the search reaches the slice
+        private final int[] sliceOffsets;
+
+        // Slices in the order the search reached them, with their increasing first node ids
+        private int[] reachedSlices;
+        private int[] reachedOffsets;
+        private int reachedCount;
+
+        private int nodeCount;
+        private final SearchFrontier forward = new SearchFrontier();
+        private final SearchFrontier backward = new SearchFrontier();
+
+        private int start;
+        private int goal;
+        private double inflation;
+        private int expansionCount;
+        private double pathCost;
+        private int generatedCount;
+        private int peakOpenSetSize;
+        private long snapNanos;
+
+        // Bidirectional only: the node reached from both sides on the cheapest path found so far
+        private boolean bidirectional;
+        private int meetingNode;
+        private double meetingCost;
+
+        // ARA* only: closed nodes whose cost dropped, waiting for the next search
+        private boolean anytime;
+        private boolean[] inconsistent = new boolean[0];
+        private int[] inconsistentNodes = new int[0];
+        private int inconsistentCount;
+        private int[] scratch = new int[0];
+
+        SearchNodes() {
+            int sliceCount = configurationSpace.getSliceCount();
+
+            slices = new VisibilityGraph[sliceCount];
+            belowSliceNeighbors = new int[sliceCount][];
+            aboveSliceNeighbors = new int[sliceCount][];
+            predecessorsFromBelow = new RotationPredecessors[sliceCount];
+            predecessorsFromAbove = new RotationPredecessors[sliceCount];
+            sliceOffsets = new int[sliceCount];
+            reachedSlices = new int[sliceCount];
+            reachedOffsets = new int[sliceCount];
+
+            Arrays.fill(sliceOffsets, -1);
+        }
+
+        /**
+         * Forgets the previous query. Node state is reset as slices are reached again, so this doesn't touch the
+         * node arrays.
+         */
+        void reset() {
+            for (int i = 0; i < reachedCount; i++) {
+                sliceOffsets[reachedSlices[i]] = -1;
+            }
+
+            for (int i = 0; i < inconsistentCount; i++) {
+                inconsistent[inconsistentNodes[i]] = false;
+            }
+
+            reachedCount = 0;
+            nodeCount = 0;
+            inconsistentCount = 0;
+            anytime = false;
+            bidirectional = false;
+            meetingNode = -1;
+            meetingCost = Double.POSITIVE_INFINITY;
+            expansionCount = 0;
+            pathCost = Double.POSITIVE_INFINITY;
+            generatedCount = 0;
+            peakOpenSetSize = 0;
+            snapNanos = 0;
+            forward.openSet.clear();
+            backward.openSet.clear();
+        }
+
+        /**
+         * Records the node as the meeting node if the paths to it from both sides make the cheapest path so far.
+         */
+        void meet(int node) {
+            double cost = forward.gCosts[node] + backward.gCosts[node];
+
+            if (cost < meetingCost) {
+                meetingCost = cost;
+                meetingNode = node;
+            }
+        }
+
+        void markInconsistent(int node) {
+            if (inconsistent[node]) return;
+
+            if (inconsistentCount == inconsistentNodes.length) {
+                inconsistentNodes = Arrays.copyOf(inconsistentNodes, Math.max(16, 2 * inconsistentCount));
+            }
+
+            inconsistent[node] = true;
+            inconsistentNodes[inconsistentCount++] = node;
+        }
+
+        void ensureScratchCapacity(int capacity) {
+            if (scratch.length < capacity) {
+                scratch = new int[Math.max(capacity, 2 * scratch.length)];
+            }
+        }
+
+        /**
+         * Drops the references to the slices of the finished query.
+         */
+        void release() {
+            Arrays.fill(slices, null);
+            Arrays.fill(belowSliceNeighbors, null);
+            Arrays.fill(aboveSliceNeighbors, null);
+            Arrays.fill(predecessorsFromBelow, null);
+            Arrays.fill(predecessorsFromAbove, null);
+        }
+
+        VisibilityGraph getSlice(int sliceIndex) {
+            if (slices[sliceIndex] == null) {
+                slices[sliceIndex] = configurationSpace.getSlice(sliceIndex);
+            }
+
+            return slices[sliceIndex];
+        }
+
+        int[] getBelowSliceNeighbors(int sliceIndex) {
+            if (belowSliceNeighbors[sliceIndex] == null) {
+                belowSliceNeighbors[sliceIndex] = configurationSpace.getBelowSliceNeighbors(sliceIndex);
+            }
+
+            return belowSliceNeighbors[sliceIndex];
+        }
+
+        int[] getAboveSliceNeighbors(int sliceIndex) {
+            if (aboveSliceNeighbors[sliceIndex] == null) {
+                aboveSliceNeighbors[sliceIndex] = configurationSpace.getAboveSliceNeighbors(sliceIndex);
+            }
+
+            return aboveSliceNeighbors[sliceIndex];
+        }
+
+        /**
+         * @return Rotation edges into a slice from the slice below it, the reverse of that slice's above neighbours
+         */
+        RotationPredecessors getPredecessorsFromBelow(int sliceIndex) {
+            if (predecessorsFromBelow[sliceIndex] == null) {
+                int belowSliceIndex = sliceIndex == 0 ? slices.length - 1 : sliceIndex - 1;
+
+                predecessorsFromBelow[sliceIndex] = new RotationPredecessors(getAboveSliceNeighbors(belowSliceIndex),
+                        getSlice(sliceIndex).getGraph().getVertexCount());
+            }
+
+            return predecessorsFromBelow[sliceIndex];
+        }
+
+        /**
+         * @return Rotation edges into a slice from the slice above it, the reverse of that slice's below neighbours
+         */
+        RotationPredecessors getPredecessorsFromAbove(int sliceIndex) {
+            if (predecessorsFromAbove[sliceIndex] == null) {
+                int aboveSliceIndex = sliceIndex == slices.length - 1 ? 0 : sliceIndex + 1;
+
+                predecessorsFromAbove[sliceIndex] = new RotationPredecessors(getBelowSliceNeighbors(aboveSliceIndex),
+                        getSlice(sliceIndex).getGraph().getVertexCount());
+            }
+
+            return predecessorsFromAbove[sliceIndex];
+        }
+
+        /**
+         * @return First node id of a slice, assigning the next block of ids if the search hasn't reached it yet
+         */
+        int getOffset(int sliceIndex) {
+            if (sliceOffsets[sliceIndex] != -1) return sliceOffsets[sliceIndex];
+
+            int offset = nodeCount;
+            int vertexCount = getSlice(sliceIndex).getGraph().getVertexCount();
+
+            sliceOffsets[sliceIndex] = offset;
+            reachedSlices[reachedCount] = sliceIndex;
+            reachedOffsets[reachedCount] = offset;
+            reachedCount++;
+
+            nodeCount += vertexCount;
+
+            forward.ensureCapacity(nodeCount);
+            backward.ensureCapacity(nodeCount);
+
+            if (nodeCount > inconsistent.length) {
+                inconsistent = Arrays.copyOf(inconsistent, forward.gCosts.length);
+            }
+
+            forward.reset(offset, nodeCount);
+            backward.reset(offset, nodeCount);
+
+            return offset;
+        }
+
+        /**
+         * @return Index of the slice a search node belongs to
+         */
+        int getSliceOfNode(int node) {
+            int low = 0;
+            int high = reachedCount - 1;
+
+            // Find the last reached slice whose offset is not greater than the node
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+
+                if (reachedOffsets[mid] <= node) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
 
-        public Node(Pose pose, Node parent, double gCost, double hCost) {
-            this.pose = pose;
-            this.parent = parent;
-            this.gCost = gCost;
-            this.hCost = hCost;
-            this.fCost = this.gCost + this.hCost;
+            return reachedSlices[low];
         }
 
     }
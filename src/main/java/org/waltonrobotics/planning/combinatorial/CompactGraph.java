@@ -0,0 +1,123 @@
+package org.waltonrobotics.planning.combinatorial;
+
+import java.util.Arrays;
+
+/**
+ * Undirected graph in compressed sparse row form. Vertices are dense integer ids, the neighbors of vertex v are
+ * neighbors[offsets[v]] to neighbors[offsets[v + 1] - 1] and weights holds the Euclidean length of each of those
+ * directed edges.
+ */
+public class CompactGraph {
+
+    private final double[] coordinates;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final float[] weights;
+
+    /**
+     * @param coordinates: Interleaved x and y coordinates of every vertex
+     * @param offsets:     Start of every vertex's neighbors, with one trailing entry holding the neighbor count
+     * @param neighbors:   Neighbor ids of every vertex, grouped by vertex
+     */
+    public CompactGraph(double[] coordinates, int[] offsets, int[] neighbors) {
+        if (coordinates.length != 2 * (offsets.length - 1) || offsets[offsets.length - 1] != neighbors.length) {
+            throw new IllegalArgumentException("Coordinates, offsets and neighbors don't describe the same graph!");
+        }
+
+        this.coordinates = coordinates;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.weights = new float[neighbors.length];
+
+        for (int v = 0; v < getVertexCount(); v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int u = neighbors[i];
+
+                weights[i] = (float) Math.sqrt(squaredDistance(v, coordinates[2 * u], coordinates[2 * u + 1]));
+            }
+        }
+    }
+
+    /**
+     * Builds a graph from per-vertex neighbor lists.
+     *
+     * @param coordinates:    Interleaved x and y coordinates of every vertex
+     * @param adjacency:      Neighbor ids of every vertex, only the first adjacencySizes[v] entries are used
+     * @param adjacencySizes: Number of neighbors of every vertex
+     * @return Graph in compressed sparse row form
+     */
+    public static CompactGraph fromAdjacency(double[] coordinates, int[][] adjacency, int[] adjacencySizes) {
+        int vertexCount = adjacencySizes.length;
+        int[] offsets = new int[vertexCount + 1];
+
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] = offsets[v] + adjacencySizes[v];
+        }
+
+        int[] neighbors = new int[offsets[vertexCount]];
+
+        for (int v = 0; v < vertexCount; v++) {
+            System.arraycopy(adjacency[v], 0, neighbors, offsets[v], adjacencySizes[v]);
+        }
+
+        return new CompactGraph(Arrays.copyOf(coordinates, 2 * vertexCount), offsets, neighbors);
+    }
+
+    public int getVertexCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return Number of directed edges, twice the number of undirected edges
+     */
+    public int getEdgeCount() {
+        return neighbors.length;
+    }
+
+    public double getX(int vertex) {
+        return coordinates[2 * vertex];
+    }
+
+    public double getY(int vertex) {
+        return coordinates[2 * vertex + 1];
+    }
+
+    public int getDegree(int vertex) {
+        return offsets[vertex + 1] - offsets[vertex];
+    }
+
+    public double[] getCoordinates() {
+        return coordinates;
+    }
+
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    public int[] getNeighbors() {
+        return neighbors;
+    }
+
+    public float[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return Squared distance from a vertex to a point
+     */
+    public double squaredDistance(int vertex, double x, double y) {
+        double dx = coordinates[2 * vertex] - x;
+        double dy = coordinates[2 * vertex + 1] - y;
+
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @return Approximate heap footprint of the arrays backing this graph in bytes
+     */
+    public long getMemoryBytes() {
+        // 16 byte array header per array
+        return 4 * 16L + 8L * coordinates.length + 4L * offsets.length + 4L * neighbors.length + 4L * weights.length;
+    }
+
+}
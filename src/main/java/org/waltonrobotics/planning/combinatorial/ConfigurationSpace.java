@@ -3,11 +3,20 @@ package org.waltonrobotics.planning.combinatorial;
 import org.waltonrobotics.field.Field;
 import org.waltonrobotics.geometry.ConvexHull;
 import org.waltonrobotics.geometry.LineSegment;
+import org.waltonrobotics.geometry.MinkowskiSum;
 import org.waltonrobotics.geometry.Vector2f;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 public class ConfigurationSpace {
@@ -17,13 +26,166 @@ public class ConfigurationSpace {
     private double angleResolutionDegrees;
 
     private List<VisibilityGraph> slices;
+    private double[] sliceBuildTimesMillis;
+    private boolean loadedFromCache;
 
+    private int[][] belowSliceNeighbors;
+    private int[][] aboveSliceNeighbors;
+
+    // Only set in lazy mode, where it replaces slices and the rotation neighbour arrays
+    private SliceCache sliceCache;
+    private int sliceCount;
+    private ExecutorService warmUpExecutor;
+    private boolean shutdown;
+
+    private volatile PlannerMetrics metrics = PlannerMetrics.NONE;
+
+    /**
+     * Builds every slice sequentially on the calling thread.
+     */
     public ConfigurationSpace(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees) {
         this.robot = robot;
         this.obstacles = obstacles;
         this.angleResolutionDegrees = angleResolutionDegrees;
 
-        calculateSlices();
+        calculateSlices(null);
+        calculateRotationNeighbors();
+    }
+
+    /**
+     * Builds the slices concurrently on a dedicated fork/join pool that is shut down once the slices are built.
+     *
+     * @param parallelism: Number of slices to build at once
+     */
+    public ConfigurationSpace(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1!");
+        }
+
+        this.robot = robot;
+        this.obstacles = obstacles;
+        this.angleResolutionDegrees = angleResolutionDegrees;
+
+        if (parallelism == 1) {
+            calculateSlices(null);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+            try {
+                calculateSlices(pool);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        calculateRotationNeighbors();
+    }
+
+    /**
+     * Builds the slices concurrently on a caller-supplied executor. The executor is not shut down.
+     *
+     * @param executor: Executor to build the slices on
+     */
+    public ConfigurationSpace(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees, Executor executor) {
+        this(robot, obstacles, angleResolutionDegrees, executor, PlannerMetrics.NONE);
+    }
+
+    /**
+     * Builds the slices on a caller-supplied executor, reporting every slice and visibility graph build to the
+     * metrics. The executor is not shut down.
+     *
+     * @param executor: Executor to build the slices on, or null to build them on the calling thread
+     * @param metrics:  Metrics to report builds and later obstacle updates to
+     */
+    public ConfigurationSpace(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees, Executor executor,
+                              PlannerMetrics metrics) {
+        this.robot = robot;
+        this.obstacles = obstacles;
+        this.angleResolutionDegrees = angleResolutionDegrees;
+        this.metrics = metrics;
+
+        calculateSlices(executor);
+        calculateRotationNeighbors();
+    }
+
+    /**
+     * Loads the slices from a cache file if it matches this robot, obstacle set and angle resolution. Otherwise the
+     * slices are built sequentially and the cache file is rewritten.
+     *
+     * @param cacheFile: Cache file to load from and save to
+     */
+    public ConfigurationSpace(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees, Path cacheFile) {
+        this(robot, obstacles, angleResolutionDegrees, null, cacheFile);
+    }
+
+    /**
+     * Loads the slices from a cache file if it matches this robot, obstacle set and angle resolution. Otherwise the
+     * slices are built on the given executor and the cache file is rewritten.
+     *
+     * @param executor:  Executor to build the slices on, or null to build them on the calling thread
+     * @param cacheFile: Cache file to load from and save to
+     */
+    public ConfigurationSpace(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees, Executor executor, Path cacheFile) {
+        this.robot = robot;
+        this.obstacles = obstacles;
+        this.angleResolutionDegrees = angleResolutionDegrees;
+
+        long key = ConfigurationSpaceCache.key(robot, obstacles, angleResolutionDegrees);
+
+        slices = ConfigurationSpaceCache.load(cacheFile, key);
+
+        if (slices != null) {
+            loadedFromCache = true;
+            sliceBuildTimesMillis = new double[slices.size()];
+            calculateRotationNeighbors();
+            return;
+        }
+
+        calculateSlices(executor);
+        calculateRotationNeighbors();
+
+        try {
+            ConfigurationSpaceCache.save(cacheFile, key, angleResolutionDegrees, slices);
+        } catch (IOException e) {
+            // The slices are still usable, they just have to be rebuilt next time
+            e.printStackTrace();
+        }
+    }
+
+    private ConfigurationSpace(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees, long memoryBudgetBytes,
+                               PlannerMetrics metrics) {
+        this.robot = robot;
+        this.obstacles = obstacles;
+        this.angleResolutionDegrees = angleResolutionDegrees;
+        this.metrics = metrics;
+        this.sliceCount = calculateSliceCount();
+        this.sliceBuildTimesMillis = new double[sliceCount];
+        this.sliceCache = new SliceCache(memoryBudgetBytes, this::calculateSlice);
+    }
+
+    /**
+     * Creates a configuration space that builds no slices up front. A slice is built the first time it is asked for
+     * and kept in a cache that evicts the least recently used slices once their estimated size exceeds the memory
+     * budget. Evicted slices are rebuilt on demand with the same vertex ids.
+     *
+     * @param memoryBudgetBytes: Estimated heap the cached slices may take up
+     * @return Lazy configuration space
+     */
+    public static ConfigurationSpace lazy(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees, long memoryBudgetBytes) {
+        return new ConfigurationSpace(robot, obstacles, angleResolutionDegrees, memoryBudgetBytes, PlannerMetrics.NONE);
+    }
+
+    /**
+     * Creates a lazy configuration space, see {@link #lazy(ConvexHull, List, double, long)}, that reports every slice it
+     * builds to the metrics.
+     *
+     * @param memoryBudgetBytes: Estimated heap the cached slices may take up
+     * @param metrics:           Metrics to report slice and visibility graph builds to
+     * @return Lazy configuration space
+     */
+    public static ConfigurationSpace lazy(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees, long memoryBudgetBytes,
+                                          PlannerMetrics metrics) {
+        return new ConfigurationSpace(robot, obstacles, angleResolutionDegrees, memoryBudgetBytes, metrics);
     }
 
     public static void main(String[] args) {
@@ -31,7 +193,7 @@ public class ConfigurationSpace {
 
         try {
             field = new Field("C:\\Users\\User\\Documents\\GitHub\\Path-Planning\\res\\fields\\DeepSpaceField.field");
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         }
 
@@ -44,64 +206,431 @@ public class ConfigurationSpace {
         robot.addPoint(new Vector2f(0.0, 1.0));
         robot.end();
 
-        ConfigurationSpace cSpace = new ConfigurationSpace(robot, field.getObstacles(), 5.0);
+        ConfigurationSpace cSpace = new ConfigurationSpace(robot, field.getObstacles(), 5.0, Runtime.getRuntime().availableProcessors());
     }
 
-    private void calculateSlices() {
-        if (angleResolutionDegrees < 0 || angleResolutionDegrees > 360) {
+    private int calculateSliceCount() {
+        if (angleResolutionDegrees <= 0 || angleResolutionDegrees > 360) {
             throw new IllegalArgumentException("The angle resolution measured in degrees must be greater than 0 and less than 360!");
         }
 
-        slices = new ArrayList<>();
+        return (int) Math.ceil(360.0 / angleResolutionDegrees);
+    }
+
+    private void calculateSlices(Executor executor) {
+        sliceCount = calculateSliceCount();
+
+        sliceBuildTimesMillis = new double[sliceCount];
+
+        if (executor == null) {
+            slices = new ArrayList<>(sliceCount);
+
+            for (int i = 0; i < sliceCount; i++) {
+                slices.add(calculateSlice(i));
+            }
+
+            return;
+        }
+
+        List<CompletableFuture<VisibilityGraph>> futures = new ArrayList<>(sliceCount);
+
+        for (int i = 0; i < sliceCount; i++) {
+            int sliceIndex = i;
+            futures.add(CompletableFuture.supplyAsync(() -> calculateSlice(sliceIndex), executor));
+        }
+
+        // Joining in submission order keeps the slices in angle order
+        slices = futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    /**
+     * Precomputes, for every vertex of every slice, the closest vertex in the slices directly below and above it, so
+     * rotation edges are an array lookup during planning instead of a nearest neighbour search.
+     */
+    private void calculateRotationNeighbors() {
+        sliceCount = slices.size();
 
-        for (double angle = 0; angle <= 360; angle += angleResolutionDegrees) {
-            if (angle == 360) break;
+        belowSliceNeighbors = new int[sliceCount][];
+        aboveSliceNeighbors = new int[sliceCount][];
 
-            double angleRadians = Math.toRadians(angle);
+        for (int i = 0; i < sliceCount; i++) {
+            belowSliceNeighbors[i] = calculateClosestVertices(slices.get(i), slices.get(i == 0 ? sliceCount - 1 : i - 1));
+            aboveSliceNeighbors[i] = calculateClosestVertices(slices.get(i), slices.get(i == sliceCount - 1 ? 0 : i + 1));
+        }
+    }
+
+    private static int[] calculateClosestVertices(VisibilityGraph from, VisibilityGraph to) {
+        CompactGraph graph = from.getGraph();
+        int[] closestVertices = new int[graph.getVertexCount()];
+
+        for (int v = 0; v < closestVertices.length; v++) {
+            closestVertices[v] = to.getClosestVertex(graph.getX(v), graph.getY(v));
+        }
 
-            List<ConvexHull> cSpaceObstacles = new ArrayList<>();
+        return closestVertices;
+    }
+
+    private VisibilityGraph calculateSlice(int sliceIndex) {
+        long startTime = System.nanoTime();
+        Object event = PlannerEvents.INSTANCE.sliceBuildStarted();
+        double angle = sliceIndex * angleResolutionDegrees;
+
+        ConvexHull transformedRobot = calculateTransformedRobot(angle);
+
+        List<ConvexHull> cSpaceObstacles = new ArrayList<>();
+
+        for (int polygonID = 0; polygonID < obstacles.size(); polygonID++) {
+            cSpaceObstacles.add(calculateCSpaceObstacle(obstacles.get(polygonID), transformedRobot, polygonID));
+        }
+
+        // Get all the obstacle vertices into one list
+        List<Vector2f> vertices = cSpaceObstacles.stream().flatMap(x -> x.getConvexPoints().stream()).collect(Collectors.toList());
+        List<LineSegment> edges = cSpaceObstacles.stream().flatMap(x -> x.getEdges().stream()).collect(Collectors.toList());
+
+        VisibilityGraph slice = new VisibilityGraph(vertices, edges, cSpaceObstacles, angle, metrics);
+
+        long buildNanos = System.nanoTime() - startTime;
+
+        sliceBuildTimesMillis[sliceIndex] = buildNanos / 1e6;
+        metrics.sliceBuilt(sliceIndex, buildNanos);
+
+        PlannerEvents.INSTANCE.sliceBuildFinished(event, sliceIndex, angle,
+                slice.getGraph().getVertexCount(), slice.getGraph().getEdgeCount() / 2);
+
+        return slice;
+    }
 
-            ConvexHull transformedRobot = new ConvexHull();
+    /**
+     * @return Robot rotated by the given angle about its origin
+     */
+    private ConvexHull calculateTransformedRobot(double angleDegrees) {
+        double angleRadians = Math.toRadians(angleDegrees);
 
-            transformedRobot.begin();
+        ConvexHull transformedRobot = new ConvexHull();
 
-            for (Vector2f v : robot.getConvexPoints()) {
-                double xPrime = (v.getX() * Math.cos(angleRadians)) - (v.getY() * Math.sin(angleRadians));
-                double yPrime = (v.getX() * Math.sin(angleRadians)) + (v.getY() * Math.cos(angleRadians));
+        transformedRobot.begin();
 
-                transformedRobot.addPoint(new Vector2f(xPrime, yPrime));
+        for (Vector2f v : robot.getConvexPoints()) {
+            double xPrime = (v.getX() * Math.cos(angleRadians)) - (v.getY() * Math.sin(angleRadians));
+            double yPrime = (v.getX() * Math.sin(angleRadians)) + (v.getY() * Math.cos(angleRadians));
+
+            transformedRobot.addPoint(new Vector2f(xPrime, yPrime));
+        }
+
+        transformedRobot.end();
+
+        return transformedRobot;
+    }
+
+    /**
+     * @return Minkowski difference of the obstacle and the transformed robot, every point tagged with the polygon ID
+     */
+    private static ConvexHull calculateCSpaceObstacle(ConvexHull obstacle, ConvexHull transformedRobot, int polygonID) {
+        ConvexHull cSpaceObstacle = new ConvexHull();
+
+        // Merging the edges of both polygons is linear, but needs both to have some area
+        List<Vector2f> minkowskiDifference = MinkowskiSum.calculateDifference(obstacle.getConvexPoints(), transformedRobot.getConvexPoints(), polygonID);
+
+        if (minkowskiDifference != null) {
+            cSpaceObstacle.setConvexPoints(minkowskiDifference);
+
+            return cSpaceObstacle;
+        }
+
+        cSpaceObstacle.begin();
+
+        for (Vector2f obstacleV : obstacle.getConvexPoints()) {
+            for (Vector2f robotV : transformedRobot.getConvexPoints()) {
+                cSpaceObstacle.addPoint(new Vector2f(obstacleV.getX() - robotV.getX(), obstacleV.getY() - robotV.getY(), polygonID));
             }
+        }
 
-            transformedRobot.end();
+        cSpaceObstacle.end();
 
-            int polygonID = 0;
+        return cSpaceObstacle;
+    }
+
+    /**
+     * Adds an obstacle and updates every slice in place, only re-sweeping the vertices whose visibility it can
+     * change. In lazy mode only the cached slices are updated, the rest are built with the obstacle when they are
+     * asked for. Updates aren't written back to a cache file.
+     *
+     * @param obstacle: Obstacle to add
+     * @return Index of the new obstacle
+     */
+    public int addObstacle(ConvexHull obstacle) {
+        int index = obstacles.size();
 
-            for (ConvexHull cvh : obstacles) {
-                ConvexHull cSpaceObstacle = new ConvexHull();
+        updateObstacles(index, obstacle, false);
+
+        return index;
+    }
+
+    /**
+     * Removes an obstacle and updates every slice in place. Obstacles after it move down one index.
+     *
+     * @param index: Index of the obstacle to remove
+     */
+    public void removeObstacle(int index) {
+        checkObstacleIndex(index);
+
+        updateObstacles(index, null, true);
+    }
+
+    /**
+     * Moves an obstacle by replacing it with its new shape and updates every slice in place.
+     *
+     * @param index:         Index of the obstacle to move
+     * @param movedObstacle: Obstacle at its new position
+     */
+    public void moveObstacle(int index, ConvexHull movedObstacle) {
+        checkObstacleIndex(index);
+
+        updateObstacles(index, movedObstacle, true);
+    }
+
+    private void checkObstacleIndex(int index) {
+        if (index < 0 || index >= obstacles.size()) {
+            throw new IllegalArgumentException("There is no obstacle with index " + index + "!");
+        }
+    }
 
-                cSpaceObstacle.begin();
+    private void updateObstacles(int index, ConvexHull obstacle, boolean replacesExisting) {
+        // Copy rather than modify the list the space was built with, it may be shared or unmodifiable
+        List<ConvexHull> updatedObstacles = new ArrayList<>(obstacles);
 
-                for (Vector2f obstacleV : cvh.getConvexPoints()) {
-                    for (Vector2f robotV : transformedRobot.getConvexPoints()) {
-                        cSpaceObstacle.addPoint(new Vector2f(obstacleV.getX() - robotV.getX(), obstacleV.getY() - robotV.getY(), polygonID));
+        if (!replacesExisting) {
+            updatedObstacles.add(obstacle);
+        } else if (obstacle == null) {
+            updatedObstacles.remove(index);
+        } else {
+            updatedObstacles.set(index, obstacle);
+        }
+
+        if (sliceCache != null) {
+            // An updated slice is numbered the same as a fresh build, so only the cached slices are repaired. The
+            // obstacles are swapped first so that slices built from now on already see the update.
+            obstacles = updatedObstacles;
+            sliceCache.update(slice -> updateSlice(slice, index, obstacle, replacesExisting));
+            return;
+        }
+
+        CompactGraph[] oldGraphs = new CompactGraph[sliceCount];
+
+        for (int i = 0; i < sliceCount; i++) {
+            oldGraphs[i] = slices.get(i).getGraph();
+        }
+
+        for (VisibilityGraph slice : slices) {
+            updateSlice(slice, index, obstacle, replacesExisting);
+        }
+
+        obstacles = updatedObstacles;
+
+        updateRotationNeighbors(oldGraphs);
+    }
+
+    private void updateSlice(VisibilityGraph slice, int index, ConvexHull obstacle, boolean replacesExisting) {
+        if (obstacle == null) {
+            slice.removeObstacle(index);
+            return;
+        }
+
+        ConvexHull cSpaceObstacle = calculateCSpaceObstacle(obstacle, calculateTransformedRobot(slice.getRobotOrientationDegrees()), index);
+
+        if (replacesExisting) {
+            slice.replaceObstacle(index, cSpaceObstacle);
+        } else {
+            slice.addObstacle(cSpaceObstacle);
+        }
+    }
+
+    /**
+     * Repairs the rotation neighbours after an update changed the slices in place. A vertex keeps its closest vertex in
+     * a neighbouring slice unless that vertex is gone or a vertex the update added there is at least as close, so the
+     * k-d tree is only searched for those vertices and for the ones the update added.
+     *
+     * @param oldGraphs: Graph of every slice before the update
+     */
+    private void updateRotationNeighbors(CompactGraph[] oldGraphs) {
+        int[][] oldIds = new int[sliceCount][];
+        int[][] newIds = new int[sliceCount][];
+        int[][] addedVertices = new int[sliceCount][];
+
+        for (int i = 0; i < sliceCount; i++) {
+            CompactGraph graph = slices.get(i).getGraph();
+
+            oldIds[i] = mapVertexIds(graph, oldGraphs[i]);
+            newIds[i] = mapVertexIds(oldGraphs[i], graph);
+
+            int addedCount = 0;
+
+            for (int id : oldIds[i]) {
+                if (id == -1) addedCount++;
+            }
+
+            addedVertices[i] = new int[addedCount];
+            addedCount = 0;
+
+            for (int v = 0; v < oldIds[i].length; v++) {
+                if (oldIds[i][v] == -1) addedVertices[i][addedCount++] = v;
+            }
+        }
+
+        for (int i = 0; i < sliceCount; i++) {
+            int below = i == 0 ? sliceCount - 1 : i - 1;
+            int above = i == sliceCount - 1 ? 0 : i + 1;
+
+            belowSliceNeighbors[i] = updateClosestVertices(slices.get(i), oldIds[i], belowSliceNeighbors[i], slices.get(below),
+                    newIds[below], addedVertices[below]);
+            aboveSliceNeighbors[i] = updateClosestVertices(slices.get(i), oldIds[i], aboveSliceNeighbors[i], slices.get(above),
+                    newIds[above], addedVertices[above]);
+        }
+    }
+
+    /**
+     * @param fromOldIds:         Id every vertex of the from slice had before the update, -1 if it is new
+     * @param oldClosestVertices: Closest vertices in the to slice before the update, by old from slice id
+     * @param toNewIds:           Id every vertex the to slice had before the update has now, -1 if it is gone
+     * @param toAddedVertices:    Vertices of the to slice the update added
+     * @return For every vertex of the from slice, the id of the closest vertex in the to slice
+     */
+    private static int[] updateClosestVertices(VisibilityGraph from, int[] fromOldIds, int[] oldClosestVertices, VisibilityGraph to,
+                                               int[] toNewIds, int[] toAddedVertices) {
+        CompactGraph fromGraph = from.getGraph();
+        CompactGraph toGraph = to.getGraph();
+        int[] closestVertices = new int[fromGraph.getVertexCount()];
+
+        for (int v = 0; v < closestVertices.length; v++) {
+            double x = fromGraph.getX(v);
+            double y = fromGraph.getY(v);
+
+            int oldClosest = fromOldIds[v] == -1 ? -1 : oldClosestVertices[fromOldIds[v]];
+            int closest = oldClosest == -1 ? -1 : toNewIds[oldClosest];
+
+            if (closest != -1) {
+                double squaredDistance = toGraph.squaredDistance(closest, x, y);
+
+                for (int added : toAddedVertices) {
+                    if (toGraph.squaredDistance(added, x, y) <= squaredDistance) {
+                        closest = -1;
+                        break;
                     }
                 }
+            }
+
+            closestVertices[v] = closest != -1 ? closest : to.getClosestVertex(x, y);
+        }
+
+        return closestVertices;
+    }
+
+    /**
+     * @return Id in the other graph of every vertex of the graph, matched by location, -1 if the other graph doesn't
+     * have it
+     */
+    private static int[] mapVertexIds(CompactGraph graph, CompactGraph other) {
+        Map<Vector2f, Integer> otherIds = new HashMap<>();
+
+        for (int v = 0; v < other.getVertexCount(); v++) {
+            otherIds.put(new Vector2f(other.getX(v), other.getY(v)), v);
+        }
 
-                cSpaceObstacle.end();
+        int[] ids = new int[graph.getVertexCount()];
 
-                polygonID++;
+        for (int v = 0; v < ids.length; v++) {
+            ids[v] = otherIds.getOrDefault(new Vector2f(graph.getX(v), graph.getY(v)), -1);
+        }
+
+        return ids;
+    }
 
-                cSpaceObstacles.add(cSpaceObstacle);
+    /**
+     * Starts building the slices closest to a heading in the background, nearest first, so the first queries near the
+     * robot's current heading don't pay for them. The builds run on a daemon thread owned by this configuration
+     * space until shutdown() is called. Does nothing unless the space is lazy.
+     *
+     * @param headingDegrees: Current heading of the robot
+     * @param sliceRadius:    Number of slices to warm up on each side of the heading's slice
+     * @return Future completed once the slices are built
+     * @throws IllegalStateException: The configuration space was shut down
+     */
+    public CompletableFuture<Void> warmUp(double headingDegrees, int sliceRadius) {
+        if (sliceCache == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        synchronized (this) {
+            if (shutdown) {
+                throw new IllegalStateException("The configuration space was shut down!");
             }
 
-            // Get all the obstacle vertices into one list
-            List<Vector2f> vertices = cSpaceObstacles.stream().flatMap(x -> x.getConvexPoints().stream()).collect(Collectors.toList());
-            List<LineSegment> edges = cSpaceObstacles.stream().flatMap(x -> x.getEdges().stream()).collect(Collectors.toList());
+            if (warmUpExecutor == null) {
+                warmUpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "Configuration space warm-up");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
 
-            slices.add(new VisibilityGraph(vertices, edges, cSpaceObstacles, angle));
+        return warmUp(headingDegrees, sliceRadius, warmUpExecutor);
+    }
+
+    /**
+     * Stops the warm-up thread started by warmUp(double, int), letting the slices it is already building finish.
+     * Planning on the configuration space still works afterwards, only warming up without an executor doesn't.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+
+        if (warmUpExecutor != null) {
+            warmUpExecutor.shutdown();
         }
     }
 
+    /**
+     * Starts building the slices closest to a heading on the given executor, nearest first. Warming up stops once
+     * the cache is full, so it doesn't push out slices that are already cached. Does nothing unless the space is
+     * lazy.
+     *
+     * @param headingDegrees: Current heading of the robot
+     * @param sliceRadius:    Number of slices to warm up on each side of the heading's slice
+     * @param executor:       Executor to build the slices on
+     * @return Future completed once the slices are built
+     */
+    public CompletableFuture<Void> warmUp(double headingDegrees, int sliceRadius, Executor executor) {
+        if (sliceRadius < 0) {
+            throw new IllegalArgumentException("The warm-up radius must not be negative!");
+        }
+
+        if (sliceCache == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int headingSliceIndex = getSliceIndex(headingDegrees);
+        int warmUpCount = Math.min(2 * sliceRadius + 1, sliceCount);
+
+        return CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < warmUpCount && !sliceCache.isFull(); i++) {
+                // 0, +1, -1, +2, -2, ...
+                int offset = (i + 1) / 2 * (i % 2 == 1 ? 1 : -1);
+
+                sliceCache.get(Math.floorMod(headingSliceIndex + offset, sliceCount));
+            }
+        }, executor);
+    }
+
+    /**
+     * @param angleDegrees: Robot orientation in degrees, any coterminal angle
+     * @return Index of the slice closest to the orientation
+     */
+    public int getSliceIndex(double angleDegrees) {
+        double positiveAngleDegrees = (angleDegrees %= 360) < 0 ? angleDegrees + 360 : angleDegrees;
+
+        return (int) Math.round(positiveAngleDegrees / angleResolutionDegrees) % sliceCount;
+    }
+
     public ConvexHull getRobot() {
         return robot;
     }
@@ -114,8 +643,148 @@ public class ConfigurationSpace {
         return angleResolutionDegrees;
     }
 
+    /**
+     * In lazy mode this builds every slice that isn't cached and holds on to all of them for as long as the list is
+     * kept, so planning should use {@link #getSlice(int)} instead.
+     *
+     * @return Every slice in angle order
+     */
     public List<VisibilityGraph> getSlices() {
-        return slices;
+        if (sliceCache == null) {
+            return slices;
+        }
+
+        List<VisibilityGraph> allSlices = new ArrayList<>(sliceCount);
+
+        for (int i = 0; i < sliceCount; i++) {
+            allSlices.add(getSlice(i));
+        }
+
+        return allSlices;
+    }
+
+    /**
+     * @param sliceIndex: Index of a slice, slice i is at i * angleResolutionDegrees
+     * @return The slice, built first if the space is lazy and it isn't cached
+     */
+    public VisibilityGraph getSlice(int sliceIndex) {
+        return sliceCache == null ? slices.get(sliceIndex) : sliceCache.get(sliceIndex).slice;
+    }
+
+    public int getSliceCount() {
+        return sliceCount;
+    }
+
+    /**
+     * @param sliceIndex: Index of a slice
+     * @return For every vertex of the slice, the id of the closest vertex in the slice below it (wrapping around), or
+     * -1 if that slice has no vertices
+     */
+    public int[] getBelowSliceNeighbors(int sliceIndex) {
+        if (sliceCache == null) {
+            return belowSliceNeighbors[sliceIndex];
+        }
+
+        SliceCache.Entry entry = sliceCache.get(sliceIndex);
+        int[] neighbors = entry.belowSliceNeighbors;
+
+        if (neighbors == null) {
+            neighbors = calculateClosestVertices(entry.slice, getSlice(sliceIndex == 0 ? sliceCount - 1 : sliceIndex - 1));
+            neighbors = sliceCache.setBelowSliceNeighbors(entry, neighbors);
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * @param sliceIndex: Index of a slice
+     * @return For every vertex of the slice, the id of the closest vertex in the slice above it (wrapping around), or
+     * -1 if that slice has no vertices
+     */
+    public int[] getAboveSliceNeighbors(int sliceIndex) {
+        if (sliceCache == null) {
+            return aboveSliceNeighbors[sliceIndex];
+        }
+
+        SliceCache.Entry entry = sliceCache.get(sliceIndex);
+        int[] neighbors = entry.aboveSliceNeighbors;
+
+        if (neighbors == null) {
+            neighbors = calculateClosestVertices(entry.slice, getSlice(sliceIndex == sliceCount - 1 ? 0 : sliceIndex + 1));
+            neighbors = sliceCache.setAboveSliceNeighbors(entry, neighbors);
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * @return True if slices are built on demand and kept in a bounded cache
+     */
+    public boolean isLazy() {
+        return sliceCache != null;
+    }
+
+    /**
+     * @return Number of slices currently built and held, every slice unless the space is lazy
+     */
+    public int getCachedSliceCount() {
+        return sliceCache == null ? sliceCount : sliceCache.size();
+    }
+
+    /**
+     * @return Estimated heap taken up by the cached slices in lazy mode, 0 otherwise
+     */
+    public long getCachedSliceMemoryBytes() {
+        return sliceCache == null ? 0 : sliceCache.getMemoryBytes();
+    }
+
+    /**
+     * @return Number of slices evicted from the cache in lazy mode, 0 otherwise
+     */
+    public long getSliceEvictionCount() {
+        return sliceCache == null ? 0 : sliceCache.getEvictionCount();
+    }
+
+    /**
+     * @return Number of times a slice was built because it wasn't cached in lazy mode, 0 otherwise
+     */
+    public long getSliceMissCount() {
+        return sliceCache == null ? 0 : sliceCache.getMissCount();
+    }
+
+    /**
+     * Reports later slice builds and obstacle updates to the metrics. Slices built before are not reported.
+     *
+     * @param metrics: Metrics to report to
+     */
+    public void setMetrics(PlannerMetrics metrics) {
+        this.metrics = metrics;
+
+        if (sliceCache == null) {
+            for (VisibilityGraph slice : slices) {
+                slice.setMetrics(metrics);
+            }
+        }
+    }
+
+    public PlannerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return True if the slices were loaded from a cache file instead of being built
+     */
+    public boolean isLoadedFromCache() {
+        return loadedFromCache;
+    }
+
+    /**
+     * @return Time taken to build each slice in milliseconds, indexed in the same order as the slices.
+     * All zero when the slices were loaded from a cache file. In lazy mode this holds the latest build of each slice,
+     * zero for slices that haven't been built.
+     */
+    public double[] getSliceBuildTimesMillis() {
+        return sliceBuildTimesMillis;
     }
 
 }
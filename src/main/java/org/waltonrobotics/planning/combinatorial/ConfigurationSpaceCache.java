@@ -0,0 +1,280 @@
+package org.waltonrobotics.planning.combinatorial;
+
+import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.LineSegment;
+import org.waltonrobotics.geometry.Vector2f;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Versioned binary cache of computed configuration space slices.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int magic, int version, long key, double angleResolutionDegrees, int sliceCount
+ * per slice:
+ *   double robotOrientationDegrees
+ *   int obstacleCount, per obstacle: int pointCount, double[2 * pointCount] CCW hull points
+ *   int vertexCount, double[2 * vertexCount] graph vertices, int[vertexCount + 1] offsets, int[offsets[vertexCount]] neighbors
+ * </pre>
+ * The key is a hash of the robot, the obstacles and the angle resolution, so a cache built for a different
+ * configuration is detected and rebuilt.
+ */
+public class ConfigurationSpaceCache {
+
+    private static final int MAGIC = 0x43535043; // "CSPC"
+    private static final int VERSION = 3;
+
+    /**
+     * Hashes everything a configuration space's slices depend on.
+     *
+     * @return 64-bit FNV-1a hash of the robot hull, the obstacle hulls and the angle resolution
+     */
+    public static long key(ConvexHull robot, List<ConvexHull> obstacles, double angleResolutionDegrees) {
+        long hash = 0xcbf29ce484222325L;
+
+        hash = mix(hash, VERSION);
+        hash = mix(hash, Double.doubleToLongBits(angleResolutionDegrees));
+        hash = mix(hash, hullHash(robot));
+        hash = mix(hash, obstacles.size());
+
+        for (ConvexHull obstacle : obstacles) {
+            hash = mix(hash, hullHash(obstacle));
+        }
+
+        return hash;
+    }
+
+    /**
+     * Loads slices from a cache file. The file is read whole instead of mapped, since a mapping keeps the file locked on
+     * Windows until it is garbage collected, and a stale cache is replaced right after it is loaded.
+     *
+     * @param path: Cache file
+     * @param key:  Expected key of the configuration space
+     * @return Cached slices, or null if the file is missing, stale, from another version or corrupt
+     */
+    public static List<VisibilityGraph> load(Path path, long key) {
+        if (!Files.isRegularFile(path)) return null;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < 28 || channel.size() > Integer.MAX_VALUE) return null;
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) return null;
+            }
+
+            buffer.flip();
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != key) {
+                return null;
+            }
+
+            buffer.getDouble();
+
+            // Every slice has at least its orientation, its obstacle count, its vertex count and one offset
+            int sliceCount = readCount(buffer, 20);
+            List<VisibilityGraph> slices = new ArrayList<>(sliceCount);
+
+            for (int i = 0; i < sliceCount; i++) {
+                slices.add(readSlice(buffer));
+            }
+
+            return buffer.hasRemaining() ? null : slices;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes slices to a cache file. The file is written next to the target and moved into place so a partially
+     * written cache is never picked up.
+     *
+     * @param path:   Cache file
+     * @param key:    Key of the configuration space
+     * @param slices: Slices to cache
+     * @throws IOException: Unable to write the cache file
+     */
+    public static void save(Path path, long key, double angleResolutionDegrees, List<VisibilityGraph> slices) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(28);
+
+            header.putInt(MAGIC).putInt(VERSION).putLong(key).putDouble(angleResolutionDegrees).putInt(slices.size());
+            header.flip();
+            writeFully(channel, header);
+
+            for (VisibilityGraph slice : slices) {
+                writeFully(channel, writeSlice(slice));
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ByteBuffer writeSlice(VisibilityGraph slice) {
+        List<ConvexHull> obstacles = slice.getObstacles();
+
+        CompactGraph graph = slice.getGraph();
+
+        int hullPointCount = 0;
+
+        for (ConvexHull obstacle : obstacles) {
+            hullPointCount += obstacle.getConvexPoints().size();
+        }
+
+        int size = 8 + 4 + obstacles.size() * 4 + hullPointCount * 16
+                + 4 + graph.getCoordinates().length * 8 + graph.getOffsets().length * 4 + graph.getNeighbors().length * 4;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        buffer.putDouble(slice.getRobotOrientationDegrees());
+        buffer.putInt(obstacles.size());
+
+        for (ConvexHull obstacle : obstacles) {
+            buffer.putInt(obstacle.getConvexPoints().size());
+
+            for (Vector2f v : obstacle.getConvexPoints()) {
+                buffer.putDouble(v.getX()).putDouble(v.getY());
+            }
+        }
+
+        buffer.putInt(graph.getVertexCount());
+        buffer.asDoubleBuffer().put(graph.getCoordinates());
+        buffer.position(buffer.position() + graph.getCoordinates().length * 8);
+        buffer.asIntBuffer().put(graph.getOffsets());
+        buffer.position(buffer.position() + graph.getOffsets().length * 4);
+        buffer.asIntBuffer().put(graph.getNeighbors());
+        buffer.position(buffer.position() + graph.getNeighbors().length * 4);
+
+        buffer.flip();
+
+        return buffer;
+    }
+
+    private static VisibilityGraph readSlice(ByteBuffer buffer) {
+        double robotOrientationDegrees = buffer.getDouble();
+
+        int obstacleCount = readCount(buffer, 4);
+        List<ConvexHull> obstacles = new ArrayList<>(obstacleCount);
+
+        for (int polygonID = 0; polygonID < obstacleCount; polygonID++) {
+            int pointCount = readCount(buffer, 16);
+            List<Vector2f> points = new ArrayList<>(pointCount);
+
+            for (int i = 0; i < pointCount; i++) {
+                points.add(new Vector2f(buffer.getDouble(), buffer.getDouble(), polygonID));
+            }
+
+            // Written in the order end leaves convex hull points in, so they don't need sorting again
+            ConvexHull obstacle = new ConvexHull();
+
+            obstacle.setConvexPoints(points);
+            obstacles.add(obstacle);
+        }
+
+        // Every vertex has its coordinates and an offset, and there is one more offset
+        int vertexCount = readCount(buffer, 20);
+        double[] coordinates = new double[vertexCount * 2];
+        int[] offsets = new int[vertexCount + 1];
+
+        buffer.asDoubleBuffer().get(coordinates);
+        buffer.position(buffer.position() + coordinates.length * 8);
+        buffer.asIntBuffer().get(offsets);
+        buffer.position(buffer.position() + offsets.length * 4);
+
+        if (offsets[0] != 0 || offsets[vertexCount] > buffer.remaining() / 4) {
+            throw new IllegalArgumentException("Corrupt slice offsets!");
+        }
+
+        for (int v = 0; v < vertexCount; v++) {
+            if (offsets[v + 1] < offsets[v]) {
+                throw new IllegalArgumentException("Corrupt slice offsets!");
+            }
+        }
+
+        int[] neighbors = new int[offsets[vertexCount]];
+
+        buffer.asIntBuffer().get(neighbors);
+        buffer.position(buffer.position() + neighbors.length * 4);
+
+        for (int neighbor : neighbors) {
+            if (neighbor < 0 || neighbor >= vertexCount) {
+                throw new IllegalArgumentException("Corrupt slice neighbors!");
+            }
+        }
+
+        List<Vector2f> vertices = obstacles.stream().flatMap(x -> x.getConvexPoints().stream()).collect(Collectors.toList());
+
+        if (vertices.size() != vertexCount) {
+            throw new IllegalArgumentException("Slice has " + vertexCount + " graph vertices for " + vertices.size() + " hull points!");
+        }
+
+        List<LineSegment> edges = obstacles.stream().flatMap(x -> x.getEdges().stream()).collect(Collectors.toList());
+
+        return new VisibilityGraph(vertices, edges, obstacles, robotOrientationDegrees, new CompactGraph(coordinates, offsets, neighbors));
+    }
+
+    /**
+     * @param itemBytes: Fewest bytes every counted item takes up
+     * @return Count read from the buffer
+     * @throws IllegalArgumentException: The count is negative or more items than the rest of the buffer can hold
+     */
+    private static int readCount(ByteBuffer buffer, int itemBytes) {
+        int count = buffer.getInt();
+
+        if (count < 0 || count > buffer.remaining() / itemBytes) {
+            throw new IllegalArgumentException("Corrupt count " + count + "!");
+        }
+
+        return count;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static long hullHash(ConvexHull hull) {
+        long hash = hull.getConvexPoints().size();
+
+        for (Vector2f v : hull.getConvexPoints()) {
+            hash = mix(hash, Double.doubleToLongBits(v.getX()));
+            hash = mix(hash, Double.doubleToLongBits(v.getY()));
+        }
+
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+}
@@ -0,0 +1,153 @@
+package org.waltonrobotics.planning.combinatorial;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Planner metrics that keep latency histograms of every phase and running totals of the search counters, to be
+ * polled through the getters or printed. Recording takes a few atomic increments, so it can stay on in competition
+ * code.
+ */
+public class HistogramPlannerMetrics implements PlannerMetrics {
+
+    private final LatencyHistogram queryLatency = new LatencyHistogram();
+    private final LatencyHistogram snapLatency = new LatencyHistogram();
+    private final LatencyHistogram sliceBuildLatency = new LatencyHistogram();
+    private final LatencyHistogram graphBuildLatency = new LatencyHistogram();
+    private final LatencyHistogram graphRepairLatency = new LatencyHistogram();
+
+    private final LongAdder pathsFound = new LongAdder();
+    private final LongAdder expandedNodes = new LongAdder();
+    private final LongAdder generatedNodes = new LongAdder();
+    private final AtomicInteger peakOpenSetSize = new AtomicInteger();
+    private final LongAdder intersectionTests = new LongAdder();
+
+    @Override
+    public void visibilityGraphBuilt(double robotOrientationDegrees, int vertexCount, int edgeCount, long intersectionTests, long buildNanos) {
+        graphBuildLatency.record(buildNanos);
+        this.intersectionTests.add(intersectionTests);
+    }
+
+    @Override
+    public void visibilityGraphRepaired(double robotOrientationDegrees, int vertexCount, int edgeCount, long intersectionTests, long repairNanos) {
+        graphRepairLatency.record(repairNanos);
+        this.intersectionTests.add(intersectionTests);
+    }
+
+    @Override
+    public void sliceBuilt(int sliceIndex, long buildNanos) {
+        sliceBuildLatency.record(buildNanos);
+    }
+
+    @Override
+    public void queryCompleted(long latencyNanos, long snapNanos, int expandedNodes, int generatedNodes, int peakOpenSetSize, boolean pathFound) {
+        queryLatency.record(latencyNanos);
+        snapLatency.record(snapNanos);
+        this.expandedNodes.add(expandedNodes);
+        this.generatedNodes.add(generatedNodes);
+        this.peakOpenSetSize.accumulateAndGet(peakOpenSetSize, Math::max);
+
+        if (pathFound) pathsFound.increment();
+    }
+
+    /**
+     * @return Latency of whole path queries
+     */
+    public LatencyHistogram getQueryLatency() {
+        return queryLatency;
+    }
+
+    /**
+     * @return Time queries spent snapping their poses to graph vertices
+     */
+    public LatencyHistogram getSnapLatency() {
+        return snapLatency;
+    }
+
+    /**
+     * @return Build time of configuration space slices
+     */
+    public LatencyHistogram getSliceBuildLatency() {
+        return sliceBuildLatency;
+    }
+
+    /**
+     * @return Build time of visibility graphs, the part of a slice build spent sweeping
+     */
+    public LatencyHistogram getGraphBuildLatency() {
+        return graphBuildLatency;
+    }
+
+    /**
+     * @return Time taken by in-place visibility graph repairs after obstacle updates
+     */
+    public LatencyHistogram getGraphRepairLatency() {
+        return graphRepairLatency;
+    }
+
+    public long getQueryCount() {
+        return queryLatency.getCount();
+    }
+
+    public long getPathsFound() {
+        return pathsFound.sum();
+    }
+
+    public long getExpandedNodes() {
+        return expandedNodes.sum();
+    }
+
+    public long getGeneratedNodes() {
+        return generatedNodes.sum();
+    }
+
+    /**
+     * @return Largest open set size of any query
+     */
+    public int getPeakOpenSetSize() {
+        return peakOpenSetSize.get();
+    }
+
+    /**
+     * @return Exact intersection tests run by visibility graph builds and repairs
+     */
+    public long getIntersectionTests() {
+        return intersectionTests.sum();
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        queryLatency.reset();
+        snapLatency.reset();
+        sliceBuildLatency.reset();
+        graphBuildLatency.reset();
+        graphRepairLatency.reset();
+        pathsFound.reset();
+        expandedNodes.reset();
+        generatedNodes.reset();
+        peakOpenSetSize.set(0);
+        intersectionTests.reset();
+    }
+
+    /**
+     * Prints every histogram and counter.
+     *
+     * @param out: Stream to print to
+     */
+    public void print(PrintStream out) {
+        long queryCount = Math.max(1, getQueryCount());
+
+        out.println("Queries:       " + queryLatency);
+        out.println("Snapping:      " + snapLatency);
+        out.println("Slice builds:  " + sliceBuildLatency);
+        out.println("Graph builds:  " + graphBuildLatency);
+        out.println("Graph repairs: " + graphRepairLatency);
+        out.printf("Paths found: %d. Per query: %.1f expanded, %.1f generated. Peak open set: %d. Intersection tests: %d%n",
+                getPathsFound(), (double) getExpandedNodes() / queryCount, (double) getGeneratedNodes() / queryCount,
+                getPeakOpenSetSize(), getIntersectionTests());
+    }
+
+}
@@ -0,0 +1,224 @@
+package org.waltonrobotics.planning.combinatorial;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of dense integer handles ordered by a double priority. The heap position of every
+ * handle is tracked so that a handle's priority can be decreased in O(log n).
+ */
+public class IndexedBinaryHeap {
+
+    // Heap position -> handle
+    private int[] heap;
+    // Handle -> heap position, -1 if the handle is not in the heap
+    private int[] positions;
+    // Handle -> priority
+    private double[] priorities;
+    private int size;
+
+    /**
+     * @param initialCapacity: Expected number of distinct handles
+     */
+    public IndexedBinaryHeap(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+
+        heap = new int[capacity];
+        positions = new int[capacity];
+        priorities = new double[capacity];
+
+        Arrays.fill(positions, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param handle: Handle to look up
+     * @return True if the handle is currently in the heap
+     */
+    public boolean contains(int handle) {
+        return handle < positions.length && positions[handle] != -1;
+    }
+
+    /**
+     * @param handle: Handle in the heap
+     * @return Current priority of the handle
+     */
+    public double getPriority(int handle) {
+        return priorities[handle];
+    }
+
+    /**
+     * @param position: Heap position, from 0 to size() - 1
+     * @return Handle at the position, for visiting every handle in the heap in no particular order
+     */
+    public int get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Heap position " + position + " is out of bounds!");
+        }
+
+        return heap[position];
+    }
+
+    /**
+     * Inserts a handle that is not yet in the heap.
+     *
+     * @param handle:   Non-negative handle
+     * @param priority: Priority of the handle
+     */
+    public void insert(int handle, double priority) {
+        if (contains(handle)) {
+            throw new IllegalArgumentException("Handle " + handle + " is already in the heap!");
+        }
+
+        ensureCapacity(Math.max(handle + 1, size + 1));
+
+        heap[size] = handle;
+        positions[handle] = size;
+        priorities[handle] = priority;
+
+        siftUp(size++);
+    }
+
+    /**
+     * Lowers the priority of a handle that is already in the heap.
+     *
+     * @param handle:   Handle in the heap
+     * @param priority: New priority, must not be greater than the current one
+     */
+    public void decreaseKey(int handle, double priority) {
+        if (!contains(handle)) {
+            throw new NoSuchElementException("Handle " + handle + " is not in the heap!");
+        }
+
+        if (priority > priorities[handle]) {
+            throw new IllegalArgumentException("New priority is greater than the current priority!");
+        }
+
+        priorities[handle] = priority;
+
+        siftUp(positions[handle]);
+    }
+
+    /**
+     * Inserts the handle or lowers its priority if it is already in the heap with a higher priority.
+     *
+     * @param handle:   Non-negative handle
+     * @param priority: Priority of the handle
+     */
+    public void insertOrDecrease(int handle, double priority) {
+        if (!contains(handle)) {
+            insert(handle, priority);
+        } else if (priority < priorities[handle]) {
+            decreaseKey(handle, priority);
+        }
+    }
+
+    /**
+     * @return Handle with the lowest priority without removing it
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("Heap is empty!");
+        }
+
+        return heap[0];
+    }
+
+    /**
+     * Removes and returns the handle with the lowest priority.
+     *
+     * @return Handle with the lowest priority
+     */
+    public int poll() {
+        int top = peek();
+
+        size--;
+
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+
+        positions[top] = -1;
+
+        return top;
+    }
+
+    /**
+     * Removes every handle from the heap.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+
+        size = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= positions.length) return;
+
+        int newCapacity = Math.max(capacity, positions.length * 2);
+        int oldCapacity = positions.length;
+
+        heap = Arrays.copyOf(heap, newCapacity);
+        positions = Arrays.copyOf(positions, newCapacity);
+        priorities = Arrays.copyOf(priorities, newCapacity);
+
+        Arrays.fill(positions, oldCapacity, newCapacity, -1);
+    }
+
+    private void siftUp(int position) {
+        int handle = heap[position];
+        double priority = priorities[handle];
+
+        while (position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parent = heap[parentPosition];
+
+            if (priorities[parent] <= priority) break;
+
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+
+        heap[position] = handle;
+        positions[handle] = position;
+    }
+
+    private void siftDown(int position) {
+        int handle = heap[position];
+        double priority = priorities[handle];
+        int half = size >>> 1;
+
+        while (position < half) {
+            int childPosition = 2 * position + 1;
+            int child = heap[childPosition];
+            int rightPosition = childPosition + 1;
+
+            if (rightPosition < size && priorities[heap[rightPosition]] < priorities[child]) {
+                childPosition = rightPosition;
+                child = heap[childPosition];
+            }
+
+            if (priority <= priorities[child]) break;
+
+            heap[position] = child;
+            positions[child] = position;
+            position = childPosition;
+        }
+
+        heap[position] = handle;
+        positions[handle] = position;
+    }
+
+}
@@ -4,85 +4,229 @@ import org.waltonrobotics.geometry.LineSegment;
 import org.waltonrobotics.geometry.Vector2f;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Edges currently crossed by the scan ray of the rotational sweep, ordered by how far along the ray they are.
+ * Backed by a red-black tree so insertion, deletion and lookup of the closest edge are O(log n).
+ * <p>
+ * The order is evaluated against the ray from the half-line origin through the vertex currently being swept.
+ * Obstacle edges that cross the ray don't cross each other between events, so the order established at earlier
+ * rays stays valid at later ones. Edges of overlapping obstacles do cross, so they are kept in a plain list next to
+ * the tree instead, and the order of the tree never breaks.
+ */
 public class OpenEdges {
 
-    private List<LineSegment> openEdges;
+    private final TreeSet<LineSegment> openEdges;
+    private final Set<LineSegment> crossingEdges;
+    private final List<LineSegment> openCrossingEdges;
+    // Insertion order of every open edge, used to break exact ties deterministically
+    private final Map<LineSegment, Integer> ordinals;
+    private int nextOrdinal;
+
+    // Current scan ray
+    private double originX, originY;
+    private double directionX, directionY;
+    private Vector2f scanPoint;
 
     public OpenEdges() {
-        openEdges = new ArrayList<>();
+        this(Collections.emptySet());
     }
 
-    public List<LineSegment> getOpenEdges() {
-        return openEdges;
+    /**
+     * @param crossingEdges: Edges that cross or touch an edge of another obstacle, compared by identity
+     */
+    public OpenEdges(Set<LineSegment> crossingEdges) {
+        this.openEdges = new TreeSet<>(this::compare);
+        this.crossingEdges = crossingEdges;
+        this.openCrossingEdges = new ArrayList<>();
+        this.ordinals = new IdentityHashMap<>();
     }
 
-    public void insert(Vector2f halfLineOrigin, Vector2f w, LineSegment edge) {
-        openEdges.add(index(halfLineOrigin, w, edge), edge);
+    /**
+     * @return Every open edge, the ordered ones first
+     */
+    public Collection<LineSegment> getOpenEdges() {
+        if (openCrossingEdges.isEmpty()) return openEdges;
+
+        List<LineSegment> allOpenEdges = new ArrayList<>(openEdges);
+
+        allOpenEdges.addAll(openCrossingEdges);
+
+        return allOpenEdges;
     }
 
-    public void delete(Vector2f halfLineOrigin, Vector2f w, LineSegment edge) {
-        int index = index(halfLineOrigin, w, edge) - 1;
+    /**
+     * @return Open edges that cross another edge, in no particular order
+     */
+    public List<LineSegment> getOpenCrossingEdges() {
+        return openCrossingEdges;
+    }
 
-        if (index < 0 || index >= openEdges.size()) return;
+    public boolean isEmpty() {
+        return openEdges.isEmpty() && openCrossingEdges.isEmpty();
+    }
 
-        if (openEdges.get(index).equals(edge)) {
-            openEdges.remove(index);
-        }
+    public int size() {
+        return openEdges.size() + openCrossingEdges.size();
     }
 
-    public LineSegment smallest() {
-        return openEdges.get(0);
+    public void insert(Vector2f halfLineOrigin, Vector2f w, LineSegment edge) {
+        if (ordinals.containsKey(edge)) return;
+
+        setScanRay(halfLineOrigin, w);
+
+        ordinals.put(edge, nextOrdinal++);
+
+        if (crossingEdges.contains(edge)) {
+            openCrossingEdges.add(edge);
+        } else {
+            openEdges.add(edge);
+        }
     }
 
-    private int index(Vector2f halfLineOrigin, Vector2f w, LineSegment edge) {
-        int low = 0;
-        int high = openEdges.size();
+    public void delete(Vector2f halfLineOrigin, Vector2f w, LineSegment edge) {
+        if (!ordinals.containsKey(edge)) return;
 
-        while (low < high) {
-            int mid = (low + high) / 2;
+        ordinals.remove(edge);
 
-            if (lessThan(halfLineOrigin, w, edge, openEdges.get(mid))) {
-                high = mid;
-            } else {
-                low = mid + 1;
+        if (crossingEdges.contains(edge)) {
+            // LineSegment equality is by endpoints, and two obstacles can share an edge
+            for (int i = 0; i < openCrossingEdges.size(); i++) {
+                if (openCrossingEdges.get(i) == edge) {
+                    openCrossingEdges.remove(i);
+                    break;
+                }
             }
+
+            return;
         }
 
-        return low;
+        setScanRay(halfLineOrigin, w);
+        openEdges.remove(edge);
     }
 
-    private boolean lessThan(Vector2f halfLineOrigin, Vector2f w, LineSegment edge1, LineSegment edge2) {
-        if (edge1.equals(edge2)) {
-            return false;
+    /**
+     * @return Closest open edge that doesn't cross another edge, or null if there is none
+     */
+    public LineSegment smallest() {
+        return openEdges.isEmpty() ? null : openEdges.first();
+    }
+
+    private void setScanRay(Vector2f halfLineOrigin, Vector2f w) {
+        originX = halfLineOrigin.getX();
+        originY = halfLineOrigin.getY();
+
+        if (Double.isInfinite(w.getX()) || Double.isInfinite(w.getY())) {
+            // Half-line pointing to infinity, only the direction matters
+            directionX = Double.isInfinite(w.getX()) ? Math.signum(w.getX()) : 0;
+            directionY = Double.isInfinite(w.getY()) ? Math.signum(w.getY()) : 0;
+            scanPoint = null;
+        } else {
+            directionX = w.getX() - originX;
+            directionY = w.getY() - originY;
+            scanPoint = w;
         }
+    }
 
-        LineSegment scanLine = new LineSegment(halfLineOrigin, w);
+    /**
+     * @return Parameter t such that origin + t * direction lies on the line through the edge
+     */
+    private double rayParameter(LineSegment edge) {
+        Vector2f a = edge.getPoint1();
+        Vector2f b = edge.getPoint2();
 
-        if (!VisibilityGraph.edgeIntersect(halfLineOrigin, w, edge2)) {
-            return true;
+        // Edges touching the swept vertex meet the ray exactly there
+        if (scanPoint != null && (a.equals(scanPoint) || b.equals(scanPoint))) {
+            return 1;
         }
 
-        double edgeDist1 = scanLine.getPointEdgeDistance(edge1);
-        double edgeDist2 = scanLine.getPointEdgeDistance(edge2);
+        double edgeX = b.getX() - a.getX();
+        double edgeY = b.getY() - a.getY();
+        double denominator = directionX * edgeY - directionY * edgeX;
+
+        double toAX = a.getX() - originX;
+        double toAY = a.getY() - originY;
 
-        if (edgeDist1 > edgeDist2) {
-            return false;
+        if (denominator == 0) {
+            // Edge is parallel to the ray, use its closest endpoint along the ray
+            double directionLengthSquared = directionX * directionX + directionY * directionY;
+            double tA = (toAX * directionX + toAY * directionY) / directionLengthSquared;
+            double tB = ((b.getX() - originX) * directionX + (b.getY() - originY) * directionY) / directionLengthSquared;
+
+            return Math.min(tA, tB);
         }
 
-        if (edgeDist1 < edgeDist2) {
-            return true;
+        return (toAX * edgeY - toAY * edgeX) / denominator;
+    }
+
+    private int compare(LineSegment edge1, LineSegment edge2) {
+        if (edge1 == edge2) return 0;
+
+        double t1 = rayParameter(edge1);
+        double t2 = rayParameter(edge2);
+
+        if (t1 < t2) return -1;
+        if (t1 > t2) return 1;
+
+        // Both edges meet the ray at the same point, the one bending towards the origin is closer
+        Vector2f shared = sharedPoint(edge1, edge2);
+
+        if (shared != null) {
+            Vector2f other1 = edge1.getAdjacent(shared);
+            Vector2f other2 = edge2.getAdjacent(shared);
+
+            double side2 = cross(shared, other1, other2.getX(), other2.getY());
+            double sideOrigin = cross(shared, other1, originX, originY);
+
+            if (side2 != 0 && sideOrigin != 0) {
+                return (side2 > 0) != (sideOrigin > 0) ? -1 : 1;
+            }
+
+            double distance1 = squaredDistanceToOrigin(other1);
+            double distance2 = squaredDistanceToOrigin(other2);
+
+            if (distance1 < distance2) return -1;
+            if (distance1 > distance2) return 1;
         }
 
-        if (edgeDist1 == edgeDist2) {
-            double maxDistanceFromHalfLineOrigin1 = Math.max(edge1.getPoint1().distanceTo(halfLineOrigin), edge1.getPoint2().distanceTo(halfLineOrigin));
-            double maxDistanceFromHalfLineOrigin2 = Math.max(edge2.getPoint1().distanceTo(halfLineOrigin), edge2.getPoint2().distanceTo(halfLineOrigin));
+        return Integer.compare(ordinal(edge1), ordinal(edge2));
+    }
+
+    private int ordinal(LineSegment edge) {
+        Integer ordinal = ordinals.get(edge);
+
+        // Edges that aren't open yet are being inserted and sort after equal open edges
+        return ordinal == null ? nextOrdinal : ordinal;
+    }
+
+    private double squaredDistanceToOrigin(Vector2f v) {
+        double dx = v.getX() - originX;
+        double dy = v.getY() - originY;
 
-            return maxDistanceFromHalfLineOrigin1 < maxDistanceFromHalfLineOrigin2;
+        return dx * dx + dy * dy;
+    }
+
+    private static Vector2f sharedPoint(LineSegment edge1, LineSegment edge2) {
+        if (edge1.getPoint1().equals(edge2.getPoint1()) || edge1.getPoint1().equals(edge2.getPoint2())) {
+            return edge1.getPoint1();
+        }
+
+        if (edge1.getPoint2().equals(edge2.getPoint1()) || edge1.getPoint2().equals(edge2.getPoint2())) {
+            return edge1.getPoint2();
         }
 
-        return false;
+        return null;
+    }
+
+    private static double cross(Vector2f a, Vector2f b, double cX, double cY) {
+        return (b.getX() - a.getX()) * (cY - a.getY()) - (b.getY() - a.getY()) * (cX - a.getX());
     }
 
 }
@@ -0,0 +1,80 @@
+package org.waltonrobotics.planning.combinatorial;
+
+/**
+ * Hook for profiler events spanning slice builds, visibility graph builds and path queries. The planner only uses this
+ * interface, so it runs on Java 8. The Flight Recorder implementation, FlightRecorderEvents, needs jdk.jfr. It is
+ * compiled from the jfr source set and loaded reflectively, only when the runtime has jdk.jfr.
+ * <p>
+ * Every start method returns a span to hand back to the matching finish method, or null if the event isn't recorded.
+ * Every method does nothing by default.
+ */
+interface PlannerEvents {
+
+    /**
+     * Records nothing.
+     */
+    PlannerEvents NONE = new PlannerEvents() {
+    };
+
+    /**
+     * Flight Recorder events if jdk.jfr and FlightRecorderEvents are available, otherwise NONE.
+     */
+    PlannerEvents INSTANCE = load();
+
+    static PlannerEvents load() {
+        try {
+            Class.forName("jdk.jfr.Event");
+
+            return (PlannerEvents) Class.forName("org.waltonrobotics.planning.combinatorial.FlightRecorderEvents")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            // No jdk.jfr on Java 8, no FlightRecorderEvents in a jar built by a Java 8 JDK, or a class file too new
+            return NONE;
+        }
+    }
+
+    default Object sliceBuildStarted() {
+        return null;
+    }
+
+    /**
+     * @param span:                    Span returned by sliceBuildStarted
+     * @param sliceIndex:              Index of the slice
+     * @param robotOrientationDegrees: Robot orientation of the slice
+     * @param vertexCount:             Number of graph vertices
+     * @param edgeCount:               Number of undirected graph edges
+     */
+    default void sliceBuildFinished(Object span, int sliceIndex, double robotOrientationDegrees, int vertexCount, int edgeCount) {
+    }
+
+    default Object visibilityGraphBuildStarted() {
+        return null;
+    }
+
+    /**
+     * @param span:                    Span returned by visibilityGraphBuildStarted
+     * @param robotOrientationDegrees: Robot orientation of the graph's slice
+     * @param vertexCount:             Number of graph vertices
+     * @param edgeCount:               Number of undirected graph edges
+     * @param intersectionTests:       Number of exact segment and obstacle tests the sweeps ran past the broad phase
+     */
+    default void visibilityGraphBuildFinished(Object span, double robotOrientationDegrees, int vertexCount, int edgeCount, long intersectionTests) {
+    }
+
+    default Object queryStarted() {
+        return null;
+    }
+
+    /**
+     * @param span:           Span returned by queryStarted
+     * @param search:         A*, bidirectional A* or ARA*
+     * @param expandedNodes:  Number of nodes taken off the open sets
+     * @param generatedNodes: Number of times a node was put in an open set or had its cost lowered
+     * @param pathPoseCount:  Number of poses in the path, 0 if none was found
+     * @param pathCost:       Cost of the path over the slice graph, infinite if none was found
+     */
+    default void queryFinished(Object span, String search, int expandedNodes, int generatedNodes, int pathPoseCount, double pathCost) {
+    }
+
+}
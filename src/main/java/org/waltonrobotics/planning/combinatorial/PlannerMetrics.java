@@ -0,0 +1,63 @@
+package org.waltonrobotics.planning.combinatorial;
+
+/**
+ * Listener for measurements of configuration space builds, visibility graph builds and repairs, and path queries.
+ * Methods are called on the thread that did the work, from several threads at once when slices are built or queries
+ * are planned concurrently, so implementations must be thread-safe and cheap. Every method does nothing by default.
+ */
+public interface PlannerMetrics {
+
+    /**
+     * Reports nothing.
+     */
+    PlannerMetrics NONE = new PlannerMetrics() {
+    };
+
+    /**
+     * A visibility graph was built from scratch.
+     *
+     * @param robotOrientationDegrees: Robot orientation of the graph's slice
+     * @param vertexCount:             Number of graph vertices
+     * @param edgeCount:               Number of undirected graph edges
+     * @param intersectionTests:       Number of exact segment and obstacle tests the sweeps ran past the broad phase
+     * @param buildNanos:              Time taken to build the graph
+     */
+    default void visibilityGraphBuilt(double robotOrientationDegrees, int vertexCount, int edgeCount, long intersectionTests, long buildNanos) {
+    }
+
+    /**
+     * A visibility graph was repaired in place after an obstacle was added, removed or moved.
+     *
+     * @param robotOrientationDegrees: Robot orientation of the graph's slice
+     * @param vertexCount:             Number of graph vertices after the repair
+     * @param edgeCount:               Number of undirected graph edges after the repair
+     * @param intersectionTests:       Number of exact segment and obstacle tests the repair ran
+     * @param repairNanos:             Time taken to repair the graph
+     */
+    default void visibilityGraphRepaired(double robotOrientationDegrees, int vertexCount, int edgeCount, long intersectionTests, long repairNanos) {
+    }
+
+    /**
+     * A configuration space slice was built, eagerly or on demand by a lazy configuration space.
+     *
+     * @param sliceIndex: Index of the slice
+     * @param buildNanos: Time taken to build the slice, its c-space obstacles and its visibility graph
+     */
+    default void sliceBuilt(int sliceIndex, long buildNanos) {
+    }
+
+    /**
+     * A path query finished.
+     *
+     * @param latencyNanos:    Time from the call to the result, including slices a lazy configuration space built
+     * @param snapNanos:       Time spent finding the graph vertices closest to the starting and ending poses, including
+     *                         building their slices in a lazy configuration space
+     * @param expandedNodes:   Number of nodes taken off the open sets
+     * @param generatedNodes:  Number of times a node was put in an open set or had its cost lowered
+     * @param peakOpenSetSize: Largest number of nodes in the open sets at once
+     * @param pathFound:       True if a path was returned
+     */
+    default void queryCompleted(long latencyNanos, long snapNanos, int expandedNodes, int generatedNodes, int peakOpenSetSize, boolean pathFound) {
+    }
+
+}
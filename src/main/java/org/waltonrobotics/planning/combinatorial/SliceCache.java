@@ -0,0 +1,263 @@
+package org.waltonrobotics.planning.combinatorial;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded cache of configuration space slices that builds a slice the first time it is asked for and evicts the
+ * least recently used slices once their estimated size exceeds a memory budget. Slice builds are deterministic, so
+ * an evicted slice comes back with the same vertex ids when it is rebuilt.
+ * <p>
+ * The cache is thread-safe. A slice that is already being built by one thread is waited on rather than built again.
+ */
+class SliceCache {
+
+    private final long memoryBudgetBytes;
+    private final IntFunction<VisibilityGraph> builder;
+
+    // Access-ordered, so iteration starts at the least recently used slice
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, CompletableFuture<Entry>> pendingBuilds = new HashMap<>();
+
+    private long memoryBytes;
+    private int generation;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param memoryBudgetBytes: Estimated heap the cached slices may take up. The most recently used slice is always
+     *                           kept, even if it alone is over budget.
+     * @param builder:           Builds the slice with the given index
+     */
+    SliceCache(long memoryBudgetBytes, IntFunction<VisibilityGraph> builder) {
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("The memory budget must be greater than 0!");
+        }
+
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.builder = builder;
+    }
+
+    /**
+     * Returns a cached slice, building it on the calling thread if it isn't cached or being built.
+     *
+     * @param sliceIndex: Index of the slice
+     * @return Cache entry of the slice
+     */
+    Entry get(int sliceIndex) {
+        CompletableFuture<Entry> build;
+        boolean owner = false;
+        int buildGeneration;
+
+        synchronized (this) {
+            Entry entry = entries.get(sliceIndex);
+
+            if (entry != null) {
+                hitCount++;
+                return entry;
+            }
+
+            build = pendingBuilds.get(sliceIndex);
+
+            if (build != null) {
+                hitCount++;
+            } else {
+                missCount++;
+                build = new CompletableFuture<>();
+                pendingBuilds.put(sliceIndex, build);
+                owner = true;
+            }
+
+            buildGeneration = generation;
+        }
+
+        // Only the thread that registered the build runs it, everyone else waits on its result
+        if (!owner) {
+            return build.join();
+        }
+
+        Entry entry;
+
+        try {
+            entry = new Entry(sliceIndex, builder.apply(sliceIndex));
+        } catch (Throwable e) {
+            // Errors like OutOfMemoryError have to release the waiters too, or they would wait forever
+            synchronized (this) {
+                pendingBuilds.remove(sliceIndex, build);
+            }
+
+            build.completeExceptionally(e);
+            throw e;
+        }
+
+        synchronized (this) {
+            pendingBuilds.remove(sliceIndex, build);
+
+            // A slice built against obstacles that have since changed is handed out once but not cached
+            if (buildGeneration == generation) {
+                entries.put(sliceIndex, entry);
+                memoryBytes += entry.memoryBytes;
+                evict();
+            }
+        }
+
+        build.complete(entry);
+
+        return entry;
+    }
+
+    /**
+     * @param sliceIndex: Index of the slice
+     * @return Cache entry of the slice, or null if it isn't cached
+     */
+    synchronized Entry getIfCached(int sliceIndex) {
+        return entries.get(sliceIndex);
+    }
+
+    /**
+     * Stores the rotation neighbours of a slice below it and counts them against the memory budget.
+     *
+     * @param entry:     Cache entry of the slice
+     * @param neighbors: Closest vertex in the slice below for every vertex of the slice
+     * @return The neighbours stored in the entry, which are the ones of another thread if it stored them first
+     */
+    synchronized int[] setBelowSliceNeighbors(Entry entry, int[] neighbors) {
+        if (entry.belowSliceNeighbors != null) {
+            return entry.belowSliceNeighbors;
+        }
+
+        entry.belowSliceNeighbors = neighbors;
+        charge(entry, neighbors);
+
+        return neighbors;
+    }
+
+    /**
+     * Stores the rotation neighbours of a slice above it and counts them against the memory budget.
+     *
+     * @param entry:     Cache entry of the slice
+     * @param neighbors: Closest vertex in the slice above for every vertex of the slice
+     * @return The neighbours stored in the entry, which are the ones of another thread if it stored them first
+     */
+    synchronized int[] setAboveSliceNeighbors(Entry entry, int[] neighbors) {
+        if (entry.aboveSliceNeighbors != null) {
+            return entry.aboveSliceNeighbors;
+        }
+
+        entry.aboveSliceNeighbors = neighbors;
+        charge(entry, neighbors);
+
+        return neighbors;
+    }
+
+    /**
+     * @return True if the cached slices have used up the memory budget
+     */
+    synchronized boolean isFull() {
+        return memoryBytes >= memoryBudgetBytes;
+    }
+
+    /**
+     * Repairs every cached slice in place after the obstacles changed, and drops their rotation neighbours, since the
+     * repair renumbers the vertices. Builds that are still running when the cache is updated aren't cached, they may
+     * have started from the old obstacles.
+     *
+     * @param repair: Updates a slice to the new obstacles
+     */
+    synchronized void update(Consumer<VisibilityGraph> repair) {
+        pendingBuilds.clear();
+        memoryBytes = 0;
+        generation++;
+
+        for (Map.Entry<Integer, Entry> cached : entries.entrySet()) {
+            VisibilityGraph slice = cached.getValue().slice;
+
+            repair.accept(slice);
+
+            Entry entry = new Entry(cached.getKey(), slice);
+
+            cached.setValue(entry);
+            memoryBytes += entry.memoryBytes;
+        }
+
+        evict();
+    }
+
+    private void charge(Entry entry, int[] neighbors) {
+        long bytes = 4L * neighbors.length;
+
+        entry.memoryBytes += bytes;
+
+        // An entry that was evicted or dropped in the meantime no longer counts against the budget
+        if (entries.get(entry.sliceIndex) == entry) {
+            memoryBytes += bytes;
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while (memoryBytes > memoryBudgetBytes && entries.size() > 1) {
+            Entry eldest = iterator.next();
+
+            iterator.remove();
+            memoryBytes -= eldest.memoryBytes;
+            evictionCount++;
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * A cached slice together with its rotation neighbours, which are filled in the first time they are needed. The
+     * neighbours are set through the cache so their 4 bytes per vertex each are counted against the memory budget.
+     */
+    static class Entry {
+
+        final int sliceIndex;
+        final VisibilityGraph slice;
+
+        // Guarded by the cache
+        private long memoryBytes;
+
+        volatile int[] belowSliceNeighbors;
+        volatile int[] aboveSliceNeighbors;
+
+        Entry(int sliceIndex, VisibilityGraph slice) {
+            this.sliceIndex = sliceIndex;
+            this.slice = slice;
+            this.memoryBytes = slice.getMemoryBytes();
+        }
+
+    }
+
+}
@@ -3,25 +3,66 @@ package org.waltonrobotics.planning.combinatorial;
 import org.waltonrobotics.geometry.ConvexHull;
 import org.waltonrobotics.geometry.LineSegment;
 import org.waltonrobotics.geometry.Pose;
+import org.waltonrobotics.geometry.Rectangle;
 import org.waltonrobotics.geometry.Vector2f;
+import org.waltonrobotics.tree.KDTree;
+import org.waltonrobotics.tree.STRTree;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class VisibilityGraph {
 
+    private static final int EDGE_INDEX_LEAF_CAPACITY = 8;
+    // Radians added to both sides of an obstacle's window when sweeping towards it
+    private static final double WINDOW_MARGIN = 1e-9;
+
     private List<Vector2f> vertices;
     private List<LineSegment> edges;
     private List<ConvexHull> obstacles;
     private double robotOrientationDegrees;
-    private Map<Pose, List<Pose>> graphAdjacencyList;
+    private CompactGraph graph;
+    private KDTree vertexIndex;
+
+    private PlannerMetrics metrics = PlannerMetrics.NONE;
+    // Exact tests run by the build or repair in progress
+    private long intersectionTests;
 
     public VisibilityGraph(List<Vector2f> vertices, List<LineSegment> edges, List<ConvexHull> obstacles, double robotOrientationDegrees) {
+        this(vertices, edges, obstacles, robotOrientationDegrees, PlannerMetrics.NONE);
+    }
+
+    /**
+     * @param metrics: Metrics to report the build and later repairs to
+     */
+    public VisibilityGraph(List<Vector2f> vertices, List<LineSegment> edges, List<ConvexHull> obstacles, double robotOrientationDegrees,
+                           PlannerMetrics metrics) {
+        long startTime = System.nanoTime();
+
         this.vertices = vertices;
         this.edges = edges;
         this.obstacles = obstacles;
         this.robotOrientationDegrees = robotOrientationDegrees;
+        this.metrics = metrics;
 
         calculateVisibilityGraph();
+
+        vertexIndex = new KDTree(graph.getCoordinates());
+
+        metrics.visibilityGraphBuilt(robotOrientationDegrees, graph.getVertexCount(), graph.getEdgeCount() / 2, intersectionTests,
+                System.nanoTime() - startTime);
+    }
+
+    /**
+     * Creates a visibility graph from an already computed graph, such as one loaded from a cache.
+     */
+    VisibilityGraph(List<Vector2f> vertices, List<LineSegment> edges, List<ConvexHull> obstacles, double robotOrientationDegrees, CompactGraph graph) {
+        this.vertices = vertices;
+        this.edges = edges;
+        this.obstacles = obstacles;
+        this.robotOrientationDegrees = robotOrientationDegrees;
+        this.graph = graph;
+        this.vertexIndex = new KDTree(graph.getCoordinates());
     }
 
     public static boolean edgeIntersect(Vector2f p1, Vector2f q1, LineSegment edge) {
@@ -52,7 +93,9 @@ public class VisibilityGraph {
         return o4 == 0 && onSegment(p2, q1, q2);
     }
 
-    private static boolean edgeInPolygon(Vector2f p1, Vector2f p2, List<ConvexHull> obstacles) {
+    private boolean edgeInPolygon(Vector2f p1, Vector2f p2, List<ConvexHull> obstacles) {
+        intersectionTests++;
+
         if (p1.getPolygonID() != p2.getPolygonID()) {
             return false;
         }
@@ -94,6 +137,15 @@ public class VisibilityGraph {
         return intersectCount % 2 != 0;
     }
 
+    /**
+     * edgeIntersect, counted as an exact intersection test of the build or repair in progress.
+     */
+    private boolean countedEdgeIntersect(Vector2f p1, Vector2f q1, LineSegment edge) {
+        intersectionTests++;
+
+        return edgeIntersect(p1, q1, edge);
+    }
+
     private static int isCCW(Vector2f a, Vector2f b, Vector2f c) {
         double area = ((b.getX() - a.getX()) * (c.getY() - a.getY()) - (b.getY() - a.getY()) * (c.getX() - a.getX()));
 
@@ -122,76 +174,879 @@ public class VisibilityGraph {
         return obstacles;
     }
 
+    /**
+     * @param metrics: Metrics to report later repairs to
+     */
+    public void setMetrics(PlannerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public double getRobotOrientationDegrees() {
         return robotOrientationDegrees;
     }
 
+    /**
+     * @return Visibility graph in compressed sparse row form, the representation used for planning
+     */
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Finds the graph vertex closest to a point in O(log n) expected time using a k-d tree over the vertices.
+     *
+     * @param x: X coordinate of the point
+     * @param y: Y coordinate of the point
+     * @return Id of the closest vertex, or -1 if the graph has no vertices
+     */
+    public int getClosestVertex(double x, double y) {
+        return vertexIndex.nearest(x, y);
+    }
+
+    /**
+     * @return Approximate heap footprint of the slice in bytes, counting the graph, the vertex index and the obstacle
+     * geometry kept for incremental updates
+     */
+    public long getMemoryBytes() {
+        long bytes = graph.getMemoryBytes() + 16L + 4L * vertexIndex.size();
+
+        // Vector2f and LineSegment objects take about 32 bytes each, plus a list slot
+        bytes += 36L * (vertices.size() + edges.size());
+
+        for (ConvexHull obstacle : obstacles) {
+            // Every point the hull was made from is kept in its LinkedHashSet, an entry of about 40 bytes per point
+            bytes += 72L * obstacle.getAllPoints().size() + 36L * obstacle.getEdges().size();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Adds an obstacle and updates the graph in place.
+     *
+     * @param obstacle: C-space obstacle whose points carry the next polygon ID, the current obstacle count
+     */
+    public void addObstacle(ConvexHull obstacle) {
+        updateObstacle(-1, obstacle);
+    }
+
+    /**
+     * Removes an obstacle and updates the graph in place. Obstacles after it move down one polygon ID.
+     *
+     * @param polygonID: Polygon ID of the obstacle to remove
+     */
+    public void removeObstacle(int polygonID) {
+        updateObstacle(polygonID, null);
+    }
+
+    /**
+     * Replaces an obstacle, for example one that moved, and updates the graph in place.
+     *
+     * @param polygonID: Polygon ID of the obstacle to replace
+     * @param obstacle:  C-space obstacle whose points carry the same polygon ID
+     */
+    public void replaceObstacle(int polygonID, ConvexHull obstacle) {
+        updateObstacle(polygonID, obstacle);
+    }
+
+    /**
+     * Builds an adjacency list view of the graph. Every call allocates a new map, so this is meant for display and
+     * debugging rather than planning.
+     *
+     * @return Map from every vertex pose to the poses visible from it
+     */
     public Map<Pose, List<Pose>> getGraphAdjacencyList() {
+        Pose[] poses = new Pose[graph.getVertexCount()];
+
+        for (int v = 0; v < poses.length; v++) {
+            poses[v] = new Pose(graph.getX(v), graph.getY(v), robotOrientationDegrees);
+        }
+
+        Map<Pose, List<Pose>> graphAdjacencyList = new HashMap<>();
+
+        for (int v = 0; v < poses.length; v++) {
+            List<Pose> adjacent = new ArrayList<>(graph.getDegree(v));
+
+            for (int i = graph.getOffsets()[v]; i < graph.getOffsets()[v + 1]; i++) {
+                adjacent.add(poses[graph.getNeighbors()[i]]);
+            }
+
+            graphAdjacencyList.put(poses[v], adjacent);
+        }
+
         return graphAdjacencyList;
     }
 
     private void calculateVisibilityGraph() {
-        graphAdjacencyList = new HashMap<>();
+        Object event = PlannerEvents.INSTANCE.visibilityGraphBuildStarted();
+        SweepIndex index = new SweepIndex();
+        Map<Vector2f, Integer> vertexIds = calculateVertexIds();
+
+        int vertexCount = vertexIds.size();
+        int[][] adjacency = new int[vertexCount][4];
+        int[] adjacencySizes = new int[vertexCount];
 
         for (Vector2f v : vertices) {
-            Pose source = new Pose(v.getX(), v.getY(), robotOrientationDegrees);
+            int source = vertexIds.get(v);
 
-            List<Pose> sourceAdjacent = graphAdjacencyList.get(source);
+            for (Vector2f visibleVertex : getVisibleVertices(v, index)) {
+                int destination = vertexIds.get(visibleVertex);
 
-            if (sourceAdjacent == null) {
-                sourceAdjacent = new ArrayList<>();
+                addNeighbor(adjacency, adjacencySizes, source, destination);
+                addNeighbor(adjacency, adjacencySizes, destination, source);
             }
+        }
+
+        graph = packGraph(vertexIds, adjacency, adjacencySizes);
 
-            for (Vector2f visibleVertex : getVisibleVertices(v, vertices, edges, obstacles)) {
-                Pose destination = new Pose(visibleVertex.getX(), visibleVertex.getY(), robotOrientationDegrees);
-                List<Pose> destinationAdjacent = graphAdjacencyList.get(destination);
+        PlannerEvents.INSTANCE.visibilityGraphBuildFinished(event, robotOrientationDegrees,
+                graph.getVertexCount(), graph.getEdgeCount() / 2, intersectionTests);
+    }
 
-                if (destinationAdjacent == null) {
-                    destinationAdjacent = new ArrayList<>();
+    /**
+     * Replaces, removes or appends one obstacle and repairs the graph in place instead of rebuilding it.
+     * <p>
+     * Whether the sweep finds a vertex visible from another only depends on what touches the sight line between them,
+     * so only sight lines touching the removed or the added obstacle can change. Every other edge is kept. The sight
+     * lines touching a changed obstacle are found by sweeping from every vertex again, but only over the angles the
+     * obstacle covers from it, which are the only angles a touching sight line can have. An added obstacle narrows
+     * this further to thin windows around those of its points the vertex isn't clearly blocked from, since a sight line
+     * that is clearly blocked short of the obstacle stays blocked. A window only takes the edges inside its cone from
+     * the edge index, and their endpoints as the vertices to sweep, so the sweep from a vertex far from the obstacle
+     * doesn't touch the whole scene. Every window starts from the open edges the full sweep has at its first angle, so
+     * each sight line gets the same result as in a rebuild.
+     *
+     * @param polygonID:     Polygon ID of the obstacle to replace or remove, or -1 to append the added obstacle
+     * @param addedObstacle: Obstacle to add, or null to only remove
+     */
+    private void updateObstacle(int polygonID, ConvexHull addedObstacle) {
+        long startTime = System.nanoTime();
+
+        intersectionTests = 0;
+
+        ConvexHull removedObstacle = polygonID == -1 ? null : obstacles.get(polygonID);
+        CompactGraph oldGraph = graph;
+
+        List<ConvexHull> updatedObstacles = new ArrayList<>(obstacles);
+
+        if (addedObstacle == null) {
+            updatedObstacles.remove(polygonID);
+
+            // Obstacles after the removed one move down a slot, their vertices have to follow
+            for (int id = polygonID; id < updatedObstacles.size(); id++) {
+                for (Vector2f v : updatedObstacles.get(id).getConvexPoints()) {
+                    v.setPolygonID(id);
                 }
+            }
+        } else if (removedObstacle == null) {
+            updatedObstacles.add(addedObstacle);
+        } else {
+            updatedObstacles.set(polygonID, addedObstacle);
+        }
+
+        obstacles = updatedObstacles;
+        vertices = obstacles.stream().flatMap(x -> x.getConvexPoints().stream()).collect(Collectors.toList());
+        edges = obstacles.stream().flatMap(x -> x.getEdges().stream()).collect(Collectors.toList());
+
+        List<ConvexHull> changedObstacles = new ArrayList<>(2);
+
+        if (removedObstacle != null) changedObstacles.add(removedObstacle);
+        if (addedObstacle != null) changedObstacles.add(addedObstacle);
+
+        SweepIndex index = new SweepIndex();
+        Map<Vector2f, Integer> vertexIds = calculateVertexIds();
+        Map<Vector2f, List<Vector2f>> addedPointsSeen = addedObstacle == null ? Collections.emptyMap() : calculateObstaclePointsSeen(addedObstacle, index);
+
+        int vertexCount = vertexIds.size();
+        int[][] adjacency = new int[vertexCount][4];
+        int[] adjacencySizes = new int[vertexCount];
+
+        // Old ids by location, since vertex ids change with the vertex list. Removed vertices have none.
+        int[] oldToNewIds = new int[oldGraph.getVertexCount()];
+
+        for (int v = 0; v < oldToNewIds.length; v++) {
+            Integer id = vertexIds.get(new Vector2f(oldGraph.getX(v), oldGraph.getY(v)));
+
+            oldToNewIds[v] = id == null ? -1 : id;
+        }
+
+        for (int v = 0; v < oldToNewIds.length; v++) {
+            for (int i = oldGraph.getOffsets()[v]; i < oldGraph.getOffsets()[v + 1]; i++) {
+                int u = oldGraph.getNeighbors()[i];
 
-                sourceAdjacent.add(destination);
-                destinationAdjacent.add(source);
+                if (u < v || oldToNewIds[v] == -1 || oldToNewIds[u] == -1) continue;
 
-                graphAdjacencyList.put(source, sourceAdjacent);
-                graphAdjacencyList.put(destination, destinationAdjacent);
+                Vector2f p1 = new Vector2f(oldGraph.getX(v), oldGraph.getY(v));
+                Vector2f p2 = new Vector2f(oldGraph.getX(u), oldGraph.getY(u));
+
+                if (segmentTouchesAny(p1, p2, changedObstacles)) continue;
+
+                addNeighbor(adjacency, adjacencySizes, oldToNewIds[v], oldToNewIds[u]);
+                addNeighbor(adjacency, adjacencySizes, oldToNewIds[u], oldToNewIds[v]);
+            }
+        }
+
+        for (Map.Entry<Vector2f, Integer> entry : vertexIds.entrySet()) {
+            Vector2f v = entry.getKey();
+            int source = entry.getValue();
+
+            for (ConvexHull obstacle : changedObstacles) {
+                List<Vector2f> visibleVertices = obstacle == addedObstacle
+                        ? getVisibleVerticesThrough(v, obstacle, addedPointsSeen.getOrDefault(v, Collections.emptyList()), index)
+                        : getVisibleVerticesTowards(v, obstacle, index);
+
+                for (Vector2f visibleVertex : visibleVertices) {
+                    // Sight lines that only cross the window were kept above
+                    if (!segmentTouchesAny(v, visibleVertex, changedObstacles)) continue;
+
+                    int destination = vertexIds.get(visibleVertex);
+
+                    addNeighbor(adjacency, adjacencySizes, source, destination);
+                    addNeighbor(adjacency, adjacencySizes, destination, source);
+                }
             }
         }
+
+        graph = packGraph(vertexIds, adjacency, adjacencySizes);
+        vertexIndex = new KDTree(graph.getCoordinates());
+
+        metrics.visibilityGraphRepaired(robotOrientationDegrees, graph.getVertexCount(), graph.getEdgeCount() / 2, intersectionTests,
+                System.nanoTime() - startTime);
+    }
+
+    /**
+     * @return Broad phase over the obstacle edges, so exact tests only run against edges near a query
+     */
+    private STRTree calculateEdgeIndex() {
+        List<Rectangle> edgeBoundingBoxes = new ArrayList<>(edges.size());
+
+        for (LineSegment e : edges) {
+            edgeBoundingBoxes.add(new Rectangle(
+                    Math.min(e.getPoint1().getX(), e.getPoint2().getX()), Math.max(e.getPoint1().getX(), e.getPoint2().getX()),
+                    Math.min(e.getPoint1().getY(), e.getPoint2().getY()), Math.max(e.getPoint1().getY(), e.getPoint2().getY())));
+        }
+
+        return new STRTree(EDGE_INDEX_LEAF_CAPACITY, edgeBoundingBoxes);
     }
 
-    private List<Vector2f> getVisibleVertices(Vector2f point, List<Vector2f> vertices, List<LineSegment> edges, List<ConvexHull> obstacles) {
-        List<Vector2f> sortedVertices = new ArrayList<>(vertices);
+    /**
+     * Overlapping c-space obstacles have edges that cross, and crossing edges can't be kept in the order of the open
+     * edge tree. The candidate pairs come from one batch query of every edge's bounding box.
+     *
+     * @return Edges that cross or touch an edge of another obstacle, compared by identity
+     */
+    private Set<LineSegment> calculateCrossingEdges(STRTree edgeIndex) {
+        Set<LineSegment> crossingEdges = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<List<Integer>> candidates = edgeIndex.searchAll(edgeIndex.getBoundingBoxes());
+
+        for (int i = 0; i < edges.size(); i++) {
+            LineSegment e = edges.get(i);
+
+            for (int j : candidates.get(i)) {
+                LineSegment other = edges.get(j);
+
+                // Each pair once, and the edges of one convex obstacle only meet at their shared points
+                if (j <= i || other.getPoint1().getPolygonID() == e.getPoint1().getPolygonID()) continue;
+
+                if (countedEdgeIntersect(e.getPoint1(), e.getPoint2(), other)) {
+                    crossingEdges.add(e);
+                    crossingEdges.add(other);
+                }
+            }
+        }
+
+        return crossingEdges;
+    }
+
+    /**
+     * @return Index in the vertex list of both endpoints of every edge, or null if an endpoint isn't a vertex list entry
+     */
+    private int[] calculateEdgeEndpoints() {
+        Map<Vector2f, Integer> vertexIndices = new IdentityHashMap<>();
+
+        for (int i = 0; i < vertices.size(); i++) {
+            vertexIndices.put(vertices.get(i), i);
+        }
+
+        int[] edgeEndpoints = new int[2 * edges.size()];
+
+        for (int i = 0; i < edges.size(); i++) {
+            Integer index1 = vertexIndices.get(edges.get(i).getPoint1());
+            Integer index2 = vertexIndices.get(edges.get(i).getPoint2());
+
+            if (index1 == null || index2 == null) return null;
+
+            edgeEndpoints[2 * i] = index1;
+            edgeEndpoints[2 * i + 1] = index2;
+        }
+
+        return edgeEndpoints;
+    }
+
+    /**
+     * @return Every vertex location mapped to the obstacle edges that touch it, so the sweep never has to scan all
+     * edges per vertex
+     */
+    private Map<Vector2f, List<LineSegment>> calculateIncidentEdges() {
+        Map<Vector2f, List<LineSegment>> incidentEdges = new HashMap<>();
+
+        for (LineSegment e : edges) {
+            incidentEdges.computeIfAbsent(e.getPoint1(), k -> new ArrayList<>(2)).add(e);
+            incidentEdges.computeIfAbsent(e.getPoint2(), k -> new ArrayList<>(2)).add(e);
+        }
+
+        return incidentEdges;
+    }
+
+    /**
+     * @return Dense id of every distinct vertex location, numbered in vertex list order
+     */
+    private Map<Vector2f, Integer> calculateVertexIds() {
+        Map<Vector2f, Integer> vertexIds = new HashMap<>();
+
+        for (Vector2f v : vertices) {
+            vertexIds.putIfAbsent(v, vertexIds.size());
+        }
+
+        return vertexIds;
+    }
+
+    /**
+     * Packs per-location neighbor lists into a compact graph. Neighbor lists are sorted and deduplicated, and only
+     * vertices that can see another vertex take part in planning, so they are renumbered.
+     */
+    private static CompactGraph packGraph(Map<Vector2f, Integer> vertexIds, int[][] adjacency, int[] adjacencySizes) {
+        int vertexCount = vertexIds.size();
+
+        for (int id = 0; id < vertexCount; id++) {
+            adjacencySizes[id] = sortUnique(adjacency[id], adjacencySizes[id]);
+        }
+
+        int[] newIds = new int[vertexCount];
+        int connectedCount = 0;
+
+        for (int id = 0; id < vertexCount; id++) {
+            newIds[id] = adjacencySizes[id] > 0 ? connectedCount++ : -1;
+        }
+
+        double[] coordinates = new double[2 * connectedCount];
+
+        for (Map.Entry<Vector2f, Integer> entry : vertexIds.entrySet()) {
+            int newId = newIds[entry.getValue()];
+
+            if (newId == -1) continue;
+
+            coordinates[2 * newId] = entry.getKey().getX();
+            coordinates[2 * newId + 1] = entry.getKey().getY();
+        }
+
+        int[][] connectedAdjacency = new int[connectedCount][];
+        int[] connectedSizes = new int[connectedCount];
+
+        for (int id = 0; id < vertexCount; id++) {
+            if (newIds[id] == -1) continue;
+
+            // The renumbering keeps the order, so the lists stay sorted
+            for (int i = 0; i < adjacencySizes[id]; i++) {
+                adjacency[id][i] = newIds[adjacency[id][i]];
+            }
+
+            connectedAdjacency[newIds[id]] = adjacency[id];
+            connectedSizes[newIds[id]] = adjacencySizes[id];
+        }
+
+        return CompactGraph.fromAdjacency(coordinates, connectedAdjacency, connectedSizes);
+    }
+
+    /**
+     * Sorts the first size entries of the array and moves the distinct ones to the front.
+     *
+     * @return Number of distinct entries
+     */
+    private static int sortUnique(int[] values, int size) {
+        if (size < 2) return size;
+
+        Arrays.sort(values, 0, size);
+
+        int uniqueSize = 1;
+
+        for (int i = 1; i < size; i++) {
+            if (values[i] != values[uniqueSize - 1]) {
+                values[uniqueSize++] = values[i];
+            }
+        }
+
+        return uniqueSize;
+    }
+
+    private static void addNeighbor(int[][] adjacency, int[] adjacencySizes, int vertex, int neighbor) {
+        if (adjacencySizes[vertex] == adjacency[vertex].length) {
+            adjacency[vertex] = Arrays.copyOf(adjacency[vertex], adjacency[vertex].length * 2);
+        }
+
+        adjacency[vertex][adjacencySizes[vertex]++] = neighbor;
+    }
+
+    /**
+     * @return True if the segment from p1 to p2 crosses, touches or lies inside the obstacle
+     */
+    private boolean segmentTouchesObstacle(Vector2f p1, Vector2f p2, ConvexHull obstacle) {
+        if (!obstacle.getBoundingBox().intersects(p1.getX(), p1.getY(), p2.getX(), p2.getY())) return false;
+
+        intersectionTests++;
+
+        for (LineSegment e : obstacle.getEdges()) {
+            if (edgeIntersect(p1, p2, e)) return true;
+        }
+
+        // No edge is touched, so the segment is either fully inside or fully outside
+        return polygonCrossing(new Vector2f((p1.getX() + p2.getX()) / 2, (p1.getY() + p2.getY()) / 2), obstacle);
+    }
+
+    /**
+     * @param polygonID: Polygon ID of the obstacle to leave out
+     * @return True if the point lies strictly inside an obstacle other than the given one
+     */
+    private boolean isInsideOtherObstacle(double x, double y, int polygonID) {
+        for (int id = 0; id < obstacles.size(); id++) {
+            if (id == polygonID || !obstacles.get(id).getBoundingBox().contains(x, y)) continue;
+
+            intersectionTests++;
+
+            List<Vector2f> points = obstacles.get(id).getConvexPoints();
+            int side = 0;
+            boolean inside = true;
+
+            for (int i = 0; i < points.size() && inside; i++) {
+                Vector2f a = points.get(i);
+                Vector2f b = points.get((i + 1) % points.size());
+                double area = (b.getX() - a.getX()) * (y - a.getY()) - (b.getY() - a.getY()) * (x - a.getX());
+                int edgeSide = area > 0 ? 1 : area < 0 ? -1 : 0;
+
+                inside = edgeSide != 0 && (side == 0 || edgeSide == side);
+                side = edgeSide;
+            }
+
+            if (inside) return true;
+        }
+
+        return false;
+    }
+
+    private boolean segmentTouchesAny(Vector2f p1, Vector2f p2, List<ConvexHull> obstacles) {
+        for (ConvexHull obstacle : obstacles) {
+            if (segmentTouchesObstacle(p1, p2, obstacle)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Rotational sweep (Lee's algorithm) finding every vertex visible from a point. Sorting the vertices is
+     * O(n log n), and every open edge update and every visibility check against the closest open edge is O(log n), so a
+     * sweep is O(n log n) and the whole graph O(n^2 log n). Edges of overlapping obstacles are the exception: they are
+     * checked one by one while they are open, which adds a test per open crossing edge to every check.
+     * <p>
+     * Only the upper half plane of every vertex is swept, since each pair of vertices is then covered from the lower
+     * one.
+     */
+    private List<Vector2f> getVisibleVertices(Vector2f point, SweepIndex index) {
+        List<Vector2f> sortedVertices = sortByHalfLineAngle(point, vertices, 0, Math.PI);
         List<Vector2f> visibleVertices = new ArrayList<>();
 
-        sortedVertices.sort(new CCWHalfLineComparator(point));
+        sweep(point, sortedVertices, calculateInitialOpenEdges(point, index), index.incidentEdges, visibleVertices);
+
+        return visibleVertices;
+    }
 
-        OpenEdges openEdges = new OpenEdges();
+    /**
+     * @return Edges crossing the half-line from the point in the positive x direction, where every sweep starts
+     */
+    private OpenEdges calculateInitialOpenEdges(Vector2f point, SweepIndex index) {
+        OpenEdges openEdges = new OpenEdges(index.crossingEdges);
 
         Vector2f pointInf = new Vector2f(Double.POSITIVE_INFINITY, point.getY());
 
-        for (LineSegment e : edges) {
+        // Only edges whose bounding boxes touch the initial half-line can cross it
+        List<Integer> candidateEdges = index.edgeIndex.search(new Rectangle(point.getX(), Double.POSITIVE_INFINITY, point.getY(), point.getY()));
+
+        // Edge order breaks ties between open edges, so keep the order of the full edge list
+        Collections.sort(candidateEdges);
+
+        for (int candidate : candidateEdges) {
+            LineSegment e = edges.get(candidate);
+
             if (e.getPoint1().equals(point) || e.getPoint2().equals(point)) continue;
 
-            if (edgeIntersect(point, pointInf, e)) {
+            if (countedEdgeIntersect(point, pointInf, e)) {
                 if (onSegment(point, e.getPoint1(), pointInf)) continue;
                 if (onSegment(point, e.getPoint2(), pointInf)) continue;
                 openEdges.insert(point, pointInf, e);
             }
         }
 
+        return openEdges;
+    }
+
+    /**
+     * The part of getVisibleVertices() that can see the obstacle: the vertices visible from a point whose angles lie in
+     * the window the obstacle covers from it. Every vertex in the window gets the result of the full sweep.
+     * <p>
+     * The window is at most as wide as the obstacle, so unless the point is on the obstacle, only the vertices behind
+     * and around the obstacle are swept.
+     */
+    private List<Vector2f> getVisibleVerticesTowards(Vector2f point, ConvexHull obstacle, SweepIndex index) {
+        // Every sight line from a point on the obstacle touches it
+        if (segmentTouchesObstacle(point, point, obstacle)) {
+            return getVisibleVertices(point, index);
+        }
+
+        List<Vector2f> obstaclePoints = obstacle.getConvexPoints();
+        double[] angles = new double[obstaclePoints.size()];
+
+        for (int i = 0; i < angles.length; i++) {
+            angles[i] = point.angleTo(obstaclePoints.get(i));
+        }
+
+        Arrays.sort(angles);
+
+        // The obstacle covers everything but the largest gap between the angles of its vertices
+        int gapEnd = 0;
+        double largestGap = angles[0] + 2 * Math.PI - angles[angles.length - 1];
+
+        for (int i = 1; i < angles.length; i++) {
+            if (angles[i] - angles[i - 1] > largestGap) {
+                largestGap = angles[i] - angles[i - 1];
+                gapEnd = i;
+            }
+        }
+
+        // Sight lines grazing the obstacle can round to angles just outside its vertices' angles
+        double fromAngle = angles[gapEnd] - WINDOW_MARGIN;
+        double toAngle = angles[gapEnd == 0 ? angles.length - 1 : gapEnd - 1] + WINDOW_MARGIN;
+
+        // The window wraps around the positive x direction
+        if (fromAngle > toAngle) fromAngle -= 2 * Math.PI;
+
+        // A sight line can only touch the obstacle if it reaches the obstacle's bounding box
+        double reachSquared = obstacle.getBoundingBox().squaredDistance(point.getX(), point.getY()) * (1 - WINDOW_MARGIN);
+        List<Vector2f> visibleVertices = new ArrayList<>();
+
+        sweepWindows(point, fromAngle, toAngle, reachSquared, index, visibleVertices);
+
+        return visibleVertices;
+    }
+
+    /**
+     * getVisibleVerticesTowards() for an obstacle that is part of the scene. The obstacle blocks every sight line
+     * crossing one of its edges, so a visible sight line can only touch it at one of its points, and nothing may block
+     * the part of it up to that obstacle point. Unless the point is on the obstacle, only the narrow windows around the
+     * obstacle points it isn't blocked from are swept.
+     *
+     * @param obstaclePointsSeen: Points of the obstacle no edge clearly blocks the point from
+     */
+    private List<Vector2f> getVisibleVerticesThrough(Vector2f point, ConvexHull obstacle, List<Vector2f> obstaclePointsSeen, SweepIndex index) {
+        // Every sight line from a point on the obstacle touches it
+        if (segmentTouchesObstacle(point, point, obstacle)) {
+            return getVisibleVertices(point, index);
+        }
+
+        List<Vector2f> visibleVertices = new ArrayList<>();
+
+        for (Vector2f v : obstaclePointsSeen) {
+            double angle = point.angleTo(v);
+            double dx = v.getX() - point.getX();
+            double dy = v.getY() - point.getY();
+
+            // Sight lines grazing the obstacle point can round to angles just off its angle
+            sweepWindows(point, angle - WINDOW_MARGIN, angle + WINDOW_MARGIN, (dx * dx + dy * dy) * (1 - WINDOW_MARGIN), index, visibleVertices);
+        }
+
+        return visibleVertices;
+    }
+
+    /**
+     * A sight line that clearly crosses an obstacle edge is blocked in every sweep, wherever the sweep starts from, so
+     * only those are ruled out, and sight lines that merely touch an edge are left to the sweep. A sweep around every
+     * obstacle point checks the sight line to each vertex against the closest open edge and the crossing edges.
+     *
+     * @return Every vertex mapped to the points of the obstacle no edge clearly blocks it from
+     */
+    private Map<Vector2f, List<Vector2f>> calculateObstaclePointsSeen(ConvexHull obstacle, SweepIndex index) {
+        Map<Vector2f, List<Vector2f>> obstaclePointsSeen = new HashMap<>();
+
+        for (Vector2f point : obstacle.getConvexPoints()) {
+            OpenEdges openEdges = calculateInitialOpenEdges(point, index);
+
+            for (Vector2f p : sortByHalfLineAngle(point, vertices, 0, 2 * Math.PI)) {
+                if (p.equals(point)) continue;
+
+                List<LineSegment> pEdges = index.incidentEdges.getOrDefault(p, Collections.emptyList());
+
+                for (LineSegment e : pEdges) {
+                    if (isCCW(point, p, e.getAdjacent(p)) == -1) {
+                        openEdges.delete(point, p, e);
+                    }
+                }
+
+                if (!isClearlyBlocked(point, p, openEdges)) {
+                    obstaclePointsSeen.computeIfAbsent(p, x -> new ArrayList<>()).add(point);
+                }
+
+                for (LineSegment e : pEdges) {
+                    if (!e.getPoint1().equals(point) && !e.getPoint2().equals(point) && isCCW(point, p, e.getAdjacent(p)) == 1) {
+                        openEdges.insert(point, p, e);
+                    }
+                }
+            }
+        }
+
+        return obstaclePointsSeen;
+    }
+
+    private static boolean isClearlyBlocked(Vector2f point, Vector2f p, OpenEdges openEdges) {
+        LineSegment smallest = openEdges.smallest();
+
+        if (smallest != null && isClearlyCrossing(point, p, smallest)) return true;
+
+        for (LineSegment e : openEdges.getOpenCrossingEdges()) {
+            if (isClearlyCrossing(point, p, e)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return True if the edge crosses the segment from a to b with every endpoint well away from the other's line
+     */
+    private static boolean isClearlyCrossing(Vector2f a, Vector2f b, LineSegment e) {
+        double directionX = b.getX() - a.getX();
+        double directionY = b.getY() - a.getY();
+        double directionLengthSquared = directionX * directionX + directionY * directionY;
+
+        if (sideOfLine(a, directionX, directionY, directionLengthSquared, e.getPoint1())
+                * sideOfLine(a, directionX, directionY, directionLengthSquared, e.getPoint2()) != -1) return false;
+
+        Vector2f c = e.getPoint1();
+        double edgeX = e.getPoint2().getX() - c.getX();
+        double edgeY = e.getPoint2().getY() - c.getY();
+        double edgeLengthSquared = edgeX * edgeX + edgeY * edgeY;
+
+        return sideOfLine(c, edgeX, edgeY, edgeLengthSquared, a) * sideOfLine(c, edgeX, edgeY, edgeLengthSquared, b) == -1;
+    }
+
+    /**
+     * Sweeps the upper half plane part of a window whose angles can run past either end of [0, 2 pi).
+     */
+    private void sweepWindows(Vector2f point, double fromAngle, double toAngle, double reachSquared, SweepIndex index, List<Vector2f> visibleVertices) {
+        if (fromAngle < 0) {
+            sweepWindow(point, fromAngle + 2 * Math.PI, Math.PI, reachSquared, index, visibleVertices);
+        } else if (toAngle >= 2 * Math.PI) {
+            sweepWindow(point, 0, toAngle - 2 * Math.PI, reachSquared, index, visibleVertices);
+        }
+
+        sweepWindow(point, Math.max(fromAngle, 0), Math.min(toAngle, Math.PI), reachSquared, index, visibleVertices);
+    }
+
+    /**
+     * Sweeps the vertices whose angles from the point lie between the given angles, starting from the edges the full
+     * sweep has open when it reaches the first of them. Nothing is swept unless a vertex is far enough away for its
+     * sight line to reach the obstacle, and edges further away than every vertex in the window are left closed.
+     * <p>
+     * Every vertex in the window and every edge crossing a ray in it overlaps the window's cone, so only the candidate
+     * edges whose bounding boxes overlap it and their endpoints are looked at. Both are kept in list order, which breaks
+     * ties the same way as the full sweep.
+     *
+     * @param reachSquared: Squared distance a vertex has to be from the point for its sight line to reach the obstacle
+     */
+    private void sweepWindow(Vector2f point, double fromAngle, double toAngle, double reachSquared, SweepIndex index, List<Vector2f> visibleVertices) {
+        if (fromAngle > toAngle) return;
+
+        // Widened once more, so vertices whose rounded angles fall just inside the window are kept
+        int[] windowEdges = toSortedArray(index.edgeIndex.searchCone(point, fromAngle - WINDOW_MARGIN, toAngle + WINDOW_MARGIN));
+        List<Vector2f> windowVertices = getEndpointsInCone(point, fromAngle - WINDOW_MARGIN, toAngle + WINDOW_MARGIN, windowEdges, index.edgeEndpoints);
+        List<Vector2f> sortedVertices = sortByHalfLineAngle(point, windowVertices, fromAngle, toAngle);
+        Vector2f first = null;
+        double farthestSquared = 0;
+
+        for (Vector2f p : sortedVertices) {
+            if (p.equals(point)) continue;
+
+            if (first == null) first = p;
+
+            double dx = p.getX() - point.getX();
+            double dy = p.getY() - point.getY();
+
+            farthestSquared = Math.max(farthestSquared, dx * dx + dy * dy);
+        }
+
+        if (first == null || farthestSquared < reachSquared) return;
+
+        List<Rectangle> boundingBoxes = index.edgeIndex.getBoundingBoxes();
+
+        OpenEdges openEdges = new OpenEdges(index.crossingEdges);
+        Vector2f pointInf = new Vector2f(Double.POSITIVE_INFINITY, point.getY());
+        double firstAngle = point.angleTo(first);
+
+        for (int windowEdge : windowEdges) {
+            LineSegment e = edges.get(windowEdge);
+
+            // An edge past the farthest vertex can't block a sight line in the window, and is never the closest open edge
+            if (boundingBoxes.get(windowEdge).squaredDistance(point.getX(), point.getY()) > farthestSquared * (1 + WINDOW_MARGIN)) continue;
+
+            // An edge open at the first angle has to cross the line through the point and the first vertex
+            if (isClearlyOnOneSide(point, first, e)) continue;
+
+            if (isOpenBefore(point, pointInf, e, firstAngle)) {
+                openEdges.insert(point, first, e);
+            }
+        }
+
+        sweep(point, sortedVertices, openEdges, index.incidentEdges, visibleVertices);
+    }
+
+    /**
+     * Cheap cross product test run before sortByHalfLineAngle(), which needs the angle of every vertex it is given.
+     * Cones wider than a half plane keep every endpoint.
+     *
+     * @param edgeEndpoints: Vertex list index of both endpoints of every edge, or null if they aren't known
+     * @return Endpoints of the edges inside the cone of rays from the point between the angles, in vertex list order, or
+     * every vertex if the endpoints aren't known
+     */
+    private List<Vector2f> getEndpointsInCone(Vector2f point, double fromAngle, double toAngle, int[] edgeIndices, int[] edgeEndpoints) {
+        if (edgeEndpoints == null) return vertices;
+
+        boolean halfPlane = toAngle - fromAngle > Math.PI;
+        double fromX = Math.cos(fromAngle);
+        double fromY = Math.sin(fromAngle);
+        double toX = Math.cos(toAngle);
+        double toY = Math.sin(toAngle);
+
+        int[] vertexIndices = new int[2 * edgeIndices.length];
+        int size = 0;
+
+        for (int edgeIndex : edgeIndices) {
+            for (int end = 0; end < 2; end++) {
+                int vertexIndex = edgeEndpoints[2 * edgeIndex + end];
+                double dx = vertices.get(vertexIndex).getX() - point.getX();
+                double dy = vertices.get(vertexIndex).getY() - point.getY();
+
+                if (halfPlane || (fromX * dy - fromY * dx >= 0 && toX * dy - toY * dx <= 0)) {
+                    vertexIndices[size++] = vertexIndex;
+                }
+            }
+        }
+
+        int vertexCount = sortUnique(vertexIndices, size);
+        List<Vector2f> endpoints = new ArrayList<>(vertexCount);
+
+        for (int i = 0; i < vertexCount; i++) {
+            endpoints.add(vertices.get(vertexIndices[i]));
+        }
+
+        return endpoints;
+    }
+
+    private static int[] toSortedArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+
+        Arrays.sort(array);
+
+        return array;
+    }
+
+    /**
+     * Replays what the full sweep from a point does to one edge before it reaches an angle: the edge is open from the
+     * initial half-line if it crosses it, opened at the endpoint the edge leaves counter-clockwise from and closed at
+     * the other endpoint.
+     *
+     * @return True if the edge is open when the sweep reaches the angle
+     */
+    private static boolean isOpenBefore(Vector2f point, Vector2f pointInf, LineSegment e, double angle) {
+        Vector2f p1 = e.getPoint1();
+        Vector2f p2 = e.getPoint2();
+
+        if (p1.equals(point) || p2.equals(point)) return false;
+
+        boolean open = edgeIntersect(point, pointInf, e) && !onSegment(point, p1, pointInf) && !onSegment(point, p2, pointInf);
+        int side = isCCW(point, p1, p2);
+
+        // Edges along the sight line are never opened or closed
+        if (side == 0) return open;
+
+        Vector2f opening = side == 1 ? p1 : p2;
+        Vector2f closing = side == 1 ? p2 : p1;
+        double openingAngle = point.angleTo(opening);
+        double closingAngle = point.angleTo(closing);
+
+        boolean opened = openingAngle < angle;
+        boolean closed = closingAngle < angle;
+
+        if (opened && closed) {
+            // The later of the two events wins, in the sweep's order of angle and then distance
+            int order = Double.compare(openingAngle, closingAngle);
+
+            if (order == 0) order = Double.compare(point.distanceTo(opening), point.distanceTo(closing));
+
+            return order > 0;
+        }
+
+        return opened || (!closed && open);
+    }
+
+    /**
+     * Cheap test run before isOpenBefore(), which needs the angles of both endpoints. The margin keeps endpoints whose
+     * rounded angles could still match the line's.
+     *
+     * @return True if both endpoints of the edge lie on the same side of the line through a and b, well away from it
+     */
+    private static boolean isClearlyOnOneSide(Vector2f a, Vector2f b, LineSegment e) {
+        double directionX = b.getX() - a.getX();
+        double directionY = b.getY() - a.getY();
+        double directionLengthSquared = directionX * directionX + directionY * directionY;
+
+        int side1 = sideOfLine(a, directionX, directionY, directionLengthSquared, e.getPoint1());
+        int side2 = sideOfLine(a, directionX, directionY, directionLengthSquared, e.getPoint2());
+
+        return side1 != 0 && side1 == side2;
+    }
+
+    /**
+     * @return Side of the line the point is on, or 0 if the sine of its angle to the line is within the window margin
+     */
+    private static int sideOfLine(Vector2f a, double directionX, double directionY, double directionLengthSquared, Vector2f p) {
+        double toX = p.getX() - a.getX();
+        double toY = p.getY() - a.getY();
+        double cross = directionX * toY - directionY * toX;
+
+        if (cross * cross <= WINDOW_MARGIN * WINDOW_MARGIN * directionLengthSquared * (toX * toX + toY * toY)) return 0;
+
+        return cross > 0 ? 1 : -1;
+    }
+
+    /**
+     * Sweeps the sorted vertices from the given open edges, adding the ones visible from the point.
+     */
+    private void sweep(Vector2f point, List<Vector2f> sortedVertices, OpenEdges openEdges, Map<Vector2f, List<LineSegment>> incidentEdges,
+                       List<Vector2f> visibleVertices) {
+        List<LineSegment> pointEdges = incidentEdges.getOrDefault(point, Collections.emptyList());
+
         Vector2f previous = null;
         boolean previousVisible = false;
 
         for (Vector2f p : sortedVertices) {
             if (p.equals(point)) continue;
-            if (point.angleTo(p) > Math.PI) continue;
-
-            if (!openEdges.getOpenEdges().isEmpty()) {
-                for (LineSegment e : edges) {
-                    if (e.getPoint1().equals(p) || e.getPoint2().equals(p)) {
-                        if (isCCW(point, p, e.getAdjacent(p)) == -1) {
-                            openEdges.delete(point, p, e);
-                        }
+
+            List<LineSegment> pEdges = incidentEdges.getOrDefault(p, Collections.emptyList());
+
+            if (!openEdges.isEmpty()) {
+                for (LineSegment e : pEdges) {
+                    if (isCCW(point, p, e.getAdjacent(p)) == -1) {
+                        openEdges.delete(point, p, e);
                     }
                 }
             }
@@ -199,37 +1054,29 @@ public class VisibilityGraph {
             boolean isVisible = false;
 
             if (previous == null || isCCW(point, previous, p) != 0 || !onSegment(point, previous, p)) {
-                if (openEdges.getOpenEdges().size() == 0) {
-                    isVisible = true;
-                } else if (!edgeIntersect(point, p, openEdges.smallest())) {
-                    isVisible = true;
-                }
+                isVisible = openEdges.isEmpty() || !crossesOpenEdge(point, p, openEdges);
             } else if (!previousVisible) {
                 isVisible = false;
             } else {
                 isVisible = true;
 
                 for (LineSegment e : openEdges.getOpenEdges()) {
-                    if (!e.getPoint1().equals(previous) && !e.getPoint2().equals(previous) && edgeIntersect(previous, p, e)) {
+                    if (!e.getPoint1().equals(previous) && !e.getPoint2().equals(previous) && countedEdgeIntersect(previous, p, e)) {
                         isVisible = false;
                         break;
                     }
-
-                    if (isVisible && edgeInPolygon(previous, p, obstacles)) {
-                        isVisible = false;
-                    }
                 }
-            }
 
-            List<Vector2f> adjacentPoints = new ArrayList<>();
-
-            for (LineSegment e : edges) {
-                if (e.getPoint1().equals(point) || e.getPoint2().equals(point)) {
-                    adjacentPoints.add(e.getAdjacent(point));
+                // Checked once whether or not any edge is open, so edges far past p can't change the result
+                if (isVisible && !isAdjacent(previous, p, incidentEdges.getOrDefault(previous, Collections.emptyList()))) {
+                    isVisible = !edgeInPolygon(previous, p, obstacles);
+                } else if (isVisible) {
+                    // Running along an obstacle edge is only blocked by an overlapping obstacle the edge lies inside
+                    isVisible = !isInsideOtherObstacle((previous.getX() + p.getX()) / 2, (previous.getY() + p.getY()) / 2, previous.getPolygonID());
                 }
             }
 
-            if (isVisible && !adjacentPoints.contains(p)) {
+            if (isVisible && !isAdjacent(point, p, pointEdges)) {
                 isVisible = !edgeInPolygon(point, p, obstacles);
             }
 
@@ -237,12 +1084,10 @@ public class VisibilityGraph {
                 visibleVertices.add(p);
             }
 
-            for (LineSegment e : edges) {
-                if (e.getPoint1().equals(p) || e.getPoint2().equals(p)) {
-                    if (!e.getPoint1().equals(point) && !e.getPoint2().equals(point) && e.getAdjacent(p) != null) {
-                        if (isCCW(point, p, e.getAdjacent(p)) == 1) {
-                            openEdges.insert(point, p, e);
-                        }
+            for (LineSegment e : pEdges) {
+                if (!e.getPoint1().equals(point) && !e.getPoint2().equals(point)) {
+                    if (isCCW(point, p, e.getAdjacent(p)) == 1) {
+                        openEdges.insert(point, p, e);
                     }
                 }
             }
@@ -250,39 +1095,98 @@ public class VisibilityGraph {
             previous = p;
             previousVisible = isVisible;
         }
+    }
 
-        return visibleVertices;
+    /**
+     * The open edges in the tree don't cross, so if any of them blocks the sight line the closest one does. Edges of
+     * overlapping obstacles aren't ordered and are checked one by one, which never happens on fields whose obstacles
+     * don't overlap.
+     *
+     * @return True if the sight line from point to p crosses or touches an open edge
+     */
+    private boolean crossesOpenEdge(Vector2f point, Vector2f p, OpenEdges openEdges) {
+        LineSegment smallest = openEdges.smallest();
+
+        if (smallest != null && countedEdgeIntersect(point, p, smallest)) return true;
+
+        for (LineSegment e : openEdges.getOpenCrossingEdges()) {
+            if (countedEdgeIntersect(point, p, e)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return True if p is joined to point by one of point's obstacle edges
+     */
+    private static boolean isAdjacent(Vector2f point, Vector2f p, List<LineSegment> pointEdges) {
+        for (LineSegment e : pointEdges) {
+            if (p.equals(e.getAdjacent(point))) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
-    private static class CCWHalfLineComparator implements Comparator<Vector2f> {
+    /**
+     * Sorts the candidates whose angles around the half-line origin lie between the given angles counter-clockwise,
+     * closest first and then in candidate order on ties. The angles and distances are computed once per vertex rather
+     * than once per comparison.
+     */
+    private static List<Vector2f> sortByHalfLineAngle(Vector2f halfLineOrigin, List<Vector2f> candidates, double fromAngle, double toAngle) {
+        int n = candidates.size();
+        double[] angles = new double[n];
+        double[] distances = new double[n];
+        Integer[] order = new Integer[n];
+        int size = 0;
+
+        for (int i = 0; i < n; i++) {
+            Vector2f v = candidates.get(i);
 
-        private Vector2f halfLineOrigin;
+            // Vertices below the origin are past the upper half plane, no need for their angle
+            if (toAngle <= Math.PI && v.getY() < halfLineOrigin.getY()) continue;
 
-        private CCWHalfLineComparator(Vector2f halfLineOrigin) {
-            this.halfLineOrigin = halfLineOrigin;
+            angles[i] = halfLineOrigin.angleTo(v);
+
+            if (angles[i] < fromAngle || angles[i] > toAngle) continue;
+
+            distances[i] = halfLineOrigin.distanceTo(v);
+            order[size++] = i;
         }
 
-        @Override
-        public int compare(Vector2f v1, Vector2f v2) {
-            double v1CCWAngle = halfLineOrigin.angleTo(v1);
-            double v2CCWAngle = halfLineOrigin.angleTo(v2);
+        Arrays.sort(order, 0, size, (i1, i2) -> {
+            int compareAngles = Double.compare(angles[i1], angles[i2]);
 
-            if (v1CCWAngle > v2CCWAngle) {
-                return 1;
-            } else if (v1CCWAngle < v2CCWAngle) {
-                return -1;
-            } else {
-                double halfLineOriginToV1 = halfLineOrigin.distanceTo(v1);
-                double halfLineOriginToV2 = halfLineOrigin.distanceTo(v2);
+            return compareAngles != 0 ? compareAngles : Double.compare(distances[i1], distances[i2]);
+        });
 
-                if (halfLineOriginToV1 > halfLineOriginToV2) {
-                    return 1;
-                } else if (halfLineOriginToV1 < halfLineOriginToV2) {
-                    return -1;
-                }
-            }
+        List<Vector2f> sortedVertices = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            sortedVertices.add(candidates.get(order[i]));
+        }
+
+        return sortedVertices;
+    }
 
-            return 0;
+    /**
+     * Lookups over the obstacle edges that every sweep of one build or repair shares.
+     */
+    private final class SweepIndex {
+
+        // Broad phase over the obstacle edges, so exact tests only run against edges near a query
+        final STRTree edgeIndex;
+        final Set<LineSegment> crossingEdges;
+        final Map<Vector2f, List<LineSegment>> incidentEdges;
+        // Used by window sweeps to find the vertices in a window
+        final int[] edgeEndpoints;
+
+        SweepIndex() {
+            edgeIndex = calculateEdgeIndex();
+            crossingEdges = calculateCrossingEdges(edgeIndex);
+            incidentEdges = calculateIncidentEdges();
+            edgeEndpoints = calculateEdgeEndpoints();
         }
 
     }
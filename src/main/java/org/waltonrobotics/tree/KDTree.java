@@ -0,0 +1,137 @@
+package org.waltonrobotics.tree;
+
+/**
+ * Static two-dimensional k-d tree over a set of points, used for nearest-neighbour lookups. The tree is stored
+ * implicitly: the point at the middle of every index range splits that range along the axis of its depth.
+ */
+public class KDTree {
+
+    private final double[] coordinates;
+    private final int[] points;
+
+    /**
+     * Builds the tree in O(n log n) expected time.
+     *
+     * @param coordinates: Interleaved x and y coordinates, point i is at (coordinates[2i], coordinates[2i + 1])
+     */
+    public KDTree(double[] coordinates) {
+        this.coordinates = coordinates;
+        this.points = new int[coordinates.length / 2];
+
+        for (int i = 0; i < points.length; i++) {
+            points[i] = i;
+        }
+
+        build(0, points.length, 0);
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    /**
+     * Finds the point closest to a query point. Ties are broken towards the lowest point index, so the result is the
+     * same as a linear scan keeping the first closest point.
+     *
+     * @param x: Query x coordinate
+     * @param y: Query y coordinate
+     * @return Index of the closest point, or -1 if the tree is empty
+     */
+    public int nearest(double x, double y) {
+        if (points.length == 0) return -1;
+
+        Search search = new Search();
+
+        nearest(0, points.length, 0, x, y, search);
+
+        return search.bestPoint;
+    }
+
+    private void nearest(int low, int high, int depth, double x, double y, Search search) {
+        if (low >= high) return;
+
+        int mid = (low + high) >>> 1;
+        int point = points[mid];
+
+        double dx = coordinates[2 * point] - x;
+        double dy = coordinates[2 * point + 1] - y;
+        double distance = dx * dx + dy * dy;
+
+        if (distance < search.bestDistance || (distance == search.bestDistance && point < search.bestPoint)) {
+            search.bestDistance = distance;
+            search.bestPoint = point;
+        }
+
+        // Signed distance from the query to the splitting line
+        double split = (depth & 1) == 0 ? x - coordinates[2 * point] : y - coordinates[2 * point + 1];
+
+        int nearLow = split < 0 ? low : mid + 1;
+        int nearHigh = split < 0 ? mid : high;
+        int farLow = split < 0 ? mid + 1 : low;
+        int farHigh = split < 0 ? high : mid;
+
+        nearest(nearLow, nearHigh, depth + 1, x, y, search);
+
+        // Points on the far side can only tie or win if the splitting line is within the best distance
+        if (split * split <= search.bestDistance) {
+            nearest(farLow, farHigh, depth + 1, x, y, search);
+        }
+    }
+
+    private void build(int low, int high, int depth) {
+        if (high - low <= 1) return;
+
+        int mid = (low + high) >>> 1;
+        int axis = depth & 1;
+
+        select(low, high - 1, mid, axis);
+
+        build(low, mid, depth + 1);
+        build(mid + 1, high, depth + 1);
+    }
+
+    /**
+     * Quickselect: partially orders points[low..high] so points[k] holds the point that would be there if the range
+     * were sorted along the axis.
+     */
+    private void select(int low, int high, int k, int axis) {
+        while (low < high) {
+            double pivot = key(points[(low + high) >>> 1], axis);
+            int i = low;
+            int j = high;
+
+            while (i <= j) {
+                while (key(points[i], axis) < pivot) i++;
+                while (key(points[j], axis) > pivot) j--;
+
+                if (i <= j) {
+                    int temp = points[i];
+                    points[i] = points[j];
+                    points[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private double key(int point, int axis) {
+        return coordinates[2 * point + axis];
+    }
+
+    private static class Search {
+
+        private double bestDistance = Double.POSITIVE_INFINITY;
+        private int bestPoint = -1;
+
+    }
+
+}
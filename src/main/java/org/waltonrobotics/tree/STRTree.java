@@ -1,10 +1,12 @@
 package org.waltonrobotics.tree;
 
 import org.waltonrobotics.geometry.ConvexHull;
+import org.waltonrobotics.geometry.LineSegment;
 import org.waltonrobotics.geometry.Rectangle;
 import org.waltonrobotics.geometry.Vector2f;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 public class STRTree {
 
@@ -66,6 +68,9 @@ public class STRTree {
         return leafCapacity;
     }
 
+    /**
+     * @return Bounding boxes in the order they were given, query results are indices into this list
+     */
     public List<Rectangle> getBoundingBoxes() {
         return boundingBoxes;
     }
@@ -82,6 +87,12 @@ public class STRTree {
         }
     }
 
+    private STRTreeNode addEntry(STRTreeNode parent, int entryIndex) {
+        STRTreeNode entryNode = new STRTreeNode(parent, new LinkedList<>(), this, boundingBoxes.get(entryIndex), entryIndex);
+        parent.children.addLast(entryNode);
+        return entryNode;
+    }
+
     private STRTreeNode addNode(STRTreeNode parent, Rectangle boundingBox) {
         if (parent == null) {
             throw new NullPointerException("Cannot add child to null parent.");
@@ -104,52 +115,274 @@ public class STRTree {
 
         addRoot(allEncompassing);
 
-        boundingBoxes.sort(xComparator);
+        // Sort entry indices rather than the bounding boxes themselves so query results index the original list
+        List<Integer> entries = new ArrayList<>(boundingBoxes.size());
+
+        for (int e = 0; e < boundingBoxes.size(); e++) {
+            entries.add(e);
+        }
+
+        entries.sort((e1, e2) -> xComparator.compare(boundingBoxes.get(e1), boundingBoxes.get(e2)));
 
-        Iterator i = boundingBoxes.iterator();
+        Iterator<Integer> i = entries.iterator();
 
         for (int j = 0; j < numberOfVerticleSlices; j++) {
             Rectangle currentSliceEncompassing = new Rectangle();
-            List<Rectangle> currentSliceBoundingBoxes = new ArrayList<>();
+            List<Integer> currentSliceEntries = new ArrayList<>();
 
             int boundingBoxesAddedToSlice = 0;
 
             while (i.hasNext() && boundingBoxesAddedToSlice < sliceCapacity) {
-                Rectangle sliceBoundingBox = (Rectangle) i.next();
+                int sliceEntry = i.next();
+                Rectangle sliceBoundingBox = boundingBoxes.get(sliceEntry);
 
                 allEncompassing.expandToInclude(sliceBoundingBox);
 
                 currentSliceEncompassing.expandToInclude(sliceBoundingBox);
-                currentSliceBoundingBoxes.add(sliceBoundingBox);
+                currentSliceEntries.add(sliceEntry);
                 boundingBoxesAddedToSlice++;
             }
 
             STRTreeNode sliceNode = addNode(root, currentSliceEncompassing);
 
-            currentSliceBoundingBoxes.sort(yComparator);
+            currentSliceEntries.sort((e1, e2) -> yComparator.compare(boundingBoxes.get(e1), boundingBoxes.get(e2)));
 
-            Iterator k = currentSliceBoundingBoxes.iterator();
+            Iterator<Integer> k = currentSliceEntries.iterator();
 
             for (int l = 0; l < numberOfTilesPerSlice; l++) {
                 Rectangle currentTileEncompassing = new Rectangle();
-                List<Rectangle> currentTileBoundingBoxes = new ArrayList<>();
+                List<Integer> currentTileEntries = new ArrayList<>();
 
                 int boundingBoxesAddedToTile = 0;
 
                 while (k.hasNext() && boundingBoxesAddedToTile < leafCapacity) {
-                    Rectangle tileBoundingBox = (Rectangle) k.next();
-                    currentTileEncompassing.expandToInclude(tileBoundingBox);
-                    currentTileBoundingBoxes.add(tileBoundingBox);
+                    int tileEntry = k.next();
+                    currentTileEncompassing.expandToInclude(boundingBoxes.get(tileEntry));
+                    currentTileEntries.add(tileEntry);
                     boundingBoxesAddedToTile++;
                 }
 
                 STRTreeNode tileNode = addNode(sliceNode, currentTileEncompassing);
 
-                for (Rectangle tileBB : currentTileBoundingBoxes) {
-                    addNode(tileNode, tileBB);
+                for (int tileEntry : currentTileEntries) {
+                    addEntry(tileNode, tileEntry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queries walk the tree with an explicit stack, so deep or unbalanced trees can't overflow the call stack.
+     *
+     * @return Indices of the entries whose bounding boxes pass the test, every inner node on the way has to pass too
+     */
+    private List<Integer> search(Predicate<Rectangle> test) {
+        List<Integer> result = new ArrayList<>();
+        Deque<STRTreeNode> stack = new ArrayDeque<>();
+
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            STRTreeNode node = stack.pop();
+
+            if (!test.test(node.boundingBox)) continue;
+
+            if (node.isEntry()) {
+                result.add(node.entryIndex);
+            } else {
+                for (STRTreeNode child : node.children) {
+                    stack.push(child);
                 }
             }
         }
+
+        return result;
+    }
+
+    /**
+     * Answers many queries in a single traversal. Every stacked node carries the queries that passed all of its
+     * ancestors, so each node is visited at most once no matter how many queries there are.
+     *
+     * @return Indices of the passing entries for every query, in query order
+     */
+    private List<List<Integer>> searchAll(int queryCount, QueryTest test) {
+        List<List<Integer>> results = new ArrayList<>(queryCount);
+        int[] allQueries = new int[queryCount];
+
+        for (int q = 0; q < queryCount; q++) {
+            results.add(new ArrayList<>());
+            allQueries[q] = q;
+        }
+
+        if (queryCount == 0) return results;
+
+        Deque<STRTreeNode> stack = new ArrayDeque<>();
+        Deque<int[]> stackQueries = new ArrayDeque<>();
+
+        stack.push(root);
+        stackQueries.push(allQueries);
+
+        while (!stack.isEmpty()) {
+            STRTreeNode node = stack.pop();
+            int[] queries = stackQueries.pop();
+
+            // Entries are the bulk of the nodes, record their hits directly rather than filtering into a new array
+            if (node.isEntry()) {
+                for (int q : queries) {
+                    if (test.test(q, node.boundingBox)) {
+                        results.get(q).add(node.entryIndex);
+                    }
+                }
+
+                continue;
+            }
+
+            int[] passingQueries = new int[queries.length];
+            int passingCount = 0;
+
+            for (int q : queries) {
+                if (test.test(q, node.boundingBox)) {
+                    passingQueries[passingCount++] = q;
+                }
+            }
+
+            if (passingCount == 0) continue;
+
+            int[] childQueries = passingCount == queries.length ? queries : Arrays.copyOf(passingQueries, passingCount);
+
+            for (STRTreeNode child : node.children) {
+                stack.push(child);
+                stackQueries.push(childQueries);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * @param range: Range to search, borders included
+     * @return Indices of the bounding boxes intersecting the range
+     */
+    public List<Integer> search(Rectangle range) {
+        return search(boundingBox -> boundingBox.intersects(range));
+    }
+
+    /**
+     * @param point: Point to search
+     * @return Indices of the bounding boxes containing the point
+     */
+    public List<Integer> searchPoint(Vector2f point) {
+        return search(boundingBox -> boundingBox.contains(point.getX(), point.getY()));
+    }
+
+    /**
+     * @param segment: Segment to search
+     * @return Indices of the bounding boxes the segment passes through or touches
+     */
+    public List<Integer> searchSegment(LineSegment segment) {
+        return search(boundingBox -> boundingBox.intersects(segment));
+    }
+
+    /**
+     * @param apex:      Point the rays start from
+     * @param fromAngle: Angle of the first ray in radians
+     * @param toAngle:   Angle of the last ray in radians, counter-clockwise of the first ray
+     * @return Indices of the bounding boxes overlapping the cone of rays between the angles. Cones wider than a half
+     * plane match every bounding box.
+     */
+    public List<Integer> searchCone(Vector2f apex, double fromAngle, double toAngle) {
+        if (toAngle - fromAngle > Math.PI) return search(boundingBox -> true);
+
+        double fromX = Math.cos(fromAngle);
+        double fromY = Math.sin(fromAngle);
+        double toX = Math.cos(toAngle);
+        double toY = Math.sin(toAngle);
+
+        return search(boundingBox -> boundingBox.intersectsCone(apex.getX(), apex.getY(), fromX, fromY, toX, toY));
+    }
+
+    /**
+     * Best-first search ordered by the distance from the point to each node's bounding box, which never exceeds the
+     * distance to anything inside it, so entries come off the queue closest first.
+     *
+     * @param point: Point to search around
+     * @param k:     Number of bounding boxes to find
+     * @return Indices of the k bounding boxes closest to the point, closest first. Boxes containing the point have
+     * distance 0.
+     */
+    public List<Integer> searchNearest(Vector2f point, int k) {
+        List<Integer> result = new ArrayList<>(Math.max(k, 0));
+        PriorityQueue<NearestCandidate> queue = new PriorityQueue<>();
+
+        queue.add(new NearestCandidate(root, root.boundingBox.squaredDistance(point.getX(), point.getY())));
+
+        while (!queue.isEmpty() && result.size() < k) {
+            STRTreeNode node = queue.poll().node;
+
+            if (node.isEntry()) {
+                result.add(node.entryIndex);
+                continue;
+            }
+
+            for (STRTreeNode child : node.children) {
+                // Empty tiles have null bounding boxes
+                if (child.boundingBox.isNull()) continue;
+
+                queue.add(new NearestCandidate(child, child.boundingBox.squaredDistance(point.getX(), point.getY())));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Batch version of {@link #search(Rectangle)} answering every range in one traversal.
+     *
+     * @return Indices of the bounding boxes intersecting each range, in range order
+     */
+    public List<List<Integer>> searchAll(List<Rectangle> ranges) {
+        return searchAll(ranges.size(), (q, boundingBox) -> boundingBox.intersects(ranges.get(q)));
+    }
+
+    /**
+     * Batch version of {@link #searchPoint(Vector2f)} answering every point in one traversal.
+     *
+     * @return Indices of the bounding boxes containing each point, in point order
+     */
+    public List<List<Integer>> searchPointAll(List<Vector2f> points) {
+        return searchAll(points.size(), (q, boundingBox) -> boundingBox.contains(points.get(q).getX(), points.get(q).getY()));
+    }
+
+    /**
+     * Batch version of {@link #searchSegment(LineSegment)} answering every segment in one traversal.
+     *
+     * @return Indices of the bounding boxes each segment passes through or touches, in segment order
+     */
+    public List<List<Integer>> searchSegmentAll(List<LineSegment> segments) {
+        return searchAll(segments.size(), (q, boundingBox) -> boundingBox.intersects(segments.get(q)));
+    }
+
+    private interface QueryTest {
+
+        boolean test(int query, Rectangle boundingBox);
+
+    }
+
+    private static class NearestCandidate implements Comparable<NearestCandidate> {
+
+        private final STRTreeNode node;
+        private final double squaredDistance;
+
+        private NearestCandidate(STRTreeNode node, double squaredDistance) {
+            this.node = node;
+            this.squaredDistance = squaredDistance;
+        }
+
+        @Override
+        public int compareTo(NearestCandidate other) {
+            return Double.compare(squaredDistance, other.squaredDistance);
+        }
+
     }
 
 }
@@ -10,12 +10,25 @@ public class STRTreeNode {
     public LinkedList<STRTreeNode> children;
     public STRTree hostTree;
     public Rectangle boundingBox;
+    /**
+     * Index of the bounding box in the host tree's bounding boxes for entry nodes, -1 for inner nodes
+     */
+    public int entryIndex;
 
     public STRTreeNode(STRTreeNode parent, LinkedList<STRTreeNode> children, STRTree hostTree, Rectangle boundingBox) {
+        this(parent, children, hostTree, boundingBox, -1);
+    }
+
+    public STRTreeNode(STRTreeNode parent, LinkedList<STRTreeNode> children, STRTree hostTree, Rectangle boundingBox, int entryIndex) {
         this.parent = parent;
         this.children = children;
         this.hostTree = hostTree;
         this.boundingBox = boundingBox;
+        this.entryIndex = entryIndex;
+    }
+
+    public boolean isEntry() {
+        return entryIndex != -1;
     }
 
 }